@@ -0,0 +1,161 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+import net.imglib2.type.PrimitiveType;
+import net.imglib2.util.Intervals;
+
+/**
+ * Boilerplate for {@link BlockProcessor} to simplify implementations.
+ * <p>
+ * Manages the source interval and a {@link TempArray} source buffer. By
+ * default, the source interval is identical to the target interval (as for
+ * pointwise operations). Implementations that require a larger source
+ * interval (e.g., a halo around the target block) can specify a {@code
+ * border} in the constructor, or override {@link #setTargetInterval}.
+ *
+ * @param <I>
+ * 		input primitive array type, e.g., {@code float[]}
+ * @param <O>
+ * 		output primitive array type, e.g., {@code float[]}
+ */
+public abstract class AbstractBlockProcessor< I, O > implements BlockProcessor< I, O >
+{
+	private final TempArray< I > tempArray;
+
+	private final int[] border;
+
+	protected long[] sourcePos;
+
+	protected int[] sourceSize;
+
+	protected int sourceLength;
+
+	/**
+	 * Create a {@code BlockProcessor} whose source interval is identical to
+	 * its target interval. Target intervals of any dimensionality are
+	 * accepted.
+	 *
+	 * @param sourcePrimitiveType
+	 * 		primitive type of the source buffer
+	 */
+	protected AbstractBlockProcessor( final PrimitiveType sourcePrimitiveType )
+	{
+		this( sourcePrimitiveType, null );
+	}
+
+	/**
+	 * Create a {@code BlockProcessor} whose source interval is the target
+	 * interval extended by {@code border[d]} pixels on both sides in every
+	 * dimension {@code d}. Target intervals must have {@code border.length}
+	 * dimensions.
+	 *
+	 * @param sourcePrimitiveType
+	 * 		primitive type of the source buffer
+	 * @param border
+	 * 		halo (in pixels) around the target interval, for each dimension
+	 */
+	protected AbstractBlockProcessor( final PrimitiveType sourcePrimitiveType, final int[] border )
+	{
+		tempArray = TempArray.forPrimitiveType( sourcePrimitiveType );
+		this.border = border == null ? null : border.clone();
+		final int n = border == null ? 0 : border.length;
+		sourcePos = new long[ n ];
+		sourceSize = new int[ n ];
+	}
+
+	protected AbstractBlockProcessor( final AbstractBlockProcessor< I, O > processor )
+	{
+		tempArray = processor.tempArray.newInstance();
+		border = processor.border;
+		final int n = processor.sourcePos.length;
+		sourcePos = new long[ n ];
+		sourceSize = new int[ n ];
+	}
+
+	@Override
+	public void setTargetInterval( final long[] pos, final int[] size )
+	{
+		final int n = pos.length;
+		if ( size.length != n || ( border != null && border.length != n ) )
+			throw new IllegalArgumentException( "expected " + ( border == null ? size.length : border.length ) + "-dimensional interval" );
+		if ( sourcePos.length != n )
+		{
+			sourcePos = new long[ n ];
+			sourceSize = new int[ n ];
+		}
+		for ( int d = 0; d < n; ++d )
+		{
+			final int b = border == null ? 0 : border[ d ];
+			sourcePos[ d ] = pos[ d ] - b;
+			sourceSize[ d ] = size[ d ] + 2 * b;
+		}
+		sourceLength = safeInt( Intervals.numElements( sourceSize ) );
+	}
+
+	/**
+	 * Get the halo (in pixels) around the target interval, for each
+	 * dimension, or {@code null} if the source interval is identical to the
+	 * target interval.
+	 */
+	protected int[] border()
+	{
+		return border;
+	}
+
+	@Override
+	public long[] getSourcePos()
+	{
+		return sourcePos;
+	}
+
+	@Override
+	public int[] getSourceSize()
+	{
+		return sourceSize;
+	}
+
+	@Override
+	public I getSourceBuffer()
+	{
+		return tempArray.get( sourceLength );
+	}
+
+	protected static int safeInt( final long value )
+	{
+		if ( value > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "value too large" );
+		return ( int ) value;
+	}
+}
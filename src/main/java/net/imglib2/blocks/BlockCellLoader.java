@@ -0,0 +1,159 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.cell.BoundedCellCache;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.img.cell.LazyCellImg;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.Cast;
+import net.imglib2.util.Intervals;
+
+/**
+ * A {@link LazyCellImg.Get} that computes cells by {@link
+ * PrimitiveBlocks#copy copying} them from a {@link PrimitiveBlocks}.
+ * <p>
+ * Together with {@link PrimitiveBlocks#andThen(UnaryBlockOperator)}, this can
+ * be used to lazily compute images block-wise, for example:
+ * <pre>{@code
+ * 		PrimitiveBlocks< FloatType > blocks = PrimitiveBlocks.of( Views.extendBorder( img ) )
+ * 				.andThen( UnaryBlockOperators.convert( new UnsignedByteType(), new FloatType() ) )
+ * 				.andThen( UnaryBlockOperators.boxMean( new FloatType(), 1, 1 ) );
+ * 		LazyCellImg< FloatType, ? > smoothed = BlockCellLoader.lazyCellImg( blocks, img.dimensionsAsLongArray(), new int[] { 64, 64 } );
+ * }</pre>
+ * {@code BlockCellLoader} is thread-safe.
+ *
+ * @param <T>
+ * 		pixel type
+ * @param <A>
+ * 		{@code ArrayDataAccess} type of the cells
+ */
+public class BlockCellLoader< T extends NativeType< T >, A extends ArrayDataAccess< A > > implements LazyCellImg.Get< Cell< A > >
+{
+	private final PrimitiveBlocks< T > blocks;
+
+	private final CellGrid grid;
+
+	private final PrimitiveTypeProperties< ?, A > primitiveTypeProperties;
+
+	/**
+	 * Create a {@code BlockCellLoader} that computes the cells of {@code grid}
+	 * by copying them from {@code blocks}.
+	 *
+	 * @param blocks
+	 * 		provides the cell data
+	 * @param grid
+	 * 		the cell grid
+	 */
+	public BlockCellLoader( final PrimitiveBlocks< T > blocks, final CellGrid grid )
+	{
+		final T type = blocks.getType();
+		if ( type.getEntitiesPerPixel().getRatio() != 1 )
+			throw new IllegalArgumentException( "Types with entitiesPerPixel != 1 are not supported" );
+		if ( blocks.numDimensions() != grid.numDimensions() )
+			throw new IllegalArgumentException( "Number of dimensions of blocks and grid do not match" );
+		this.blocks = blocks.threadSafe();
+		this.grid = grid;
+		primitiveTypeProperties = Cast.unchecked( PrimitiveTypeProperties.get( type.getNativeTypeFactory().getPrimitiveType() ) );
+	}
+
+	@Override
+	public Cell< A > get( final long index )
+	{
+		final int n = grid.numDimensions();
+		final long[] cellMin = new long[ n ];
+		final int[] cellDims = new int[ n ];
+		grid.getCellDimensions( index, cellMin, cellDims );
+		final Object data = primitiveTypeProperties.allocate( ( int ) Intervals.numElements( cellDims ) );
+		blocks.copy( cellMin, data, cellDims );
+		return new Cell<>( cellDims, cellMin, primitiveTypeProperties.wrap( data ) );
+	}
+
+	/**
+	 * Create a {@code LazyCellImg} of the given {@code dimensions} whose cells
+	 * are copied from {@code blocks} when they are first accessed. Computed
+	 * cells are retained until the image is garbage-collected.
+	 *
+	 * @param blocks
+	 * 		provides the cell data
+	 * @param dimensions
+	 * 		dimensions of the image
+	 * @param cellDimensions
+	 * 		dimensions of a standard cell
+	 */
+	public static < T extends NativeType< T > > LazyCellImg< T, ? > lazyCellImg(
+			final PrimitiveBlocks< T > blocks,
+			final long[] dimensions,
+			final int[] cellDimensions )
+	{
+		return lazyCellImg( blocks, dimensions, cellDimensions, Long.MAX_VALUE );
+	}
+
+	/**
+	 * Create a {@code LazyCellImg} of the given {@code dimensions} whose cells
+	 * are copied from {@code blocks} when they are accessed. Computed cells are
+	 * held in a {@link BoundedCellCache} of at most {@code maxCacheBytes}
+	 * bytes, and recomputed when they are accessed again after eviction.
+	 *
+	 * @param blocks
+	 * 		provides the cell data
+	 * @param dimensions
+	 * 		dimensions of the image
+	 * @param cellDimensions
+	 * 		dimensions of a standard cell
+	 * @param maxCacheBytes
+	 * 		maximum total number of bytes of cached cell data
+	 */
+	public static < T extends NativeType< T > > LazyCellImg< T, ? > lazyCellImg(
+			final PrimitiveBlocks< T > blocks,
+			final long[] dimensions,
+			final int[] cellDimensions,
+			final long maxCacheBytes )
+	{
+		final CellGrid grid = new CellGrid( dimensions, cellDimensions );
+		final BlockCellLoader< T, ? > loader = new BlockCellLoader<>( blocks, grid );
+		return create( grid, blocks.getType(), loader, maxCacheBytes );
+	}
+
+	private static < T extends NativeType< T >, A extends ArrayDataAccess< A > > LazyCellImg< T, A > create(
+			final CellGrid grid,
+			final T type,
+			final BlockCellLoader< T, A > loader,
+			final long maxCacheBytes )
+	{
+		return new LazyCellImg<>( grid, type.createVariable(), new BoundedCellCache<>( loader, maxCacheBytes ) );
+	}
+}
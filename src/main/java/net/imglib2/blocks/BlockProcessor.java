@@ -0,0 +1,133 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+
+/**
+ * Computes a target block (primitive array {@code O}) from a source block
+ * (primitive array {@code I}). This is the untyped, low-level part of a {@link
+ * UnaryBlockOperator}.
+ * <p>
+ * Typical usage: first, {@link #setTargetInterval set the target interval}
+ * that should be computed. The {@code BlockProcessor} then knows the required
+ * {@link #getSourcePos() source interval}, which may be larger than the target
+ * interval (e.g., for operations that require a neighborhood of each target
+ * pixel). Copy the source interval into the {@link #getSourceBuffer() source
+ * buffer}, then {@link #compute} the target block:
+ * <pre>{@code
+ * 		processor.setTargetInterval( pos, size );
+ * 		final I src = processor.getSourceBuffer();
+ * 		blocks.copy( processor.getSourcePos(), src, processor.getSourceSize() );
+ * 		processor.compute( src, dest );
+ * }</pre>
+ * Implementations are not thread-safe in general. Use {@link
+ * #independentCopy()} to obtain instances for concurrent use.
+ *
+ * @param <I>
+ * 		input primitive array type, e.g., {@code float[]}
+ * @param <O>
+ * 		output primitive array type, e.g., {@code float[]}
+ */
+public interface BlockProcessor< I, O >
+{
+	/**
+	 * Get an instance of this {@code BlockProcessor} that can be used
+	 * concurrently with this instance. (Temporary buffers and state are not
+	 * shared.)
+	 */
+	BlockProcessor< I, O > independentCopy();
+
+	/**
+	 * Set the target interval to be computed by the next {@link #compute}
+	 * call, and update the required source interval accordingly.
+	 *
+	 * @param pos
+	 * 		min coordinate of the target block
+	 * @param size
+	 * 		size of the target block
+	 */
+	void setTargetInterval( long[] pos, int[] size );
+
+	/**
+	 * Set the target interval to be computed by the next {@link #compute}
+	 * call, and update the required source interval accordingly.
+	 */
+	default void setTargetInterval( final Interval interval )
+	{
+		setTargetInterval( interval.minAsLongArray(), Intervals.dimensionsAsIntArray( interval ) );
+	}
+
+	/**
+	 * Get the min coordinate of the source block required to compute the
+	 * current target interval.
+	 */
+	long[] getSourcePos();
+
+	/**
+	 * Get the size of the source block required to compute the current target
+	 * interval.
+	 */
+	int[] getSourceSize();
+
+	/**
+	 * Get the source interval required to compute the current target
+	 * interval.
+	 */
+	default Interval getSourceInterval()
+	{
+		return FinalInterval.createMinSize( getSourcePos(), Util.int2long( getSourceSize() ) );
+	}
+
+	/**
+	 * Get a (reused) primitive array that is large enough to hold the source
+	 * block for the current target interval.
+	 */
+	I getSourceBuffer();
+
+	/**
+	 * Compute the current target block from the given source block.
+	 *
+	 * @param src
+	 * 		flattened source block, with the size given by {@link
+	 * 		#getSourceSize()}
+	 * @param dest
+	 * 		flattened target block, with the size given in {@link
+	 * 		#setTargetInterval}
+	 */
+	void compute( I src, O dest );
+}
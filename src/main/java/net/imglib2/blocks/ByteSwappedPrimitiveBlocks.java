@@ -0,0 +1,133 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+import static net.imglib2.blocks.PrimitiveBlocksUtils.asTypedBuffer;
+
+import java.nio.Buffer;
+import java.util.function.Supplier;
+
+import net.imglib2.type.NativeType;
+import net.imglib2.type.PrimitiveType;
+import net.imglib2.util.CloseableThreadLocal;
+import net.imglib2.util.Intervals;
+
+/**
+ * Wraps a {@code PrimitiveBlocks} and reverses the byte order of all elements
+ * of copied (or written) primitive arrays. This is the generic implementation
+ * of {@link PrimitiveBlocks#byteSwapped()}, which swaps bytes in a separate
+ * pass after copying (respectively before writing).
+ * <p>
+ * {@code ByteSwappedPrimitiveBlocks} is thread-safe if the wrapped {@code
+ * PrimitiveBlocks} is.
+ *
+ * @param <T>
+ * 		pixel type
+ */
+class ByteSwappedPrimitiveBlocks< T extends NativeType< T > > implements PrimitiveBlocks< T >
+{
+	private final PrimitiveBlocks< T > blocks;
+
+	private final PrimitiveType primitiveType;
+
+	private final MemCopy swap;
+
+	private final Supplier< TempArray< Object > > tempArray;
+
+	ByteSwappedPrimitiveBlocks( final PrimitiveBlocks< T > blocks )
+	{
+		this.blocks = blocks;
+		primitiveType = blocks.getType().getNativeTypeFactory().getPrimitiveType();
+		swap = MemCopy.forPrimitiveTypeSwapped( primitiveType );
+		tempArray = CloseableThreadLocal.withInitial( () -> TempArray.< Object >forPrimitiveType( primitiveType ) )::get;
+	}
+
+	@Override
+	public T getType()
+	{
+		return blocks.getType();
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return blocks.numDimensions();
+	}
+
+	@Override
+	public void copy( final long[] srcPos, final Object dest, final int[] size )
+	{
+		final int length = ( int ) Intervals.numElements( size );
+		if ( dest instanceof Buffer )
+		{
+			final Object tmp = tempArray.get().get( length );
+			blocks.copy( srcPos, tmp, size );
+			swap.copyForward( tmp, 0, tmp, 0, length );
+			final MemCopy memCopy = MemCopy.forPrimitiveType( primitiveType, false, true );
+			memCopy.copyForward( tmp, 0, asTypedBuffer( ( Buffer ) dest, primitiveType ), 0, length );
+		}
+		else
+		{
+			blocks.copy( srcPos, dest, size );
+			swap.copyForward( dest, 0, dest, 0, length );
+		}
+	}
+
+	@Override
+	public void write( final long[] destPos, final Object src, final int[] size )
+	{
+		final int length = ( int ) Intervals.numElements( size );
+		final Object tmp = tempArray.get().get( length );
+		swap.copyForward( src, 0, tmp, 0, length );
+		blocks.write( destPos, tmp, size );
+	}
+
+	@Override
+	public PrimitiveBlocks< T > threadSafe()
+	{
+		return new ByteSwappedPrimitiveBlocks<>( blocks.threadSafe() );
+	}
+
+	@Override
+	public PrimitiveBlocks< T > independentCopy()
+	{
+		return new ByteSwappedPrimitiveBlocks<>( blocks.independentCopy() );
+	}
+
+	@Override
+	public PrimitiveBlocks< T > byteSwapped()
+	{
+		return blocks;
+	}
+}
@@ -0,0 +1,99 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+/**
+ * Concatenation of two {@link BlockProcessor}s: {@code p0} computes the source
+ * block of {@code p1}. The required source interval is propagated backwards
+ * through the chain, such that halos of both processors are accounted for.
+ *
+ * @param <I>
+ * 		input primitive array type of {@code p0}
+ * @param <K>
+ * 		output primitive array type of {@code p0} and input primitive array type
+ * 		of {@code p1}
+ * @param <O>
+ * 		output primitive array type of {@code p1}
+ */
+class ConcatenatedBlockProcessor< I, K, O > implements BlockProcessor< I, O >
+{
+	private final BlockProcessor< I, K > p0;
+
+	private final BlockProcessor< K, O > p1;
+
+	ConcatenatedBlockProcessor( final BlockProcessor< I, K > p0, final BlockProcessor< K, O > p1 )
+	{
+		this.p0 = p0;
+		this.p1 = p1;
+	}
+
+	@Override
+	public BlockProcessor< I, O > independentCopy()
+	{
+		return new ConcatenatedBlockProcessor<>( p0.independentCopy(), p1.independentCopy() );
+	}
+
+	@Override
+	public void setTargetInterval( final long[] pos, final int[] size )
+	{
+		p1.setTargetInterval( pos, size );
+		p0.setTargetInterval( p1.getSourcePos(), p1.getSourceSize() );
+	}
+
+	@Override
+	public long[] getSourcePos()
+	{
+		return p0.getSourcePos();
+	}
+
+	@Override
+	public int[] getSourceSize()
+	{
+		return p0.getSourceSize();
+	}
+
+	@Override
+	public I getSourceBuffer()
+	{
+		return p0.getSourceBuffer();
+	}
+
+	@Override
+	public void compute( final I src, final O dest )
+	{
+		final K tmp = p1.getSourceBuffer();
+		p0.compute( src, tmp );
+		p1.compute( tmp, dest );
+	}
+}
@@ -0,0 +1,153 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+import static net.imglib2.blocks.PrimitiveBlocksUtils.asTypedBuffer;
+
+import java.nio.Buffer;
+import java.util.function.Supplier;
+
+import net.imglib2.type.NativeType;
+import net.imglib2.type.PrimitiveType;
+import net.imglib2.util.CloseableThreadLocal;
+import net.imglib2.util.Intervals;
+
+/**
+ * A {@code PrimitiveBlocks} that applies a {@link UnaryBlockOperator} to
+ * blocks of a source {@code PrimitiveBlocks}.
+ * <p>
+ * To copy a block, the source interval required by the operator (including
+ * halos) is copied from the source into a temporary buffer, and the operator
+ * computes the block from there.
+ *
+ * @param <S>
+ * 		source pixel type
+ * @param <T>
+ * 		target pixel type
+ */
+class ConcatenatedPrimitiveBlocks< S extends NativeType< S >, T extends NativeType< T > > implements PrimitiveBlocks< T >
+{
+	private final PrimitiveBlocks< S > source;
+
+	private final UnaryBlockOperator< S, T > operator;
+
+	private final TempArray< Object > tempArray;
+
+	ConcatenatedPrimitiveBlocks( final PrimitiveBlocks< S > source, final UnaryBlockOperator< S, T > operator )
+	{
+		if ( operator.getTargetType().getEntitiesPerPixel().getRatio() != 1 )
+			throw new IllegalArgumentException( "Types with entitiesPerPixel != 1 are not supported" );
+		this.source = source;
+		this.operator = operator;
+		tempArray = TempArray.forPrimitiveType( primitiveType() );
+	}
+
+	private PrimitiveType primitiveType()
+	{
+		return operator.getTargetType().getNativeTypeFactory().getPrimitiveType();
+	}
+
+	@Override
+	public T getType()
+	{
+		return operator.getTargetType();
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return source.numDimensions();
+	}
+
+	@Override
+	public void copy( final long[] srcPos, final Object dest, final int[] size )
+	{
+		if ( dest instanceof Buffer )
+		{
+			// compute into temporary array, then copy from there into the buffer
+			final PrimitiveType primitiveType = primitiveType();
+			final int length = ( int ) Intervals.numElements( size );
+			final Object tmp = tempArray.get( length );
+			operator.compute( source, srcPos, tmp, size );
+			final MemCopy memCopy = MemCopy.forPrimitiveType( primitiveType, false, true );
+			memCopy.copyForward( tmp, 0, asTypedBuffer( ( Buffer ) dest, primitiveType ), 0, length );
+			return;
+		}
+		operator.compute( source, srcPos, dest, size );
+	}
+
+	@Override
+	public PrimitiveBlocks< T > independentCopy()
+	{
+		return new ConcatenatedPrimitiveBlocks<>( source.independentCopy(), operator.independentCopy() );
+	}
+
+	@Override
+	public PrimitiveBlocks< T > threadSafe()
+	{
+		final Supplier< PrimitiveBlocks< T > > supplier = CloseableThreadLocal.withInitial( this::independentCopy )::get;
+		return new PrimitiveBlocks< T >()
+		{
+			@Override
+			public T getType()
+			{
+				return ConcatenatedPrimitiveBlocks.this.getType();
+			}
+
+			@Override
+			public int numDimensions()
+			{
+				return ConcatenatedPrimitiveBlocks.this.numDimensions();
+			}
+
+			@Override
+			public void copy( final long[] srcPos, final Object dest, final int[] size )
+			{
+				supplier.get().copy( srcPos, dest, size );
+			}
+
+			@Override
+			public PrimitiveBlocks< T > independentCopy()
+			{
+				return ConcatenatedPrimitiveBlocks.this.independentCopy().threadSafe();
+			}
+
+			@Override
+			public PrimitiveBlocks< T > threadSafe()
+			{
+				return this;
+			}
+		};
+	}
+}
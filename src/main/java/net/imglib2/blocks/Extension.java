@@ -35,14 +35,22 @@ package net.imglib2.blocks;
 
 import static net.imglib2.outofbounds.OutOfBoundsMirrorFactory.Boundary.SINGLE;
 
+import java.util.Random;
+
+import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.blocks.ViewNode.ExtensionViewNode;
 import net.imglib2.outofbounds.OutOfBoundsBorderFactory;
 import net.imglib2.outofbounds.OutOfBoundsConstantValueFactory;
 import net.imglib2.outofbounds.OutOfBoundsFactory;
+import net.imglib2.outofbounds.OutOfBoundsMirrorExpWindowing;
+import net.imglib2.outofbounds.OutOfBoundsMirrorExpWindowingFactory;
 import net.imglib2.outofbounds.OutOfBoundsMirrorFactory;
+import net.imglib2.outofbounds.OutOfBoundsPeriodicFactory;
+import net.imglib2.outofbounds.OutOfBoundsRandomValueFactory;
 import net.imglib2.outofbounds.OutOfBoundsZeroFactory;
 import net.imglib2.type.operators.SetZero;
 import net.imglib2.util.Cast;
+import net.imglib2.view.ExtendedRandomAccessibleInterval;
 
 interface Extension
 {
@@ -52,6 +60,9 @@ interface Extension
 		BORDER(false),
 		MIRROR_SINGLE(false),
 		MIRROR_DOUBLE(false),
+		PERIODIC(false),
+		MIRROR_EXP_WINDOWING(true),
+		RANDOM_VALUE(true),
 		UNKNOWN( true );
 
 		private final boolean isValueDependent;
@@ -63,10 +74,12 @@ interface Extension
 
 		/**
 		 * Whether this extension depends on the pixel value. E.g., {@code
-		 * BORDER}, {@code MIRROR_SINGLE}, {@code MIRROR_DOUBLE} are only
-		 * dependent on position ({@code isValueDependent()==false}), while
-		 * {@code CONSTANT} is dependent on the out-of-bounds value ({@code
-		 * isValueDependent()==true}).
+		 * BORDER}, {@code MIRROR_SINGLE}, {@code MIRROR_DOUBLE}, {@code
+		 * PERIODIC} are only dependent on position ({@code
+		 * isValueDependent()==false}), while {@code CONSTANT} is dependent on
+		 * the out-of-bounds value, {@code MIRROR_EXP_WINDOWING} multiplies
+		 * mirrored values with a weight, and {@code RANDOM_VALUE} generates
+		 * values ({@code isValueDependent()==true}).
 		 */
 		public boolean isValueDependent()
 		{
@@ -91,11 +104,30 @@ interface Extension
 		return ExtensionImpl.mirrorDouble;
 	}
 
+	static Extension periodic()
+	{
+		return ExtensionImpl.periodic;
+	}
+
 	static < T > Extension constant( T oobValue )
 	{
 		return new ExtensionImpl.ConstantExtension<>( oobValue );
 	}
 
+	/**
+	 * @param weights
+	 * 		weight lookup tables (see {@link OutOfBoundsMirrorExpWindowing#getWeights()})
+	 */
+	static Extension mirrorExpWindowing( float[][] weights )
+	{
+		return new ExtensionImpl.ExpWindowingExtension( weights );
+	}
+
+	static Extension randomValue( Random random, double min, double max )
+	{
+		return new ExtensionImpl.RandomValueExtension( random, min, max );
+	}
+
 	static Extension of( OutOfBoundsFactory< ?, ? > oobFactory )
 	{
 		if ( oobFactory instanceof OutOfBoundsBorderFactory )
@@ -111,6 +143,15 @@ interface Extension
 		{
 			return constant( ( ( OutOfBoundsConstantValueFactory ) oobFactory ).getValue() );
 		}
+		else if ( oobFactory instanceof OutOfBoundsPeriodicFactory )
+		{
+			return periodic();
+		}
+		else if ( oobFactory instanceof OutOfBoundsRandomValueFactory )
+		{
+			final OutOfBoundsRandomValueFactory< ?, ? > f = ( OutOfBoundsRandomValueFactory< ?, ? > ) oobFactory;
+			return randomValue( f.getRandom(), f.getMin(), f.getMax() );
+		}
 		else
 		{
 			return new ExtensionImpl.UnknownExtension<>( oobFactory );
@@ -127,6 +168,14 @@ interface Extension
 			zero.setZero();
 			oobFactory = new OutOfBoundsConstantValueFactory<>( zero );
 		}
+		else if ( oobFactory instanceof OutOfBoundsMirrorExpWindowingFactory )
+		{
+			// The weights depend on the extended interval, so we need to
+			// create the OutOfBounds to get them.
+			final OutOfBoundsFactory< ?, RandomAccessibleInterval< ? > > f = Cast.unchecked( oobFactory );
+			final OutOfBoundsMirrorExpWindowing< ? > oob = Cast.unchecked( f.create( ( ( ExtendedRandomAccessibleInterval< ?, ? > ) node.view() ).getSource() ) );
+			return mirrorExpWindowing( oob.getWeights() );
+		}
 		return of( oobFactory );
 	}
 }
@@ -33,6 +33,9 @@
  */
 package net.imglib2.blocks;
 
+import java.util.Arrays;
+import java.util.Random;
+
 import net.imglib2.blocks.Extension.Type;
 import net.imglib2.outofbounds.OutOfBoundsFactory;
 
@@ -44,6 +47,8 @@ class ExtensionImpl
 
 	static final Extension mirrorDouble = new DefaultExtension( Type.MIRROR_DOUBLE );
 
+	static final Extension periodic = new DefaultExtension( Type.PERIODIC );
+
 	static class DefaultExtension implements Extension
 	{
 		private final Type type;
@@ -109,4 +114,115 @@ class ExtensionImpl
 			return "Extension{" + type() + ", value=" + value.getClass().getSimpleName() + "(" + value + ")}";
 		}
 	}
+
+	static class ExpWindowingExtension extends DefaultExtension
+	{
+		private final float[][] weights;
+
+		private final int[] order;
+
+		ExpWindowingExtension( final float[][] weights )
+		{
+			this( weights, identity( weights.length ) );
+		}
+
+		private ExpWindowingExtension( final float[][] weights, final int[] order )
+		{
+			super( Type.MIRROR_EXP_WINDOWING );
+			this.weights = weights;
+			this.order = order;
+		}
+
+		/**
+		 * Weight lookup tables, one for each dimension. {@code
+		 * getWeights()[d][distance]} is the weight of a pixel that is {@code
+		 * distance + 1} pixels outside the interval in dimension {@code d}.
+		 */
+		public float[][] getWeights()
+		{
+			return weights;
+		}
+
+		/**
+		 * The order in which weights of dimensions should be multiplied (to
+		 * get the same rounding as the original extension, after {@link
+		 * #permute}).
+		 */
+		public int[] getOrder()
+		{
+			return order;
+		}
+
+		/**
+		 * Get an {@code ExpWindowingExtension} with the weight lookup tables
+		 * re-ordered, such that {@code permuted.getWeights()[d] ==
+		 * getWeights()[component[d]]}.
+		 */
+		ExpWindowingExtension permute( final int[] component )
+		{
+			final int n = component.length;
+			final float[][] permutedWeights = new float[ n ][];
+			final int[] inv = new int[ n ];
+			for ( int d = 0; d < n; ++d )
+			{
+				permutedWeights[ d ] = weights[ component[ d ] ];
+				inv[ component[ d ] ] = d;
+			}
+			final int[] permutedOrder = new int[ n ];
+			for ( int i = 0; i < n; ++i )
+				permutedOrder[ i ] = inv[ order[ i ] ];
+			return new ExpWindowingExtension( permutedWeights, permutedOrder );
+		}
+
+		private static int[] identity( final int n )
+		{
+			final int[] identity = new int[ n ];
+			Arrays.setAll( identity, i -> i );
+			return identity;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "Extension{" + type() + ", fadeOutDistance=" + Arrays.toString( Arrays.stream( weights ).mapToInt( w -> w.length ).toArray() ) + "}";
+		}
+	}
+
+	static class RandomValueExtension extends DefaultExtension
+	{
+		private final Random random;
+
+		private final double min;
+
+		private final double max;
+
+		RandomValueExtension( final Random random, final double min, final double max )
+		{
+			super( Type.RANDOM_VALUE );
+			this.random = random;
+			this.min = min;
+			this.max = max;
+		}
+
+		public Random getRandom()
+		{
+			return random;
+		}
+
+		public double getMin()
+		{
+			return min;
+		}
+
+		public double getMax()
+		{
+			return max;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "Extension{" + type() + ", min=" + min + ", max=" + max + "}";
+		}
+	}
 }
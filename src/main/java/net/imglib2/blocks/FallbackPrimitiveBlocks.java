@@ -33,6 +33,10 @@
  */
 package net.imglib2.blocks;
 
+import static net.imglib2.blocks.PrimitiveBlocksUtils.asTypedBuffer;
+
+import java.nio.Buffer;
+
 import net.imglib2.FinalInterval;
 import net.imglib2.RandomAccessible;
 import net.imglib2.img.array.ArrayImg;
@@ -40,7 +44,9 @@ import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
 import net.imglib2.loops.LoopBuilder;
 import net.imglib2.type.NativeType;
 import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.type.PrimitiveType;
 import net.imglib2.util.Cast;
+import net.imglib2.util.Intervals;
 import net.imglib2.util.Util;
 import net.imglib2.view.Views;
 
@@ -86,12 +92,53 @@ class FallbackPrimitiveBlocks< T extends NativeType< T >, A extends ArrayDataAcc
 	@Override
 	public void copy( final long[] srcPos, final Object dest, final int[] size )
 	{
+		if ( PrimitiveBlocksMetrics.isEnabled() )
+		{
+			final long t0 = System.nanoTime();
+			doCopy( srcPos, dest, size );
+			final long nanos = System.nanoTime() - t0;
+			final int bytesPerElement = nativeTypeFactory.getPrimitiveType().getByteCount();
+			PrimitiveBlocksMetrics.copied( PrimitiveBlocksListener.CopierType.FALLBACK, Intervals.numElements( size ) * bytesPerElement, nanos );
+		}
+		else
+			doCopy( srcPos, dest, size );
+	}
+
+	private void doCopy( final long[] srcPos, final Object dest, final int[] size )
+	{
+		if ( dest instanceof Buffer )
+		{
+			// copy into temporary array, then from there into the buffer
+			final PrimitiveType primitiveType = nativeTypeFactory.getPrimitiveType();
+			final int length = ( int ) Intervals.numElements( size );
+			final Object tmp = primitiveTypeProperties.allocate( length );
+			doCopy( srcPos, tmp, size );
+			final MemCopy memCopy = MemCopy.forPrimitiveType( primitiveType, false, true );
+			memCopy.copyForward( tmp, 0, asTypedBuffer( ( Buffer ) dest, primitiveType ), 0, length );
+			return;
+		}
+
 		final ArrayImg< T, A > img = new ArrayImg<>( primitiveTypeProperties.wrap( dest ), Util.int2long( size ), type.getEntitiesPerPixel() );
 		img.setLinkedType( nativeTypeFactory.createLinkedType( img ) );
 		final FinalInterval interval = FinalInterval.createMinSize( srcPos, Util.int2long( size ) );
 		LoopBuilder.setImages( Views.interval( source, interval ), img ).forEachPixel( ( a, b ) -> b.set( a ) );
 	}
 
+	/**
+	 * Write the block by setting each pixel of the {@code source} view. Note,
+	 * that this is not checked: If the {@code source} is not writable (e.g.,
+	 * it involves a read-only {@code Converter}) or the block is not contained
+	 * in the underlying image, pixels are silently dropped.
+	 */
+	@Override
+	public void write( final long[] destPos, final Object src, final int[] size )
+	{
+		final ArrayImg< T, A > img = new ArrayImg<>( primitiveTypeProperties.wrap( src ), Util.int2long( size ), type.getEntitiesPerPixel() );
+		img.setLinkedType( nativeTypeFactory.createLinkedType( img ) );
+		final FinalInterval interval = FinalInterval.createMinSize( destPos, Util.int2long( size ) );
+		LoopBuilder.setImages( img, Views.interval( source, interval ) ).forEachPixel( ( a, b ) -> b.set( a ) );
+	}
+
 	@Override
 	public PrimitiveBlocks< T > independentCopy()
 	{
@@ -63,6 +63,9 @@ import net.imglib2.type.PrimitiveType;
  * All combinations are implemented (e.g., {@code byte[]}-to-{@code byte[]},
  * {@code byte[]}-to-{@code ByteBuffer}, {@code ByteBuffer}-to-{@code byte[]},
  * and {@code ByteBuffer}-to-{@code ByteBuffer}).
+ * <p>
+ * Additionally, there are array-to-array implementations that reverse the byte
+ * order of every element while copying (see {@link #forPrimitiveTypeSwapped}).
  *
  * @param <S>
  * 		the source type. Must be a primitive array or buffer type (e.g., {@code double[]} or {@code IntBuffer})
@@ -106,10 +109,20 @@ interface MemCopy< S, T >
 	 */
 	void copyStrided( S src, int srcPos, T dest, int destPos, int destStride, int length );
 
+	/**
+	 * Copy {@code length} components from the {@code src} array to the {@code
+	 * dest} array. The components at positions {@code srcPos}, {@code
+	 * srcPos+srcStride}, {@code srcPos + 2*srcStride}, etc., through {@code
+	 * srcPos+(length-1)*srcStride} in the source array are copied into
+	 * positions {@code destPos} through {@code destPos+length-1} of the
+	 * destination array. ({@code srcStride} may be negative.)
+	 */
+	void copySubsampled( S src, int srcPos, int srcStride, T dest, int destPos, int length );
+
 	/**
 	 * Copy {@code numLines} stretches of {@code lineLength} elements.
 	 *
-	 * @param lineDir {@code 1}, {@code -1}, or {@code 0}. This corresponds (for every line being copied) to the source position moving forward, backward, or not at all, as the dest position is moving forward.
+	 * @param lineDir {@code 1}, {@code -1}, or {@code 0}. This corresponds (for every line being copied) to the source position moving forward, backward, or not at all, as the dest position is moving forward. Other values are used for subsampling, i.e., the source position moves {@code lineDir} elements for every element that the dest position moves forward.
 	 * @param lineLength how many elements to copy per line
 	 * @param numLines how many lines to copy
 	 * @param src source array
@@ -140,9 +153,12 @@ interface MemCopy< S, T >
 		else if ( lineDir == -1 )
 			for ( int i = 0; i < numLines; ++i )
 				copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-		else // cstep0 == 0
+		else if ( lineDir == 0 )
 			for ( int i = 0; i < numLines; ++i )
 				copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+		else
+			for ( int i = 0; i < numLines; ++i )
+				copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 	}
 
 	/**
@@ -236,6 +252,13 @@ interface MemCopy< S, T >
 	MemCopyFloatBufferToBuffer BUFFER_TO_BUFFER_FLOAT = new MemCopyFloatBufferToBuffer();
 	MemCopyDoubleBufferToBuffer BUFFER_TO_BUFFER_DOUBLE = new MemCopyDoubleBufferToBuffer();
 
+	MemCopyCharSwap SWAP_CHAR = new MemCopyCharSwap();
+	MemCopyShortSwap SWAP_SHORT = new MemCopyShortSwap();
+	MemCopyIntSwap SWAP_INT = new MemCopyIntSwap();
+	MemCopyLongSwap SWAP_LONG = new MemCopyLongSwap();
+	MemCopyFloatSwap SWAP_FLOAT = new MemCopyFloatSwap();
+	MemCopyDoubleSwap SWAP_DOUBLE = new MemCopyDoubleSwap();
+
 	static MemCopy< ?, ? > forPrimitiveType( final PrimitiveType primitiveType )
 	{
 		return forPrimitiveType( primitiveType, false, false );
@@ -284,6 +307,38 @@ interface MemCopy< S, T >
 		}
 	}
 
+	/**
+	 * Get a {@code MemCopy} between primitive arrays of the given {@code
+	 * primitiveType} that reverses the byte order of each copied element. For
+	 * example, this converts between big-endian and little-endian raw data
+	 * while copying. For {@code BOOLEAN} and {@code BYTE}, there is nothing to
+	 * swap and the plain {@code MemCopy} is returned.
+	 */
+	static MemCopy< ?, ? > forPrimitiveTypeSwapped( final PrimitiveType primitiveType )
+	{
+		switch ( primitiveType )
+		{
+		case BOOLEAN:
+			return BOOLEAN;
+		case BYTE:
+			return BYTE;
+		case CHAR:
+			return SWAP_CHAR;
+		case SHORT:
+			return SWAP_SHORT;
+		case INT:
+			return SWAP_INT;
+		case LONG:
+			return SWAP_LONG;
+		case FLOAT:
+			return SWAP_FLOAT;
+		case DOUBLE:
+			return SWAP_DOUBLE;
+		default:
+		case UNDEFINED:
+			throw new IllegalArgumentException();
+		}
+	}
 
 	// TODO: Remove?
 	static PrimitiveType primitiveTypeForClass( final Class< ? > clz )
@@ -359,6 +414,13 @@ interface MemCopy< S, T >
 				for ( int i = 0; i < length; ++i )
 					dest[ destPos + i * destStride ] = src[ srcPos + i ];
 		}
+
+		@Override
+		public void copySubsampled( final boolean[] src, final int srcPos, final int srcStride, final boolean[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = src[ srcPos + i * srcStride ];
+		}
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final boolean[] src, final int srcPos, final int srcStep, final boolean[] dest, final int destPos, final int destStep )
 		{
@@ -368,9 +430,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -433,6 +498,13 @@ interface MemCopy< S, T >
 				for ( int i = 0; i < length; ++i )
 					dest[ destPos + i * destStride ] = src[ srcPos + i ];
 		}
+
+		@Override
+		public void copySubsampled( final byte[] src, final int srcPos, final int srcStride, final byte[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = src[ srcPos + i * srcStride ];
+		}
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final byte[] src, final int srcPos, final int srcStep, final byte[] dest, final int destPos, final int destStep )
 		{
@@ -442,9 +514,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -507,6 +582,13 @@ interface MemCopy< S, T >
 					dest[ destPos + i * destStride ] = src.get( srcPos + i );
 		}
 
+		@Override
+		public void copySubsampled( final ByteBuffer src, final int srcPos, final int srcStride, final byte[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = src.get( srcPos + i * srcStride );
+		}
+
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final ByteBuffer src, final int srcPos, final int srcStep, final byte[] dest, final int destPos, final int destStep )
 		{
@@ -516,9 +598,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -582,6 +667,13 @@ interface MemCopy< S, T >
 					dest.put( destPos + i * destStride, src[ srcPos + i ] );
 		}
 
+		@Override
+		public void copySubsampled( final byte[] src, final int srcPos, final int srcStride, final ByteBuffer dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest.put( destPos + i, src[ srcPos + i * srcStride ] );
+		}
+
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final byte[] src, final int srcPos, final int srcStep, final ByteBuffer dest, final int destPos, final int destStep )
 		{
@@ -591,9 +683,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -628,10 +723,12 @@ interface MemCopy< S, T >
 		@Override
 		public void copyForward( final ByteBuffer src, final int srcPos, final ByteBuffer dest, final int destPos, final int length )
 		{
-			src.limit( srcPos + length );
-			src.position( srcPos );
+			// use a duplicate to leave limit and position of src untouched
+			final ByteBuffer s = src.duplicate();
+			s.limit( srcPos + length );
+			s.position( srcPos );
 			dest.position( destPos );
-			dest.put( src );
+			dest.put( s );
 		}
 
 		@Override
@@ -659,6 +756,13 @@ interface MemCopy< S, T >
 					dest.put( destPos + i * destStride, src.get( srcPos + i ) );
 		}
 
+		@Override
+		public void copySubsampled( final ByteBuffer src, final int srcPos, final int srcStride, final ByteBuffer dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest.put( destPos + i, src.get( srcPos + i * srcStride ) );
+		}
+
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final ByteBuffer src, final int srcPos, final int srcStep, final ByteBuffer dest, final int destPos, final int destStep )
 		{
@@ -668,9 +772,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -733,6 +840,13 @@ interface MemCopy< S, T >
 				for ( int i = 0; i < length; ++i )
 					dest[ destPos + i * destStride ] = src[ srcPos + i ];
 		}
+
+		@Override
+		public void copySubsampled( final char[] src, final int srcPos, final int srcStride, final char[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = src[ srcPos + i * srcStride ];
+		}
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final char[] src, final int srcPos, final int srcStep, final char[] dest, final int destPos, final int destStep )
 		{
@@ -742,9 +856,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -807,6 +924,13 @@ interface MemCopy< S, T >
 					dest[ destPos + i * destStride ] = src.get( srcPos + i );
 		}
 
+		@Override
+		public void copySubsampled( final CharBuffer src, final int srcPos, final int srcStride, final char[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = src.get( srcPos + i * srcStride );
+		}
+
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final CharBuffer src, final int srcPos, final int srcStep, final char[] dest, final int destPos, final int destStep )
 		{
@@ -816,9 +940,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -882,6 +1009,13 @@ interface MemCopy< S, T >
 					dest.put( destPos + i * destStride, src[ srcPos + i ] );
 		}
 
+		@Override
+		public void copySubsampled( final char[] src, final int srcPos, final int srcStride, final CharBuffer dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest.put( destPos + i, src[ srcPos + i * srcStride ] );
+		}
+
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final char[] src, final int srcPos, final int srcStep, final CharBuffer dest, final int destPos, final int destStep )
 		{
@@ -891,9 +1025,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -928,10 +1065,12 @@ interface MemCopy< S, T >
 		@Override
 		public void copyForward( final CharBuffer src, final int srcPos, final CharBuffer dest, final int destPos, final int length )
 		{
-			src.limit( srcPos + length );
-			src.position( srcPos );
+			// use a duplicate to leave limit and position of src untouched
+			final CharBuffer s = src.duplicate();
+			s.limit( srcPos + length );
+			s.position( srcPos );
 			dest.position( destPos );
-			dest.put( src );
+			dest.put( s );
 		}
 
 		@Override
@@ -959,6 +1098,13 @@ interface MemCopy< S, T >
 					dest.put( destPos + i * destStride, src.get( srcPos + i ) );
 		}
 
+		@Override
+		public void copySubsampled( final CharBuffer src, final int srcPos, final int srcStride, final CharBuffer dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest.put( destPos + i, src.get( srcPos + i * srcStride ) );
+		}
+
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final CharBuffer src, final int srcPos, final int srcStep, final CharBuffer dest, final int destPos, final int destStep )
 		{
@@ -968,9 +1114,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -1000,6 +1149,88 @@ interface MemCopy< S, T >
 		}
 	}
 
+	class MemCopyCharSwap implements MemCopy< char[], char[] >
+	{
+		@Override
+		public void copyForward( final char[] src, final int srcPos, final char[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = Character.reverseBytes( src[ srcPos + i ] );
+		}
+
+		@Override
+		public void copyReverse( final char[] src, final int srcPos, final char[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = Character.reverseBytes( src[ srcPos - i ] );
+		}
+
+		@Override
+		public void copyValue( final char[] src, final int srcPos, final char[] dest, final int destPos, final int length )
+		{
+			Arrays.fill( dest, destPos, destPos + length, Character.reverseBytes( src[ srcPos ] ) );
+		}
+
+		@Override
+		public void copyStrided( final char[] src, final int srcPos, final char[] dest, final int destPos, final int destStride, final int length )
+		{
+			if ( destStride == 1 )
+				copyForward( src, srcPos, dest, destPos, length );
+			else
+				for ( int i = 0; i < length; ++i )
+					dest[ destPos + i * destStride ] = Character.reverseBytes( src[ srcPos + i ] );
+		}
+
+		@Override
+		public void copySubsampled( final char[] src, final int srcPos, final int srcStride, final char[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = Character.reverseBytes( src[ srcPos + i * srcStride ] );
+		}
+		@Override
+		public void copyLines( final int lineDir, final int lineLength, final int numLines, final char[] src, final int srcPos, final int srcStep, final char[] dest, final int destPos, final int destStep )
+		{
+			if ( lineDir == 1 )
+				for ( int i = 0; i < numLines; ++i )
+					copyForward( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else if ( lineDir == -1 )
+				for ( int i = 0; i < numLines; ++i )
+					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else if ( lineDir == 0 )
+				for ( int i = 0; i < numLines; ++i )
+					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
+		}
+
+		@Override
+		public void copyNDRangeRecursive(
+			final int d,
+			final char[] src,
+			final int[] srcStrides,
+			final int srcPos,
+			final char[] dest,
+			final int[] destStrides,
+			final int destPos,
+			final int[] size )
+		{
+			final int len = size[ d ];
+			if ( d > 0 )
+			{
+				final int stride_src = srcStrides[ d ];
+				final int stride_dst = destStrides[ d ];
+				for ( int i = 0; i < len; ++i )
+					copyNDRangeRecursive( d - 1,
+							src, srcStrides, srcPos + i * stride_src,
+							dest, destStrides, destPos + i * stride_dst,
+							size );
+			}
+			else
+				copyForward( src, srcPos, dest, destPos, len );
+		}
+	}
+
 
 
 
@@ -1033,6 +1264,13 @@ interface MemCopy< S, T >
 				for ( int i = 0; i < length; ++i )
 					dest[ destPos + i * destStride ] = src[ srcPos + i ];
 		}
+
+		@Override
+		public void copySubsampled( final short[] src, final int srcPos, final int srcStride, final short[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = src[ srcPos + i * srcStride ];
+		}
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final short[] src, final int srcPos, final int srcStep, final short[] dest, final int destPos, final int destStep )
 		{
@@ -1042,9 +1280,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -1107,6 +1348,13 @@ interface MemCopy< S, T >
 					dest[ destPos + i * destStride ] = src.get( srcPos + i );
 		}
 
+		@Override
+		public void copySubsampled( final ShortBuffer src, final int srcPos, final int srcStride, final short[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = src.get( srcPos + i * srcStride );
+		}
+
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final ShortBuffer src, final int srcPos, final int srcStep, final short[] dest, final int destPos, final int destStep )
 		{
@@ -1116,9 +1364,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -1182,6 +1433,13 @@ interface MemCopy< S, T >
 					dest.put( destPos + i * destStride, src[ srcPos + i ] );
 		}
 
+		@Override
+		public void copySubsampled( final short[] src, final int srcPos, final int srcStride, final ShortBuffer dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest.put( destPos + i, src[ srcPos + i * srcStride ] );
+		}
+
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final short[] src, final int srcPos, final int srcStep, final ShortBuffer dest, final int destPos, final int destStep )
 		{
@@ -1191,9 +1449,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -1228,10 +1489,12 @@ interface MemCopy< S, T >
 		@Override
 		public void copyForward( final ShortBuffer src, final int srcPos, final ShortBuffer dest, final int destPos, final int length )
 		{
-			src.limit( srcPos + length );
-			src.position( srcPos );
+			// use a duplicate to leave limit and position of src untouched
+			final ShortBuffer s = src.duplicate();
+			s.limit( srcPos + length );
+			s.position( srcPos );
 			dest.position( destPos );
-			dest.put( src );
+			dest.put( s );
 		}
 
 		@Override
@@ -1259,6 +1522,13 @@ interface MemCopy< S, T >
 					dest.put( destPos + i * destStride, src.get( srcPos + i ) );
 		}
 
+		@Override
+		public void copySubsampled( final ShortBuffer src, final int srcPos, final int srcStride, final ShortBuffer dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest.put( destPos + i, src.get( srcPos + i * srcStride ) );
+		}
+
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final ShortBuffer src, final int srcPos, final int srcStep, final ShortBuffer dest, final int destPos, final int destStep )
 		{
@@ -1268,9 +1538,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -1300,41 +1573,46 @@ interface MemCopy< S, T >
 		}
 	}
 
-
-
-
-	class MemCopyInt implements MemCopy< int[], int[] >
+	class MemCopyShortSwap implements MemCopy< short[], short[] >
 	{
 		@Override
-		public void copyForward( final int[] src, final int srcPos, final int[] dest, final int destPos, final int length )
+		public void copyForward( final short[] src, final int srcPos, final short[] dest, final int destPos, final int length )
 		{
-			System.arraycopy( src, srcPos, dest, destPos, length );
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = Short.reverseBytes( src[ srcPos + i ] );
 		}
 
 		@Override
-		public void copyReverse( final int[] src, final int srcPos, final int[] dest, final int destPos, final int length )
+		public void copyReverse( final short[] src, final int srcPos, final short[] dest, final int destPos, final int length )
 		{
 			for ( int i = 0; i < length; ++i )
-				dest[ destPos + i ] = src[ srcPos - i ];
+				dest[ destPos + i ] = Short.reverseBytes( src[ srcPos - i ] );
 		}
 
 		@Override
-		public void copyValue( final int[] src, final int srcPos, final int[] dest, final int destPos, final int length )
+		public void copyValue( final short[] src, final int srcPos, final short[] dest, final int destPos, final int length )
 		{
-			Arrays.fill( dest, destPos, destPos + length, src[ srcPos ] );
+			Arrays.fill( dest, destPos, destPos + length, Short.reverseBytes( src[ srcPos ] ) );
 		}
 
 		@Override
-		public void copyStrided( final int[] src, final int srcPos, final int[] dest, final int destPos, final int destStride, final int length )
+		public void copyStrided( final short[] src, final int srcPos, final short[] dest, final int destPos, final int destStride, final int length )
 		{
 			if ( destStride == 1 )
 				copyForward( src, srcPos, dest, destPos, length );
 			else
 				for ( int i = 0; i < length; ++i )
-					dest[ destPos + i * destStride ] = src[ srcPos + i ];
+					dest[ destPos + i * destStride ] = Short.reverseBytes( src[ srcPos + i ] );
 		}
+
 		@Override
-		public void copyLines( final int lineDir, final int lineLength, final int numLines, final int[] src, final int srcPos, final int srcStep, final int[] dest, final int destPos, final int destStep )
+		public void copySubsampled( final short[] src, final int srcPos, final int srcStride, final short[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = Short.reverseBytes( src[ srcPos + i * srcStride ] );
+		}
+		@Override
+		public void copyLines( final int lineDir, final int lineLength, final int numLines, final short[] src, final int srcPos, final int srcStep, final short[] dest, final int destPos, final int destStep )
 		{
 			if ( lineDir == 1 )
 				for ( int i = 0; i < numLines; ++i )
@@ -1342,18 +1620,21 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
 		public void copyNDRangeRecursive(
 			final int d,
-			final int[] src,
+			final short[] src,
 			final int[] srcStrides,
 			final int srcPos,
-			final int[] dest,
+			final short[] dest,
 			final int[] destStrides,
 			final int destPos,
 			final int[] size )
@@ -1374,41 +1655,48 @@ interface MemCopy< S, T >
 		}
 	}
 
-	class MemCopyIntBufferToArray implements MemCopy< IntBuffer, int[] >
+
+
+
+	class MemCopyInt implements MemCopy< int[], int[] >
 	{
 		@Override
-		public void copyForward( final IntBuffer src, final int srcPos, final int[] dest, final int destPos, final int length )
+		public void copyForward( final int[] src, final int srcPos, final int[] dest, final int destPos, final int length )
 		{
-			src.position( srcPos );
-			src.get( dest, destPos, length );
+			System.arraycopy( src, srcPos, dest, destPos, length );
 		}
 
 		@Override
-		public void copyReverse( final IntBuffer src, final int srcPos, final int[] dest, final int destPos, final int length )
+		public void copyReverse( final int[] src, final int srcPos, final int[] dest, final int destPos, final int length )
 		{
 			for ( int i = 0; i < length; ++i )
-				dest[ destPos + i ] = src.get( srcPos - i );
+				dest[ destPos + i ] = src[ srcPos - i ];
 		}
 
 		@Override
-		public void copyValue( final IntBuffer src, final int srcPos, final int[] dest, final int destPos, final int length )
+		public void copyValue( final int[] src, final int srcPos, final int[] dest, final int destPos, final int length )
 		{
-			final int val = src.get( srcPos );
-			Arrays.fill( dest, destPos, destPos + length, val );
+			Arrays.fill( dest, destPos, destPos + length, src[ srcPos ] );
 		}
 
 		@Override
-		public void copyStrided( final IntBuffer src, final int srcPos, final int[] dest, final int destPos, final int destStride, final int length )
+		public void copyStrided( final int[] src, final int srcPos, final int[] dest, final int destPos, final int destStride, final int length )
 		{
 			if ( destStride == 1 )
 				copyForward( src, srcPos, dest, destPos, length );
 			else
 				for ( int i = 0; i < length; ++i )
-					dest[ destPos + i * destStride ] = src.get( srcPos + i );
+					dest[ destPos + i * destStride ] = src[ srcPos + i ];
 		}
 
 		@Override
-		public void copyLines( final int lineDir, final int lineLength, final int numLines, final IntBuffer src, final int srcPos, final int srcStep, final int[] dest, final int destPos, final int destStep )
+		public void copySubsampled( final int[] src, final int srcPos, final int srcStride, final int[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = src[ srcPos + i * srcStride ];
+		}
+		@Override
+		public void copyLines( final int lineDir, final int lineLength, final int numLines, final int[] src, final int srcPos, final int srcStep, final int[] dest, final int destPos, final int destStep )
 		{
 			if ( lineDir == 1 )
 				for ( int i = 0; i < numLines; ++i )
@@ -1416,15 +1704,102 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
 		public void copyNDRangeRecursive(
 			final int d,
-			final IntBuffer src,
+			final int[] src,
+			final int[] srcStrides,
+			final int srcPos,
+			final int[] dest,
+			final int[] destStrides,
+			final int destPos,
+			final int[] size )
+		{
+			final int len = size[ d ];
+			if ( d > 0 )
+			{
+				final int stride_src = srcStrides[ d ];
+				final int stride_dst = destStrides[ d ];
+				for ( int i = 0; i < len; ++i )
+					copyNDRangeRecursive( d - 1,
+							src, srcStrides, srcPos + i * stride_src,
+							dest, destStrides, destPos + i * stride_dst,
+							size );
+			}
+			else
+				copyForward( src, srcPos, dest, destPos, len );
+		}
+	}
+
+	class MemCopyIntBufferToArray implements MemCopy< IntBuffer, int[] >
+	{
+		@Override
+		public void copyForward( final IntBuffer src, final int srcPos, final int[] dest, final int destPos, final int length )
+		{
+			src.position( srcPos );
+			src.get( dest, destPos, length );
+		}
+
+		@Override
+		public void copyReverse( final IntBuffer src, final int srcPos, final int[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = src.get( srcPos - i );
+		}
+
+		@Override
+		public void copyValue( final IntBuffer src, final int srcPos, final int[] dest, final int destPos, final int length )
+		{
+			final int val = src.get( srcPos );
+			Arrays.fill( dest, destPos, destPos + length, val );
+		}
+
+		@Override
+		public void copyStrided( final IntBuffer src, final int srcPos, final int[] dest, final int destPos, final int destStride, final int length )
+		{
+			if ( destStride == 1 )
+				copyForward( src, srcPos, dest, destPos, length );
+			else
+				for ( int i = 0; i < length; ++i )
+					dest[ destPos + i * destStride ] = src.get( srcPos + i );
+		}
+
+		@Override
+		public void copySubsampled( final IntBuffer src, final int srcPos, final int srcStride, final int[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = src.get( srcPos + i * srcStride );
+		}
+
+		@Override
+		public void copyLines( final int lineDir, final int lineLength, final int numLines, final IntBuffer src, final int srcPos, final int srcStep, final int[] dest, final int destPos, final int destStep )
+		{
+			if ( lineDir == 1 )
+				for ( int i = 0; i < numLines; ++i )
+					copyForward( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else if ( lineDir == -1 )
+				for ( int i = 0; i < numLines; ++i )
+					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else if ( lineDir == 0 )
+				for ( int i = 0; i < numLines; ++i )
+					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
+		}
+
+		@Override
+		public void copyNDRangeRecursive(
+			final int d,
+			final IntBuffer src,
 			final int[] srcStrides,
 			final int srcPos,
 			final int[] dest,
@@ -1482,6 +1857,13 @@ interface MemCopy< S, T >
 					dest.put( destPos + i * destStride, src[ srcPos + i ] );
 		}
 
+		@Override
+		public void copySubsampled( final int[] src, final int srcPos, final int srcStride, final IntBuffer dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest.put( destPos + i, src[ srcPos + i * srcStride ] );
+		}
+
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final int[] src, final int srcPos, final int srcStep, final IntBuffer dest, final int destPos, final int destStep )
 		{
@@ -1491,9 +1873,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -1528,10 +1913,12 @@ interface MemCopy< S, T >
 		@Override
 		public void copyForward( final IntBuffer src, final int srcPos, final IntBuffer dest, final int destPos, final int length )
 		{
-			src.limit( srcPos + length );
-			src.position( srcPos );
+			// use a duplicate to leave limit and position of src untouched
+			final IntBuffer s = src.duplicate();
+			s.limit( srcPos + length );
+			s.position( srcPos );
 			dest.position( destPos );
-			dest.put( src );
+			dest.put( s );
 		}
 
 		@Override
@@ -1559,6 +1946,13 @@ interface MemCopy< S, T >
 					dest.put( destPos + i * destStride, src.get( srcPos + i ) );
 		}
 
+		@Override
+		public void copySubsampled( final IntBuffer src, final int srcPos, final int srcStride, final IntBuffer dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest.put( destPos + i, src.get( srcPos + i * srcStride ) );
+		}
+
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final IntBuffer src, final int srcPos, final int srcStep, final IntBuffer dest, final int destPos, final int destStep )
 		{
@@ -1568,9 +1962,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -1600,6 +1997,88 @@ interface MemCopy< S, T >
 		}
 	}
 
+	class MemCopyIntSwap implements MemCopy< int[], int[] >
+	{
+		@Override
+		public void copyForward( final int[] src, final int srcPos, final int[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = Integer.reverseBytes( src[ srcPos + i ] );
+		}
+
+		@Override
+		public void copyReverse( final int[] src, final int srcPos, final int[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = Integer.reverseBytes( src[ srcPos - i ] );
+		}
+
+		@Override
+		public void copyValue( final int[] src, final int srcPos, final int[] dest, final int destPos, final int length )
+		{
+			Arrays.fill( dest, destPos, destPos + length, Integer.reverseBytes( src[ srcPos ] ) );
+		}
+
+		@Override
+		public void copyStrided( final int[] src, final int srcPos, final int[] dest, final int destPos, final int destStride, final int length )
+		{
+			if ( destStride == 1 )
+				copyForward( src, srcPos, dest, destPos, length );
+			else
+				for ( int i = 0; i < length; ++i )
+					dest[ destPos + i * destStride ] = Integer.reverseBytes( src[ srcPos + i ] );
+		}
+
+		@Override
+		public void copySubsampled( final int[] src, final int srcPos, final int srcStride, final int[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = Integer.reverseBytes( src[ srcPos + i * srcStride ] );
+		}
+		@Override
+		public void copyLines( final int lineDir, final int lineLength, final int numLines, final int[] src, final int srcPos, final int srcStep, final int[] dest, final int destPos, final int destStep )
+		{
+			if ( lineDir == 1 )
+				for ( int i = 0; i < numLines; ++i )
+					copyForward( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else if ( lineDir == -1 )
+				for ( int i = 0; i < numLines; ++i )
+					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else if ( lineDir == 0 )
+				for ( int i = 0; i < numLines; ++i )
+					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
+		}
+
+		@Override
+		public void copyNDRangeRecursive(
+			final int d,
+			final int[] src,
+			final int[] srcStrides,
+			final int srcPos,
+			final int[] dest,
+			final int[] destStrides,
+			final int destPos,
+			final int[] size )
+		{
+			final int len = size[ d ];
+			if ( d > 0 )
+			{
+				final int stride_src = srcStrides[ d ];
+				final int stride_dst = destStrides[ d ];
+				for ( int i = 0; i < len; ++i )
+					copyNDRangeRecursive( d - 1,
+							src, srcStrides, srcPos + i * stride_src,
+							dest, destStrides, destPos + i * stride_dst,
+							size );
+			}
+			else
+				copyForward( src, srcPos, dest, destPos, len );
+		}
+	}
+
 
 
 
@@ -1633,6 +2112,13 @@ interface MemCopy< S, T >
 				for ( int i = 0; i < length; ++i )
 					dest[ destPos + i * destStride ] = src[ srcPos + i ];
 		}
+
+		@Override
+		public void copySubsampled( final long[] src, final int srcPos, final int srcStride, final long[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = src[ srcPos + i * srcStride ];
+		}
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final long[] src, final int srcPos, final int srcStep, final long[] dest, final int destPos, final int destStep )
 		{
@@ -1642,9 +2128,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -1707,6 +2196,13 @@ interface MemCopy< S, T >
 					dest[ destPos + i * destStride ] = src.get( srcPos + i );
 		}
 
+		@Override
+		public void copySubsampled( final LongBuffer src, final int srcPos, final int srcStride, final long[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = src.get( srcPos + i * srcStride );
+		}
+
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final LongBuffer src, final int srcPos, final int srcStep, final long[] dest, final int destPos, final int destStep )
 		{
@@ -1716,9 +2212,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -1782,6 +2281,13 @@ interface MemCopy< S, T >
 					dest.put( destPos + i * destStride, src[ srcPos + i ] );
 		}
 
+		@Override
+		public void copySubsampled( final long[] src, final int srcPos, final int srcStride, final LongBuffer dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest.put( destPos + i, src[ srcPos + i * srcStride ] );
+		}
+
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final long[] src, final int srcPos, final int srcStep, final LongBuffer dest, final int destPos, final int destStep )
 		{
@@ -1791,9 +2297,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -1828,10 +2337,12 @@ interface MemCopy< S, T >
 		@Override
 		public void copyForward( final LongBuffer src, final int srcPos, final LongBuffer dest, final int destPos, final int length )
 		{
-			src.limit( srcPos + length );
-			src.position( srcPos );
+			// use a duplicate to leave limit and position of src untouched
+			final LongBuffer s = src.duplicate();
+			s.limit( srcPos + length );
+			s.position( srcPos );
 			dest.position( destPos );
-			dest.put( src );
+			dest.put( s );
 		}
 
 		@Override
@@ -1859,6 +2370,13 @@ interface MemCopy< S, T >
 					dest.put( destPos + i * destStride, src.get( srcPos + i ) );
 		}
 
+		@Override
+		public void copySubsampled( final LongBuffer src, final int srcPos, final int srcStride, final LongBuffer dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest.put( destPos + i, src.get( srcPos + i * srcStride ) );
+		}
+
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final LongBuffer src, final int srcPos, final int srcStep, final LongBuffer dest, final int destPos, final int destStep )
 		{
@@ -1868,9 +2386,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -1900,6 +2421,88 @@ interface MemCopy< S, T >
 		}
 	}
 
+	class MemCopyLongSwap implements MemCopy< long[], long[] >
+	{
+		@Override
+		public void copyForward( final long[] src, final int srcPos, final long[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = Long.reverseBytes( src[ srcPos + i ] );
+		}
+
+		@Override
+		public void copyReverse( final long[] src, final int srcPos, final long[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = Long.reverseBytes( src[ srcPos - i ] );
+		}
+
+		@Override
+		public void copyValue( final long[] src, final int srcPos, final long[] dest, final int destPos, final int length )
+		{
+			Arrays.fill( dest, destPos, destPos + length, Long.reverseBytes( src[ srcPos ] ) );
+		}
+
+		@Override
+		public void copyStrided( final long[] src, final int srcPos, final long[] dest, final int destPos, final int destStride, final int length )
+		{
+			if ( destStride == 1 )
+				copyForward( src, srcPos, dest, destPos, length );
+			else
+				for ( int i = 0; i < length; ++i )
+					dest[ destPos + i * destStride ] = Long.reverseBytes( src[ srcPos + i ] );
+		}
+
+		@Override
+		public void copySubsampled( final long[] src, final int srcPos, final int srcStride, final long[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = Long.reverseBytes( src[ srcPos + i * srcStride ] );
+		}
+		@Override
+		public void copyLines( final int lineDir, final int lineLength, final int numLines, final long[] src, final int srcPos, final int srcStep, final long[] dest, final int destPos, final int destStep )
+		{
+			if ( lineDir == 1 )
+				for ( int i = 0; i < numLines; ++i )
+					copyForward( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else if ( lineDir == -1 )
+				for ( int i = 0; i < numLines; ++i )
+					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else if ( lineDir == 0 )
+				for ( int i = 0; i < numLines; ++i )
+					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
+		}
+
+		@Override
+		public void copyNDRangeRecursive(
+			final int d,
+			final long[] src,
+			final int[] srcStrides,
+			final int srcPos,
+			final long[] dest,
+			final int[] destStrides,
+			final int destPos,
+			final int[] size )
+		{
+			final int len = size[ d ];
+			if ( d > 0 )
+			{
+				final int stride_src = srcStrides[ d ];
+				final int stride_dst = destStrides[ d ];
+				for ( int i = 0; i < len; ++i )
+					copyNDRangeRecursive( d - 1,
+							src, srcStrides, srcPos + i * stride_src,
+							dest, destStrides, destPos + i * stride_dst,
+							size );
+			}
+			else
+				copyForward( src, srcPos, dest, destPos, len );
+		}
+	}
+
 
 
 
@@ -1933,6 +2536,13 @@ interface MemCopy< S, T >
 				for ( int i = 0; i < length; ++i )
 					dest[ destPos + i * destStride ] = src[ srcPos + i ];
 		}
+
+		@Override
+		public void copySubsampled( final float[] src, final int srcPos, final int srcStride, final float[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = src[ srcPos + i * srcStride ];
+		}
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final float[] src, final int srcPos, final int srcStep, final float[] dest, final int destPos, final int destStep )
 		{
@@ -1942,9 +2552,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -2007,6 +2620,13 @@ interface MemCopy< S, T >
 					dest[ destPos + i * destStride ] = src.get( srcPos + i );
 		}
 
+		@Override
+		public void copySubsampled( final FloatBuffer src, final int srcPos, final int srcStride, final float[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = src.get( srcPos + i * srcStride );
+		}
+
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final FloatBuffer src, final int srcPos, final int srcStep, final float[] dest, final int destPos, final int destStep )
 		{
@@ -2016,9 +2636,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -2082,6 +2705,13 @@ interface MemCopy< S, T >
 					dest.put( destPos + i * destStride, src[ srcPos + i ] );
 		}
 
+		@Override
+		public void copySubsampled( final float[] src, final int srcPos, final int srcStride, final FloatBuffer dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest.put( destPos + i, src[ srcPos + i * srcStride ] );
+		}
+
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final float[] src, final int srcPos, final int srcStep, final FloatBuffer dest, final int destPos, final int destStep )
 		{
@@ -2091,9 +2721,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -2128,10 +2761,12 @@ interface MemCopy< S, T >
 		@Override
 		public void copyForward( final FloatBuffer src, final int srcPos, final FloatBuffer dest, final int destPos, final int length )
 		{
-			src.limit( srcPos + length );
-			src.position( srcPos );
+			// use a duplicate to leave limit and position of src untouched
+			final FloatBuffer s = src.duplicate();
+			s.limit( srcPos + length );
+			s.position( srcPos );
 			dest.position( destPos );
-			dest.put( src );
+			dest.put( s );
 		}
 
 		@Override
@@ -2159,6 +2794,13 @@ interface MemCopy< S, T >
 					dest.put( destPos + i * destStride, src.get( srcPos + i ) );
 		}
 
+		@Override
+		public void copySubsampled( final FloatBuffer src, final int srcPos, final int srcStride, final FloatBuffer dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest.put( destPos + i, src.get( srcPos + i * srcStride ) );
+		}
+
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final FloatBuffer src, final int srcPos, final int srcStep, final FloatBuffer dest, final int destPos, final int destStep )
 		{
@@ -2168,9 +2810,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -2200,6 +2845,88 @@ interface MemCopy< S, T >
 		}
 	}
 
+	class MemCopyFloatSwap implements MemCopy< float[], float[] >
+	{
+		@Override
+		public void copyForward( final float[] src, final int srcPos, final float[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = Float.intBitsToFloat( Integer.reverseBytes( Float.floatToRawIntBits( src[ srcPos + i ] ) ) );
+		}
+
+		@Override
+		public void copyReverse( final float[] src, final int srcPos, final float[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = Float.intBitsToFloat( Integer.reverseBytes( Float.floatToRawIntBits( src[ srcPos - i ] ) ) );
+		}
+
+		@Override
+		public void copyValue( final float[] src, final int srcPos, final float[] dest, final int destPos, final int length )
+		{
+			Arrays.fill( dest, destPos, destPos + length, Float.intBitsToFloat( Integer.reverseBytes( Float.floatToRawIntBits( src[ srcPos ] ) ) ) );
+		}
+
+		@Override
+		public void copyStrided( final float[] src, final int srcPos, final float[] dest, final int destPos, final int destStride, final int length )
+		{
+			if ( destStride == 1 )
+				copyForward( src, srcPos, dest, destPos, length );
+			else
+				for ( int i = 0; i < length; ++i )
+					dest[ destPos + i * destStride ] = Float.intBitsToFloat( Integer.reverseBytes( Float.floatToRawIntBits( src[ srcPos + i ] ) ) );
+		}
+
+		@Override
+		public void copySubsampled( final float[] src, final int srcPos, final int srcStride, final float[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = Float.intBitsToFloat( Integer.reverseBytes( Float.floatToRawIntBits( src[ srcPos + i * srcStride ] ) ) );
+		}
+		@Override
+		public void copyLines( final int lineDir, final int lineLength, final int numLines, final float[] src, final int srcPos, final int srcStep, final float[] dest, final int destPos, final int destStep )
+		{
+			if ( lineDir == 1 )
+				for ( int i = 0; i < numLines; ++i )
+					copyForward( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else if ( lineDir == -1 )
+				for ( int i = 0; i < numLines; ++i )
+					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else if ( lineDir == 0 )
+				for ( int i = 0; i < numLines; ++i )
+					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
+		}
+
+		@Override
+		public void copyNDRangeRecursive(
+			final int d,
+			final float[] src,
+			final int[] srcStrides,
+			final int srcPos,
+			final float[] dest,
+			final int[] destStrides,
+			final int destPos,
+			final int[] size )
+		{
+			final int len = size[ d ];
+			if ( d > 0 )
+			{
+				final int stride_src = srcStrides[ d ];
+				final int stride_dst = destStrides[ d ];
+				for ( int i = 0; i < len; ++i )
+					copyNDRangeRecursive( d - 1,
+							src, srcStrides, srcPos + i * stride_src,
+							dest, destStrides, destPos + i * stride_dst,
+							size );
+			}
+			else
+				copyForward( src, srcPos, dest, destPos, len );
+		}
+	}
+
 
 
 
@@ -2233,6 +2960,13 @@ interface MemCopy< S, T >
 				for ( int i = 0; i < length; ++i )
 					dest[ destPos + i * destStride ] = src[ srcPos + i ];
 		}
+
+		@Override
+		public void copySubsampled( final double[] src, final int srcPos, final int srcStride, final double[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = src[ srcPos + i * srcStride ];
+		}
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final double[] src, final int srcPos, final int srcStep, final double[] dest, final int destPos, final int destStep )
 		{
@@ -2242,9 +2976,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -2307,6 +3044,13 @@ interface MemCopy< S, T >
 					dest[ destPos + i * destStride ] = src.get( srcPos + i );
 		}
 
+		@Override
+		public void copySubsampled( final DoubleBuffer src, final int srcPos, final int srcStride, final double[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = src.get( srcPos + i * srcStride );
+		}
+
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final DoubleBuffer src, final int srcPos, final int srcStep, final double[] dest, final int destPos, final int destStep )
 		{
@@ -2316,9 +3060,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -2382,6 +3129,13 @@ interface MemCopy< S, T >
 					dest.put( destPos + i * destStride, src[ srcPos + i ] );
 		}
 
+		@Override
+		public void copySubsampled( final double[] src, final int srcPos, final int srcStride, final DoubleBuffer dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest.put( destPos + i, src[ srcPos + i * srcStride ] );
+		}
+
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final double[] src, final int srcPos, final int srcStep, final DoubleBuffer dest, final int destPos, final int destStep )
 		{
@@ -2391,9 +3145,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -2428,10 +3185,12 @@ interface MemCopy< S, T >
 		@Override
 		public void copyForward( final DoubleBuffer src, final int srcPos, final DoubleBuffer dest, final int destPos, final int length )
 		{
-			src.limit( srcPos + length );
-			src.position( srcPos );
+			// use a duplicate to leave limit and position of src untouched
+			final DoubleBuffer s = src.duplicate();
+			s.limit( srcPos + length );
+			s.position( srcPos );
 			dest.position( destPos );
-			dest.put( src );
+			dest.put( s );
 		}
 
 		@Override
@@ -2459,6 +3218,13 @@ interface MemCopy< S, T >
 					dest.put( destPos + i * destStride, src.get( srcPos + i ) );
 		}
 
+		@Override
+		public void copySubsampled( final DoubleBuffer src, final int srcPos, final int srcStride, final DoubleBuffer dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest.put( destPos + i, src.get( srcPos + i * srcStride ) );
+		}
+
 		@Override
 		public void copyLines( final int lineDir, final int lineLength, final int numLines, final DoubleBuffer src, final int srcPos, final int srcStep, final DoubleBuffer dest, final int destPos, final int destStep )
 		{
@@ -2468,9 +3234,12 @@ interface MemCopy< S, T >
 			else if ( lineDir == -1 )
 				for ( int i = 0; i < numLines; ++i )
 					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
-			else // cstep0 == 0
+			else if ( lineDir == 0 )
 				for ( int i = 0; i < numLines; ++i )
 					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
 		}
 
 		@Override
@@ -2500,4 +3269,86 @@ interface MemCopy< S, T >
 		}
 	}
 
+	class MemCopyDoubleSwap implements MemCopy< double[], double[] >
+	{
+		@Override
+		public void copyForward( final double[] src, final int srcPos, final double[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = Double.longBitsToDouble( Long.reverseBytes( Double.doubleToRawLongBits( src[ srcPos + i ] ) ) );
+		}
+
+		@Override
+		public void copyReverse( final double[] src, final int srcPos, final double[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = Double.longBitsToDouble( Long.reverseBytes( Double.doubleToRawLongBits( src[ srcPos - i ] ) ) );
+		}
+
+		@Override
+		public void copyValue( final double[] src, final int srcPos, final double[] dest, final int destPos, final int length )
+		{
+			Arrays.fill( dest, destPos, destPos + length, Double.longBitsToDouble( Long.reverseBytes( Double.doubleToRawLongBits( src[ srcPos ] ) ) ) );
+		}
+
+		@Override
+		public void copyStrided( final double[] src, final int srcPos, final double[] dest, final int destPos, final int destStride, final int length )
+		{
+			if ( destStride == 1 )
+				copyForward( src, srcPos, dest, destPos, length );
+			else
+				for ( int i = 0; i < length; ++i )
+					dest[ destPos + i * destStride ] = Double.longBitsToDouble( Long.reverseBytes( Double.doubleToRawLongBits( src[ srcPos + i ] ) ) );
+		}
+
+		@Override
+		public void copySubsampled( final double[] src, final int srcPos, final int srcStride, final double[] dest, final int destPos, final int length )
+		{
+			for ( int i = 0; i < length; ++i )
+				dest[ destPos + i ] = Double.longBitsToDouble( Long.reverseBytes( Double.doubleToRawLongBits( src[ srcPos + i * srcStride ] ) ) );
+		}
+		@Override
+		public void copyLines( final int lineDir, final int lineLength, final int numLines, final double[] src, final int srcPos, final int srcStep, final double[] dest, final int destPos, final int destStep )
+		{
+			if ( lineDir == 1 )
+				for ( int i = 0; i < numLines; ++i )
+					copyForward( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else if ( lineDir == -1 )
+				for ( int i = 0; i < numLines; ++i )
+					copyReverse( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else if ( lineDir == 0 )
+				for ( int i = 0; i < numLines; ++i )
+					copyValue( src, srcPos + i * srcStep, dest, destPos + i * destStep, lineLength );
+			else
+				for ( int i = 0; i < numLines; ++i )
+					copySubsampled( src, srcPos + i * srcStep, lineDir, dest, destPos + i * destStep, lineLength );
+		}
+
+		@Override
+		public void copyNDRangeRecursive(
+			final int d,
+			final double[] src,
+			final int[] srcStrides,
+			final int srcPos,
+			final double[] dest,
+			final int[] destStrides,
+			final int destPos,
+			final int[] size )
+		{
+			final int len = size[ d ];
+			if ( d > 0 )
+			{
+				final int stride_src = srcStrides[ d ];
+				final int stride_dst = destStrides[ d ];
+				for ( int i = 0; i < len; ++i )
+					copyNDRangeRecursive( d - 1,
+							src, srcStrides, srcPos + i * stride_src,
+							dest, destStrides, destPos + i * stride_dst,
+							size );
+			}
+			else
+				copyForward( src, srcPos, dest, destPos, len );
+		}
+	}
+
 }
@@ -0,0 +1,265 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+import java.util.Random;
+
+import net.imglib2.Interval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.type.numeric.NumericType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.Cast;
+import net.imglib2.util.Intervals;
+
+/**
+ * Sets the out-of-bounds pixels of a block copied from the root of a View
+ * sequence, for value-dependent {@link Extension}s that cannot be expressed
+ * by {@link Ranges} alone.
+ * <p>
+ * The block is first copied using the {@code Ranges} of a position-only
+ * extension ({@code MIRROR_SINGLE} for {@code MIRROR_EXP_WINDOWING}, {@code
+ * CONSTANT} for {@code RANDOM_VALUE}). Then {@link #fill} visits the
+ * out-of-bounds pixels (only) and weights or replaces their values.
+ *
+ * @param <R>
+ * 		root pixel type
+ */
+abstract class OutOfBoundsFill< R extends NativeType< R > >
+{
+	private final R type;
+
+	private final long[] min;
+
+	private final long[] dimensions;
+
+	private final int[] steps;
+
+	private final int[] order;
+
+	/**
+	 * Create an {@code OutOfBoundsFill} for the given {@code extension}.
+	 *
+	 * @param extension
+	 * 		the out-of-bounds extension
+	 * @param type
+	 * 		root pixel type
+	 * @param interval
+	 * 		root interval
+	 * @param steps
+	 * 		subsampling steps (in root dimensions)
+	 *
+	 * @return {@code OutOfBoundsFill} for the {@code extension}, or {@code
+	 * null} if the {@code extension} does not require it.
+	 */
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	static < R extends NativeType< R > > OutOfBoundsFill< R > create( final Extension extension, final R type, final Interval interval, final int[] steps )
+	{
+		switch ( extension.type() )
+		{
+		case MIRROR_EXP_WINDOWING:
+			return new ExpWindowing( type, interval, steps, ( ExtensionImpl.ExpWindowingExtension ) extension );
+		case RANDOM_VALUE:
+			return new RandomValue( type, interval, steps, ( ExtensionImpl.RandomValueExtension ) extension );
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * @param order
+	 * 		the order in which the weights of dimensions are multiplied
+	 */
+	OutOfBoundsFill( final R type, final Interval interval, final int[] steps, final int[] order )
+	{
+		this.type = type;
+		this.min = interval.minAsLongArray();
+		this.dimensions = interval.dimensionsAsLongArray();
+		this.steps = steps;
+		this.order = order;
+	}
+
+	/**
+	 * Get the weight of a pixel that is {@code distance + 1} pixels outside
+	 * the interval in dimension {@code d}.
+	 */
+	abstract float weight( int d, long distance );
+
+	/**
+	 * Set the value of the out-of-bounds {@code pixel}, where {@code weight}
+	 * is the product of the {@link #weight} of all out-of-bounds dimensions.
+	 */
+	abstract void fill( R pixel, float weight );
+
+	/**
+	 * Fill the out-of-bounds pixels of a block that was copied from the root.
+	 *
+	 * @param srcPos
+	 * 		min coordinates of the block (in root coordinates)
+	 * @param dest
+	 * 		primitive array containing the block. Type is {@code byte[]},
+	 * 		{@code float[]}, etc, corresponding to the root type.
+	 * @param size
+	 * 		dimensions of the block. (With subsampling, pixel {@code x}
+	 * 		is at root coordinate {@code srcPos[d] + steps[d] * x}.)
+	 */
+	void fill( final long[] srcPos, final Object dest, final int[] size )
+	{
+		final int n = size.length;
+		final boolean[][] oob = new boolean[ n ][];
+		final float[][] weights = new float[ n ][];
+		boolean any = false;
+		for ( int d = 0; d < n; ++d )
+		{
+			oob[ d ] = new boolean[ size[ d ] ];
+			weights[ d ] = new float[ size[ d ] ];
+			for ( int x = 0; x < size[ d ]; ++x )
+			{
+				final long pos = srcPos[ d ] + ( long ) steps[ d ] * x - min[ d ];
+				if ( pos < 0 )
+					weights[ d ][ x ] = weight( d, -pos - 1 );
+				else if ( pos >= dimensions[ d ] )
+					weights[ d ][ x ] = weight( d, pos - dimensions[ d ] );
+				else
+				{
+					weights[ d ][ x ] = 1;
+					continue;
+				}
+				oob[ d ][ x ] = true;
+				any = true;
+			}
+		}
+		if ( !any )
+			return;
+
+		final R pixel = wrap( dest, size );
+		fill( pixel, oob, weights, size, new int[ n ], n - 1, false, 0 );
+	}
+
+	private int fill( final R pixel, final boolean[][] oob, final float[][] weights, final int[] size, final int[] x, final int d, final boolean isOob, int i )
+	{
+		if ( d == 0 )
+		{
+			for ( x[ 0 ] = 0; x[ 0 ] < size[ 0 ]; ++x[ 0 ], ++i )
+			{
+				if ( isOob || oob[ 0 ][ x[ 0 ] ] )
+				{
+					float w = 1;
+					for ( final int k : order )
+						w *= weights[ k ][ x[ k ] ];
+					pixel.updateIndex( i );
+					fill( pixel, w );
+				}
+			}
+		}
+		else
+		{
+			for ( x[ d ] = 0; x[ d ] < size[ d ]; ++x[ d ] )
+				i = fill( pixel, oob, weights, size, x, d - 1, isOob || oob[ d ][ x[ d ] ], i );
+		}
+		return i;
+	}
+
+	private < A extends ArrayDataAccess< A > > R wrap( final Object dest, final int[] size )
+	{
+		final NativeTypeFactory< R, A > nativeTypeFactory = Cast.unchecked( type.getNativeTypeFactory() );
+		final PrimitiveTypeProperties< ?, A > props = Cast.unchecked( PrimitiveTypeProperties.get( nativeTypeFactory.getPrimitiveType() ) );
+		final ArrayImg< R, A > img = new ArrayImg<>( props.wrap( dest ), new long[] { Intervals.numElements( size ) }, type.getEntitiesPerPixel() );
+		final R pixel = nativeTypeFactory.createLinkedType( img );
+		pixel.updateContainer( null );
+		return pixel;
+	}
+
+	/**
+	 * Multiplies mirrored values with weights that fall off with the distance
+	 * to the interval (see {@link net.imglib2.outofbounds.OutOfBoundsMirrorExpWindowing}).
+	 */
+	static class ExpWindowing< R extends NativeType< R > & NumericType< R > > extends OutOfBoundsFill< R >
+	{
+		private final float[][] weights;
+
+		ExpWindowing( final R type, final Interval interval, final int[] steps, final ExtensionImpl.ExpWindowingExtension extension )
+		{
+			super( type, interval, steps, extension.getOrder() );
+			this.weights = extension.getWeights();
+		}
+
+		@Override
+		float weight( final int d, final long distance )
+		{
+			return distance < weights[ d ].length ? weights[ d ][ ( int ) distance ] : 0;
+		}
+
+		@Override
+		void fill( final R pixel, final float weight )
+		{
+			pixel.mul( weight );
+		}
+	}
+
+	/**
+	 * Replaces values with uniformly distributed random values (see {@link
+	 * net.imglib2.outofbounds.OutOfBoundsRandomValue}).
+	 */
+	static class RandomValue< R extends NativeType< R > & RealType< R > > extends OutOfBoundsFill< R >
+	{
+		private final Random random;
+
+		private final double min;
+
+		private final double range;
+
+		RandomValue( final R type, final Interval interval, final int[] steps, final ExtensionImpl.RandomValueExtension extension )
+		{
+			super( type, interval, steps, new int[ 0 ] );
+			random = extension.getRandom();
+			min = extension.getMin();
+			range = extension.getMax() - min;
+		}
+
+		@Override
+		float weight( final int d, final long distance )
+		{
+			return 0;
+		}
+
+		@Override
+		void fill( final R pixel, final float weight )
+		{
+			pixel.setReal( random.nextDouble() * range + min );
+		}
+	}
+}
@@ -0,0 +1,265 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+import static net.imglib2.blocks.PrimitiveBlocksUtils.slice;
+
+import java.nio.Buffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import net.imglib2.parallel.ExecutionMetrics;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.parallel.TaskExecutor;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.PrimitiveType;
+import net.imglib2.util.Intervals;
+
+/**
+ * A {@code PrimitiveBlocks} that splits large blocks into chunks and copies
+ * the chunks in parallel, using the current {@link
+ * Parallelization#getTaskExecutor() TaskExecutor}.
+ * <p>
+ * The block is split along its last dimension (with size {@code > 1}), so
+ * that every chunk is a contiguous range of the destination array. Where
+ * possible, chunk boundaries are aligned to cell boundaries of the underlying
+ * image. Each chunk is copied by a {@link #threadSafe() thread-local} copy of
+ * the wrapped {@code PrimitiveBlocks} into a {@link TempArray}, and from there
+ * into the destination (except for the first chunk, which is copied directly).
+ * {@code TempArray}s are pooled only for the duration of a single {@link
+ * #copy}, so that no temporary memory is retained afterwards. For {@code Buffer} destinations, all chunks are copied
+ * directly into slices of the destination buffer.
+ * <p>
+ * {@code ParallelPrimitiveBlocks} is thread-safe.
+ *
+ * @param <T>
+ * 		pixel type
+ */
+class ParallelPrimitiveBlocks< T extends NativeType< T > > implements PrimitiveBlocks< T >
+{
+	/**
+	 * Blocks with fewer elements are copied single-threaded.
+	 */
+	static final long MIN_PARALLEL_ELEMENTS = 1 << 18;
+
+	/**
+	 * Chunks have at most this many elements (unless a single hyperplane of
+	 * the block is larger). This bounds the size of the {@code TempArray}s.
+	 */
+	static final long MAX_CHUNK_ELEMENTS = 1 << 22;
+
+	private final PrimitiveBlocks< T > blocks;
+
+	private final PrimitiveBlocks< T > threadSafeBlocks;
+
+	private final PrimitiveType primitiveType;
+
+	ParallelPrimitiveBlocks( final PrimitiveBlocks< T > blocks )
+	{
+		this.blocks = blocks;
+		threadSafeBlocks = blocks.threadSafe();
+		primitiveType = blocks.getType().getNativeTypeFactory().getPrimitiveType();
+	}
+
+	@Override
+	public T getType()
+	{
+		return blocks.getType();
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return blocks.numDimensions();
+	}
+
+	@Override
+	public void copy( final long[] srcPos, final Object dest, final int[] size )
+	{
+		final TaskExecutor taskExecutor = Parallelization.getTaskExecutor();
+		final long numElements = Intervals.numElements( size );
+
+		final int k = splitDimension( size );
+
+		if ( taskExecutor.getParallelism() <= 1 || numElements < MIN_PARALLEL_ELEMENTS || size[ k ] < 2 )
+		{
+			threadSafeBlocks.copy( srcPos, dest, size );
+			return;
+		}
+
+		final int planeElements = ( int ) ( numElements / size[ k ] );
+		final List< Chunk > chunks = chunks( srcPos, size, k, taskExecutor.suggestNumberOfTasks() );
+		ExecutionMetrics.withTag( ParallelPrimitiveBlocks.class.getSimpleName(), () -> {
+			copyChunks( taskExecutor, chunks, srcPos, dest, size, k, planeElements );
+			return null;
+		} );
+	}
+
+	private void copyChunks( final TaskExecutor taskExecutor, final List< Chunk > chunks, final long[] srcPos, final Object dest, final int[] size, final int k, final int planeElements )
+	{
+		// NB: at most one TempArray per concurrently running task
+		final Queue< TempArray< Object > > tempArrays = new ConcurrentLinkedQueue<>();
+		taskExecutor.forEach( chunks, chunk -> {
+			final long[] chunkPos = srcPos.clone();
+			final int[] chunkSize = size.clone();
+			chunkPos[ k ] += chunk.start;
+			chunkSize[ k ] = chunk.length;
+			if ( dest instanceof Buffer )
+			{
+				// NB: chunks write directly into (independent) slices of the buffer
+				threadSafeBlocks.copy( chunkPos, slice( ( Buffer ) dest, planeElements * chunk.start, primitiveType ), chunkSize );
+			}
+			else if ( chunk.start == 0 )
+			{
+				threadSafeBlocks.copy( chunkPos, dest, chunkSize );
+			}
+			else
+			{
+				final int length = planeElements * chunk.length;
+				final TempArray< Object > tempArray = pollOrCreate( tempArrays );
+				final Object tmp = tempArray.get( length );
+				threadSafeBlocks.copy( chunkPos, tmp, chunkSize );
+				System.arraycopy( tmp, 0, dest, planeElements * chunk.start, length );
+				tempArrays.offer( tempArray );
+			}
+		} );
+	}
+
+	private TempArray< Object > pollOrCreate( final Queue< TempArray< Object > > tempArrays )
+	{
+		final TempArray< Object > tempArray = tempArrays.poll();
+		return tempArray != null ? tempArray : TempArray.forPrimitiveType( primitiveType );
+	}
+
+	/**
+	 * Get the last dimension with {@code size > 1}.
+	 */
+	private static int splitDimension( final int[] size )
+	{
+		int k = size.length - 1;
+		while ( k > 0 && size[ k ] == 1 )
+			--k;
+		return k;
+	}
+
+	private static class Chunk
+	{
+		final int start;
+
+		final int length;
+
+		Chunk( final int start, final int length )
+		{
+			this.start = start;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * Split {@code [0, size[k])} into chunks. There are at least {@code
+	 * numTasks} chunks (if {@code size[k]} is large enough), and every chunk
+	 * has at most {@link #MAX_CHUNK_ELEMENTS} (or a single hyperplane). Chunk
+	 * boundaries are moved to the nearest cell boundary of the underlying
+	 * image, if that is known and doesn't collapse chunks.
+	 */
+	private List< Chunk > chunks( final long[] srcPos, final int[] size, final int k, final int numTasks )
+	{
+		final int sk = size[ k ];
+		final long planeElements = Intervals.numElements( size ) / sk;
+		final long maxPlanesPerChunk = Math.max( 1, MAX_CHUNK_ELEMENTS / planeElements );
+		final int numChunks = ( int ) Math.min( sk, Math.max( numTasks, ( sk + maxPlanesPerChunk - 1 ) / maxPlanesPerChunk ) );
+
+		final long[] cellBoundaries = blocks instanceof ViewPrimitiveBlocks
+				? ( ( ViewPrimitiveBlocks< ?, ? > ) blocks ).cellBoundaries( k )
+				: null;
+
+		final List< Chunk > chunks = new ArrayList<>( numChunks );
+		int start = 0;
+		for ( int i = 1; i <= numChunks; ++i )
+		{
+			int end = ( int ) ( ( long ) i * sk / numChunks );
+			if ( i < numChunks && cellBoundaries != null )
+			{
+				// snap to nearest cell boundary (in block coordinates)
+				final long period = cellBoundaries[ 0 ];
+				final long phase = Math.floorMod( cellBoundaries[ 1 ] - srcPos[ k ], period );
+				final long below = end - Math.floorMod( end - phase, period );
+				final long above = below + period;
+				final long snapped = end - below <= above - end ? below : above;
+				if ( snapped > start && snapped < sk && Math.abs( snapped - end ) <= sk / ( 2L * numChunks ) )
+					end = ( int ) snapped;
+			}
+			if ( end > start )
+			{
+				chunks.add( new Chunk( start, end - start ) );
+				start = end;
+			}
+		}
+		if ( start < sk )
+			chunks.add( new Chunk( start, sk - start ) );
+		return chunks;
+	}
+
+	@Override
+	public void write( final long[] destPos, final Object src, final int[] size )
+	{
+		threadSafeBlocks.write( destPos, src, size );
+	}
+
+	@Override
+	public PrimitiveBlocks< T > threadSafe()
+	{
+		return this;
+	}
+
+	@Override
+	public PrimitiveBlocks< T > independentCopy()
+	{
+		return new ParallelPrimitiveBlocks<>( blocks.independentCopy() );
+	}
+
+	@Override
+	public PrimitiveBlocks< T > parallel()
+	{
+		return this;
+	}
+
+	@Override
+	public PrimitiveBlocks< T > byteSwapped()
+	{
+		return new ParallelPrimitiveBlocks<>( blocks.byteSwapped() );
+	}
+}
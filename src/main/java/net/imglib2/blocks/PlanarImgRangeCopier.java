@@ -51,7 +51,9 @@ class PlanarImgRangeCopier< S, T > implements RangeCopier< T >
 	private final int[] srcDims;
 	private final Ranges findRanges;
 	private final MemCopy< S, T > memCopy;
+	private final MemCopy< T, S > writeMemCopy;
 	private final S oob;
+	private final int[] steps;
 
 	private final List< Ranges.Range >[] rangesPerDimension;
 	private final Ranges.Range[] ranges;
@@ -67,7 +69,9 @@ class PlanarImgRangeCopier< S, T > implements RangeCopier< T >
 			final PlanarImg< ?, ? > planarImg,
 			final Ranges findRanges,
 			final MemCopy< S, T > memCopy,
-			final S oob )
+			final MemCopy< T, S > writeMemCopy,
+			final S oob,
+			final int[] steps )
 	{
 		n = planarImg.numDimensions();
 		sliceAccess = new SliceAccess<>( planarImg );
@@ -75,7 +79,9 @@ class PlanarImgRangeCopier< S, T > implements RangeCopier< T >
 
 		this.findRanges = findRanges;
 		this.memCopy = memCopy;
+		this.writeMemCopy = writeMemCopy;
 		this.oob = oob;
+		this.steps = steps;
 
 		rangesPerDimension = new List[ n ];
 		ranges = new Ranges.Range[ n ];
@@ -101,7 +107,9 @@ class PlanarImgRangeCopier< S, T > implements RangeCopier< T >
 		srcDims = copier.srcDims.clone();
 		findRanges = copier.findRanges;
 		memCopy = copier.memCopy;
+		writeMemCopy = copier.writeMemCopy;
 		oob = copier.oob;
+		steps = copier.steps;
 
 		rangesPerDimension = new List[ n ];
 		ranges = new Ranges.Range[ n ];
@@ -138,13 +146,41 @@ class PlanarImgRangeCopier< S, T > implements RangeCopier< T >
 	{
 		// find ranges
 		for ( int d = 0; d < n; ++d )
-			rangesPerDimension[ d ] = findRanges.findRanges( srcPos[ d ], size[ d ], srcDims[ d ], cdims[ d ] );
+			rangesPerDimension[ d ] = findRanges.findRanges( srcPos[ d ], size[ d ], srcDims[ d ], cdims[ d ], steps[ d ] );
 
 		// copy data
 		setupDestSize( size );
 		copy( dest, n - 1 );
 	}
 
+	/**
+	 * Write the (appropriately sized) {@code src} array into the block
+	 * starting at {@code destPos} with the given {@code size}.
+	 * <p>
+	 * The block must be fully contained in the dest Img. This finds the dest
+	 * range lists for all dimensions and then calls {@link #write(Object, int)}
+	 * to iterate all range combinations.
+	 *
+	 * @param destPos
+	 * 		min coordinates of block to write into dest Img.
+	 * @param src
+	 * 		source array. Type is {@code byte[]}, {@code float[]},
+	 * 		etc, corresponding to the dest Img's native type.
+	 * @param size
+	 * 		dimensions of block to write into dest Img.
+	 */
+	@Override
+	public void write( final long[] destPos, final T src, final int[] size )
+	{
+		// find ranges
+		for ( int d = 0; d < n; ++d )
+			rangesPerDimension[ d ] = RangesImpl.FIND_RANGES_CONSTANT.findRanges( destPos[ d ], size[ d ], srcDims[ d ], cdims[ d ], steps[ d ] );
+
+		// write data
+		setupDestSize( size );
+		write( src, n - 1 );
+	}
+
 	/**
 	 * Iterate the {@code rangesPerDimension} list for the given dimension {@code d}
 	 * and recursively call itself for iterating dimension {@code d-1}.
@@ -206,8 +242,11 @@ class PlanarImgRangeCopier< S, T > implements RangeCopier< T >
 			sOffset += csteps[ d ] * r.cellx;
 			switch( r.dir )
 			{
+			case FORWARD:
+				csteps[ d ] *= steps[ d ];
+				break;
 			case BACKWARD:
-				csteps[ d ] = -csteps[ d ];
+				csteps[ d ] = -csteps[ d ] * steps[ d ];
 				break;
 			case STAY:
 				csteps[ d ] = 0;
@@ -244,6 +283,67 @@ class PlanarImgRangeCopier< S, T > implements RangeCopier< T >
 		}
 	}
 
+	/**
+	 * Iterate the {@code rangesPerDimension} list for the given dimension
+	 * {@code d} and recursively call itself for iterating dimension {@code
+	 * d-1}. In contrast to {@link #copy(Object, int)}, all ranges are expected
+	 * to be {@code FORWARD}, that is, within the bounds of the dest Img.
+	 */
+	private void write( final T src, final int d )
+	{
+		for ( Ranges.Range range : rangesPerDimension[ d ] )
+		{
+			ranges[ d ] = range;
+			updateRange( d );
+			if ( d > 0 )
+				write( src, d - 1 );
+			else
+				writeRanges( src );
+		}
+	}
+
+	/**
+	 * Write the current Range combination from {@code src} into the dest Img.
+	 * This is the reverse of {@link #copyRanges}, with the {@code dsteps},
+	 * {@code doffsets} describing the {@code src} array.
+	 */
+	private void writeRanges( final T src )
+	{
+		csteps[ 0 ] = 1;
+		for ( int d = 0; d < n - 1; ++d )
+			csteps[ d + 1 ] = csteps[ d ] * cdims[ d ];
+
+		int dOffset = 0;
+		for ( int d = 0; d < n; ++d )
+		{
+			dOffset += csteps[ d ] * ranges[ d ].cellx;
+			csteps[ d ] *= steps[ d ];
+		}
+
+		final int sOffset = doffsets[ 0 ];
+
+		final S dest = sliceAccess.getCurrentStorageArray();
+		if ( n > 1 )
+			writeRangesRecursively( src, sOffset, dest, dOffset, n - 1 );
+		else
+			writeMemCopy.copyStrided( src, sOffset, dest, dOffset, csteps[ 0 ], lengths[ 0 ] );
+	}
+
+	private void writeRangesRecursively( final T src, final int srcPos, final S dest, final int destPos, final int d )
+	{
+		final int length = lengths[ d ];
+		final int dstep = dsteps[ d ];
+		final int cstep = csteps[ d ];
+		if ( d > 1 )
+			for ( int i = 0; i < length; ++i )
+				writeRangesRecursively( src, srcPos + i * dstep, dest, destPos + i * cstep, d - 1 );
+		else if ( csteps[ 0 ] == 1 )
+			writeMemCopy.copyLines( 1, lengths[ 0 ], length, src, srcPos, dstep, dest, destPos, cstep );
+		else
+			for ( int i = 0; i < length; ++i )
+				writeMemCopy.copyStrided( src, srcPos + i * dstep, dest, destPos + i * cstep, csteps[ 0 ], lengths[ 0 ] );
+	}
+
 	/**
      * Once we get here, {@link #setupDestSize} and {@link #updateRange} for
      * all dimensions have been called, so the {@code dsteps}, {@code
@@ -36,6 +36,8 @@ package net.imglib2.blocks;
 import static net.imglib2.blocks.PrimitiveBlocks.OnFallback.FAIL;
 import static net.imglib2.blocks.PrimitiveBlocks.OnFallback.WARN;
 
+import java.nio.Buffer;
+
 import net.imglib2.EuclideanSpace;
 import net.imglib2.RandomAccessible;
 import net.imglib2.Typed;
@@ -76,6 +78,14 @@ import net.imglib2.util.Util;
  * 		blocks.copy( new int[] { 10, 20 }, data, new int[] { 40, 50 } );
  * }</pre>
  * <p>
+ * Blocks can also be copied into {@code java.nio.Buffer}s (direct or heap),
+ * for example, to hand them to native code. A {@code ByteBuffer} destination
+ * is filled in its configured byte order.
+ * <pre>{@code
+ * 		ByteBuffer buffer = ByteBuffer.allocateDirect( 40 * 50 * 4 ).order( ByteOrder.LITTLE_ENDIAN );
+ * 		blocks.copy( new int[] { 10, 20 }, buffer, new int[] { 40, 50 } );
+ * }</pre>
+ * <p>
  * If a source {@code RandomAccessible} cannot be understood, {@link
  * PrimitiveBlocks#of(RandomAccessible) PrimitiveBlocks.of} will return a
  * fall-back implementation (based on {@code LoopBuilder}).
@@ -93,12 +103,25 @@ import net.imglib2.util.Util;
  * one-to-one to a primitive type. (For example, {@code ComplexDoubleType} or
  * {@code Unsigned4BitType} are not supported.)
  * <p>
+ * Blocks can also be written back into the source with the {@link
+ * PrimitiveBlocks#write} method. This requires that the source is writable,
+ * that is, views involving (read-only) {@code Converter}s are not supported.
+ * Blocks must be fully contained in the underlying {@code NativeImg} (they
+ * cannot be written to the out-of-bounds extension).
+ * <pre>{@code
+ * 		PrimitiveBlocks< FloatType > blocks = PrimitiveBlocks.of( Views.rotate( img, 0, 1 ) );
+ * 		blocks.write( new int[] { 10, 20 }, data, new int[] { 40, 50 } );
+ * }</pre>
+ * <p>
  * Implementations are not thread-safe in general. Use {@link #threadSafe()} to
  * obtain a thread-safe instance (implemented using {@link ThreadLocal} copies).
  * E.g.,
  * <pre>{@code
  * 		PrimitiveBlocks< FloatType > blocks = PrimitiveBlocks.of( view ).threadSafe();
  * }</pre>
+ * <p>
+ * Use {@link #parallel()} to obtain a (thread-safe) instance that copies large
+ * blocks using multiple threads.
  *
  * @param <T>
  * 		pixel type
@@ -114,7 +137,8 @@ public interface PrimitiveBlocks< T extends NativeType< T > > extends Typed< T >
 	 * @param dest
 	 * 		primitive array to copy into. Must correspond to {@code T}, for
 	 *      example, if {@code T} is {@code UnsignedByteType} then {@code dest} must
-	 *      be {@code byte[]}.
+	 *      be {@code byte[]}. (Alternatively, a {@code Buffer}, see {@link
+	 *      #copy(long[], Buffer, int[])}.)
 	 * @param size
 	 * 		the size of the block to copy
 	 */
@@ -138,6 +162,102 @@ public interface PrimitiveBlocks< T extends NativeType< T > > extends Typed< T >
 		copy( Util.int2long( srcPos ), dest, size );
 	}
 
+	/**
+	 * Copy a block from the ({@code T}-typed) source into a {@code Buffer}.
+	 * <p>
+	 * Elements are written starting at the current position of {@code dest}.
+	 * The position, limit, and mark of {@code dest} are not modified.
+	 *
+	 * @param srcPos
+	 * 		min coordinate of the block to copy
+	 * @param dest
+	 * 		buffer to copy into (direct or heap). Either a {@code ByteBuffer},
+	 * 		in which case elements are stored in the byte order of {@code
+	 * 		dest}, or a {@code Buffer} corresponding to {@code T}, for example,
+	 * 		if {@code T} is {@code FloatType} then {@code dest} may be a {@code
+	 * 		FloatBuffer}.
+	 * @param size
+	 * 		the size of the block to copy
+	 */
+	default void copy( long[] srcPos, Buffer dest, int[] size )
+	{
+		copy( srcPos, ( Object ) dest, size );
+	}
+
+	/**
+	 * Copy a block from the ({@code T}-typed) source into a {@code Buffer}.
+	 * <p>
+	 * Elements are written starting at the current position of {@code dest}.
+	 * The position, limit, and mark of {@code dest} are not modified.
+	 *
+	 * @param srcPos
+	 * 		min coordinate of the block to copy
+	 * @param dest
+	 * 		buffer to copy into (direct or heap). Either a {@code ByteBuffer},
+	 * 		in which case elements are stored in the byte order of {@code
+	 * 		dest}, or a {@code Buffer} corresponding to {@code T}, for example,
+	 * 		if {@code T} is {@code FloatType} then {@code dest} may be a {@code
+	 * 		FloatBuffer}.
+	 * @param size
+	 * 		the size of the block to copy
+	 */
+	default void copy( int[] srcPos, Buffer dest, int[] size )
+	{
+		copy( Util.int2long( srcPos ), dest, size );
+	}
+
+	/**
+	 * Write a block from primitive arrays (of the appropriate type) into the
+	 * ({@code T}-typed) source.
+	 * <p>
+	 * The source must be writable and the block must be fully contained in
+	 * the underlying {@code NativeImg}.
+	 *
+	 * @param destPos
+	 * 		min coordinate of the block to write
+	 * @param src
+	 * 		primitive array to write from. Must correspond to {@code T}, for
+	 *      example, if {@code T} is {@code UnsignedByteType} then {@code src} must
+	 *      be {@code byte[]}.
+	 * @param size
+	 * 		the size of the block to write
+	 *
+	 * @throws UnsupportedOperationException
+	 * 		if the source is not writable (e.g., a view with {@code Converter}s)
+	 * @throws IllegalArgumentException
+	 * 		if the block is not contained in the underlying {@code NativeImg}
+	 */
+	default void write( long[] destPos, Object src, int[] size )
+	{
+		throw new UnsupportedOperationException( "write() is not supported by " + getClass().getName() );
+	}
+
+	/**
+	 * Write a block from primitive arrays (of the appropriate type) into the
+	 * ({@code T}-typed) source.
+	 * <p>
+	 * The source must be writable and the block must be fully contained in
+	 * the underlying {@code NativeImg}.
+	 *
+	 * @param destPos
+	 * 		min coordinate of the block to write
+	 * @param src
+	 * 		primitive array to write from. Must correspond to {@code T}, for
+	 *      example, if {@code T} is {@code UnsignedByteType} then {@code src} must
+	 *      be {@code byte[]}.
+	 * @param size
+	 * 		the size of the block to write
+	 *
+	 * @throws UnsupportedOperationException
+	 * 		if the source is not writable (e.g., a view with {@code Converter}s)
+	 * @throws IllegalArgumentException
+	 * 		if the block is not contained in the underlying {@code NativeImg}
+	 */
+	default void write( int[] destPos, Object src, int[] size )
+	{
+		write( Util.int2long( destPos ), src, size );
+	}
+
 	/**
 	 * Get a thread-safe version of this {@code PrimitiveBlocks}.
 	 * (Implemented as a wrapper that makes {@link ThreadLocal} copies).
@@ -146,6 +266,78 @@ public interface PrimitiveBlocks< T extends NativeType< T > > extends Typed< T >
 
 	PrimitiveBlocks< T > independentCopy();
 
+	/**
+	 * Get a thread-safe version of this {@code PrimitiveBlocks} that copies
+	 * large blocks in parallel.
+	 * <p>
+	 * Large blocks are split into chunks (along cell boundaries of the
+	 * underlying image, if possible) which are copied by independent copies of
+	 * this {@code PrimitiveBlocks}, using the current {@link
+	 * net.imglib2.parallel.Parallelization#getTaskExecutor() TaskExecutor}.
+	 * For example, to copy a block using 8 threads:
+	 * <pre>{@code
+	 * 		PrimitiveBlocks< FloatType > blocks = PrimitiveBlocks.of( view ).parallel();
+	 * 		Parallelization.runWithNumThreads( 8, () -> blocks.copy( pos, data, size ) );
+	 * }</pre>
+	 * Small blocks, and blocks copied within a single-threaded {@code
+	 * TaskExecutor}, are copied directly without overhead.
+	 */
+	default PrimitiveBlocks< T > parallel()
+	{
+		return new ParallelPrimitiveBlocks<>( this );
+	}
+
+	/**
+	 * Get a version of this {@code PrimitiveBlocks} that exchanges primitive
+	 * arrays in reversed byte order. That is, the bytes of every element
+	 * copied into {@code dest} (or written from {@code src}) are swapped.
+	 * <p>
+	 * This is useful for ingesting (or exporting) raw data in non-native byte
+	 * order. For example, to write a block of big-endian {@code short} values
+	 * (as read from a raw file without conversion) into an image:
+	 * <pre>{@code
+	 * 		PrimitiveBlocks< UnsignedShortType > blocks = PrimitiveBlocks.of( img ).byteSwapped();
+	 * 		blocks.write( pos, rawShorts, size );
+	 * }</pre>
+	 * Where possible, the byte swap is fused into copying (so that no
+	 * additional pass over the data is required). For {@code byte} and {@code
+	 * boolean} types, there is nothing to swap.
+	 * <p>
+	 * {@code byteSwapped().byteSwapped()} is equivalent to this {@code
+	 * PrimitiveBlocks}.
+	 */
+	default PrimitiveBlocks< T > byteSwapped()
+	{
+		return new ByteSwappedPrimitiveBlocks<>( this );
+	}
+
+	/**
+	 * Get a {@code PrimitiveBlocks} that applies the given {@link
+	 * UnaryBlockOperator} to blocks of this {@code PrimitiveBlocks}.
+	 * <p>
+	 * To copy a block, the source interval required by the operator
+	 * (including halos, if any) is copied from this {@code PrimitiveBlocks},
+	 * and the operator computes the requested block from that. Out-of-bounds
+	 * values in halos are therefore provided by the extension of the view
+	 * that this {@code PrimitiveBlocks} was created from. For example:
+	 * <pre>{@code
+	 * 		PrimitiveBlocks< FloatType > smoothed = PrimitiveBlocks.of( Views.extendBorder( img ) )
+	 * 				.andThen( UnaryBlockOperators.convert( new UnsignedByteType(), new FloatType() ) )
+	 * 				.andThen( UnaryBlockOperators.boxMean( new FloatType(), 1, 1 ) );
+	 * }</pre>
+	 * The returned {@code PrimitiveBlocks} is not thread-safe in general. Use
+	 * {@link #threadSafe()} to obtain a thread-safe instance.
+	 *
+	 * @param operator
+	 * 		computes target blocks from source blocks
+	 * @param <U>
+	 * 		target pixel type
+	 */
+	default < U extends NativeType< U > > PrimitiveBlocks< U > andThen( final UnaryBlockOperator< T, U > operator )
+	{
+		return new ConcatenatedPrimitiveBlocks<>( this, operator );
+	}
+
 	enum OnFallback
 	{
 		ACCEPT,
@@ -191,6 +383,10 @@ public interface PrimitiveBlocks< T extends NativeType< T > > extends Typed< T >
 	 *     <li>{@link OnFallback#WARN WARN}: accept fall-back, but print a warning explaining why the input {@code ra} requires fall-back</li>
 	 *     <li>{@link OnFallback#FAIL FAIL}: throw {@code IllegalArgumentException} explaining why the input {@code ra} requires fall-back</li>
 	 * </ul>
+	 * Fall-back occurrences (and copy timings) can be monitored by
+	 * registering a {@link PrimitiveBlocksListener} with {@link
+	 * PrimitiveBlocksMetrics}.
+	 * <p>
 	 * The returned {@code PrimitiveBlocks} is not thread-safe in general. Use
 	 * {@link #threadSafe()} to obtain a thread-safe instance, e.g., {@code
 	 * PrimitiveBlocks.of(view).threadSafe()}.
@@ -212,6 +408,8 @@ public interface PrimitiveBlocks< T extends NativeType< T > > extends Typed< T >
 		{
 			if ( onFallback == WARN )
 				System.err.println( props.getErrorMessage() );
+			if ( PrimitiveBlocksMetrics.isEnabled() )
+				PrimitiveBlocksMetrics.fallback( props.getErrorMessage() );
 			return new FallbackPrimitiveBlocks<>( props.getFallbackProperties() );
 		}
 		throw new IllegalArgumentException( props.getErrorMessage() );
@@ -0,0 +1,107 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+/**
+ * Receives notifications about {@link PrimitiveBlocks} usage, to find views
+ * that (silently) fall back to the slow {@code LoopBuilder}-based
+ * implementation, and to measure how much time is spent copying.
+ * <p>
+ * Register listeners with {@link PrimitiveBlocksMetrics#addListener}. A
+ * ready-made listener that accumulates statistics (and can be exposed via
+ * JMX) is {@link PrimitiveBlocksStatistics}.
+ * <p>
+ * Listener methods are called on the copying threads, possibly concurrently,
+ * so implementations must be thread-safe and should return quickly.
+ */
+public interface PrimitiveBlocksListener
+{
+	/**
+	 * Kind of copier that handled a {@link #copied copy} call.
+	 */
+	enum CopierType
+	{
+		/**
+		 * Optimized copier for views of an {@code ArrayImg}.
+		 */
+		ARRAY_IMG,
+
+		/**
+		 * Optimized copier for views of a {@code PlanarImg}.
+		 */
+		PLANAR_IMG,
+
+		/**
+		 * Optimized copier for views of a {@code CellImg}.
+		 */
+		CELL_IMG,
+
+		/**
+		 * Optimized copier for views of a {@code Views.stack} of images.
+		 */
+		STACK,
+
+		/**
+		 * Fall-back implementation, based on {@code LoopBuilder}.
+		 */
+		FALLBACK
+	}
+
+	/**
+	 * Called when {@link PrimitiveBlocks#of} creates a fall-back
+	 * implementation, because the view cannot be handled by an optimized
+	 * copier.
+	 *
+	 * @param reason
+	 * 		explanation why the view requires fall-back (the same message that
+	 * 		is printed for {@link PrimitiveBlocks.OnFallback#WARN})
+	 */
+	default void fallback( final String reason )
+	{
+	}
+
+	/**
+	 * Called after a block has been {@link PrimitiveBlocks#copy copied}.
+	 *
+	 * @param copierType
+	 * 		the kind of copier that handled the call
+	 * @param numBytes
+	 * 		number of bytes copied into the destination
+	 * @param nanos
+	 * 		time spent in the {@code copy} call, in nanoseconds
+	 */
+	default void copied( final CopierType copierType, final long numBytes, final long nanos )
+	{
+	}
+}
@@ -0,0 +1,110 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+import java.util.Arrays;
+
+import net.imglib2.blocks.PrimitiveBlocksListener.CopierType;
+
+/**
+ * Global registry of {@link PrimitiveBlocksListener}s.
+ * <p>
+ * If no listeners are registered (the default), {@code PrimitiveBlocks} does
+ * not take any timing measurements, so that there is no overhead. For
+ * example, to find out which views go through the fall-back implementation,
+ * and how much time is spent in each kind of copier:
+ * <pre>{@code
+ * 		PrimitiveBlocksStatistics statistics = new PrimitiveBlocksStatistics();
+ * 		PrimitiveBlocksMetrics.addListener( statistics );
+ * 		statistics.registerMBean(); // optional, to inspect via JMX
+ * 		...
+ * 		System.out.println( statistics );
+ * }</pre>
+ */
+public final class PrimitiveBlocksMetrics
+{
+	private static final PrimitiveBlocksListener[] NO_LISTENERS = new PrimitiveBlocksListener[ 0 ];
+
+	private static volatile PrimitiveBlocksListener[] listeners = NO_LISTENERS;
+
+	private PrimitiveBlocksMetrics()
+	{
+		// utility class
+	}
+
+	/**
+	 * Register a listener. Adding the same listener more than once has no
+	 * effect.
+	 */
+	public static synchronized void addListener( final PrimitiveBlocksListener listener )
+	{
+		if ( listener == null )
+			throw new NullPointerException();
+		if ( Arrays.asList( listeners ).contains( listener ) )
+			return;
+		final PrimitiveBlocksListener[] l = Arrays.copyOf( listeners, listeners.length + 1 );
+		l[ l.length - 1 ] = listener;
+		listeners = l;
+	}
+
+	/**
+	 * Unregister a listener.
+	 */
+	public static synchronized void removeListener( final PrimitiveBlocksListener listener )
+	{
+		listeners = Arrays.stream( listeners )
+				.filter( l -> l != listener )
+				.toArray( PrimitiveBlocksListener[]::new );
+	}
+
+	/**
+	 * Returns {@code true} if any listeners are registered.
+	 */
+	static boolean isEnabled()
+	{
+		return listeners.length != 0;
+	}
+
+	static void fallback( final String reason )
+	{
+		for ( final PrimitiveBlocksListener listener : listeners )
+			listener.fallback( reason );
+	}
+
+	static void copied( final CopierType copierType, final long numBytes, final long nanos )
+	{
+		for ( final PrimitiveBlocksListener listener : listeners )
+			listener.copied( copierType, numBytes, nanos );
+	}
+}
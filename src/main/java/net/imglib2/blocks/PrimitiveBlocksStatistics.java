@@ -0,0 +1,219 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A {@link PrimitiveBlocksListener} that accumulates fall-back occurrences
+ * (by reason), and number of copy calls, bytes copied, and time spent (by
+ * {@link CopierType}).
+ * <p>
+ * Statistics can be queried directly, or exposed as a JMX bean with {@link
+ * #registerMBean()}.
+ * <p>
+ * {@code PrimitiveBlocksStatistics} is thread-safe.
+ */
+public class PrimitiveBlocksStatistics implements PrimitiveBlocksListener, PrimitiveBlocksStatisticsMXBean
+{
+	/**
+	 * Default JMX object name used by {@link #registerMBean()}.
+	 */
+	public static final String DEFAULT_OBJECT_NAME = "net.imglib2.blocks:type=PrimitiveBlocksStatistics";
+
+	private final AtomicLong fallbackCount = new AtomicLong();
+
+	private final Map< String, LongAdder > fallbackReasons = new ConcurrentHashMap<>();
+
+	private final EnumMap< CopierType, Counters > counters = new EnumMap<>( CopierType.class );
+
+	private static class Counters
+	{
+		final LongAdder count = new LongAdder();
+
+		final LongAdder bytes = new LongAdder();
+
+		final LongAdder nanos = new LongAdder();
+
+		void reset()
+		{
+			count.reset();
+			bytes.reset();
+			nanos.reset();
+		}
+	}
+
+	public PrimitiveBlocksStatistics()
+	{
+		for ( final CopierType type : CopierType.values() )
+			counters.put( type, new Counters() );
+	}
+
+	@Override
+	public void fallback( final String reason )
+	{
+		fallbackCount.incrementAndGet();
+		fallbackReasons.computeIfAbsent( String.valueOf( reason ), r -> new LongAdder() ).increment();
+	}
+
+	@Override
+	public void copied( final CopierType copierType, final long numBytes, final long nanos )
+	{
+		final Counters c = counters.get( copierType );
+		c.count.increment();
+		c.bytes.add( numBytes );
+		c.nanos.add( nanos );
+	}
+
+	/**
+	 * Number of {@code copy} calls handled by the given {@code copierType}.
+	 */
+	public long copyCount( final CopierType copierType )
+	{
+		return counters.get( copierType ).count.sum();
+	}
+
+	/**
+	 * Number of bytes copied by the given {@code copierType}.
+	 */
+	public long bytesCopied( final CopierType copierType )
+	{
+		return counters.get( copierType ).bytes.sum();
+	}
+
+	/**
+	 * Time (in nanoseconds) spent in {@code copy} calls handled by the given
+	 * {@code copierType}.
+	 */
+	public long copyNanos( final CopierType copierType )
+	{
+		return counters.get( copierType ).nanos.sum();
+	}
+
+	@Override
+	public long getFallbackCount()
+	{
+		return fallbackCount.get();
+	}
+
+	@Override
+	public Map< String, Long > getFallbackReasons()
+	{
+		final Map< String, Long > map = new LinkedHashMap<>();
+		fallbackReasons.forEach( ( reason, count ) -> map.put( reason, count.sum() ) );
+		return map;
+	}
+
+	@Override
+	public Map< String, Long > getCopyCounts()
+	{
+		final Map< String, Long > map = new LinkedHashMap<>();
+		counters.forEach( ( type, c ) -> map.put( type.name(), c.count.sum() ) );
+		return map;
+	}
+
+	@Override
+	public Map< String, Long > getBytesCopied()
+	{
+		final Map< String, Long > map = new LinkedHashMap<>();
+		counters.forEach( ( type, c ) -> map.put( type.name(), c.bytes.sum() ) );
+		return map;
+	}
+
+	@Override
+	public Map< String, Long > getCopyNanos()
+	{
+		final Map< String, Long > map = new LinkedHashMap<>();
+		counters.forEach( ( type, c ) -> map.put( type.name(), c.nanos.sum() ) );
+		return map;
+	}
+
+	@Override
+	public void reset()
+	{
+		fallbackCount.set( 0 );
+		fallbackReasons.clear();
+		counters.values().forEach( Counters::reset );
+	}
+
+	/**
+	 * Register this as a JMX bean with the platform {@code MBeanServer}, using
+	 * {@link #DEFAULT_OBJECT_NAME}.
+	 *
+	 * @return the {@code ObjectName} under which the bean was registered
+	 */
+	public ObjectName registerMBean() throws JMException
+	{
+		return registerMBean( DEFAULT_OBJECT_NAME );
+	}
+
+	/**
+	 * Register this as a JMX bean with the platform {@code MBeanServer}.
+	 *
+	 * @param objectName
+	 * 		the JMX object name to register the bean under
+	 *
+	 * @return the {@code ObjectName} under which the bean was registered
+	 */
+	public ObjectName registerMBean( final String objectName ) throws JMException
+	{
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		return server.registerMBean( this, new ObjectName( objectName ) ).getObjectName();
+	}
+
+	@Override
+	public String toString()
+	{
+		final StringBuilder sb = new StringBuilder( "PrimitiveBlocksStatistics{" );
+		sb.append( "fallbackCount=" ).append( getFallbackCount() );
+		counters.forEach( ( type, c ) -> {
+			final long count = c.count.sum();
+			if ( count > 0 )
+				sb.append( ", " ).append( type ).append( "={count=" ).append( count )
+						.append( ", bytes=" ).append( c.bytes.sum() )
+						.append( ", nanos=" ).append( c.nanos.sum() ).append( '}' );
+		} );
+		return sb.append( '}' ).toString();
+	}
+}
@@ -33,6 +33,14 @@
  */
 package net.imglib2.blocks;
 
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
 import java.util.Arrays;
 
 import net.imglib2.img.array.ArrayImg;
@@ -40,6 +48,7 @@ import net.imglib2.img.array.ArrayImgFactory;
 import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
 import net.imglib2.transform.integer.MixedTransform;
 import net.imglib2.type.NativeType;
+import net.imglib2.type.PrimitiveType;
 
 class PrimitiveBlocksUtils
 {
@@ -52,10 +61,112 @@ class PrimitiveBlocksUtils
 			img.firstElement().set( oobValue );
 			return ( ( ArrayDataAccess< ? > ) ( img.update( null ) ) ).getCurrentStorageArray();
 		}
+		else if ( extension.type() == Extension.Type.RANDOM_VALUE )
+		{
+			// NB: out-of-bounds values are replaced by OutOfBoundsFill afterwards
+			final ArrayImg< T, ? > img = new ArrayImgFactory<>( type ).create( 1 );
+			return ( ( ArrayDataAccess< ? > ) ( img.update( null ) ) ).getCurrentStorageArray();
+		}
 		else
 			return null;
 	}
 
+	/**
+	 * Get a {@code Buffer} of the type corresponding to {@code primitiveType}
+	 * (e.g., {@code FloatBuffer} for {@code FLOAT}) with index {@code 0} at
+	 * the current position of {@code buffer}. If {@code buffer} is a {@code
+	 * ByteBuffer}, it is viewed as the corresponding type, using the byte
+	 * order of {@code buffer}.
+	 * <p>
+	 * The returned {@code Buffer} shares its content with {@code buffer}, but
+	 * has independent position, limit, and mark.
+	 *
+	 * @throws IllegalArgumentException
+	 * 		if {@code buffer} is neither a {@code ByteBuffer} nor of the type
+	 * 		corresponding to {@code primitiveType}
+	 */
+	static Buffer asTypedBuffer( final Buffer buffer, final PrimitiveType primitiveType )
+	{
+		if ( buffer instanceof ByteBuffer )
+		{
+			final ByteBuffer bytes = ( ( ByteBuffer ) buffer ).duplicate().order( ( ( ByteBuffer ) buffer ).order() );
+			switch ( primitiveType )
+			{
+			case BYTE:
+				return bytes.slice();
+			case CHAR:
+				return bytes.asCharBuffer();
+			case SHORT:
+				return bytes.asShortBuffer();
+			case INT:
+				return bytes.asIntBuffer();
+			case LONG:
+				return bytes.asLongBuffer();
+			case FLOAT:
+				return bytes.asFloatBuffer();
+			case DOUBLE:
+				return bytes.asDoubleBuffer();
+			default:
+				throw new IllegalArgumentException( "Buffers are not supported for PrimitiveType." + primitiveType );
+			}
+		}
+		else if ( primitiveType == PrimitiveType.CHAR && buffer instanceof CharBuffer )
+			return ( ( CharBuffer ) buffer ).slice();
+		else if ( primitiveType == PrimitiveType.SHORT && buffer instanceof ShortBuffer )
+			return ( ( ShortBuffer ) buffer ).slice();
+		else if ( primitiveType == PrimitiveType.INT && buffer instanceof IntBuffer )
+			return ( ( IntBuffer ) buffer ).slice();
+		else if ( primitiveType == PrimitiveType.LONG && buffer instanceof LongBuffer )
+			return ( ( LongBuffer ) buffer ).slice();
+		else if ( primitiveType == PrimitiveType.FLOAT && buffer instanceof FloatBuffer )
+			return ( ( FloatBuffer ) buffer ).slice();
+		else if ( primitiveType == PrimitiveType.DOUBLE && buffer instanceof DoubleBuffer )
+			return ( ( DoubleBuffer ) buffer ).slice();
+		else
+			throw new IllegalArgumentException( "Expected ByteBuffer or Buffer corresponding to PrimitiveType." + primitiveType
+					+ " (found " + buffer.getClass().getSimpleName() + ")" );
+	}
+
+	/**
+	 * Wrap a primitive array (e.g., {@code float[]}) into a {@code Buffer} of
+	 * the corresponding type (e.g., {@code FloatBuffer}). This is used for
+	 * out-of-bounds values of {@code BufferAccess}-backed images.
+	 *
+	 * @throws IllegalArgumentException
+	 * 		if {@code array} is not a primitive array or a {@code boolean[]}
+	 */
+	static Buffer wrapAsBuffer( final Object array )
+	{
+		if ( array instanceof byte[] )
+			return ByteBuffer.wrap( ( byte[] ) array );
+		else if ( array instanceof char[] )
+			return CharBuffer.wrap( ( char[] ) array );
+		else if ( array instanceof short[] )
+			return ShortBuffer.wrap( ( short[] ) array );
+		else if ( array instanceof int[] )
+			return IntBuffer.wrap( ( int[] ) array );
+		else if ( array instanceof long[] )
+			return LongBuffer.wrap( ( long[] ) array );
+		else if ( array instanceof float[] )
+			return FloatBuffer.wrap( ( float[] ) array );
+		else if ( array instanceof double[] )
+			return DoubleBuffer.wrap( ( double[] ) array );
+		else
+			throw new IllegalArgumentException( "Cannot wrap " + array.getClass().getSimpleName() + " as Buffer" );
+	}
+
+	/**
+	 * Get a {@code Buffer} with index {@code 0} at index {@code offset} of
+	 * {@code buffer}, where {@code buffer} is of the type corresponding to
+	 * {@code primitiveType} (see {@link #asTypedBuffer}).
+	 */
+	static Buffer slice( final Buffer buffer, final int offset, final PrimitiveType primitiveType )
+	{
+		final Buffer dup = asTypedBuffer( buffer, primitiveType );
+		dup.position( offset );
+		return asTypedBuffer( dup, primitiveType );
+	}
+
 	/**
 	 * Computes the inverse of (@code transform}. The {@code MixedTransform
 	 * transform} is a pure axis permutation followed by inversion of some axes,
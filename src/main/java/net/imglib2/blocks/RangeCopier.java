@@ -41,7 +41,8 @@ import net.imglib2.img.planar.PlanarImg;
 
 /**
  * {@code RangeCopier} does the actual copying work from a {@code NativeImg}
- * into a primitive array.
+ * into a primitive array (and from a primitive array back into a {@code
+ * NativeImg}).
  * <p>
  * The static {@link RangeCopier#create} method will pick the correct
  * implementation for a given {@link NativeImg}.
@@ -64,6 +65,23 @@ interface RangeCopier< T >
 	 */
 	void copy( final long[] srcPos, final T dest, final int[] size );
 
+	/**
+	 * Write the (appropriately sized) {@code src} array into the block
+	 * starting at {@code destPos} with the given {@code size}.
+	 * <p>
+	 * The block must be fully contained in the bounds of the dest Img. (This
+	 * is not checked.)
+	 *
+	 * @param destPos
+	 * 		min coordinates of block to write into dest Img.
+	 * @param src
+	 * 		source array. Type is {@code byte[]}, {@code float[]},
+	 * 		etc, corresponding to the dest Img's native type.
+	 * @param size
+	 * 		dimensions of block to write into dest Img.
+	 */
+	void write( final long[] destPos, final T src, final int[] size );
+
 	/**
 	 * Return a new independent instance of this {@code RangeCopier}. This is
 	 * used for multi-threading. The new instance works on the same source
@@ -73,18 +91,37 @@ interface RangeCopier< T >
 	 */
 	RangeCopier< T > newInstance();
 
+	/**
+	 * Create a {@code RangeCopier} for the given {@code img}.
+	 *
+	 * @param img
+	 * 		the {@code NativeImg} to copy from (and write to)
+	 * @param findRanges
+	 * 		out-of-bounds strategy for copying
+	 * @param memCopy
+	 * 		copies from the storage type {@code S} of {@code img} to primitive arrays {@code T}
+	 * @param writeMemCopy
+	 * 		copies from primitive arrays {@code T} to the storage type {@code S} of {@code img}
+	 * @param oob
+	 * 		out-of-bounds value for constant extension (or {@code null})
+	 * @param steps
+	 * 		subsampling steps for each dimension of {@code img} (all {@code 1}
+	 * 		if blocks are not subsampled)
+	 */
 	static < S, T > RangeCopier< T > create(
 			final NativeImg< ?, ? > img,
 			final Ranges findRanges,
 			final MemCopy< S, T > memCopy,
-			final S oob )
+			final MemCopy< T, S > writeMemCopy,
+			final S oob,
+			final int[] steps )
 	{
 		if ( img instanceof AbstractCellImg )
-			return new CellImgRangeCopier<>( ( AbstractCellImg< ?, ?, ? extends Cell< ? >, ? > ) img, findRanges, memCopy, oob );
+			return new CellImgRangeCopier<>( ( AbstractCellImg< ?, ?, ? extends Cell< ? >, ? > ) img, findRanges, memCopy, writeMemCopy, oob, steps );
 		else if ( img instanceof PlanarImg )
-			return new PlanarImgRangeCopier<>( ( PlanarImg< ?, ? > ) img, findRanges, memCopy, oob );
+			return new PlanarImgRangeCopier<>( ( PlanarImg< ?, ? > ) img, findRanges, memCopy, writeMemCopy, oob, steps );
 		else if ( img instanceof ArrayImg )
-			return new ArrayImgRangeCopier<>( ( ArrayImg< ?, ? > ) img, findRanges, memCopy, oob );
+			return new ArrayImgRangeCopier<>( ( ArrayImg< ?, ? > ) img, findRanges, memCopy, writeMemCopy, oob, steps );
 		else
 			throw new IllegalArgumentException();
 	}
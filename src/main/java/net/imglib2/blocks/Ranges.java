@@ -33,6 +33,7 @@
  */
 package net.imglib2.blocks;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
@@ -76,6 +77,62 @@ interface Ranges
 	 */
 	List< Range > findRanges( long bx, int bw, long iw, int cw );
 
+	/**
+	 * Find ranges for one dimension of a subsampled block.
+	 * <p>
+	 * The requested block comprises {@code bw} elements at source coordinates
+	 * {@code bx}, {@code bx + step}, {@code bx + 2*step}, etc. The returned
+	 * ranges refer to the subsampled block, i.e., {@code Range.x} and {@code
+	 * Range.w} are in subsampled destination coordinates, while {@code
+	 * Range.cellx} is the source coordinate (within the cell) of the first
+	 * element. Successive source elements of a range are {@code step} apart
+	 * (in {@code Range.dir} direction).
+	 *
+	 * @param bx
+	 * 		start of block in source coordinates (in pixels)
+	 * @param bw
+	 * 		width of block to copy (in subsampled pixels)
+	 * @param iw
+	 * 		source image width (in pixels)
+	 * @param cw
+	 * 		source cell width (in pixels)
+	 * @param step
+	 * 		subsampling step (in pixels)
+	 */
+	default List< Range > findRanges( final long bx, final int bw, final long iw, final int cw, final int step )
+	{
+		if ( step == 1 )
+			return findRanges( bx, bw, iw, cw );
+
+		final List< Range > ranges = findRanges( bx, ( bw - 1 ) * step + 1, iw, cw );
+		final List< Range > subsampled = new ArrayList<>();
+		for ( final Range r : ranges )
+		{
+			// subsampled dest coordinates falling into [r.x, r.x + r.w)
+			final int x0 = ( r.x + step - 1 ) / step;
+			final int x1 = ( r.x + r.w + step - 1 ) / step;
+			if ( x1 > x0 )
+			{
+				final int o = x0 * step - r.x;
+				final int cellx;
+				switch ( r.dir )
+				{
+				case FORWARD:
+					cellx = r.cellx + o;
+					break;
+				case BACKWARD:
+					cellx = r.cellx - o;
+					break;
+				default:
+					cellx = r.cellx;
+					break;
+				}
+				subsampled.add( new Range( r.gridx, cellx, x1 - x0, r.dir, x0 ) );
+			}
+		}
+		return subsampled;
+	}
+
 	/**
 	 *
 	 * CONSTANT: Out-of-bounds values are set to a constant.
@@ -94,6 +151,14 @@ interface Ranges
 			return RangesImpl.FIND_RANGES_MIRROR_DOUBLE;
 		case BORDER:
 			return RangesImpl.FIND_RANGES_BORDER;
+		case PERIODIC:
+			return RangesImpl.FIND_RANGES_PERIODIC;
+		case MIRROR_EXP_WINDOWING:
+			// mirrored values are weighted afterwards, see OutOfBoundsFill
+			return RangesImpl.FIND_RANGES_MIRROR_SINGLE;
+		case RANDOM_VALUE:
+			// constant values are replaced afterwards, see OutOfBoundsFill
+			return RangesImpl.FIND_RANGES_CONSTANT;
 		default:
 			throw new IllegalArgumentException( "Extension type not supported: " + extension.type() );
 		}
@@ -47,6 +47,7 @@ class RangesImpl
 	static Ranges FIND_RANGES_MIRROR_SINGLE = RangesImpl::findRanges_mirror_single;
 	static Ranges FIND_RANGES_MIRROR_DOUBLE = RangesImpl::findRanges_mirror_double;
 	static Ranges FIND_RANGES_BORDER = RangesImpl::findRanges_border;
+	static Ranges FIND_RANGES_PERIODIC = RangesImpl::findRanges_periodic;
 
 	/**
 	 * Find ranges for one dimension.
@@ -367,6 +368,57 @@ class RangesImpl
 		return ranges;
 	}
 
+	/**
+	 * Find ranges for one dimension.
+	 * <p>
+	 * Out-of-bounds values are determined by periodic extension (wrapping
+	 * around to the opposite side of the image).
+	 * <p>
+	 * Split the requested interval into ranges covering (possibly partial)
+	 * cells of the input image. The requested interval is given by start
+	 * coordinate {@code bx} (in the extended source image) and size of the
+	 * block to copy {@code bw}, in a particular dimension. The full size of the
+	 * (non-extended) image in this dimension is given by {@code iw}, the size
+	 * of a (non-truncated) cell in this dimension is given by {@code cw}.
+	 *
+	 * @param bx
+	 * 		start of block in source coordinates (in pixels)
+	 * @param bw
+	 * 		width of block to copy (in pixels)
+	 * @param iw
+	 * 		source image width (in pixels)
+	 * @param cw
+	 * 		source cell width (in pixels)
+	 */
+	static List< Ranges.Range > findRanges_periodic(
+			long bx, // start of block in source coordinates (in pixels)
+			int bw, // width of block to copy (in pixels)
+			final long iw, // source image width (in pixels)
+			final int cw  // source cell width (in pixels)
+	)
+	{
+		List< Ranges.Range > ranges = new ArrayList<>();
+
+		if ( bw <= 0 )
+			return ranges;
+
+		bx = Math.floorMod( bx, iw );
+		int x = 0;
+		int gx = ( int ) ( bx / cw );
+		int cx = ( int ) ( bx - ( ( long ) gx * cw ) );
+		while ( bw > 0 )
+		{
+			final int w = Math.min( bw, cellWidth( gx, cw, iw ) - cx );
+			ranges.add( new Ranges.Range( gx, cx, w, FORWARD, x ) );
+			bw -= w;
+			x += w;
+			cx = 0;
+			if ( ( long ) ++gx * cw >= iw ) // wrapping around
+				gx = 0;
+		}
+		return ranges;
+	}
+
 	/**
 	 * Get width of a cell (depending on whether it's an inner cell or a border cell).
 	 *
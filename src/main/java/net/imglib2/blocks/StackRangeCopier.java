@@ -0,0 +1,200 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+import static net.imglib2.blocks.Ranges.Direction.CONSTANT;
+
+import java.util.List;
+
+import net.imglib2.type.NativeType;
+import net.imglib2.type.PrimitiveType;
+import net.imglib2.util.Intervals;
+
+/**
+ * Does the actual copying work from a {@code StackView} into a primitive
+ * array (and from a primitive array into a {@code StackView}).
+ * <p>
+ * Every hyperslice of the {@code StackView} is copied by its own {@link
+ * PrimitiveBlocks}. Out-of-bounds handling along the stack dimension is done
+ * by {@code Ranges} (with cell width {@code 1}, that is, every hyperslice is
+ * a cell). Out-of-bounds handling in the other dimensions is done by the
+ * hyperslice {@code PrimitiveBlocks}.
+ *
+ * @param <T> a primitive array type, e.g., {@code byte[]}.
+ */
+class StackRangeCopier< T > implements RangeCopier< T >
+{
+	private final int n;
+	private final ViewPrimitiveBlocks< ?, ? >[] slices;
+	private final Ranges findRanges;
+	private final MemCopy< T, T > memCopy;
+	private final T oob;
+
+	private final TempArray< T > tempArray;
+
+	private final long[] slicePos;
+	private final int[] sliceSize;
+
+	public < R extends NativeType< R > > StackRangeCopier(
+			final List< ViewProperties< R, ? > > sliceProperties,
+			final Ranges findRanges,
+			final MemCopy< T, T > memCopy,
+			final T oob )
+	{
+		final ViewProperties< R, ? > props0 = sliceProperties.get( 0 );
+		n = props0.getViewNumDimensions() + 1;
+		slices = new ViewPrimitiveBlocks< ?, ? >[ sliceProperties.size() ];
+		for ( int i = 0; i < slices.length; ++i )
+			slices[ i ] = new ViewPrimitiveBlocks<>( sliceProperties.get( i ) );
+		this.findRanges = findRanges;
+		this.memCopy = memCopy;
+		this.oob = oob;
+
+		final PrimitiveType primitiveType = props0.getViewType().getNativeTypeFactory().getPrimitiveType();
+		tempArray = TempArray.forPrimitiveType( primitiveType );
+		slicePos = new long[ n - 1 ];
+		sliceSize = new int[ n - 1 ];
+	}
+
+	// creates an independent copy of {@code other}
+	private StackRangeCopier( final StackRangeCopier< T > copier )
+	{
+		n = copier.n;
+		slices = new ViewPrimitiveBlocks< ?, ? >[ copier.slices.length ];
+		for ( int i = 0; i < slices.length; ++i )
+			slices[ i ] = ( ViewPrimitiveBlocks< ?, ? > ) copier.slices[ i ].independentCopy();
+		findRanges = copier.findRanges;
+		memCopy = copier.memCopy;
+		oob = copier.oob;
+		tempArray = copier.tempArray.newInstance();
+		slicePos = new long[ n - 1 ];
+		sliceSize = new int[ n - 1 ];
+	}
+
+	@Override
+	public StackRangeCopier< T > newInstance()
+	{
+		return new StackRangeCopier<>( this );
+	}
+
+	/**
+	 * Copy the block starting at {@code srcPos} with the given {@code size}
+	 * into the (appropriately sized) {@code dest} array.
+	 * <p>
+	 * This finds the src range list for the stack dimension and then copies a
+	 * hyperslice block for every range. (Because every hyperslice is a "cell"
+	 * of width 1, only {@code STAY} and {@code CONSTANT} ranges may comprise
+	 * more than one element.)
+	 *
+	 * @param srcPos
+	 * 		min coordinates of block to copy from src StackView.
+	 * @param dest
+	 * 		destination array. Type is {@code byte[]}, {@code float[]},
+	 * 		etc, corresponding to the src StackView's type.
+	 * @param size
+	 * 		dimensions of block to copy from src StackView.
+	 */
+	@Override
+	public void copy( final long[] srcPos, final T dest, final int[] size )
+	{
+		final int sd = n - 1;
+		System.arraycopy( srcPos, 0, slicePos, 0, sd );
+		System.arraycopy( size, 0, sliceSize, 0, sd );
+		final int sliceLength = ( int ) Intervals.numElements( sliceSize );
+
+		for ( final Ranges.Range r : findRanges.findRanges( srcPos[ sd ], size[ sd ], slices.length, 1 ) )
+		{
+			final int destPos = r.x * sliceLength;
+			if ( r.dir == CONSTANT )
+				memCopy.copyValue( oob, 0, dest, destPos, r.w * sliceLength );
+			else
+			{
+				copySlice( r.gridx, dest, destPos, sliceLength );
+				for ( int i = 1; i < r.w; ++i )
+					memCopy.copyForward( dest, destPos, dest, destPos + i * sliceLength, sliceLength );
+			}
+		}
+	}
+
+	private void copySlice( final int z, final T dest, final int destPos, final int sliceLength )
+	{
+		if ( destPos == 0 )
+			slices[ z ].copyUnrecorded( slicePos, dest, sliceSize );
+		else
+		{
+			final T tmp = tempArray.get( sliceLength );
+			slices[ z ].copyUnrecorded( slicePos, tmp, sliceSize );
+			memCopy.copyForward( tmp, 0, dest, destPos, sliceLength );
+		}
+	}
+
+	/**
+	 * Write the (appropriately sized) {@code src} array into the block
+	 * starting at {@code destPos} with the given {@code size}.
+	 * <p>
+	 * The block must be fully contained in the dest StackView. Every
+	 * hyperslice block is written by the respective hyperslice {@code
+	 * PrimitiveBlocks}.
+	 *
+	 * @param destPos
+	 * 		min coordinates of block to write into dest StackView.
+	 * @param src
+	 * 		source array. Type is {@code byte[]}, {@code float[]},
+	 * 		etc, corresponding to the dest StackView's type.
+	 * @param size
+	 * 		dimensions of block to write into dest StackView.
+	 */
+	@Override
+	public void write( final long[] destPos, final T src, final int[] size )
+	{
+		final int sd = n - 1;
+		System.arraycopy( destPos, 0, slicePos, 0, sd );
+		System.arraycopy( size, 0, sliceSize, 0, sd );
+		final int sliceLength = ( int ) Intervals.numElements( sliceSize );
+
+		final int z0 = ( int ) destPos[ sd ];
+		for ( int i = 0; i < size[ sd ]; ++i )
+		{
+			final int srcPos = i * sliceLength;
+			if ( srcPos == 0 )
+				slices[ z0 + i ].write( slicePos, src, sliceSize );
+			else
+			{
+				final T tmp = tempArray.get( sliceLength );
+				memCopy.copyForward( src, srcPos, tmp, 0, sliceLength );
+				slices[ z0 + i ].write( slicePos, tmp, sliceSize );
+			}
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+import net.imglib2.type.NativeType;
+
+/**
+ * Computes blocks of {@code T}-typed target pixels from blocks of {@code
+ * S}-typed source pixels, on flattened primitive arrays.
+ * <p>
+ * A {@code UnaryBlockOperator} declares (through its {@link #blockProcessor()
+ * BlockProcessor}) which source interval is required to compute a given
+ * target interval. Operators can be chained with {@link #andThen}, and applied
+ * to {@link PrimitiveBlocks} with {@link PrimitiveBlocks#andThen}. The
+ * resulting {@code PrimitiveBlocks} copies the required (padded) source block
+ * and runs the operator chain on primitive arrays, reusing temporary buffers.
+ * For example, to compute cells of a {@link net.imglib2.img.cell.LazyCellImg
+ * LazyCellImg} from a smoothed and converted view:
+ * <pre>{@code
+ * 		PrimitiveBlocks< FloatType > blocks = PrimitiveBlocks.of( Views.extendMirrorSingle( img ) )
+ * 				.andThen( UnaryBlockOperators.convert( new UnsignedShortType(), new FloatType() ) )
+ * 				.andThen( UnaryBlockOperators.boxMean( new FloatType(), 2, 2, 1 ) );
+ * 		LazyCellImg< FloatType, ? > smoothed = BlockCellLoader.lazyCellImg( blocks, img.dimensionsAsLongArray(), new int[] { 64, 64, 16 } );
+ * }</pre>
+ * Out-of-bounds values required for halos are provided by the source {@code
+ * PrimitiveBlocks}, that is, the extension of the source view (e.g., {@code
+ * Views.extendMirrorSingle}).
+ * <p>
+ * Operators do not change the dimensionality of blocks. Operators that
+ * require a halo check the dimensionality of requested blocks.
+ * <p>
+ * Implementations are not thread-safe in general. Use {@link
+ * #independentCopy()} to obtain instances for concurrent use.
+ *
+ * @param <S>
+ * 		source pixel type
+ * @param <T>
+ * 		target pixel type
+ */
+public interface UnaryBlockOperator< S extends NativeType< S >, T extends NativeType< T > >
+{
+	/**
+	 * Get the {@code BlockProcessor} that does the actual computation. The
+	 * primitive array types {@code I} and {@code O} must correspond to {@code
+	 * S} and {@code T}, respectively.
+	 */
+	< I, O > BlockProcessor< I, O > blockProcessor();
+
+	S getSourceType();
+
+	T getTargetType();
+
+	/**
+	 * Get an instance of this {@code UnaryBlockOperator} that can be used
+	 * concurrently with this instance.
+	 */
+	UnaryBlockOperator< S, T > independentCopy();
+
+	/**
+	 * Returns a {@code UnaryBlockOperator} that applies this operator, and
+	 * then {@code op} to the result.
+	 */
+	default < U extends NativeType< U > > UnaryBlockOperator< S, U > andThen( final UnaryBlockOperator< T, U > op )
+	{
+		return new DefaultUnaryBlockOperator<>(
+				getSourceType(), op.getTargetType(),
+				new ConcatenatedBlockProcessor<>( blockProcessor(), op.blockProcessor() ) );
+	}
+
+	/**
+	 * Compute the target block at {@code pos} with the given {@code size}
+	 * into {@code dest}, using {@code src} to obtain the required source
+	 * block.
+	 *
+	 * @param src
+	 * 		provides source blocks
+	 * @param pos
+	 * 		min coordinate of the target block
+	 * @param dest
+	 * 		primitive array corresponding to {@code T} to compute into
+	 * @param size
+	 * 		size of the target block
+	 */
+	default void compute( final PrimitiveBlocks< S > src, final long[] pos, final Object dest, final int[] size )
+	{
+		final BlockProcessor< Object, Object > processor = blockProcessor();
+		processor.setTargetInterval( pos, size );
+		final Object buf = processor.getSourceBuffer();
+		src.copy( processor.getSourcePos(), buf, processor.getSourceSize() );
+		processor.compute( buf, dest );
+	}
+}
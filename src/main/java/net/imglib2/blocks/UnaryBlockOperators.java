@@ -0,0 +1,363 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Supplier;
+
+import net.imglib2.converter.Converter;
+import net.imglib2.converter.RealTypeConverters;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.PrimitiveType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Intervals;
+
+/**
+ * Factory methods for basic {@link UnaryBlockOperator}s.
+ */
+public final class UnaryBlockOperators
+{
+	private UnaryBlockOperators()
+	{
+		// utility class
+	}
+
+	/**
+	 * Create a {@code UnaryBlockOperator} that converts blocks of {@code S}
+	 * pixels to blocks of {@code T} pixels with the {@code Converter}s
+	 * provided by {@code converterSupplier}.
+	 *
+	 * @param sourceType
+	 * 		source pixel type
+	 * @param targetType
+	 * 		target pixel type
+	 * @param converterSupplier
+	 * 		creates (independent) {@code Converter} instances
+	 */
+	public static < S extends NativeType< S >, T extends NativeType< T > > UnaryBlockOperator< S, T > convert(
+			final S sourceType,
+			final T targetType,
+			final Supplier< Converter< S, T > > converterSupplier )
+	{
+		return new DefaultUnaryBlockOperator<>( sourceType, targetType,
+				new ConvertBlockProcessor<>( primitiveType( sourceType ), Convert.create( sourceType, targetType, converterSupplier ) ) );
+	}
+
+	/**
+	 * Create a {@code UnaryBlockOperator} that converts blocks of {@code S}
+	 * pixels to blocks of {@code T} pixels, using the {@code Converter} from
+	 * {@link RealTypeConverters#getConverter}.
+	 *
+	 * @param sourceType
+	 * 		source pixel type
+	 * @param targetType
+	 * 		target pixel type
+	 */
+	public static < S extends RealType< S > & NativeType< S >, T extends RealType< T > & NativeType< T > > UnaryBlockOperator< S, T > convert(
+			final S sourceType,
+			final T targetType )
+	{
+		return convert( sourceType, targetType, () -> RealTypeConverters.getConverter( sourceType, targetType ) );
+	}
+
+	/**
+	 * Create a {@code UnaryBlockOperator} that applies {@code op} to each
+	 * pixel of a {@code FloatType} block.
+	 */
+	public static UnaryBlockOperator< FloatType, FloatType > pointwise( final FloatType type, final DoubleUnaryOperator op )
+	{
+		return new DefaultUnaryBlockOperator<>( type, type, new FloatPointwiseBlockProcessor( op ) );
+	}
+
+	/**
+	 * Create a {@code UnaryBlockOperator} that applies {@code op} to each
+	 * pixel of a {@code DoubleType} block.
+	 */
+	public static UnaryBlockOperator< DoubleType, DoubleType > pointwise( final DoubleType type, final DoubleUnaryOperator op )
+	{
+		return new DefaultUnaryBlockOperator<>( type, type, new DoublePointwiseBlockProcessor( op ) );
+	}
+
+	/**
+	 * Create a {@code UnaryBlockOperator} that computes the mean of a box of
+	 * size {@code 2 * radius[d] + 1} around each pixel of a {@code FloatType}
+	 * block. The source block is extended by {@code radius[d]} pixels on both
+	 * sides in every dimension {@code d}.
+	 *
+	 * @param type
+	 * 		pixel type
+	 * @param radius
+	 * 		radius of the box, for each dimension
+	 */
+	public static UnaryBlockOperator< FloatType, FloatType > boxMean( final FloatType type, final int... radius )
+	{
+		return new DefaultUnaryBlockOperator<>( type, type, new BoxMeanBlockProcessor<>( PrimitiveType.FLOAT, radius ) );
+	}
+
+	/**
+	 * Create a {@code UnaryBlockOperator} that computes the mean of a box of
+	 * size {@code 2 * radius[d] + 1} around each pixel of a {@code DoubleType}
+	 * block. The source block is extended by {@code radius[d]} pixels on both
+	 * sides in every dimension {@code d}.
+	 *
+	 * @param type
+	 * 		pixel type
+	 * @param radius
+	 * 		radius of the box, for each dimension
+	 */
+	public static UnaryBlockOperator< DoubleType, DoubleType > boxMean( final DoubleType type, final int... radius )
+	{
+		return new DefaultUnaryBlockOperator<>( type, type, new BoxMeanBlockProcessor<>( PrimitiveType.DOUBLE, radius ) );
+	}
+
+	private static PrimitiveType primitiveType( final NativeType< ? > type )
+	{
+		if ( type.getEntitiesPerPixel().getRatio() != 1 )
+			throw new IllegalArgumentException( "Types with entitiesPerPixel != 1 are not supported" );
+		return type.getNativeTypeFactory().getPrimitiveType();
+	}
+
+	static class ConvertBlockProcessor< I, O > extends AbstractBlockProcessor< I, O >
+	{
+		private final Convert convert;
+
+		ConvertBlockProcessor( final PrimitiveType sourcePrimitiveType, final Convert convert )
+		{
+			super( sourcePrimitiveType );
+			this.convert = convert;
+		}
+
+		private ConvertBlockProcessor( final ConvertBlockProcessor< I, O > processor )
+		{
+			super( processor );
+			convert = processor.convert.newInstance();
+		}
+
+		@Override
+		public BlockProcessor< I, O > independentCopy()
+		{
+			return new ConvertBlockProcessor<>( this );
+		}
+
+		@Override
+		public void compute( final I src, final O dest )
+		{
+			convert.convert( src, dest, sourceLength );
+		}
+	}
+
+	static class FloatPointwiseBlockProcessor extends AbstractBlockProcessor< float[], float[] >
+	{
+		private final DoubleUnaryOperator op;
+
+		FloatPointwiseBlockProcessor( final DoubleUnaryOperator op )
+		{
+			super( PrimitiveType.FLOAT );
+			this.op = op;
+		}
+
+		private FloatPointwiseBlockProcessor( final FloatPointwiseBlockProcessor processor )
+		{
+			super( processor );
+			op = processor.op;
+		}
+
+		@Override
+		public BlockProcessor< float[], float[] > independentCopy()
+		{
+			return new FloatPointwiseBlockProcessor( this );
+		}
+
+		@Override
+		public void compute( final float[] src, final float[] dest )
+		{
+			for ( int i = 0; i < sourceLength; ++i )
+				dest[ i ] = ( float ) op.applyAsDouble( src[ i ] );
+		}
+	}
+
+	static class DoublePointwiseBlockProcessor extends AbstractBlockProcessor< double[], double[] >
+	{
+		private final DoubleUnaryOperator op;
+
+		DoublePointwiseBlockProcessor( final DoubleUnaryOperator op )
+		{
+			super( PrimitiveType.DOUBLE );
+			this.op = op;
+		}
+
+		private DoublePointwiseBlockProcessor( final DoublePointwiseBlockProcessor processor )
+		{
+			super( processor );
+			op = processor.op;
+		}
+
+		@Override
+		public BlockProcessor< double[], double[] > independentCopy()
+		{
+			return new DoublePointwiseBlockProcessor( this );
+		}
+
+		@Override
+		public void compute( final double[] src, final double[] dest )
+		{
+			for ( int i = 0; i < sourceLength; ++i )
+				dest[ i ] = op.applyAsDouble( src[ i ] );
+		}
+	}
+
+	/**
+	 * Separable box mean. The source block is converted to {@code double[]},
+	 * then the box sum is computed one dimension at a time (each pass
+	 * shrinks the block by the halo in that dimension), and the final result
+	 * is scaled and written to the {@code float[]} or {@code double[]}
+	 * target.
+	 */
+	static class BoxMeanBlockProcessor< P > extends AbstractBlockProcessor< P, P >
+	{
+		private final TempArray< double[] > tmp0;
+
+		private final TempArray< double[] > tmp1;
+
+		BoxMeanBlockProcessor( final PrimitiveType primitiveType, final int[] radius )
+		{
+			super( primitiveType, radius );
+			if ( primitiveType != PrimitiveType.FLOAT && primitiveType != PrimitiveType.DOUBLE )
+				throw new IllegalArgumentException( "only FLOAT and DOUBLE are supported" );
+			if ( Arrays.stream( radius ).anyMatch( r -> r < 0 ) )
+				throw new IllegalArgumentException( "radius must be non-negative" );
+			tmp0 = TempArray.forPrimitiveType( PrimitiveType.DOUBLE );
+			tmp1 = TempArray.forPrimitiveType( PrimitiveType.DOUBLE );
+		}
+
+		private BoxMeanBlockProcessor( final BoxMeanBlockProcessor< P > processor )
+		{
+			super( processor );
+			tmp0 = processor.tmp0.newInstance();
+			tmp1 = processor.tmp1.newInstance();
+		}
+
+		@Override
+		public BlockProcessor< P, P > independentCopy()
+		{
+			return new BoxMeanBlockProcessor<>( this );
+		}
+
+		@Override
+		public void compute( final P src, final P dest )
+		{
+			final int[] radius = border();
+			final int n = radius.length;
+
+			double[] in = tmp0.get( sourceLength );
+			double[] out = tmp1.get( sourceLength );
+			if ( src instanceof float[] )
+			{
+				final float[] fsrc = ( float[] ) src;
+				for ( int i = 0; i < sourceLength; ++i )
+					in[ i ] = fsrc[ i ];
+			}
+			else
+				System.arraycopy( src, 0, in, 0, sourceLength );
+
+			final int[] size = sourceSize.clone();
+			double scale = 1;
+			for ( int d = 0; d < n; ++d )
+			{
+				final int r = radius[ d ];
+				if ( r == 0 )
+					continue;
+				boxSum( in, size, d, r, out );
+				size[ d ] -= 2 * r;
+				scale *= 2 * r + 1;
+				final double[] t = in;
+				in = out;
+				out = t;
+			}
+
+			final int length = ( int ) Intervals.numElements( size );
+			if ( dest instanceof float[] )
+			{
+				final float[] fdest = ( float[] ) dest;
+				for ( int i = 0; i < length; ++i )
+					fdest[ i ] = ( float ) ( in[ i ] / scale );
+			}
+			else
+			{
+				final double[] ddest = ( double[] ) dest;
+				for ( int i = 0; i < length; ++i )
+					ddest[ i ] = in[ i ] / scale;
+			}
+		}
+
+		/**
+		 * Sum {@code 2 * r + 1} consecutive elements along dimension {@code d}
+		 * of the block {@code src} with the given {@code size}. The result
+		 * {@code dest} has size {@code size[d] - 2 * r} in dimension {@code d}.
+		 */
+		private static void boxSum( final double[] src, final int[] size, final int d, final int r, final double[] dest )
+		{
+			int inner = 1;
+			for ( int k = 0; k < d; ++k )
+				inner *= size[ k ];
+			int outer = 1;
+			for ( int k = d + 1; k < size.length; ++k )
+				outer *= size[ k ];
+			final int len = size[ d ];
+			final int outLen = len - 2 * r;
+			final int w = 2 * r + 1;
+
+			for ( int o = 0; o < outer; ++o )
+			{
+				for ( int i = 0; i < inner; ++i )
+				{
+					final int srcBase = o * len * inner + i;
+					final int destBase = o * outLen * inner + i;
+					double sum = 0;
+					for ( int k = 0; k < w; ++k )
+						sum += src[ srcBase + k * inner ];
+					dest[ destBase ] = sum;
+					for ( int x = 1; x < outLen; ++x )
+					{
+						sum += src[ srcBase + ( x + w - 1 ) * inner ] - src[ srcBase + ( x - 1 ) * inner ];
+						dest[ destBase + x * inner ] = sum;
+					}
+				}
+			}
+		}
+	}
+}
@@ -34,13 +34,17 @@
 package net.imglib2.blocks;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Supplier;
 import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.blocks.ViewNode.ConverterViewNode;
 import net.imglib2.blocks.ViewNode.DefaultViewNode;
 import net.imglib2.blocks.ViewNode.ExtensionViewNode;
 import net.imglib2.blocks.ViewNode.MixedTransformViewNode;
+import net.imglib2.blocks.ViewNode.StackViewNode;
+import net.imglib2.blocks.ViewNode.SubsampleViewNode;
 import net.imglib2.converter.Converter;
 import net.imglib2.converter.read.ConvertedRandomAccessible;
 import net.imglib2.converter.read.ConvertedRandomAccessibleInterval;
@@ -50,6 +54,11 @@ import net.imglib2.img.WrappedImg;
 import net.imglib2.img.array.ArrayImg;
 import net.imglib2.img.cell.AbstractCellImg;
 import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.outofbounds.OutOfBoundsBorderFactory;
+import net.imglib2.outofbounds.OutOfBoundsFactory;
+import net.imglib2.outofbounds.OutOfBoundsMirrorExpWindowingFactory;
+import net.imglib2.outofbounds.OutOfBoundsMirrorFactory;
+import net.imglib2.outofbounds.OutOfBoundsRandomValueFactory;
 import net.imglib2.view.fluent.RandomAccessibleView;
 import net.imglib2.transform.integer.BoundingBox;
 import net.imglib2.transform.integer.MixedTransform;
@@ -60,6 +69,9 @@ import net.imglib2.util.Intervals;
 import net.imglib2.view.ExtendedRandomAccessibleInterval;
 import net.imglib2.view.IntervalView;
 import net.imglib2.view.MixedTransformView;
+import net.imglib2.view.StackView;
+import net.imglib2.view.SubsampleView;
+import net.imglib2.view.Views;
 
 class ViewAnalyzer
 {
@@ -71,7 +83,8 @@ class ViewAnalyzer
 	/**
 	 * View sequence of the target {@code RandomAccessible}. The first element
 	 * is the target {@code RandomAccessible} itself. The last element is the
-	 * source {@code NativeImg} where the View sequence originates.
+	 * source {@code NativeImg} (or {@code StackView}) where the View sequence
+	 * originates.
 	 */
 	private final List< ViewNode > nodes = new ArrayList<>();
 
@@ -177,6 +190,20 @@ class ViewAnalyzer
 				nodes.add( new ExtensionViewNode( view ) );
 				source = view.getSource();
 			}
+			// SUBSAMPLE
+			else if ( source instanceof SubsampleView )
+			{
+				final SubsampleView< ? > view = ( SubsampleView< ? > ) source;
+				nodes.add( new SubsampleViewNode( view ) );
+				source = view.getSource();
+			}
+			// STACK
+			else if ( source instanceof StackView )
+			{
+				final StackView< ? > view = ( StackView< ? > ) source;
+				nodes.add( new StackViewNode( view ) );
+				source = null;
+			}
 			// fallback
 			else
 			{
@@ -189,16 +216,21 @@ class ViewAnalyzer
 
 	/**
 	 * Check whether the root of the View sequence is supported. Supported roots
-	 * are {@code PlanarImg}, {@code ArrayImg}, and {@code CellImg} variants.
+	 * are {@code PlanarImg}, {@code ArrayImg}, and {@code CellImg} variants,
+	 * and {@code StackView} (see {@link #checkStackSlices()}).
 	 *
 	 * @return {@code true}, if the root is supported.
 	 */
 	private boolean checkRootSupported()
 	{
 		final ViewNode root = nodes.get( nodes.size() - 1 );
+		if ( root.viewType() == ViewNode.ViewType.STACK )
+		{
+			return true;
+		}
 		if ( root.viewType() != ViewNode.ViewType.NATIVE_IMG )
 		{
-			errorDescription.append( "The root of the View sequence must be a NativeImg. (Found "
+			errorDescription.append( "The root of the View sequence must be a NativeImg or StackView. (Found "
 					+ root.view() + " of class " + root.view().getClass().getSimpleName() + ")" );
 			return false;
 		}
@@ -227,7 +259,17 @@ class ViewAnalyzer
 	private boolean checkRootTypeSupported()
 	{
 		final ViewNode root = nodes.get( nodes.size() - 1 );
-		final NativeType< ? > type = ( NativeType< ? > ) ( ( NativeImg< ?, ? > ) root.view() ).createLinkedType();
+		final Object rootType = root.viewType() == ViewNode.ViewType.STACK
+				? root.view().getType()
+				: ( ( NativeImg< ?, ? > ) root.view() ).createLinkedType();
+		if ( !( rootType instanceof NativeType ) )
+		{
+			errorDescription.append(
+					"The pixel Type of root of the View sequence must be a NativeType. (Found "
+							+ rootType.getClass().getSimpleName() + ")" );
+			return false;
+		}
+		final NativeType< ? > type = ( NativeType< ? > ) rootType;
 		if ( type.getEntitiesPerPixel().getRatio() == 1 )
 		{
 			return true;
@@ -292,7 +334,8 @@ class ViewAnalyzer
 
 	/**
 	 * Check whether the out-of-bounds extension (if any) is of a supported type
-	 * (constant-value, border, mirror-single, mirror-double).
+	 * (constant-value, border, mirror-single, mirror-double, periodic,
+	 * mirror-exp-windowing, random-value).
 	 *
 	 * @return {@code true}, if the out-of-bounds extension is of a supported
 	 *         type, or if there is no extension.
@@ -313,7 +356,8 @@ class ViewAnalyzer
 		{
 			final ExtensionViewNode node = ( ExtensionViewNode ) nodes.get( oobIndex );
 			errorDescription.append(
-					"Only constant-value, border, mirror-single, mirror-double out-of-bounds extensions are supported. (Found "
+					"Only constant-value, border, mirror-single, mirror-double, periodic, mirror-exp-windowing, "
+							+ "random-value out-of-bounds extensions are supported. (Found "
 							+ node.getOutOfBoundsFactory().getClass().getSimpleName() + ")" );
 			return false;
 		}
@@ -364,6 +408,151 @@ class ViewAnalyzer
 		}
 	}
 
+	/**
+	 * If the out-of-bounds extension (if any) has parameters that differ per
+	 * dimension (the weights of mirror-exp-windowing), re-order them from
+	 * dimensions of the extended interval to root dimensions. This requires
+	 * that the transforms between the extension and the root map dimensions
+	 * one-to-one.
+	 *
+	 * @return {@code true}, if the out-of-bounds extension parameters could
+	 *         be re-ordered, or if there is no such extension.
+	 */
+	private boolean checkExtensions4()
+	{
+		if ( oobIndex < 0 || oobExtension.type() != Extension.Type.MIRROR_EXP_WINDOWING )
+			return true;
+
+		final int n = nodes.get( oobIndex + 1 ).view().numDimensions();
+		MixedTransform t = new MixedTransform( n, n );
+		for ( int i = oobIndex + 1; i < nodes.size(); ++i )
+		{
+			final ViewNode node = nodes.get( i );
+			if ( node.viewType() == ViewNode.ViewType.MIXED_TRANSFORM )
+				t = t.preConcatenate( ( ( MixedTransformViewNode ) node ).getTransformToSource() );
+		}
+
+		boolean oneToOne = t.numTargetDimensions() == n;
+		final int[] component = new int[ n ];
+		for ( int d = 0; oneToOne && d < n; ++d )
+		{
+			oneToOne = !t.getComponentZero( d );
+			component[ d ] = t.getComponentMapping( d );
+		}
+		if ( oneToOne && t.hasFullSourceMapping() )
+		{
+			oobExtension = ( ( ExtensionImpl.ExpWindowingExtension ) oobExtension ).permute( component );
+			return true;
+		}
+		else
+		{
+			errorDescription.append(
+					"The dimensions of the interval at the mirror-exp-windowing out-of-bounds extension must map one-to-one to root dimensions." );
+			return false;
+		}
+	}
+
+	/**
+	 * Check whether subsampling (if any) is supported. Subsampling must happen
+	 * after the out-of-bounds extension (if any), that is, subsample nodes must
+	 * occur earlier in the {@code nodes} sequence. Otherwise, the out-of-bounds
+	 * extension would be applied to the subsampled interval, which does not
+	 * correspond to an extension of the root. Subsampling a {@code StackView}
+	 * root is not supported.
+	 *
+	 * @return {@code true}, if there is no subsampling, or if subsampling is
+	 *         supported.
+	 */
+	private boolean checkSubsampling()
+	{
+		boolean hasSubsampling = false;
+		for ( int i = 0; i < nodes.size(); i++ )
+		{
+			if ( nodes.get( i ).viewType() == ViewNode.ViewType.SUBSAMPLE )
+			{
+				hasSubsampling = true;
+				if ( oobIndex >= 0 && i > oobIndex )
+				{
+					errorDescription.append(
+							"Subsampling must happen after the out-of-bounds extension." );
+					return false;
+				}
+			}
+		}
+
+		if ( hasSubsampling && nodes.get( nodes.size() - 1 ).viewType() == ViewNode.ViewType.STACK )
+		{
+			errorDescription.append( "Subsampling a StackView is not supported." );
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * {@code ViewProperties} of the hyperslices, if the root is a {@code
+	 * StackView}. Otherwise {@code null}.
+	 */
+	private List< ViewProperties< ?, ? > > stackSliceProperties;
+
+	/**
+	 * If the root of the View sequence is a {@code StackView}, check whether
+	 * all its hyperslices are fully supported. The hyperslices are copied from
+	 * with their own {@link ViewPrimitiveBlocks}. If there is an out-of-bounds
+	 * extension in the View sequence, the same extension is applied to each
+	 * hyperslice.
+	 * <p>
+	 * If everything works, the hyperslice properties are provided in {@link
+	 * #stackSliceProperties}.
+	 *
+	 * @return {@code true}, if the root is not a {@code StackView} or if all
+	 *         hyperslices are fully supported.
+	 */
+	private boolean checkStackSlices()
+	{
+		final ViewNode root = nodes.get( nodes.size() - 1 );
+		if ( root.viewType() != ViewNode.ViewType.STACK )
+			return true;
+
+		final OutOfBoundsFactory< ?, ? > oobFactory = oobIndex < 0
+				? null
+				: sliceOutOfBoundsFactory( ( ( ExtensionViewNode ) nodes.get( oobIndex ) ).getOutOfBoundsFactory() );
+		final List< ? extends RandomAccessibleInterval< ? > > slices = ( ( StackViewNode ) root ).getSlices();
+		stackSliceProperties = new ArrayList<>();
+		for ( int i = 0; i < slices.size(); i++ )
+		{
+			final RandomAccessibleInterval< ? > slice = slices.get( i );
+			final RandomAccessible< ? > sliceView = oobFactory == null
+					? slice
+					: Views.extend( slice, Cast.unchecked( oobFactory ) );
+			final ViewPropertiesOrError< ?, ? > props = getViewProperties( Cast.unchecked( sliceView ) );
+			if ( !props.isFullySupported() )
+			{
+				errorDescription.append( "Hyperslice " + i + " of the StackView is not supported: " + props.getErrorMessage() );
+				return false;
+			}
+			stackSliceProperties.add( props.getViewProperties() );
+		}
+		return true;
+	}
+
+	/**
+	 * Get the out-of-bounds extension to apply to each hyperslice of a {@code
+	 * StackView} root. For extensions that are completed by an {@link
+	 * OutOfBoundsFill} on the whole stack, a position-only extension is
+	 * substituted, which provides the values to be weighted (mirror-single for
+	 * mirror-exp-windowing) or replaced (border for random-value).
+	 */
+	private static OutOfBoundsFactory< ?, ? > sliceOutOfBoundsFactory( final OutOfBoundsFactory< ?, ? > oobFactory )
+	{
+		if ( oobFactory instanceof OutOfBoundsMirrorExpWindowingFactory )
+			return new OutOfBoundsMirrorFactory<>( OutOfBoundsMirrorFactory.Boundary.SINGLE );
+		else if ( oobFactory instanceof OutOfBoundsRandomValueFactory )
+			return new OutOfBoundsBorderFactory<>();
+		else
+			return oobFactory;
+	}
+
 	/**
 	 * Apply the {@code transformToSource} to a target vector to obtain a
 	 * source vector.
@@ -524,21 +713,60 @@ class ViewAnalyzer
 	private MixedTransform transform;
 
 	/**
-	 * Compute the concatenated {@link #transform transform} from the View
-	 * {@link #ra RandomAccessible} to the root.
+	 * The concatenated subsampling steps from the View {@link #ra
+	 * RandomAccessible} to the root (in root dimensions).
+	 */
+	private long[] steps;
+
+	/**
+	 * Compute the concatenated {@link #transform transform} and subsampling
+	 * {@link #steps} from the View {@link #ra RandomAccessible} to the root.
+	 * <p>
+	 * Subsampling is moved to the root side of all transforms: A {@code
+	 * MixedTransform} following a subsampling permutes the {@code steps}.
+	 * A subsampling following a {@code MixedTransform} scales its translation.
+	 * The combined mapping is {@code root[d] = t[d] + steps[d] * x[c]}.
 	 *
-	 * @return {@code true}
+	 * @return {@code true}, if all subsampling steps fit into {@code int}.
 	 */
 	private boolean concatenateTransforms()
 	{
 		final int n = ra.numDimensions();
 		transform = new MixedTransform( n, n );
+		steps = new long[ n ];
+		Arrays.fill( steps, 1 );
 		for ( ViewNode node : nodes )
 		{
 			if ( node.viewType() == ViewNode.ViewType.MIXED_TRANSFORM )
 			{
 				final MixedTransformViewNode tnode = ( MixedTransformViewNode ) node;
-				transform = transform.preConcatenate( tnode.getTransformToSource() );
+				final MixedTransform t = tnode.getTransformToSource();
+				final long[] tsteps = new long[ t.numTargetDimensions() ];
+				for ( int d = 0; d < tsteps.length; d++ )
+					tsteps[ d ] = t.getComponentZero( d ) ? 1 : steps[ t.getComponentMapping( d ) ];
+				steps = tsteps;
+				transform = transform.preConcatenate( t );
+			}
+			else if ( node.viewType() == ViewNode.ViewType.SUBSAMPLE )
+			{
+				final long[] s = ( ( SubsampleViewNode ) node ).getSteps();
+				final long[] translation = new long[ transform.numTargetDimensions() ];
+				transform.getTranslation( translation );
+				for ( int d = 0; d < s.length; d++ )
+				{
+					steps[ d ] *= s[ d ];
+					translation[ d ] *= s[ d ];
+				}
+				transform.setTranslation( translation ); // NB: transform is not shared, so we can modify it in-place
+			}
+		}
+
+		for ( final long step : steps )
+		{
+			if ( step > Integer.MAX_VALUE )
+			{
+				errorDescription.append( "Subsampling steps must be smaller than Integer.MAX_VALUE." );
+				return false;
 			}
 		}
 		return true;
@@ -597,9 +825,14 @@ class ViewAnalyzer
 	{
 		final T viewType = Cast.unchecked( ra.getType() );
 		final int viewNumDimensions = ra.numDimensions();
-		final NativeImg< R, ? > root = Cast.unchecked( nodes.get( nodes.size() - 1 ).view() );
-		final R rootType = root.createLinkedType();
-		return new ViewProperties<>( viewType, viewNumDimensions, root, rootType, oobExtension, transform, permuteInvertTransform, converterSupplier );
+		final ViewNode rootNode = nodes.get( nodes.size() - 1 );
+		final RandomAccessibleInterval< R > root = Cast.unchecked( rootNode.view() );
+		final R rootType = rootNode.viewType() == ViewNode.ViewType.STACK
+				? root.getType().createVariable()
+				: ( ( NativeImg< R, ? > ) root ).createLinkedType();
+		final int[] intSteps = Arrays.stream( steps ).mapToInt( s -> ( int ) s ).toArray();
+		final List< ViewProperties< R, ? > > sliceProperties = Cast.unchecked( stackSliceProperties );
+		return new ViewProperties<>( viewType, viewNumDimensions, root, rootType, oobExtension, transform, intSteps, permuteInvertTransform, converterSupplier, sliceProperties );
 	}
 
 	private < T extends NativeType< T > > FallbackProperties< T > getFallbackProperties()
@@ -641,10 +874,22 @@ class ViewAnalyzer
 				// Check whether the interval at the out-of-bounds extension is compatible.
 				&& v.checkExtensions3()
 
+				// Re-order per-dimension out-of-bounds extension parameters
+				// (if any) to root dimensions
+				&& v.checkExtensions4()
+
+				// Check whether subsampling (if any) happens after the
+				// out-of-bounds extension (if any)
+				&& v.checkSubsampling()
+
 				// Connect all converters in the view sequence into a combined converter
 				&& v.checkConverters()
 
-				// Compute the concatenated MixedTransform
+				// Check whether all hyperslices of a StackView root (if any) are
+				// supported
+				&& v.checkStackSlices()
+
+				// Compute the concatenated MixedTransform and subsampling steps
 				&& v.concatenateTransforms()
 
 				// Check that all View dimensions are used (mapped to some root dimension)
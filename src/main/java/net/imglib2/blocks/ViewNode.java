@@ -33,9 +33,12 @@
  */
 package net.imglib2.blocks;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.function.Supplier;
 import net.imglib2.Interval;
 import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.converter.Converter;
 import net.imglib2.converter.read.ConvertedRandomAccessible;
 import net.imglib2.converter.read.ConvertedRandomAccessibleInterval;
@@ -44,6 +47,8 @@ import net.imglib2.transform.integer.BoundingBox;
 import net.imglib2.transform.integer.MixedTransform;
 import net.imglib2.view.ExtendedRandomAccessibleInterval;
 import net.imglib2.view.MixedTransformView;
+import net.imglib2.view.StackView;
+import net.imglib2.view.SubsampleView;
 
 interface ViewNode
 {
@@ -54,7 +59,9 @@ interface ViewNode
 		INTERVAL, //
 		CONVERTER, //
 		MIXED_TRANSFORM, // for Mixed transforms
-		EXTENSION // oob extensions
+		EXTENSION, // oob extensions
+		SUBSAMPLE, // for SubsampleView, SubsampleIntervalView
+		STACK // for StackView (alternative root)
 	}
 
 	ViewType viewType();
@@ -141,6 +148,44 @@ interface ViewNode
 		}
 	}
 
+	class SubsampleViewNode extends AbstractViewNode< SubsampleView< ? > >
+	{
+		SubsampleViewNode( final SubsampleView< ? > view )
+		{
+			super( ViewType.SUBSAMPLE, view );
+		}
+
+		public long[] getSteps()
+		{
+			return view.getSteps();
+		}
+
+		@Override
+		public String toString()
+		{
+			return "SubsampleViewNode{viewType=" + viewType + ", view=" + view + ", interval=" + interval + ", steps=" + Arrays.toString( getSteps() ) + '}';
+		}
+	}
+
+	class StackViewNode extends AbstractViewNode< StackView< ? > >
+	{
+		StackViewNode( final StackView< ? > view )
+		{
+			super( ViewType.STACK, view );
+		}
+
+		public List< ? extends RandomAccessibleInterval< ? > > getSlices()
+		{
+			return view.getSourceSlices();
+		}
+
+		@Override
+		public String toString()
+		{
+			return "StackViewNode{viewType=" + viewType + ", view=" + view + ", interval=" + interval + ", numSlices=" + getSlices().size() + '}';
+		}
+	}
+
 	class ExtensionViewNode extends AbstractViewNode< ExtendedRandomAccessibleInterval< ?, ? > >
 	{
 		ExtensionViewNode( final ExtendedRandomAccessibleInterval< ?, ? > view )
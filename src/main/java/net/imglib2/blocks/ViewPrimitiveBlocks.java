@@ -33,11 +33,19 @@
  */
 package net.imglib2.blocks;
 
+import static net.imglib2.blocks.PrimitiveBlocksUtils.asTypedBuffer;
 import static net.imglib2.blocks.PrimitiveBlocksUtils.extractOobValue;
+import static net.imglib2.blocks.PrimitiveBlocksUtils.invPermutationInversion;
+import static net.imglib2.blocks.PrimitiveBlocksUtils.wrapAsBuffer;
 
+import java.nio.Buffer;
 import java.util.function.Supplier;
 
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.NativeImg;
 import net.imglib2.img.basictypeaccess.nio.BufferAccess;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.planar.PlanarImg;
 import net.imglib2.transform.integer.MixedTransform;
 import net.imglib2.type.NativeType;
 import net.imglib2.type.PrimitiveType;
@@ -49,36 +57,136 @@ class ViewPrimitiveBlocks< T extends NativeType< T >, R extends NativeType< R >
 {
 	private final ViewProperties< T, R > props;
 
-	// copies from view root. root type primitive equivalent
+	// copies from (and writes to) view root. root type primitive equivalent
 	private final RangeCopier copier;
 
+	private final PrimitiveBlocksListener.CopierType copierType;
+
 	// root primitive type
 	private final TempArray< R > tempArrayPermute;
 
 	// root primitive type
 	private final TempArray< R > tempArrayConvert;
 
+	// fills out-of-bounds pixels for value-dependent extensions. may be null
+	private final OutOfBoundsFill< R > fill;
+
 	private final PermuteInvert permuteInvert;
 
+	private final PermuteInvert inversePermuteInvert;
+
 	private final Convert convert;
 
+	// view primitive type
+	private final PrimitiveType viewPrimitiveType;
+
+	// copies from view root directly into Buffer. may be null
+	private final RangeCopier bufferCopier;
+
+	// permutes from root primitive type array into Buffer. may be null
+	private final PermuteInvert bufferPermuteInvert;
+
+	// copies from view primitive type array into Buffer. may be null
+	private final MemCopy arrayToBuffer;
+
+	// view primitive type
+	private final TempArray< T > tempArrayBuffer;
+
+	// whether primitive arrays are copied/written in reversed byte order
+	private final boolean swapBytes;
+
+	// reverses byte order, view primitive type. null if !swapBytes
+	private final MemCopy swapMemCopy;
+
+	// copies from (and writes to) view root, reversing byte order. null if
+	// !swapBytes or the root is not backed by primitive arrays
+	private final RangeCopier swapCopier;
+
+	// permutes root primitive type, reversing byte order. null if !swapBytes
+	private final PermuteInvert swapPermuteInvert;
+
+	private final PermuteInvert swapInversePermuteInvert;
+
 	private Supplier< PrimitiveBlocks< T > > threadSafeSupplier;
 
 	public ViewPrimitiveBlocks( final ViewProperties< T, R > props )
+	{
+		this( props, false );
+	}
+
+	/**
+	 * @param swapBytes
+	 * 		whether the byte order of elements should be reversed when copying
+	 * 		into (or writing from) primitive arrays
+	 */
+	ViewPrimitiveBlocks( final ViewProperties< T, R > props, final boolean swapBytes )
 	{
 		this.props = props;
+		this.swapBytes = swapBytes;
 		final PrimitiveType primitiveType = props.getRootType().getNativeTypeFactory().getPrimitiveType();
-		final MemCopy memCopy = MemCopy.forPrimitiveType( primitiveType, props.getRoot().getAccessType() instanceof BufferAccess, false );
+		final boolean isBuffer = props.getRoot() instanceof NativeImg
+				&& ( ( NativeImg< ?, ? > ) props.getRoot() ).getAccessType() instanceof BufferAccess;
+		final MemCopy memCopy = MemCopy.forPrimitiveType( primitiveType, isBuffer, false );
+		final MemCopy writeMemCopy = MemCopy.forPrimitiveType( primitiveType, false, isBuffer );
+		final MemCopy arrayMemCopy = MemCopy.forPrimitiveType( primitiveType );
 		final Extension extension = props.getExtension() != null ? props.getExtension() : Extension.border();
-		final Object oob = extractOobValue( props.getRootType(), extension );
+		final Object arrayOob = extractOobValue( props.getRootType(), extension );
+		final Object oob = isBuffer && arrayOob != null ? wrapAsBuffer( arrayOob ) : arrayOob;
 		final Ranges findRanges = Ranges.forExtension( extension );
-		copier = RangeCopier.create( props.getRoot(), findRanges, memCopy, oob );
+		copier = props.isStack()
+				? new StackRangeCopier<>( props.getStackSliceProperties(), findRanges, arrayMemCopy, arrayOob )
+				: RangeCopier.create( ( NativeImg< ?, ? > ) props.getRoot(), findRanges, memCopy, writeMemCopy, oob, props.getSteps() );
+		copierType = copierType( props );
+		fill = OutOfBoundsFill.create( extension, props.getRootType(), props.getRoot(), props.getSteps() );
 		tempArrayConvert = Cast.unchecked( TempArray.forPrimitiveType( primitiveType ) );
 		tempArrayPermute = Cast.unchecked( TempArray.forPrimitiveType( primitiveType ) );
-		permuteInvert = new PermuteInvert( memCopy, props.getPermuteInvertTransform() );
+		permuteInvert = new PermuteInvert( arrayMemCopy, props.getPermuteInvertTransform() );
+		inversePermuteInvert = props.hasPermuteInvertTransform()
+				? new PermuteInvert( arrayMemCopy, invPermutationInversion( props.getPermuteInvertTransform() ) )
+				: null;
 		convert = props.hasConverterSupplier()
 				? Convert.create( props.getRootType(), props.getViewType(), props.getConverterSupplier() )
 				: null;
+
+		viewPrimitiveType = props.getViewType().getNativeTypeFactory().getPrimitiveType();
+		if ( primitiveType != PrimitiveType.BOOLEAN )
+		{
+			final MemCopy bufferMemCopy = MemCopy.forPrimitiveType( primitiveType, isBuffer, true );
+			final MemCopy bufferWriteMemCopy = MemCopy.forPrimitiveType( primitiveType, true, isBuffer );
+			bufferCopier = props.isStack()
+					? null
+					: RangeCopier.create( ( NativeImg< ?, ? > ) props.getRoot(), findRanges, bufferMemCopy, bufferWriteMemCopy, oob, props.getSteps() );
+			bufferPermuteInvert = new PermuteInvert( MemCopy.forPrimitiveType( primitiveType, false, true ), props.getPermuteInvertTransform() );
+		}
+		else
+		{
+			bufferCopier = null;
+			bufferPermuteInvert = null;
+		}
+		arrayToBuffer = viewPrimitiveType != PrimitiveType.BOOLEAN
+				? MemCopy.forPrimitiveType( viewPrimitiveType, false, true )
+				: null;
+		tempArrayBuffer = Cast.unchecked( TempArray.forPrimitiveType( viewPrimitiveType ) );
+
+		if ( swapBytes )
+		{
+			final MemCopy swapRootMemCopy = MemCopy.forPrimitiveTypeSwapped( primitiveType );
+			swapMemCopy = MemCopy.forPrimitiveTypeSwapped( viewPrimitiveType );
+			swapCopier = props.isStack() || isBuffer
+					? null
+					: RangeCopier.create( ( NativeImg< ?, ? > ) props.getRoot(), findRanges, swapRootMemCopy, swapRootMemCopy, oob, props.getSteps() );
+			swapPermuteInvert = new PermuteInvert( swapRootMemCopy, props.getPermuteInvertTransform() );
+			swapInversePermuteInvert = props.hasPermuteInvertTransform()
+					? new PermuteInvert( swapRootMemCopy, invPermutationInversion( props.getPermuteInvertTransform() ) )
+					: null;
+		}
+		else
+		{
+			swapMemCopy = null;
+			swapCopier = null;
+			swapPermuteInvert = null;
+			swapInversePermuteInvert = null;
+		}
 	}
 
 	@Override
@@ -98,37 +206,40 @@ class ViewPrimitiveBlocks< T extends NativeType< T >, R extends NativeType< R >
 	 * 		min coordinates of block to copy from src Img.
 	 * @param dest
 	 * 		destination array. Type is {@code byte[]}, {@code float[]},
-	 * 		etc, corresponding to the src Img's native type.
+	 * 		etc, corresponding to the src Img's native type. Alternatively,
+	 * 		a {@code ByteBuffer} or corresponding typed {@code Buffer}.
 	 * @param size
 	 * 		dimensions of block to copy from src Img.
 	 */
 	public void copy( final long[] srcPos, final Object dest, final int[] size )
+	{
+		if ( PrimitiveBlocksMetrics.isEnabled() )
+		{
+			final long t0 = System.nanoTime();
+			copyUnrecorded( srcPos, dest, size );
+			final long nanos = System.nanoTime() - t0;
+			PrimitiveBlocksMetrics.copied( copierType, Intervals.numElements( size ) * viewPrimitiveType.getByteCount(), nanos );
+		}
+		else
+			copyUnrecorded( srcPos, dest, size );
+	}
+
+	/**
+	 * Like {@link #copy}, but the copy is not reported to {@link
+	 * PrimitiveBlocksMetrics}. This is used for copies that are part of an
+	 * enclosing copy (e.g., the hyperslices of a {@code StackView}), so that
+	 * only the outermost copy is recorded.
+	 */
+	void copyUnrecorded( final long[] srcPos, final Object dest, final int[] size )
 	{
 		final long[] destPos;
 		final int[] destSize;
-		if ( props.hasTransform() )
+		if ( props.hasTransform() || props.hasSubsampling() )
 		{
-			final MixedTransform transform = props.getTransform();
-			final int n = transform.numTargetDimensions();
+			final int n = props.getTransform().numTargetDimensions();
 			destPos = new long[ n ];
 			destSize = new int[ n ];
-			for ( int d = 0; d < n; d++ )
-			{
-				final int t = ( int ) transform.getTranslation( d );
-				if ( transform.getComponentZero( d ) )
-				{
-					destPos[ d ] = t;
-					destSize[ d ] = 1;
-				}
-				else
-				{
-					final int c = transform.getComponentMapping( d );
-					destPos[ d ] = transform.getComponentInversion( d )
-							? t - srcPos[ c ] - size[ c ] + 1
-							: t + srcPos[ c ];
-					destSize[ d ] = size[ c ];
-				}
-			}
+			transformBlock( srcPos, size, destPos, destSize );
 		}
 		else
 		{
@@ -136,6 +247,26 @@ class ViewPrimitiveBlocks< T extends NativeType< T >, R extends NativeType< R >
 			destSize = size;
 		}
 
+		if ( dest instanceof Buffer )
+			copyToBuffer( destPos, asTypedBuffer( ( Buffer ) dest, viewPrimitiveType ), destSize, size );
+		else
+			copyToArray( destPos, dest, destSize, size );
+	}
+
+	/**
+	 * Copy a block into a primitive array.
+	 *
+	 * @param destPos
+	 * 		min coordinates of the block (in root coordinates)
+	 * @param dest
+	 * 		primitive array corresponding to the view type
+	 * @param destSize
+	 * 		dimensions of the block (in root coordinates)
+	 * @param size
+	 * 		dimensions of the block (in view coordinates)
+	 */
+	private void copyToArray( final long[] destPos, final Object dest, final int[] destSize, final int[] size )
+	{
 		final boolean doPermute = props.hasPermuteInvertTransform();
 		final boolean doConvert = props.hasConverterSupplier();
 		final int length = ( int ) Intervals.numElements( size );
@@ -143,28 +274,251 @@ class ViewPrimitiveBlocks< T extends NativeType< T >, R extends NativeType< R >
 		{
 			final Object copyDest = tempArrayPermute.get( length );
 			final Object permuteDest = tempArrayConvert.get( length );
-			copier.copy( destPos, copyDest, destSize );
+			copyRoot( destPos, copyDest, destSize );
 			permuteInvert.permuteAndInvert( copyDest, permuteDest, size );
 			convert.convert( permuteDest, dest, length );
+			swapInPlace( dest, length );
 		}
 		else if ( doPermute )
 		{
 			final Object copyDest = tempArrayConvert.get( length );
-			copier.copy( destPos, copyDest, destSize );
-			permuteInvert.permuteAndInvert( copyDest, dest, size );
+			copyRoot( destPos, copyDest, destSize );
+			( swapBytes ? swapPermuteInvert : permuteInvert ).permuteAndInvert( copyDest, dest, size );
 		}
 		else if ( doConvert )
 		{
 			final Object copyDest = tempArrayPermute.get( length );
-			copier.copy( destPos, copyDest, destSize );
+			copyRoot( destPos, copyDest, destSize );
 			convert.convert( copyDest, dest, length );
+			swapInPlace( dest, length );
+		}
+		else if ( swapCopier != null && fill == null )
+		{
+			swapCopier.copy( destPos, dest, destSize );
 		}
 		else
 		{
-			copier.copy( destPos, dest, destSize );
+			copyRoot( destPos, dest, destSize );
+			swapInPlace( dest, length );
 		}
 	}
 
+	/**
+	 * If {@link #swapBytes}, reverse the byte order of the first {@code
+	 * length} elements of {@code array} (of the view primitive type).
+	 */
+	private void swapInPlace( final Object array, final int length )
+	{
+		if ( swapBytes )
+			swapMemCopy.copyForward( array, 0, array, 0, length );
+	}
+
+	/**
+	 * Copy a block into a {@code Buffer}. The last step of the copy (copying
+	 * from the root, permuting, or converting) writes into the {@code dest}
+	 * buffer directly, if possible. Otherwise, the block is copied into a
+	 * temporary array and from there into {@code dest}.
+	 *
+	 * @param rootPos
+	 * 		min coordinates of the block (in root coordinates)
+	 * @param dest
+	 * 		buffer corresponding to the view type (see {@link PrimitiveBlocksUtils#asTypedBuffer})
+	 * @param rootSize
+	 * 		dimensions of the block (in root coordinates)
+	 * @param size
+	 * 		dimensions of the block (in view coordinates)
+	 */
+	private void copyToBuffer( final long[] rootPos, final Buffer dest, final int[] rootSize, final int[] size )
+	{
+		final boolean doPermute = props.hasPermuteInvertTransform();
+		final boolean doConvert = props.hasConverterSupplier();
+		final int length = ( int ) Intervals.numElements( size );
+		if ( doPermute && !doConvert && !swapBytes )
+		{
+			final Object copyDest = tempArrayConvert.get( length );
+			copyRoot( rootPos, copyDest, rootSize );
+			bufferPermuteInvert.permuteAndInvert( copyDest, dest, size );
+		}
+		else if ( !doConvert && !swapBytes && bufferCopier != null && fill == null )
+		{
+			bufferCopier.copy( rootPos, dest, rootSize );
+		}
+		else
+		{
+			final Object tmp = tempArrayBuffer.get( length );
+			copyToArray( rootPos, tmp, rootSize, size );
+			arrayToBuffer.copyForward( tmp, 0, dest, 0, length );
+		}
+	}
+
+	/**
+	 * Copy a block (in root coordinates) from the root, and fill its
+	 * out-of-bounds pixels, if required by the extension.
+	 */
+	private void copyRoot( final long[] rootPos, final Object dest, final int[] rootSize )
+	{
+		copier.copy( rootPos, dest, rootSize );
+		if ( fill != null )
+			fill.fill( rootPos, dest, rootSize );
+	}
+
+	/**
+	 * @param destPos
+	 * 		min coordinates of block to write into dest Img.
+	 * @param src
+	 * 		source array. Type is {@code byte[]}, {@code float[]},
+	 * 		etc, corresponding to the dest Img's native type.
+	 * @param size
+	 * 		dimensions of block to write into dest Img.
+	 */
+	@Override
+	public void write( final long[] destPos, final Object src, final int[] size )
+	{
+		if ( props.hasConverterSupplier() )
+			throw new UnsupportedOperationException( "Writing to a view with Converters is not supported." );
+
+		final long[] rootPos;
+		final int[] rootSize;
+		if ( props.hasTransform() || props.hasSubsampling() )
+		{
+			final int n = props.getTransform().numTargetDimensions();
+			rootPos = new long[ n ];
+			rootSize = new int[ n ];
+			transformBlock( destPos, size, rootPos, rootSize );
+		}
+		else
+		{
+			rootPos = destPos;
+			rootSize = size;
+		}
+
+		final RandomAccessibleInterval< ? > root = props.getRoot();
+		final int[] steps = props.getSteps();
+		for ( int d = 0; d < rootPos.length; d++ )
+			if ( rootPos[ d ] < root.min( d ) || rootPos[ d ] + ( long ) ( rootSize[ d ] - 1 ) * steps[ d ] > root.max( d ) )
+				throw new IllegalArgumentException( "Block is not contained in the underlying NativeImg (or StackView)." );
+
+		if ( props.hasPermuteInvertTransform() )
+		{
+			final int length = ( int ) Intervals.numElements( size );
+			final Object permuteDest = tempArrayPermute.get( length );
+			( swapBytes ? swapInversePermuteInvert : inversePermuteInvert ).permuteAndInvert( src, permuteDest, permutedSize( size ) );
+			copier.write( rootPos, permuteDest, rootSize );
+		}
+		else if ( swapCopier != null )
+		{
+			swapCopier.write( rootPos, src, rootSize );
+		}
+		else if ( swapBytes )
+		{
+			final int length = ( int ) Intervals.numElements( size );
+			final Object swapDest = tempArrayPermute.get( length );
+			swapMemCopy.copyForward( src, 0, swapDest, 0, length );
+			copier.write( rootPos, swapDest, rootSize );
+		}
+		else
+		{
+			copier.write( rootPos, src, rootSize );
+		}
+	}
+
+	/**
+	 * Compute the block (in root coordinates) that corresponds to the block at
+	 * {@code pos} with the given {@code size} (in view coordinates).
+	 * <p>
+	 * If there is subsampling, {@code rootSize} is the number of (subsampled)
+	 * elements, that is, the root block covers {@code rootPos[d]} through
+	 * {@code rootPos[d] + (rootSize[d] - 1) * steps[d]}.
+	 */
+	private void transformBlock( final long[] pos, final int[] size, final long[] rootPos, final int[] rootSize )
+	{
+		final MixedTransform transform = props.getTransform();
+		final int[] steps = props.getSteps();
+		final int n = transform.numTargetDimensions();
+		for ( int d = 0; d < n; d++ )
+		{
+			final long t = transform.getTranslation( d );
+			if ( transform.getComponentZero( d ) )
+			{
+				rootPos[ d ] = t;
+				rootSize[ d ] = 1;
+			}
+			else
+			{
+				final int c = transform.getComponentMapping( d );
+				rootPos[ d ] = transform.getComponentInversion( d )
+						? t - steps[ d ] * ( pos[ c ] + size[ c ] - 1 )
+						: t + steps[ d ] * pos[ c ];
+				rootSize[ d ] = size[ c ];
+			}
+		}
+	}
+
+	/**
+	 * Get the cell boundaries of the root along View dimension {@code d}. Cell
+	 * boundaries are at (View) coordinates {@code x} with {@code (x - offset)
+	 * % period == 0}, that is, a new cell starts at such {@code x}.
+	 *
+	 * @return {@code {period, offset}}, or {@code null} if the root has no
+	 * cells along dimension {@code d} (or they are not regularly spaced in
+	 * View coordinates).
+	 */
+	long[] cellBoundaries( final int d )
+	{
+		final MixedTransform transform = props.getTransform();
+		final int[] steps = props.getSteps();
+		for ( int r = 0; r < transform.numTargetDimensions(); ++r )
+		{
+			if ( transform.getComponentZero( r ) || transform.getComponentMapping( r ) != d )
+				continue;
+
+			final RandomAccessibleInterval< ? > root = props.getRoot();
+			final long cellSize;
+			if ( root instanceof AbstractCellImg )
+				cellSize = ( ( AbstractCellImg< ?, ?, ?, ? > ) root ).getCellGrid().cellDimension( r );
+			else if ( root instanceof PlanarImg )
+				cellSize = r >= 2 ? 1 : 0; // every plane is a separate array
+			else if ( props.isStack() )
+				cellSize = r == root.numDimensions() - 1 ? 1 : 0; // every hyperslice is copied separately
+			else
+				cellSize = 0;
+			if ( cellSize <= 0 || steps[ r ] != 1 )
+				return null;
+
+			final long t = transform.getTranslation( r ) - root.min( r );
+			final long offset = transform.getComponentInversion( r ) ? t + 1 : -t;
+			return new long[] { cellSize, Math.floorMod( offset, cellSize ) };
+		}
+		return null;
+	}
+
+	/**
+	 * Compute the size of a block (in view coordinates) before the {@code
+	 * permuteInvert} transform is applied.
+	 */
+	private int[] permutedSize( final int[] size )
+	{
+		final MixedTransform permuteInvertTransform = props.getPermuteInvertTransform();
+		final int m = permuteInvertTransform.numSourceDimensions();
+		final int[] permutedSize = new int[ m ];
+		for ( int d = 0; d < m; d++ )
+			permutedSize[ d ] = size[ permuteInvertTransform.getComponentMapping( d ) ];
+		return permutedSize;
+	}
+
+	private static PrimitiveBlocksListener.CopierType copierType( final ViewProperties< ?, ? > props )
+	{
+		if ( props.isStack() )
+			return PrimitiveBlocksListener.CopierType.STACK;
+		final RandomAccessibleInterval< ? > root = props.getRoot();
+		if ( root instanceof AbstractCellImg )
+			return PrimitiveBlocksListener.CopierType.CELL_IMG;
+		else if ( root instanceof PlanarImg )
+			return PrimitiveBlocksListener.CopierType.PLANAR_IMG;
+		else
+			return PrimitiveBlocksListener.CopierType.ARRAY_IMG;
+	}
+
 	@Override
 	public PrimitiveBlocks< T > threadSafe()
 	{
@@ -190,12 +544,24 @@ class ViewPrimitiveBlocks< T extends NativeType< T >, R extends NativeType< R >
 				threadSafeSupplier.get().copy( srcPos, dest, size );
 			}
 
+			@Override
+			public void write( final long[] destPos, final Object src, final int[] size )
+			{
+				threadSafeSupplier.get().write( destPos, src, size );
+			}
+
 			@Override
 			public PrimitiveBlocks< T > independentCopy()
 			{
 				return ViewPrimitiveBlocks.this.independentCopy().threadSafe();
 			}
 
+			@Override
+			public PrimitiveBlocks< T > byteSwapped()
+			{
+				return ViewPrimitiveBlocks.this.byteSwapped().threadSafe();
+			}
+
 			@Override
 			public PrimitiveBlocks< T > threadSafe()
 			{
@@ -210,13 +576,37 @@ class ViewPrimitiveBlocks< T extends NativeType< T >, R extends NativeType< R >
 		return new ViewPrimitiveBlocks<>( this );
 	}
 
+	/**
+	 * Returns a {@code ViewPrimitiveBlocks} on the same view, with reversed
+	 * {@link #swapBytes}. Where possible, the byte swap is fused into the
+	 * last step of copying (respectively the first step of writing).
+	 */
+	@Override
+	public PrimitiveBlocks< T > byteSwapped()
+	{
+		return new ViewPrimitiveBlocks<>( props, !swapBytes );
+	}
+
 	private ViewPrimitiveBlocks( final ViewPrimitiveBlocks< T, R > blocks )
 	{
 		props = blocks.props;
 		copier = blocks.copier.newInstance();
+		copierType = blocks.copierType;
+		fill = blocks.fill; // NB: OutOfBoundsFill is stateless
 		permuteInvert = blocks.permuteInvert.newInstance();
+		inversePermuteInvert = blocks.inversePermuteInvert == null ? null : blocks.inversePermuteInvert.newInstance();
 		convert = blocks.convert == null ? null : blocks.convert.newInstance();
 		tempArrayConvert = blocks.tempArrayConvert.newInstance();
 		tempArrayPermute = blocks.tempArrayPermute.newInstance();
+		viewPrimitiveType = blocks.viewPrimitiveType;
+		bufferCopier = blocks.bufferCopier == null ? null : blocks.bufferCopier.newInstance();
+		bufferPermuteInvert = blocks.bufferPermuteInvert == null ? null : blocks.bufferPermuteInvert.newInstance();
+		arrayToBuffer = blocks.arrayToBuffer;
+		tempArrayBuffer = blocks.tempArrayBuffer.newInstance();
+		swapBytes = blocks.swapBytes;
+		swapMemCopy = blocks.swapMemCopy;
+		swapCopier = blocks.swapCopier == null ? null : blocks.swapCopier.newInstance();
+		swapPermuteInvert = blocks.swapPermuteInvert == null ? null : blocks.swapPermuteInvert.newInstance();
+		swapInversePermuteInvert = blocks.swapInversePermuteInvert == null ? null : blocks.swapInversePermuteInvert.newInstance();
 	}
 }
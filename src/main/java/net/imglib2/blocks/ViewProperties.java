@@ -33,10 +33,12 @@
  */
 package net.imglib2.blocks;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.function.Supplier;
 import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.converter.Converter;
-import net.imglib2.img.NativeImg;
 import net.imglib2.transform.integer.MixedTransform;
 import net.imglib2.type.NativeType;
 import net.imglib2.view.TransformBuilder;
@@ -59,7 +61,7 @@ class ViewProperties< T extends NativeType< T >, R extends NativeType< R > >
 
 	private final int viewNumDimensions;
 
-	private final NativeImg< R, ? > root;
+	private final RandomAccessibleInterval< R > root;
 
 	private final R rootType;
 
@@ -69,33 +71,43 @@ class ViewProperties< T extends NativeType< T >, R extends NativeType< R > >
 
 	private final boolean hasTransform;
 
+	private final int[] steps;
+
+	private final boolean hasSubsampling;
+
 	private final MixedTransform permuteInvertTransform;
 
 	private final boolean hasPermuteInvertTransform;
 
 	private final Supplier< Converter< R, T > > converterSupplier;
 
+	private final List< ViewProperties< R, ? > > stackSliceProperties;
+
 	/**
 	 * Create {@code ViewProperties}.
 	 *
 	 * @param viewType pixel type of the View to copy from
 	 * @param viewNumDimensions number of dimensions of the View to copy from
-	 * @param root the {@code NativeImg} at the root of the View chain
+	 * @param root the {@code NativeImg} (or {@code StackView}) at the root of the View chain
 	 * @param rootType pixel type of the root {@code NativeImg}
 	 * @param extension out-of-bounds extension to apply to the root
 	 * @param transform the concatenated transform from the final View to the root.
+	 * @param steps subsampling steps (in root dimensions) to apply after {@code transform}.
 	 * @param permuteInvertTransform captures axis permutation and inversion part in {@code transform}.
 	 * @param converterSupplier creates {@code Converter} from {@code rootType} to {@code viewType}.
+	 * @param stackSliceProperties if the root is a {@code StackView}, the {@code ViewProperties} of its hyperslices. Otherwise {@code null}.
 	 */
 	ViewProperties(
 			final T viewType,
 			final int viewNumDimensions,
-			final NativeImg< R, ? > root,
+			final RandomAccessibleInterval< R > root,
 			final R rootType,
 			final Extension extension,
 			final MixedTransform transform,
+			final int[] steps,
 			final MixedTransform permuteInvertTransform,
-			final Supplier< ? extends Converter< ?, ? > > converterSupplier )
+			final Supplier< ? extends Converter< ?, ? > > converterSupplier,
+			final List< ViewProperties< R, ? > > stackSliceProperties )
 	{
 		this.viewType = viewType;
 		this.viewNumDimensions = viewNumDimensions;
@@ -104,9 +116,12 @@ class ViewProperties< T extends NativeType< T >, R extends NativeType< R > >
 		this.extension = extension;
 		this.transform = transform;
 		hasTransform = !TransformBuilder.isIdentity( transform );
+		this.steps = steps;
+		hasSubsampling = Arrays.stream( steps ).anyMatch( s -> s != 1 );
 		this.permuteInvertTransform = permuteInvertTransform;
 		hasPermuteInvertTransform = !TransformBuilder.isIdentity( permuteInvertTransform );
 		this.converterSupplier = converterSupplier == null ? null : () -> ( Converter< R, T > ) converterSupplier.get();
+		this.stackSliceProperties = stackSliceProperties;
 	}
 
 	@Override
@@ -119,9 +134,11 @@ class ViewProperties< T extends NativeType< T >, R extends NativeType< R > >
 				", rootType=" + rootType.getClass().getSimpleName() +
 				", extension=" + extension +
 				", transform=" + transform +
+				", steps=" + Arrays.toString( steps ) +
 				", hasPermuteInvertTransform=" + hasPermuteInvertTransform +
 				", permuteInvertTransform=" + permuteInvertTransform +
 				", converterSupplier=" + converterSupplier +
+				", isStack=" + isStack() +
 				'}';
 	}
 
@@ -135,7 +152,7 @@ class ViewProperties< T extends NativeType< T >, R extends NativeType< R > >
 		return viewNumDimensions;
 	}
 
-	public NativeImg< R, ? > getRoot()
+	public RandomAccessibleInterval< R > getRoot()
 	{
 		return root;
 	}
@@ -165,6 +182,32 @@ class ViewProperties< T extends NativeType< T >, R extends NativeType< R > >
 		return transform;
 	}
 
+	/**
+	 * Returns {@code true} if there are {@link #getSteps() subsampling steps}
+	 * other than {@code 1}.
+	 *
+	 * @return {@code true} iff any of the {@link #getSteps() subsampling steps} is not {@code 1}.
+	 */
+	public boolean hasSubsampling()
+	{
+		return hasSubsampling;
+	}
+
+	/**
+	 * Get the subsampling steps (for each root dimension). The root
+	 * coordinates of a View position are obtained by applying the {@link
+	 * #getTransform() transform} with translation {@code t}, and then
+	 * multiplying each (non-translation) coordinate by {@code steps}, that is,
+	 * {@code root[d] = t[d] + steps[d] * x[c]} (where {@code x[c]} is the
+	 * (possibly inverted) View coordinate mapped to root dimension {@code d}).
+	 *
+	 * @return subsampling steps in root dimensions
+	 */
+	public int[] getSteps()
+	{
+		return steps;
+	}
+
 	/**
 	 * Returns {@code true} if there is a non-identity {@link
 	 * #getPermuteInvertTransform() permute-invert} transform.
@@ -191,4 +234,21 @@ class ViewProperties< T extends NativeType< T >, R extends NativeType< R > >
 	{
 		return converterSupplier;
 	}
+
+	/**
+	 * Returns {@code true} if the {@link #getRoot() root} is a {@code
+	 * StackView}. In this case, {@link #getStackSliceProperties()} describes
+	 * how to copy from the {@code StackView} hyperslices.
+	 *
+	 * @return {@code true} iff the root is a {@code StackView}.
+	 */
+	public boolean isStack()
+	{
+		return stackSliceProperties != null;
+	}
+
+	public List< ViewProperties< R, ? > > getStackSliceProperties()
+	{
+		return stackSliceProperties;
+	}
 }
@@ -34,6 +34,8 @@
 
 package net.imglib2.img.array;
 
+import java.nio.ByteBuffer;
+
 import net.imglib2.img.basictypeaccess.BooleanAccess;
 import net.imglib2.img.basictypeaccess.ByteAccess;
 import net.imglib2.img.basictypeaccess.DoubleAccess;
@@ -48,6 +50,11 @@ import net.imglib2.img.basictypeaccess.array.FloatArray;
 import net.imglib2.img.basictypeaccess.array.IntArray;
 import net.imglib2.img.basictypeaccess.array.LongArray;
 import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.img.basictypeaccess.nio.DoubleBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.FloatBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.IntBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.LongBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.ShortBufferAccess;
 import net.imglib2.type.Type;
 import net.imglib2.type.logic.BitType;
 import net.imglib2.type.logic.NativeBoolType;
@@ -177,6 +184,18 @@ public final class ArrayImgs
 		return unsignedShorts( new ShortArray( array ), dim );
 	}
 
+	/**
+	 * Creates an {@link ArrayImg}&lt;{@link UnsignedShortType},
+	 * {@link ShortBufferAccess}&gt; reusing a passed {@link ByteBuffer}. Pixel values
+	 * are stored in the byte order of {@code buffer}, starting at its current
+	 * position. For example, use a {@link java.nio.ByteOrder#BIG_ENDIAN
+	 * BIG_ENDIAN} buffer to wrap big-endian raw data.
+	 */
+	public static ArrayImg< UnsignedShortType, ShortBufferAccess > unsignedShorts( final ByteBuffer buffer, final long... dim )
+	{
+		return unsignedShorts( new ShortBufferAccess( buffer ), dim );
+	}
+
 	/**
 	 * Creates an {@link ArrayImg}&lt;{@link UnsignedShortType},
 	 * {@link ShortAccess}&gt; using a {@link ShortAccess} passed as argument.
@@ -207,6 +226,18 @@ public final class ArrayImgs
 		return shorts( new ShortArray( array ), dim );
 	}
 
+	/**
+	 * Creates an {@link ArrayImg}&lt;{@link ShortType},
+	 * {@link ShortBufferAccess}&gt; reusing a passed {@link ByteBuffer}. Pixel values
+	 * are stored in the byte order of {@code buffer}, starting at its current
+	 * position. For example, use a {@link java.nio.ByteOrder#BIG_ENDIAN
+	 * BIG_ENDIAN} buffer to wrap big-endian raw data.
+	 */
+	public static ArrayImg< ShortType, ShortBufferAccess > shorts( final ByteBuffer buffer, final long... dim )
+	{
+		return shorts( new ShortBufferAccess( buffer ), dim );
+	}
+
 	/**
 	 * Creates an {@link ArrayImg}&lt;{@link ShortType}, {@link ShortAccess}&gt;
 	 * using a {@link ShortAccess} passed as argument.
@@ -237,6 +268,18 @@ public final class ArrayImgs
 		return unsignedInts( new IntArray( array ), dim );
 	}
 
+	/**
+	 * Creates an {@link ArrayImg}&lt;{@link UnsignedIntType},
+	 * {@link IntBufferAccess}&gt; reusing a passed {@link ByteBuffer}. Pixel values
+	 * are stored in the byte order of {@code buffer}, starting at its current
+	 * position. For example, use a {@link java.nio.ByteOrder#BIG_ENDIAN
+	 * BIG_ENDIAN} buffer to wrap big-endian raw data.
+	 */
+	public static ArrayImg< UnsignedIntType, IntBufferAccess > unsignedInts( final ByteBuffer buffer, final long... dim )
+	{
+		return unsignedInts( new IntBufferAccess( buffer ), dim );
+	}
+
 	/**
 	 * Creates an {@link ArrayImg}&lt;{@link UnsignedIntType},
 	 * {@link IntAccess}&gt; using a {@link IntAccess} passed as argument.
@@ -267,6 +310,18 @@ public final class ArrayImgs
 		return ints( new IntArray( array ), dim );
 	}
 
+	/**
+	 * Creates an {@link ArrayImg}&lt;{@link IntType},
+	 * {@link IntBufferAccess}&gt; reusing a passed {@link ByteBuffer}. Pixel values
+	 * are stored in the byte order of {@code buffer}, starting at its current
+	 * position. For example, use a {@link java.nio.ByteOrder#BIG_ENDIAN
+	 * BIG_ENDIAN} buffer to wrap big-endian raw data.
+	 */
+	public static ArrayImg< IntType, IntBufferAccess > ints( final ByteBuffer buffer, final long... dim )
+	{
+		return ints( new IntBufferAccess( buffer ), dim );
+	}
+
 	/**
 	 * Creates an {@link ArrayImg}&lt;{@link IntType}, {@link IntAccess}&gt;
 	 * using a {@link IntAccess} passed as argument.
@@ -309,6 +364,18 @@ public final class ArrayImgs
 		return unsignedLongs( new LongArray( array ), dim );
 	}
 
+	/**
+	 * Creates an {@link ArrayImg}&lt;{@link UnsignedLongType},
+	 * {@link LongBufferAccess}&gt; reusing a passed {@link ByteBuffer}. Pixel values
+	 * are stored in the byte order of {@code buffer}, starting at its current
+	 * position. For example, use a {@link java.nio.ByteOrder#BIG_ENDIAN
+	 * BIG_ENDIAN} buffer to wrap big-endian raw data.
+	 */
+	public static ArrayImg< UnsignedLongType, LongBufferAccess > unsignedLongs( final ByteBuffer buffer, final long... dim )
+	{
+		return unsignedLongs( new LongBufferAccess( buffer ), dim );
+	}
+
 	/**
 	 * Creates an {@link ArrayImg}&lt;{@link UnsignedLongType},
 	 * {@link LongAccess}&gt; using a {@link LongAccess} passed as argument.
@@ -339,6 +406,18 @@ public final class ArrayImgs
 		return longs( new LongArray( array ), dim );
 	}
 
+	/**
+	 * Creates an {@link ArrayImg}&lt;{@link LongType},
+	 * {@link LongBufferAccess}&gt; reusing a passed {@link ByteBuffer}. Pixel values
+	 * are stored in the byte order of {@code buffer}, starting at its current
+	 * position. For example, use a {@link java.nio.ByteOrder#BIG_ENDIAN
+	 * BIG_ENDIAN} buffer to wrap big-endian raw data.
+	 */
+	public static ArrayImg< LongType, LongBufferAccess > longs( final ByteBuffer buffer, final long... dim )
+	{
+		return longs( new LongBufferAccess( buffer ), dim );
+	}
+
 	/**
 	 * Creates an {@link ArrayImg}&lt;{@link LongType}, {@link LongAccess}&gt;
 	 * using a {@link LongAccess} passed as argument.
@@ -534,6 +613,18 @@ public final class ArrayImgs
 		return floats( new FloatArray( array ), dim );
 	}
 
+	/**
+	 * Creates an {@link ArrayImg}&lt;{@link FloatType},
+	 * {@link FloatBufferAccess}&gt; reusing a passed {@link ByteBuffer}. Pixel values
+	 * are stored in the byte order of {@code buffer}, starting at its current
+	 * position. For example, use a {@link java.nio.ByteOrder#BIG_ENDIAN
+	 * BIG_ENDIAN} buffer to wrap big-endian raw data.
+	 */
+	public static ArrayImg< FloatType, FloatBufferAccess > floats( final ByteBuffer buffer, final long... dim )
+	{
+		return floats( new FloatBufferAccess( buffer ), dim );
+	}
+
 	/**
 	 * Creates an {@link ArrayImg}&lt;{@link FloatType}, {@link FloatAccess}&gt;
 	 * using a {@link FloatAccess} passed as argument.
@@ -564,6 +655,18 @@ public final class ArrayImgs
 		return doubles( new DoubleArray( array ), dim );
 	}
 
+	/**
+	 * Creates an {@link ArrayImg}&lt;{@link DoubleType},
+	 * {@link DoubleBufferAccess}&gt; reusing a passed {@link ByteBuffer}. Pixel values
+	 * are stored in the byte order of {@code buffer}, starting at its current
+	 * position. For example, use a {@link java.nio.ByteOrder#BIG_ENDIAN
+	 * BIG_ENDIAN} buffer to wrap big-endian raw data.
+	 */
+	public static ArrayImg< DoubleType, DoubleBufferAccess > doubles( final ByteBuffer buffer, final long... dim )
+	{
+		return doubles( new DoubleBufferAccess( buffer ), dim );
+	}
+
 	/**
 	 * Creates an {@link ArrayImg}&lt;{@link DoubleType},
 	 * {@link DoubleAccess}&gt; using a {@link DoubleAccess} passed as argument.
@@ -0,0 +1,87 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.basictypeaccess.array;
+
+import java.util.function.Supplier;
+
+/**
+ * An {@link ArrayDataAccess} that initially shares its (immutable) storage
+ * array with other accesses, and obtains a private copy on the first write.
+ * <p>
+ * {@code setValue()} calls materialize the access automatically. Code that
+ * writes directly into the {@link ArrayDataAccess#getCurrentStorageArray()
+ * storage array} must call {@link #materialize()} before obtaining the
+ * storage array.
+ */
+public interface CopyOnWriteAccess
+{
+	/**
+	 * Returns {@code true} if the storage array is (still) shared, that is, if
+	 * this access has not been written to.
+	 */
+	boolean isShared();
+
+	/**
+	 * Make sure that the storage array is not shared. If it is shared, it is
+	 * replaced by the array provided by the {@link Materializer}.
+	 */
+	void materialize();
+
+	/**
+	 * Provides the storage array of a {@link CopyOnWriteAccess} when it is
+	 * materialized.
+	 */
+	@FunctionalInterface
+	interface Materializer
+	{
+		/**
+		 * Get the primitive array to replace the shared storage array of a
+		 * {@link CopyOnWriteAccess} that is being materialized. The returned
+		 * array must have the same type and length as the shared array.
+		 * <p>
+		 * If the "shared" array is in fact private to the access, it may be
+		 * returned as is. This can be used to be notified about the first
+		 * write to an access.
+		 *
+		 * @param copy
+		 * 		creates a copy of the shared storage array
+		 */
+		Object materialize( Supplier< ? > copy );
+	}
+
+	/**
+	 * {@link Materializer} that simply copies the shared storage array.
+	 */
+	Materializer COPY = Supplier::get;
+}
@@ -0,0 +1,105 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.basictypeaccess.array;
+
+/**
+ * A {@code float[]} access that shares its storage array until it is first
+ * written to. See {@link CopyOnWriteAccess}.
+ */
+public class CopyOnWriteFloatArray extends AbstractFloatArray< CopyOnWriteFloatArray > implements CopyOnWriteAccess
+{
+	private volatile boolean shared;
+
+	private final Materializer materializer;
+
+	public CopyOnWriteFloatArray( final int numEntities )
+	{
+		super( numEntities );
+		shared = false;
+		materializer = COPY;
+	}
+
+	public CopyOnWriteFloatArray( final float[] data )
+	{
+		super( data );
+		shared = false;
+		materializer = COPY;
+	}
+
+	/**
+	 * Create an access that shares the given storage array (which must not
+	 * be modified) until it is first written to.
+	 *
+	 * @param sharedData
+	 * 		shared storage array
+	 * @param materializer
+	 * 		provides the private storage array on the first write
+	 */
+	public CopyOnWriteFloatArray( final float[] sharedData, final Materializer materializer )
+	{
+		super( sharedData );
+		shared = true;
+		this.materializer = materializer;
+	}
+
+	@Override
+	public void setValue( final int index, final float value )
+	{
+		if ( shared )
+			materialize();
+		data[ index ] = value;
+	}
+
+	@Override
+	public boolean isShared()
+	{
+		return shared;
+	}
+
+	@Override
+	public synchronized void materialize()
+	{
+		if ( shared )
+		{
+			data = ( float[] ) materializer.materialize( data::clone );
+			shared = false;
+		}
+	}
+
+	@Override
+	public CopyOnWriteFloatArray createArray( final int numEntities )
+	{
+		return new CopyOnWriteFloatArray( numEntities );
+	}
+}
@@ -34,6 +34,7 @@
 
 package net.imglib2.img.cell;
 
+import net.imglib2.Cursor;
 import net.imglib2.IterableInterval;
 import net.imglib2.RandomAccessible;
 import net.imglib2.img.AbstractNativeImg;
@@ -61,6 +62,8 @@ public abstract class AbstractCellImg<
 
 	protected final I cells;
 
+	private boolean cacheNeighbourCells = false;
+
 	public AbstractCellImg( final CellGrid grid, final I imgOfCells, final Fraction entitiesPerPixel )
 	{
 		super( grid.getImgDimensions(), entitiesPerPixel );
@@ -116,7 +119,43 @@ public abstract class AbstractCellImg<
 	@Override
 	public CellRandomAccess< T, C > randomAccess()
 	{
-		return new CellRandomAccess<>( this );
+		return cacheNeighbourCells
+				? new NeighbourCachingCellRandomAccess<>( this )
+				: new CellRandomAccess<>( this );
+	}
+
+	/**
+	 * Set whether {@link #randomAccess() RandomAccesses} on this image cache
+	 * the cells in the 3<sup><em>n</em></sup> neighbourhood of recently visited
+	 * cells, such that moving back and forth across cell borders (e.g., for
+	 * neighbourhood access near cell borders) does not repeat the cell lookup.
+	 * This is only useful if cell lookup is expensive (e.g., for a {@link
+	 * LazyCellImg} backed by a cache). It is ignored for images with more than
+	 * 5 dimensions.
+	 * <p>
+	 * Cached {@code Cell} objects are reused when revisited, so this must only
+	 * be enabled if the cells returned by {@link #getCells()} never change
+	 * (for example, it must not be enabled if placeholders are later replaced
+	 * by loaded cells, or if cells are evicted and reloaded).
+	 * RandomAccesses that were created before are not affected.
+	 *
+	 * @param cacheNeighbourCells
+	 *            whether to cache neighbour cells (default {@code false})
+	 */
+	public void setCacheNeighbourCells( final boolean cacheNeighbourCells )
+	{
+		this.cacheNeighbourCells = cacheNeighbourCells && numDimensions() <= NeighbourCachingCellRandomAccess.MAX_CACHED_NEIGHBOURHOOD_DIMENSIONS;
+	}
+
+	/**
+	 * Returns whether {@link #randomAccess() RandomAccesses} on this image
+	 * cache neighbour cells.
+	 *
+	 * @see #setCacheNeighbourCells(boolean)
+	 */
+	public boolean isCacheNeighbourCells()
+	{
+		return cacheNeighbourCells;
 	}
 
 	@Override
@@ -136,6 +175,20 @@ public abstract class AbstractCellImg<
 		return cells;
 	}
 
+	/**
+	 * Get a {@link Cursor} over the cells, visiting them in the
+	 * {@link CellGrid#getCellOrder() cell order} of the grid. This is the order
+	 * in which cursors and spliterators on this image visit the cells.
+	 *
+	 * @return cursor over the cells, localizing to cell grid coordinates.
+	 */
+	protected Cursor< C > cellsCursor()
+	{
+		return grid.getCellOrder() == CellOrder.FLAT
+				? cells.cursor()
+				: new OrderedCellCursor<>( grid, cells.randomAccess() );
+	}
+
 	/**
 	 * Get the {@link CellGrid} which describes the layout of the
 	 * {@link AbstractCellImg}. The grid provides the dimensions of the image, the
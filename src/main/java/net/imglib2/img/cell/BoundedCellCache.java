@@ -0,0 +1,402 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.nio.Buffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.nio.BufferAccess;
+import net.imglib2.img.cell.LazyCellImg.Get;
+
+/**
+ * A bounded cache of {@link Cell}s that can be used as the {@link Get} method
+ * of a {@link LazyCellImg}.
+ * <p>
+ * Cells are keyed by their flat index in the cell grid (see
+ * {@link CellGrid#getCellGridIndexFlat}). When a cell is requested that is not
+ * in the cache, it is obtained from the wrapped {@code loader}. Concurrent
+ * requests for the same missing cell are de-duplicated, that is, the loader is
+ * called only once and all requesting threads receive the same {@code Cell}.
+ * <p>
+ * The total weight of cached cells is bounded by {@code maxWeight}. By
+ * default, the weight of a cell is the number of bytes occupied by its data
+ * (see {@link #numBytes(Cell)}). When the bound is exceeded, least recently
+ * used cells are evicted.
+ * <p>
+ * Note that evicted cells are simply dropped. If cells are modified, the
+ * loader is responsible for persisting them (or the cache should be large
+ * enough to never evict modified cells).
+ * <p>
+ * Example:
+ * <pre>{@code
+ * 		LazyCellImg.Get< Cell< FloatArray > > loader = ...;
+ * 		BoundedCellCache< FloatArray > cache = new BoundedCellCache<>( loader, 512L << 20 ); // 512 MB
+ * 		LazyCellImg< FloatType, FloatArray > img = new LazyCellImg<>( grid, new FloatType(), cache );
+ * }</pre>
+ *
+ * @param <A>
+ *            the underlying native access type
+ */
+public class BoundedCellCache< A > implements Get< Cell< A > >
+{
+	private final Get< Cell< A > > loader;
+
+	private final ToLongFunction< ? super Cell< A > > weigher;
+
+	private final long maxWeight;
+
+	/**
+	 * Cached cells, in access order (least recently used first).
+	 */
+	private final LinkedHashMap< Long, Entry< A > > cells = new LinkedHashMap<>( 16, 0.75f, true );
+
+	/**
+	 * Loads that are currently in progress, by cell index.
+	 */
+	private final Map< Long, FutureTask< Cell< A > > > loading = new HashMap<>();
+
+	private long weight = 0;
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	/**
+	 * Create a cache that holds at most {@code maxBytes} bytes of cell data.
+	 * The size of a cell is computed by {@link #numBytes(Cell)}.
+	 *
+	 * @param loader
+	 *            loads missing cells
+	 * @param maxBytes
+	 *            maximum total number of bytes of cached cell data
+	 */
+	public BoundedCellCache( final Get< Cell< A > > loader, final long maxBytes )
+	{
+		this( loader, maxBytes, BoundedCellCache::numBytes );
+	}
+
+	/**
+	 * Create a cache that holds cells with total weight at most {@code
+	 * maxWeight}.
+	 *
+	 * @param loader
+	 *            loads missing cells
+	 * @param maxWeight
+	 *            maximum total weight of cached cells
+	 * @param weigher
+	 *            computes the weight of a cell
+	 */
+	public BoundedCellCache( final Get< Cell< A > > loader, final long maxWeight, final ToLongFunction< ? super Cell< A > > weigher )
+	{
+		if ( maxWeight < 0 )
+			throw new IllegalArgumentException( "maxWeight must not be negative" );
+		this.loader = loader;
+		this.maxWeight = maxWeight;
+		this.weigher = weigher;
+	}
+
+	@Override
+	public Cell< A > get( final long index )
+	{
+		final Long key = index;
+		final FutureTask< Cell< A > > task;
+		final boolean isLoader;
+		synchronized ( this )
+		{
+			final Entry< A > entry = cells.get( key );
+			if ( entry != null )
+			{
+				hitCount.incrementAndGet();
+				return entry.cell;
+			}
+
+			final FutureTask< Cell< A > > pending = loading.get( key );
+			if ( pending != null )
+			{
+				hitCount.incrementAndGet();
+				task = pending;
+				isLoader = false;
+			}
+			else
+			{
+				missCount.incrementAndGet();
+				task = new FutureTask<>( () -> loader.get( index ) );
+				loading.put( key, task );
+				isLoader = true;
+			}
+		}
+
+		if ( isLoader )
+		{
+			try
+			{
+				task.run();
+			}
+			finally
+			{
+				synchronized ( this )
+				{
+					loading.remove( key );
+					final Cell< A > cell = getIfDone( task );
+					if ( cell != null )
+						insert( key, cell );
+				}
+			}
+		}
+
+		try
+		{
+			return task.get();
+		}
+		catch ( final InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException( e );
+		}
+		catch ( final ExecutionException e )
+		{
+			final Throwable cause = e.getCause();
+			if ( cause instanceof RuntimeException )
+				throw ( RuntimeException ) cause;
+			if ( cause instanceof Error )
+				throw ( Error ) cause;
+			throw new RuntimeException( cause );
+		}
+	}
+
+	private static < A > Cell< A > getIfDone( final FutureTask< Cell< A > > task )
+	{
+		try
+		{
+			return task.isDone() ? task.get() : null;
+		}
+		catch ( final InterruptedException | ExecutionException e )
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Insert {@code cell} and evict least recently used cells until the total
+	 * weight fits into {@code maxWeight}. The newly inserted cell is never
+	 * evicted by this.
+	 */
+	private void insert( final Long key, final Cell< A > cell )
+	{
+		final long w = weigher.applyAsLong( cell );
+		cells.put( key, new Entry<>( cell, w ) );
+		weight += w;
+
+		final Iterator< Map.Entry< Long, Entry< A > > > it = cells.entrySet().iterator();
+		while ( weight > maxWeight && it.hasNext() )
+		{
+			final Map.Entry< Long, Entry< A > > lru = it.next();
+			if ( lru.getKey().equals( key ) )
+				break;
+			weight -= lru.getValue().weight;
+			it.remove();
+			evictionCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Remove all cells from the cache. Loads that are currently in progress
+	 * are not affected.
+	 */
+	public synchronized void invalidateAll()
+	{
+		cells.clear();
+		weight = 0;
+	}
+
+	/**
+	 * Remove the cell with the given flat {@code index} from the cache (if it
+	 * is present).
+	 *
+	 * @param index
+	 *            flat index of the cell in the cell grid
+	 */
+	public synchronized void invalidate( final long index )
+	{
+		final Entry< A > entry = cells.remove( index );
+		if ( entry != null )
+			weight -= entry.weight;
+	}
+
+	/**
+	 * Get the cell with the given {@code index} if it is in the cache, without
+	 * loading it. A cell that is currently being loaded is not returned. If the
+	 * cell is present, this counts as a hit and marks the cell as most recently
+	 * used.
+	 *
+	 * @param index
+	 *            flattened grid index of the cell
+	 * @return the cached cell, or {@code null} if it is not in the cache.
+	 */
+	public synchronized Cell< A > getIfPresent( final long index )
+	{
+		final Entry< A > entry = cells.get( index );
+		if ( entry == null )
+			return null;
+		hitCount.incrementAndGet();
+		return entry.cell;
+	}
+
+	/**
+	 * Check whether the cell with the given {@code index} is currently in the
+	 * cache or being loaded. This does not count as a hit or miss, and does not
+	 * affect the LRU order.
+	 *
+	 * @param index
+	 *            flattened grid index of the cell
+	 * @return {@code true} if the cell is cached or being loaded.
+	 */
+	public synchronized boolean contains( final long index )
+	{
+		return cells.containsKey( index ) || loading.containsKey( index );
+	}
+
+	/**
+	 * @return number of cells currently in the cache.
+	 */
+	public synchronized int size()
+	{
+		return cells.size();
+	}
+
+	/**
+	 * @return total weight of cells currently in the cache.
+	 */
+	public synchronized long weight()
+	{
+		return weight;
+	}
+
+	/**
+	 * @return maximum total weight of cells in the cache.
+	 */
+	public long maxWeight()
+	{
+		return maxWeight;
+	}
+
+	/**
+	 * @return how many requests were served from the cache (including
+	 *         requests that waited for a concurrent load of the same cell).
+	 */
+	public long hitCount()
+	{
+		return hitCount.get();
+	}
+
+	/**
+	 * @return how many requests required the loader to be called.
+	 */
+	public long missCount()
+	{
+		return missCount.get();
+	}
+
+	/**
+	 * @return how many cells were evicted to respect the weight bound.
+	 */
+	public long evictionCount()
+	{
+		return evictionCount.get();
+	}
+
+	/**
+	 * Get the number of bytes occupied by the data of a {@code cell}. This
+	 * supports {@link ArrayDataAccess} and {@link BufferAccess} data. For other
+	 * data, the number of pixels in the cell is returned.
+	 *
+	 * @param cell
+	 *            the cell
+	 * @return number of bytes of cell data
+	 */
+	public static long numBytes( final Cell< ? > cell )
+	{
+		final Object data = cell.getData();
+		if ( data instanceof BufferAccess )
+		{
+			final BufferAccess< ? > access = ( BufferAccess< ? > ) data;
+			return ( long ) access.getArrayLength() * access.getNumBytesPerEntity();
+		}
+		else if ( data instanceof ArrayDataAccess )
+		{
+			final ArrayDataAccess< ? > access = ( ArrayDataAccess< ? > ) data;
+			final Object array = access.getCurrentStorageArray();
+			if ( array instanceof Buffer || array == null )
+				return cell.size();
+			return ( long ) access.getArrayLength() * numBytesPerElement( array.getClass().getComponentType() );
+		}
+		else
+			return cell.size();
+	}
+
+	private static int numBytesPerElement( final Class< ? > componentType )
+	{
+		if ( componentType == long.class || componentType == double.class )
+			return 8;
+		else if ( componentType == int.class || componentType == float.class )
+			return 4;
+		else if ( componentType == short.class || componentType == char.class )
+			return 2;
+		else
+			return 1;
+	}
+
+	private static final class Entry< A >
+	{
+		final Cell< A > cell;
+
+		final long weight;
+
+		Entry( final Cell< A > cell, final long weight )
+		{
+			this.cell = cell;
+			this.weight = weight;
+		}
+	}
+}
@@ -93,7 +93,7 @@ public class CellCursor< T extends NativeType< T >, C extends Cell< ? > >
 
 		type = img.createLinkedType();
 		i = type.index();
-		cursorOnCells = img.getCells().cursor();
+		cursorOnCells = img.cellsCursor();
 		grid = img.getCellGrid();
 
 		reset();
@@ -134,8 +134,8 @@ public class CellCursor< T extends NativeType< T >, C extends Cell< ? > >
 	@Override
 	public void jumpFwd( final long steps )
 	{
-		// TODO: The following assumes flat iteration order of img.getCells()
-		//       Add a fallback (to the previous code) if that isn't the case
+		// NB: This assumes that cursorOnCells visits the cells in the
+		//     cell order of the grid, see AbstractCellImg.cellsCursor()
 
 		final long newIndex = typeIndex + steps;
 		if ( newIndex <= lastIndexInCell )
@@ -68,6 +68,14 @@ public class CellGrid
 
 	private final int hashcode;
 
+	private final CellOrder cellOrder;
+
+	/**
+	 * Mapping between grid coordinates and iteration order, or {@code null} for
+	 * {@link CellOrder#FLAT}.
+	 */
+	private final MortonCellOrder morton;
+
 	/**
 	 * Pre-computed dimensions[], steps[], and numPixels for each distinct cell type (inner, X border, Y border, XY border, etc).
 	 * Indexed by flattened cell type index, where cell type is arranges in a {@code 2^n} grid with the inner cell at (0,...,0) etc.
@@ -114,6 +122,26 @@ public class CellGrid
 	public CellGrid(
 			final long[] dimensions,
 			final int[] cellDimensions )
+	{
+		this( dimensions, cellDimensions, CellOrder.FLAT );
+	}
+
+	/**
+	 * Create a cell grid with the given {@link CellOrder}.
+	 *
+	 * @param dimensions
+	 * 		the dimensions of the image (in pixels, not in cells).
+	 * @param cellDimensions
+	 * 		the dimensions of a standard cell (in pixels). Cells on the max border
+	 * 		of the image may be cut off and have different dimensions.
+	 * @param cellOrder
+	 * 		the order in which cells are visited when iterating a cell image with
+	 * 		this grid.
+	 */
+	public CellGrid(
+			final long[] dimensions,
+			final int[] cellDimensions,
+			final CellOrder cellOrder )
 	{
 		this.n = dimensions.length;
 		this.dimensions = dimensions.clone();
@@ -130,7 +158,8 @@ public class CellGrid
 			borderSize[ d ] = ( int ) ( dimensions[ d ] - ( numCells[ d ] - 1 ) * cellDimensions[ d ] );
 		}
 
-		hashcode = 31 * Arrays.hashCode( dimensions ) + Arrays.hashCode( cellDimensions );
+		this.cellOrder = cellOrder;
+		hashcode = 31 * ( 31 * Arrays.hashCode( dimensions ) + Arrays.hashCode( cellDimensions ) ) + cellOrder.ordinal();
 
 		cellIntervals = new CellIntervals();
 
@@ -146,11 +175,13 @@ public class CellGrid
 			}
 			cellDimensionsAndSteps[ i ] = new CellDimensionsAndSteps( cellDims );
 		}
+
+		morton = cellOrder == CellOrder.MORTON ? new MortonCellOrder( this ) : null;
 	}
 
 	public CellGrid( final CellGrid grid )
 	{
-		this( grid.dimensions, grid.cellDimensions );
+		this( grid.dimensions, grid.cellDimensions, grid.cellOrder );
 	}
 
 	public int numDimensions()
@@ -184,6 +215,15 @@ public class CellGrid
 		return numCells[ d ];
 	}
 
+	/**
+	 * Get the order in which cells are visited when iterating a cell image with
+	 * this grid.
+	 */
+	public CellOrder getCellOrder()
+	{
+		return cellOrder;
+	}
+
 	/**
 	 * Get the number of pixels in each dimension as a new long[]. Note, that this
 	 * is the number of pixels in all cells combined, not the number of cells!
@@ -427,6 +467,42 @@ public class CellGrid
 		return IntervalIndexer.positionToIndex( cellGridPosition, numCells );
 	}
 
+	/**
+	 * From the position of a cell in the grid, compute the index of the cell
+	 * in the {@link #getCellOrder() cell iteration order}. For
+	 * {@link CellOrder#FLAT} this is the same as
+	 * {@link #getCellGridIndexFlat(long[])}.
+	 *
+	 * @param cellGridPosition
+	 *            grid coordinates of the cell
+	 * @return index of the cell in iteration order.
+	 */
+	public long getCellIterationIndex( final long[] cellGridPosition )
+	{
+		return morton == null
+				? IntervalIndexer.positionToIndex( cellGridPosition, numCells )
+				: morton.iterationIndex( cellGridPosition );
+	}
+
+	/**
+	 * From the index of a cell in the {@link #getCellOrder() cell iteration
+	 * order}, compute the position of the cell in the grid. For
+	 * {@link CellOrder#FLAT} this is the same as
+	 * {@link #getCellGridPositionFlat(long, long[])}.
+	 *
+	 * @param iterationIndex
+	 *            index of the cell in iteration order.
+	 * @param cellGridPosition
+	 *            grid coordinates of the cell are written here.
+	 */
+	public void getCellGridPositionAtIterationIndex( final long iterationIndex, final long[] cellGridPosition )
+	{
+		if ( morton == null )
+			IntervalIndexer.indexToPosition( iterationIndex, numCells, cellGridPosition );
+		else
+			morton.gridPosition( iterationIndex, cellGridPosition );
+	}
+
 	/**
 	 * Get the grid position of the cell containing the element at {@code position}.
 	 *
@@ -456,20 +532,27 @@ public class CellGrid
 	}
 
 	/**
-	 * From a global {@code index} (in {@code CellIterationOrder}, with flat
-	 * iteration order of the cells), compute the flattened grid index of the
-	 * cell containing {@code index}, and the flattened pixel index within the
-	 * cell.
+	 * From a global {@code index} (in {@code CellIterationOrder}), compute the
+	 * {@link #getCellIterationIndex(long[]) iteration index} of the cell
+	 * containing {@code index}, and the flattened pixel index within the cell.
 	 *
 	 * @param index
-	 *            pixel index in flat iteration order
+	 *            pixel index in {@code CellIterationOrder}
 	 * @param indices
-	 *            array with 2 elements, which will be set to the flattened
-	 *            cell index ({@code indices[0]}), and the flattened pixel index
-	 *            within the cell ({@code indices[1]}).
+	 *            array with 2 elements, which will be set to the cell
+	 *            iteration index ({@code indices[0]}), and the flattened pixel
+	 *            index within the cell ({@code indices[1]}).
 	 */
 	void getCellAndPixelIndices( long index, long[] indices )
 	{
+		if ( morton != null )
+		{
+			final long cellIndex = morton.iterationIndexOfPixel( index );
+			indices[ 0 ] = cellIndex;
+			indices[ 1 ] = index - morton.indexOfFirstPixelInCell( cellIndex );
+			return;
+		}
+
 		// find cell index
 		long cellIndex = 0;
 		long pcdims = 1;
@@ -486,18 +569,27 @@ public class CellGrid
 	}
 
 	/**
-	 * From the grid coordinates of a cell, compute the grid index of the cell,
-	 * and the global index of the first pixel in the cell.
+	 * From the grid coordinates of a cell, compute the
+	 * {@link #getCellIterationIndex(long[]) iteration index} of the cell, and
+	 * the global index of the first pixel in the cell.
 	 *
 	 * @param cellGridPosition
 	 *            grid coordinates of a cell
 	 * @param indices
-	 *            array with 2 elements, which will be set to the grid index of
-	 *            the cell ({@code indices[0]}), and the global pixel index of
-	 *            the first pixel in the cell ({@code indices[1]}).
+	 *            array with 2 elements, which will be set to the iteration
+	 *            index of the cell ({@code indices[0]}), and the global pixel
+	 *            index of the first pixel in the cell ({@code indices[1]}).
 	 */
 	void getIndicesFromGridPosition( final long[] cellGridPosition, long[] indices )
 	{
+		if ( morton != null )
+		{
+			final long cellIndex = morton.iterationIndex( cellGridPosition );
+			indices[ 0 ] = cellIndex;
+			indices[ 1 ] = morton.indexOfFirstPixelInCell( cellIndex );
+			return;
+		}
+
 		long cellIndex = 0;
 		long index = 0;
 		long pcdims = 1;
@@ -513,18 +605,27 @@ public class CellGrid
 	}
 
 	/**
-	 * From the grid coordinates of a cell, compute the grid index of the cell,
-	 * and the global index of the first pixel in the cell.
+	 * From the grid coordinates of a cell, compute the
+	 * {@link #getCellIterationIndex(long[]) iteration index} of the cell, and
+	 * the global index of the first pixel in the cell.
 	 *
 	 * @param cellGridPosition
 	 *            grid coordinates of a cell
 	 * @param indices
-	 *            array with 2 elements, which will be set to the grid index of
-	 *            the cell ({@code indices[0]}), and the global pixel index of
-	 *            the first pixel in the cell ({@code indices[1]}).
+	 *            array with 2 elements, which will be set to the iteration
+	 *            index of the cell ({@code indices[0]}), and the global pixel
+	 *            index of the first pixel in the cell ({@code indices[1]}).
 	 */
 	void getIndicesFromGridPosition( final Localizable cellGridPosition, long[] indices )
 	{
+		if ( morton != null )
+		{
+			final long cellIndex = morton.iterationIndex( cellGridPosition );
+			indices[ 0 ] = cellIndex;
+			indices[ 1 ] = morton.indexOfFirstPixelInCell( cellIndex );
+			return;
+		}
+
 		long cellIndex = 0;
 		long index = 0;
 		long pcdims = 1;
@@ -540,31 +641,33 @@ public class CellGrid
 	}
 
 	/**
-	 * Get the global index of the first pixel in the cell with the given {@code
-	 * cellGridIndex}.
+	 * Get the global index of the first pixel in the cell with the given
+	 * {@link #getCellIterationIndex(long[]) iteration index}.
 	 *
-	 * @param cellGridIndex
-	 *            grid index of a cell
+	 * @param cellIterationIndex
+	 *            iteration index of a cell
 	 * @return global index of the first pixel in the cell
 	 */
-	long indexOfFirstPixelInCell( final long cellGridIndex )
+	public long indexOfFirstPixelInCell( final long cellIterationIndex )
 	{
-		return indexOfFirstPixelInCell( cellGridIndex, new long[ n ] );
+		return indexOfFirstPixelInCell( cellIterationIndex, new long[ n ] );
 	}
 
 	/**
-	 * Get the global index of the first pixel in the cell with the given {@code
-	 * cellGridIndex}.
+	 * Get the global index of the first pixel in the cell with the given
+	 * {@link #getCellIterationIndex(long[]) iteration index}.
 	 *
-	 * @param cellGridIndex
-	 *            grid index of a cell
+	 * @param cellIterationIndex
+	 *            iteration index of a cell
 	 * @param tmp
 	 *            temporary array used to store the gird coordinates of the cell
 	 * @return global index of the first pixel in the cell
 	 */
-	long indexOfFirstPixelInCell( final long cellGridIndex, final long[] tmp )
+	long indexOfFirstPixelInCell( final long cellIterationIndex, final long[] tmp )
 	{
-		IntervalIndexer.indexToPosition( cellGridIndex, numCells, tmp );
+		if ( morton != null )
+			return morton.indexOfFirstPixelInCell( cellIterationIndex );
+		IntervalIndexer.indexToPosition( cellIterationIndex, numCells, tmp );
 		return indexOfFirstPixelInCell( tmp );
 	}
 
@@ -578,6 +681,9 @@ public class CellGrid
 	 */
 	long indexOfFirstPixelInCell( final long[] cellGridPosition )
 	{
+		if ( morton != null )
+			return morton.indexOfFirstPixelInCell( morton.iterationIndex( cellGridPosition ) );
+
 		long index = 0;
 		long pcdims = 1;
 		for ( int d = n - 1; d >= 0; --d )
@@ -599,6 +705,9 @@ public class CellGrid
 	 */
 	long indexOfFirstPixelInCell( final Localizable cellGridPosition )
 	{
+		if ( morton != null )
+			return morton.indexOfFirstPixelInCell( morton.iterationIndex( cellGridPosition ) );
+
 		long index = 0;
 		long pcdims = 1;
 		for ( int d = n - 1; d >= 0; --d )
@@ -653,7 +762,8 @@ public class CellGrid
 		{
 			final CellGrid other = ( CellGrid ) obj;
 			return Arrays.equals( dimensions, other.dimensions )
-					&& Arrays.equals( cellDimensions, other.cellDimensions );
+					&& Arrays.equals( cellDimensions, other.cellDimensions )
+					&& cellOrder == other.cellOrder;
 		}
 		return false;
 	}
@@ -663,7 +773,9 @@ public class CellGrid
 	{
 		return getClass().getSimpleName()
 				+ "( dims = " + Util.printCoordinates( dimensions )
-				+ ", cellDims = " + Util.printCoordinates( cellDimensions ) + " )";
+				+ ", cellDims = " + Util.printCoordinates( cellDimensions )
+				+ ( cellOrder == CellOrder.FLAT ? "" : ", cellOrder = " + cellOrder )
+				+ " )";
 	}
 
 	private class CellIntervalsRA extends Point implements RandomAccess< Interval >
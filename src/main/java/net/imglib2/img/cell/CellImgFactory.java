@@ -61,15 +61,34 @@ public class CellImgFactory< T extends NativeType< T > > extends NativeImgFactor
 {
 	private final int[] defaultCellDimensions;
 
+	private final CellOrder cellOrder;
+
 	public CellImgFactory( final T type )
 	{
 		this( type, 10 );
 	}
 
 	public CellImgFactory( final T type, final int... cellDimensions )
+	{
+		this( type, CellOrder.FLAT, cellDimensions );
+	}
+
+	/**
+	 * Create a factory for {@link CellImg}s whose cells are visited in the
+	 * given {@link CellOrder} by cursors and spliterators.
+	 *
+	 * @param type
+	 *            the pixel type
+	 * @param cellOrder
+	 *            order in which cells are iterated
+	 * @param cellDimensions
+	 *            dimensions of a standard cell
+	 */
+	public CellImgFactory( final T type, final CellOrder cellOrder, final int... cellDimensions )
 	{
 		super( type );
 		defaultCellDimensions = Dimensions.verify( cellDimensions ).clone();
+		this.cellOrder = cellOrder;
 	}
 
 	/**
@@ -123,7 +142,7 @@ public class CellImgFactory< T extends NativeType< T > > extends NativeImgFactor
 		final Fraction entitiesPerPixel = type.getEntitiesPerPixel();
 		final int[] cellDimensions = getCellDimensions( defaultCellDimensions, n, entitiesPerPixel );
 
-		final CellGrid grid = new CellGrid( dimensions, cellDimensions );
+		final CellGrid grid = new CellGrid( dimensions, cellDimensions, cellOrder );
 		final long[] gridDimensions = new long[ grid.numDimensions() ];
 		grid.gridDimensions( gridDimensions );
 
@@ -153,7 +172,7 @@ public class CellImgFactory< T extends NativeType< T > > extends NativeImgFactor
 	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
 	{
 		if ( NativeType.class.isInstance( type ) )
-			return new CellImgFactory( ( NativeType ) type, defaultCellDimensions );
+			return new CellImgFactory( ( NativeType ) type, cellOrder, defaultCellDimensions );
 		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
 	}
 
@@ -178,6 +197,7 @@ public class CellImgFactory< T extends NativeType< T > > extends NativeImgFactor
 	public CellImgFactory( final int... cellDimensions )
 	{
 		defaultCellDimensions = Dimensions.verify( cellDimensions ).clone();
+		cellOrder = CellOrder.FLAT;
 	}
 
 	@Deprecated
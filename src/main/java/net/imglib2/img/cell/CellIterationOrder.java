@@ -36,7 +36,8 @@ package net.imglib2.img.cell;
 
 /**
  * Iteration order for a {@link CellImg}. A {@link CellImg} is iterated cell by
- * cell, where each cell is iterated in flat iteration order.
+ * cell, where each cell is iterated in flat iteration order. Cells are visited
+ * in the {@link CellOrder} of the {@link CellGrid}.
  *
  * @author Tobias Pietzsch
  */
@@ -51,7 +52,7 @@ public class CellIterationOrder
 
 	/**
 	 * To be equal an object has to be a {@link CellIterationOrder} on a
-	 * {@link CellImg} of the same dimensions and cell-dimensions.
+	 * {@link CellImg} of the same dimensions, cell-dimensions, and cell order.
 	 *
 	 * @return true, if obj is a compatible {@link CellIterationOrder}.
 	 */
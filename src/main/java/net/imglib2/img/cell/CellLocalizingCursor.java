@@ -97,7 +97,7 @@ public class CellLocalizingCursor< T extends NativeType< T >, C extends Cell< ?
 
 		this.type = img.createLinkedType();
 		typeIndex = type.index();
-		this.cursorOnCells = img.getCells().cursor();
+		this.cursorOnCells = img.cellsCursor();
 		this.currentCellMin = null;
 		this.currentCellMax = new long[ n ];
 
@@ -0,0 +1,66 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+/**
+ * The order in which the cells of a {@link CellGrid} are visited when
+ * iterating a cell image (see {@link CellIterationOrder}).
+ * <p>
+ * The cell order does not affect the flattened grid index of a cell (see
+ * {@link CellGrid#getCellGridIndexFlat(long[])}), which is always row-major
+ * and is used to address cells in the image of cells, in cell loaders, and in
+ * caches. It only defines the sequence in which {@code Cursor}s and
+ * {@code Spliterator}s on the image visit the cells (see
+ * {@link CellGrid#getCellIterationIndex(long[])}).
+ */
+public enum CellOrder
+{
+	/**
+	 * Cells are visited in flat (row-major, x fastest) order of their grid
+	 * coordinates.
+	 */
+	FLAT,
+
+	/**
+	 * Cells are visited in Z-order (Morton order), that is, ordered by the
+	 * interleaved bits of their grid coordinates. Cells that are close in the
+	 * grid in any dimension tend to be close in the iteration order, and any
+	 * contiguous range of the iteration order covers a spatially compact
+	 * region.
+	 * <p>
+	 * The mapping between iteration order and grid coordinates is precomputed
+	 * by the {@link CellGrid}, which requires 16 bytes per cell.
+	 */
+	MORTON
+}
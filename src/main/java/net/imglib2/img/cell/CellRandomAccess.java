@@ -455,8 +455,18 @@ public class CellRandomAccess< T extends NativeType< T >, C extends Cell< ? > >
 				isOutOfBounds = false;
 				grid.getCellPosition( position, randomAccessOnCells );
 			}
-			typeIndex.set( grid.getCellCoordinates( position, currentCellSteps, currentCellMin, currentCellMax ) );
+			updateCell();
 			typeNeedsUpdate = true;
 		}
 	}
+
+	/**
+	 * Set currentCellSteps, currentCellMin, currentCellMax, and typeIndex for
+	 * the cell at the current position. This is called after switching cells
+	 * (within the image).
+	 */
+	protected void updateCell()
+	{
+		typeIndex.set( grid.getCellCoordinates( position, currentCellSteps, currentCellMin, currentCellMax ) );
+	}
 }
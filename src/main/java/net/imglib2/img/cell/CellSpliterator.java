@@ -74,7 +74,7 @@ class CellSpliterator< T extends NativeType< T >, C extends Cell< ? > > implemen
 		grid = img.getCellGrid();
 		type = img.createLinkedType();
 		index = type.index();
-		currentCell = new CursorOnCells<>( img.getCells().cursor() );
+		currentCell = new CursorOnCells<>( img.cellsCursor() );
 
 		tmpIndices = new long[ 2 ];
 
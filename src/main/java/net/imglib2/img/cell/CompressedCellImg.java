@@ -0,0 +1,359 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteAccess;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteAccess.Materializer;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+
+/**
+ * A cell image that holds cold cells in compressed form. Use {@link
+ * CompressedCellImgFactory} to create {@code CompressedCellImg}s.
+ * <p>
+ * Cells are decompressed transparently when they are accessed (by {@code
+ * CellRandomAccess}, {@code CellCursor}, {@code CellSpliterator}, {@code
+ * PrimitiveBlocks}, etc). A bounded working set of recently used cells is
+ * kept decompressed. When a cell leaves the working set, and is no longer
+ * referenced by any accessor, its data is recompressed if it was modified,
+ * and the decompressed data is released. (The "no longer referenced" part is
+ * detected by the garbage collector, so memory is reclaimed with some
+ * delay.) Cells that were never written to are not stored at all.
+ *
+ * @param <T>
+ *            the pixel type
+ * @param <A>
+ *            the underlying native access type
+ */
+public class CompressedCellImg< T extends NativeType< T >, A extends ArrayDataAccess< A > & CopyOnWriteAccess > extends LazyCellImg< T, A >
+{
+	private final CompressedCellImgFactory< T > factory;
+
+	private final CompressedCells< A > cells;
+
+	CompressedCellImg( final CompressedCellImgFactory< T > factory, final CellGrid grid, final T type, final CompressedCells< A > cells )
+	{
+		super( grid, type, cells );
+		this.factory = factory;
+		this.cells = cells;
+	}
+
+	/**
+	 * Get the number of cells that are currently held in compressed form.
+	 */
+	public long numCompressedCells()
+	{
+		return cells.numCompressedCells();
+	}
+
+	/**
+	 * Get the total size (in bytes) of all compressed cells.
+	 */
+	public long compressedSizeInBytes()
+	{
+		return cells.compressedBytes();
+	}
+
+	/**
+	 * Get the number of decompressed cells in the working set.
+	 */
+	public int workingSetSize()
+	{
+		return cells.workingSetSize();
+	}
+
+	/**
+	 * Remove all cells from the working set. Modified cells are recompressed
+	 * when they are no longer referenced.
+	 */
+	public void clearWorkingSet()
+	{
+		cells.clearWorkingSet();
+	}
+
+	@Override
+	public CompressedCellImgFactory< T > factory()
+	{
+		return factory;
+	}
+
+	@Override
+	public CompressedCellImg< T, A > copy()
+	{
+		@SuppressWarnings( "unchecked" )
+		final CompressedCellImg< T, A > copy = ( CompressedCellImg< T, A > ) factory().create( dimension );
+		copyDataTo( copy );
+		return copy;
+	}
+
+	/**
+	 * Provides the (decompressed) cells of a {@link CompressedCellImg}.
+	 * <p>
+	 * For each cell, an {@link Entry} holds the compressed data, and a weak
+	 * reference to the access of the decompressed cell (if any). The weak
+	 * reference holds the primitive array of the access strongly, so that it
+	 * can be recompressed after the access was garbage-collected. The first
+	 * write to an access is detected by making it a {@code
+	 * CopyOnWriteAccess} whose {@code Materializer} marks the entry dirty (and
+	 * keeps the array).
+	 * <p>
+	 * A strongly referenced LRU working set of accesses keeps recently used
+	 * cells from being collected.
+	 */
+	static class CompressedCells< A extends ArrayDataAccess< A > & CopyOnWriteAccess > implements Get< Cell< A > >
+	{
+		private final CellGrid grid;
+
+		private final Fraction entitiesPerPixel;
+
+		private final IntFunction< Object > allocate;
+
+		private final BiFunction< Object, Materializer, A > createAccess;
+
+		private final DeflateCellCodec codec;
+
+		private final int bytesPerEntity;
+
+		private final long maxWorkingSetBytes;
+
+		private final Map< Long, Entry< A > > entries = new ConcurrentHashMap<>();
+
+		/**
+		 * Working set, in access order (least recently used first).
+		 */
+		private final LinkedHashMap< Long, A > workingSet = new LinkedHashMap<>( 16, 0.75f, true );
+
+		private long workingSetBytes = 0;
+
+		private final ReferenceQueue< A > queue = new ReferenceQueue<>();
+
+		private final AtomicLong numCompressedCells = new AtomicLong();
+
+		private final AtomicLong compressedBytes = new AtomicLong();
+
+		/**
+		 * @param grid
+		 *            the cell grid
+		 * @param entitiesPerPixel
+		 *            entities per pixel of the pixel type
+		 * @param allocate
+		 *            creates a primitive array with the given number of
+		 *            entities
+		 * @param createAccess
+		 *            creates a {@code CopyOnWriteAccess} for a given
+		 *            primitive array and {@code Materializer}
+		 * @param codec
+		 *            compresses and decompresses primitive arrays
+		 * @param bytesPerEntity
+		 *            size of a primitive array element
+		 * @param maxWorkingSetBytes
+		 *            maximum total size of decompressed cells in the working
+		 *            set
+		 */
+		CompressedCells(
+				final CellGrid grid,
+				final Fraction entitiesPerPixel,
+				final IntFunction< Object > allocate,
+				final BiFunction< Object, Materializer, A > createAccess,
+				final DeflateCellCodec codec,
+				final int bytesPerEntity,
+				final long maxWorkingSetBytes )
+		{
+			this.grid = grid;
+			this.entitiesPerPixel = entitiesPerPixel;
+			this.allocate = allocate;
+			this.createAccess = createAccess;
+			this.codec = codec;
+			this.bytesPerEntity = bytesPerEntity;
+			this.maxWorkingSetBytes = maxWorkingSetBytes;
+		}
+
+		static class Entry< A >
+		{
+			byte[] compressed;
+
+			volatile boolean dirty;
+
+			CellRef< A > ref;
+		}
+
+		static class CellRef< A > extends WeakReference< A >
+		{
+			final Entry< A > entry;
+
+			final Object array;
+
+			final int length;
+
+			CellRef( final A access, final Entry< A > entry, final Object array, final int length, final ReferenceQueue< A > queue )
+			{
+				super( access, queue );
+				this.entry = entry;
+				this.array = array;
+				this.length = length;
+			}
+		}
+
+		@Override
+		public Cell< A > get( final long index )
+		{
+			processQueue();
+
+			final int n = grid.numDimensions();
+			final long[] cellMin = new long[ n ];
+			final int[] cellDims = new int[ n ];
+			grid.getCellDimensions( index, cellMin, cellDims );
+			final int length = ( int ) entitiesPerPixel.mulCeil( Intervals.numElements( cellDims ) );
+
+			final Entry< A > entry = entries.computeIfAbsent( index, i -> new Entry<>() );
+			A access;
+			synchronized ( entry )
+			{
+				access = entry.ref == null ? null : entry.ref.get();
+				if ( access == null )
+				{
+					final Object array;
+					if ( entry.ref != null )
+					{
+						// the previous access was collected, but its array has not been processed yet
+						array = entry.ref.array;
+					}
+					else
+					{
+						array = allocate.apply( length );
+						if ( entry.compressed != null )
+							codec.decompress( entry.compressed, array, length );
+					}
+					access = createAccess.apply( array, copy -> {
+						entry.dirty = true;
+						return array;
+					} );
+					entry.ref = new CellRef<>( access, entry, array, length, queue );
+				}
+			}
+			touch( index, access, length );
+			return new Cell<>( cellDims, cellMin, access );
+		}
+
+		/**
+		 * Add {@code access} to the working set (or mark it as most recently
+		 * used), and evict least recently used accesses if the working set is
+		 * too large.
+		 */
+		private synchronized void touch( final long index, final A access, final int length )
+		{
+			final A previous = workingSet.put( index, access );
+			if ( previous == null )
+				workingSetBytes += ( long ) length * bytesPerEntity;
+			else if ( previous != access )
+				workingSetBytes += ( long ) ( length - previous.getArrayLength() ) * bytesPerEntity;
+
+			final Iterator< Map.Entry< Long, A > > it = workingSet.entrySet().iterator();
+			while ( workingSetBytes > maxWorkingSetBytes && it.hasNext() )
+			{
+				final Map.Entry< Long, A > lru = it.next();
+				if ( lru.getKey() == index )
+					break;
+				workingSetBytes -= ( long ) lru.getValue().getArrayLength() * bytesPerEntity;
+				it.remove();
+			}
+		}
+
+		synchronized void clearWorkingSet()
+		{
+			workingSet.clear();
+			workingSetBytes = 0;
+		}
+
+		synchronized int workingSetSize()
+		{
+			return workingSet.size();
+		}
+
+		/**
+		 * Recompress (if modified) and release the arrays of accesses that
+		 * have been garbage-collected.
+		 */
+		@SuppressWarnings( "unchecked" )
+		void processQueue()
+		{
+			CellRef< A > ref;
+			while ( ( ref = ( CellRef< A > ) queue.poll() ) != null )
+			{
+				final Entry< A > entry = ref.entry;
+				synchronized ( entry )
+				{
+					if ( entry.ref != ref )
+						continue;
+					if ( entry.dirty )
+					{
+						final byte[] compressed = codec.compress( ref.array, ref.length );
+						if ( entry.compressed == null )
+							numCompressedCells.incrementAndGet();
+						else
+							compressedBytes.addAndGet( -entry.compressed.length );
+						compressedBytes.addAndGet( compressed.length );
+						entry.compressed = compressed;
+						entry.dirty = false;
+					}
+					entry.ref = null;
+				}
+			}
+		}
+
+		long numCompressedCells()
+		{
+			processQueue();
+			return numCompressedCells.get();
+		}
+
+		long compressedBytes()
+		{
+			processQueue();
+			return compressedBytes.get();
+		}
+	}
+}
@@ -0,0 +1,197 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.util.function.BiFunction;
+import java.util.zip.Deflater;
+
+import net.imglib2.Dimensions;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.basictypeaccess.ArrayDataAccessFactory;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteAccess;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteAccess.Materializer;
+import net.imglib2.img.cell.CompressedCellImg.CompressedCells;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.type.PrimitiveType;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+
+/**
+ * Factory for creating {@link CompressedCellImg}s, that is, cell images whose
+ * cold cells are held in memory in compressed ({@link Deflater}) form.
+ * <p>
+ * At most {@code maxWorkingSetBytes} bytes of recently used cells are kept
+ * decompressed. Example:
+ * <pre>{@code
+ * 		// keep at most 256 MB decompressed
+ * 		CompressedCellImgFactory< UnsignedShortType > factory = new CompressedCellImgFactory<>( new UnsignedShortType(), 256L << 20, 64 );
+ * 		CompressedCellImg< UnsignedShortType, ? > img = factory.create( 2048, 2048, 1024 );
+ * }</pre>
+ *
+ * @param <T>
+ *            the pixel type
+ */
+public class CompressedCellImgFactory< T extends NativeType< T > > extends NativeImgFactory< T >
+{
+	/**
+	 * Default maximum size of decompressed cells in the working set (64 MB).
+	 */
+	public static final long DEFAULT_MAX_WORKING_SET_BYTES = 64L << 20;
+
+	private final int[] defaultCellDimensions;
+
+	private final long maxWorkingSetBytes;
+
+	private final int compressionLevel;
+
+	/**
+	 * Create a factory with {@link #DEFAULT_MAX_WORKING_SET_BYTES} and cells of
+	 * size <em>64 x 64 x ... x 64</em>.
+	 *
+	 * @param type
+	 *            the pixel type
+	 */
+	public CompressedCellImgFactory( final T type )
+	{
+		this( type, DEFAULT_MAX_WORKING_SET_BYTES, 64 );
+	}
+
+	/**
+	 * Create a factory that uses the fastest compression level.
+	 *
+	 * @param type
+	 *            the pixel type
+	 * @param maxWorkingSetBytes
+	 *            maximum total size (in bytes) of decompressed cells that are
+	 *            kept in the working set
+	 * @param cellDimensions
+	 *            dimensions of a standard cell
+	 */
+	public CompressedCellImgFactory( final T type, final long maxWorkingSetBytes, final int... cellDimensions )
+	{
+		this( type, cellDimensions, maxWorkingSetBytes, Deflater.BEST_SPEED );
+	}
+
+	/**
+	 * @param type
+	 *            the pixel type
+	 * @param cellDimensions
+	 *            dimensions of a standard cell
+	 * @param maxWorkingSetBytes
+	 *            maximum total size (in bytes) of decompressed cells that are
+	 *            kept in the working set
+	 * @param compressionLevel
+	 *            {@link Deflater} compression level (0-9)
+	 */
+	public CompressedCellImgFactory( final T type, final int[] cellDimensions, final long maxWorkingSetBytes, final int compressionLevel )
+	{
+		super( type );
+		if ( maxWorkingSetBytes < 0 )
+			throw new IllegalArgumentException( "maxWorkingSetBytes must not be negative" );
+		if ( compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION )
+			throw new IllegalArgumentException( "Invalid compression level " + compressionLevel );
+		if ( type.getNativeTypeFactory().getPrimitiveType() == PrimitiveType.UNDEFINED )
+			throw new IllegalArgumentException( "Type " + type.getClass().getSimpleName() + " is not supported" );
+		this.defaultCellDimensions = Dimensions.verify( cellDimensions ).clone();
+		this.maxWorkingSetBytes = maxWorkingSetBytes;
+		this.compressionLevel = compressionLevel;
+	}
+
+	@Override
+	public CompressedCellImg< T, ? > create( final long... dimensions )
+	{
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final CompressedCellImg< T, ? > img = create( dimensions, ( NativeTypeFactory ) type().getNativeTypeFactory() );
+		return img;
+	}
+
+	@Override
+	public CompressedCellImg< T, ? > create( final Dimensions dimensions )
+	{
+		return create( Intervals.dimensionsAsLongArray( dimensions ) );
+	}
+
+	@Override
+	public CompressedCellImg< T, ? > create( final int[] dimensions )
+	{
+		return create( Util.int2long( dimensions ) );
+	}
+
+	private < A extends ArrayDataAccess< A > & CopyOnWriteAccess > CompressedCellImg< T, A > create(
+			final long[] dimensions,
+			final NativeTypeFactory< T, ? super A > typeFactory )
+	{
+		Dimensions.verify( dimensions );
+
+		final int n = dimensions.length;
+		final Fraction entitiesPerPixel = type().getEntitiesPerPixel();
+		final int[] cellDimensions = CellImgFactory.getCellDimensions( defaultCellDimensions, n, entitiesPerPixel );
+		final CellGrid grid = new CellGrid( dimensions, cellDimensions );
+
+		final PrimitiveType primitiveType = typeFactory.getPrimitiveType();
+		final ArrayDataAccess< ? extends ArrayDataAccess< ? > > prototype = ArrayDataAccessFactory.get( typeFactory );
+		final BiFunction< Object, Materializer, A > createAccess = SparseCellImgFactory.accessFactory( primitiveType );
+		final CompressedCells< A > cells = new CompressedCells<>(
+				grid,
+				entitiesPerPixel,
+				length -> prototype.createArray( length ).getCurrentStorageArray(),
+				createAccess,
+				new DeflateCellCodec( primitiveType, compressionLevel ),
+				primitiveType.getByteCount(),
+				maxWorkingSetBytes );
+		return new CompressedCellImg<>( this, grid, type(), cells );
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	@Override
+	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
+	{
+		if ( NativeType.class.isInstance( type ) )
+			return new CompressedCellImgFactory( ( NativeType ) type, defaultCellDimensions, maxWorkingSetBytes, compressionLevel );
+		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
+	}
+
+	@Deprecated
+	@Override
+	public CompressedCellImg< T, ? > create( final long[] dimensions, final T type )
+	{
+		cache( type );
+		return create( dimensions );
+	}
+}
@@ -0,0 +1,189 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import net.imglib2.type.PrimitiveType;
+
+/**
+ * Compresses primitive arrays with {@link Deflater}.
+ * <p>
+ * Before compression, the bytes of the array elements are shuffled, such that
+ * all first bytes come first, then all second bytes, etc. For image data (in
+ * particular 16-bit), this typically improves the compression ratio because
+ * the high bytes of neighbouring pixels are similar.
+ */
+class DeflateCellCodec
+{
+	private final PrimitiveType primitiveType;
+
+	private final int level;
+
+	/**
+	 * @param primitiveType
+	 *            primitive type of the arrays to compress
+	 * @param level
+	 *            compression level (0-9), see {@link Deflater#setLevel(int)}
+	 */
+	DeflateCellCodec( final PrimitiveType primitiveType, final int level )
+	{
+		if ( level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION )
+			throw new IllegalArgumentException( "Invalid compression level " + level );
+		this.primitiveType = primitiveType;
+		this.level = level;
+	}
+
+	/**
+	 * Compress the primitive {@code array}, which has {@code length} elements.
+	 */
+	byte[] compress( final Object array, final int length )
+	{
+		return compressBytes( toBytes( array, length ) );
+	}
+
+	/**
+	 * Compress the little-endian {@code bytes} of a primitive array.
+	 */
+	byte[] compressBytes( final byte[] littleEndianBytes )
+	{
+		final byte[] bytes = shuffle( littleEndianBytes, primitiveType.getByteCount() );
+		final Deflater deflater = new Deflater( level );
+		try
+		{
+			deflater.setInput( bytes );
+			deflater.finish();
+			final ByteArrayOutputStream out = new ByteArrayOutputStream( bytes.length / 4 + 64 );
+			final byte[] buf = new byte[ 8192 ];
+			while ( !deflater.finished() )
+			{
+				final int n = deflater.deflate( buf );
+				out.write( buf, 0, n );
+			}
+			return out.toByteArray();
+		}
+		finally
+		{
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Decompress {@code compressed} into the primitive array {@code dest},
+	 * which has {@code length} elements.
+	 */
+	void decompress( final byte[] compressed, final Object dest, final int length )
+	{
+		fromBytes( decompressBytes( compressed, length ), dest, length );
+	}
+
+	/**
+	 * Decompress {@code compressed} into the little-endian bytes of a
+	 * primitive array with {@code length} elements.
+	 */
+	byte[] decompressBytes( final byte[] compressed, final int length )
+	{
+		final int byteCount = primitiveType.getByteCount();
+		final byte[] bytes = new byte[ length * byteCount ];
+		final Inflater inflater = new Inflater();
+		try
+		{
+			inflater.setInput( compressed );
+			int n = 0;
+			while ( n < bytes.length )
+			{
+				final int r = inflater.inflate( bytes, n, bytes.length - n );
+				if ( r == 0 && ( inflater.finished() || inflater.needsInput() ) )
+					throw new IllegalStateException( "Compressed cell data is truncated" );
+				n += r;
+			}
+		}
+		catch ( final DataFormatException e )
+		{
+			throw new IllegalStateException( "Compressed cell data is corrupt", e );
+		}
+		finally
+		{
+			inflater.end();
+		}
+		return unshuffle( bytes, byteCount );
+	}
+
+	private byte[] toBytes( final Object array, final int length )
+	{
+		final ByteBuffer buf = ByteBuffer.allocate( length * primitiveType.getByteCount() ).order( ByteOrder.LITTLE_ENDIAN );
+		PrimitiveArrayBuffers.put( primitiveType, array, length, buf );
+		return buf.array();
+	}
+
+	private void fromBytes( final byte[] bytes, final Object array, final int length )
+	{
+		PrimitiveArrayBuffers.get( primitiveType, ByteBuffer.wrap( bytes ).order( ByteOrder.LITTLE_ENDIAN ), array, length );
+	}
+
+	/**
+	 * Group the {@code k}-th bytes of all {@code elementSize}-byte elements.
+	 */
+	static byte[] shuffle( final byte[] bytes, final int elementSize )
+	{
+		if ( elementSize == 1 )
+			return bytes;
+		final int n = bytes.length / elementSize;
+		final byte[] shuffled = new byte[ bytes.length ];
+		for ( int i = 0; i < n; ++i )
+			for ( int k = 0; k < elementSize; ++k )
+				shuffled[ k * n + i ] = bytes[ i * elementSize + k ];
+		return shuffled;
+	}
+
+	/**
+	 * Inverse of {@link #shuffle}.
+	 */
+	static byte[] unshuffle( final byte[] shuffled, final int elementSize )
+	{
+		if ( elementSize == 1 )
+			return shuffled;
+		final int n = shuffled.length / elementSize;
+		final byte[] bytes = new byte[ shuffled.length ];
+		for ( int i = 0; i < n; ++i )
+			for ( int k = 0; k < elementSize; ++k )
+				bytes[ i * elementSize + k ] = shuffled[ k * n + i ];
+		return bytes;
+	}
+}
@@ -0,0 +1,589 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import net.imglib2.Dirty;
+import net.imglib2.img.basictypeaccess.array.DirtyBooleanArray;
+import net.imglib2.img.basictypeaccess.array.DirtyByteArray;
+import net.imglib2.img.basictypeaccess.array.DirtyCharArray;
+import net.imglib2.img.basictypeaccess.array.DirtyShortArray;
+import net.imglib2.img.basictypeaccess.array.DirtyIntArray;
+import net.imglib2.img.basictypeaccess.array.DirtyLongArray;
+import net.imglib2.img.basictypeaccess.array.DirtyFloatArray;
+import net.imglib2.img.basictypeaccess.array.DirtyDoubleArray;
+import net.imglib2.type.PrimitiveType;
+
+/**
+ * The accesses of {@link DirtyCellImg} cells. These extend the {@code
+ * Dirty*Array} accesses with a thread-safe dirty flag that notifies a listener
+ * when the access changes from clean to dirty.
+ * <p>
+ * The flag is volatile, so that writes on other threads observe {@link
+ * Dirty#setDirty(boolean) setDirty( false )}, and it is updated with
+ * compare-and-set, so that the listener is notified of every transition from
+ * clean to dirty (possibly on the thread that wrote to the access).
+ */
+final class DirtyCellAccesses
+{
+	private DirtyCellAccesses()
+	{}
+
+	/**
+	 * An access that notifies a listener when it becomes {@link Dirty dirty}.
+	 */
+	interface Listenable extends Dirty
+	{
+		/**
+		 * Set the listener that is notified when this access changes from
+		 * clean to dirty.
+		 *
+		 * @param listener
+		 *            the listener, or {@code null} to remove the listener
+		 */
+		void setDirtyListener( Runnable listener );
+	}
+
+	/**
+	 * Get an instance of the access for the given {@link PrimitiveType}. The
+	 * returned access is the {@code Dirty*Array} subclass, cast to {@code
+	 * A}.
+	 */
+	@SuppressWarnings( "unchecked" )
+	static < A > A get( final PrimitiveType primitiveType )
+	{
+		switch ( primitiveType )
+		{
+		case BOOLEAN:
+			return ( A ) new BooleanArray( 0 );
+		case BYTE:
+			return ( A ) new ByteArray( 0 );
+		case CHAR:
+			return ( A ) new CharArray( 0 );
+		case SHORT:
+			return ( A ) new ShortArray( 0 );
+		case INT:
+			return ( A ) new IntArray( 0 );
+		case LONG:
+			return ( A ) new LongArray( 0 );
+		case FLOAT:
+			return ( A ) new FloatArray( 0 );
+		case DOUBLE:
+			return ( A ) new DoubleArray( 0 );
+		default:
+			throw new IllegalArgumentException( "Unsupported primitive type " + primitiveType );
+		}
+	}
+
+	static class BooleanArray extends DirtyBooleanArray implements Listenable
+	{
+		private static final AtomicIntegerFieldUpdater< BooleanArray > STATE = AtomicIntegerFieldUpdater.newUpdater( BooleanArray.class, "state" );
+
+		private volatile int state = 0;
+
+		private Runnable dirtyListener;
+
+		BooleanArray( final int numEntities )
+		{
+			super( numEntities );
+		}
+
+		@Override
+		public void setValue( final int index, final boolean value )
+		{
+			data[ index ] = value;
+			if ( state == 0 )
+				setDirty();
+		}
+
+		@Override
+		public BooleanArray createArray( final int numEntities )
+		{
+			return new BooleanArray( numEntities );
+		}
+
+		@Override
+		public boolean isDirty()
+		{
+			return state != 0;
+		}
+
+		@Override
+		public void setDirty()
+		{
+			if ( STATE.compareAndSet( this, 0, 1 ) )
+			{
+				final Runnable listener = dirtyListener;
+				if ( listener != null )
+					listener.run();
+			}
+		}
+
+		@Override
+		public void setDirty( final boolean dirty )
+		{
+			if ( dirty )
+				setDirty();
+			else
+				state = 0;
+		}
+
+		@Override
+		public void setDirtyListener( final Runnable listener )
+		{
+			dirtyListener = listener;
+		}
+	}
+
+	static class ByteArray extends DirtyByteArray implements Listenable
+	{
+		private static final AtomicIntegerFieldUpdater< ByteArray > STATE = AtomicIntegerFieldUpdater.newUpdater( ByteArray.class, "state" );
+
+		private volatile int state = 0;
+
+		private Runnable dirtyListener;
+
+		ByteArray( final int numEntities )
+		{
+			super( numEntities );
+		}
+
+		@Override
+		public void setValue( final int index, final byte value )
+		{
+			data[ index ] = value;
+			if ( state == 0 )
+				setDirty();
+		}
+
+		@Override
+		public ByteArray createArray( final int numEntities )
+		{
+			return new ByteArray( numEntities );
+		}
+
+		@Override
+		public boolean isDirty()
+		{
+			return state != 0;
+		}
+
+		@Override
+		public void setDirty()
+		{
+			if ( STATE.compareAndSet( this, 0, 1 ) )
+			{
+				final Runnable listener = dirtyListener;
+				if ( listener != null )
+					listener.run();
+			}
+		}
+
+		@Override
+		public void setDirty( final boolean dirty )
+		{
+			if ( dirty )
+				setDirty();
+			else
+				state = 0;
+		}
+
+		@Override
+		public void setDirtyListener( final Runnable listener )
+		{
+			dirtyListener = listener;
+		}
+	}
+
+	static class CharArray extends DirtyCharArray implements Listenable
+	{
+		private static final AtomicIntegerFieldUpdater< CharArray > STATE = AtomicIntegerFieldUpdater.newUpdater( CharArray.class, "state" );
+
+		private volatile int state = 0;
+
+		private Runnable dirtyListener;
+
+		CharArray( final int numEntities )
+		{
+			super( numEntities );
+		}
+
+		@Override
+		public void setValue( final int index, final char value )
+		{
+			data[ index ] = value;
+			if ( state == 0 )
+				setDirty();
+		}
+
+		@Override
+		public CharArray createArray( final int numEntities )
+		{
+			return new CharArray( numEntities );
+		}
+
+		@Override
+		public boolean isDirty()
+		{
+			return state != 0;
+		}
+
+		@Override
+		public void setDirty()
+		{
+			if ( STATE.compareAndSet( this, 0, 1 ) )
+			{
+				final Runnable listener = dirtyListener;
+				if ( listener != null )
+					listener.run();
+			}
+		}
+
+		@Override
+		public void setDirty( final boolean dirty )
+		{
+			if ( dirty )
+				setDirty();
+			else
+				state = 0;
+		}
+
+		@Override
+		public void setDirtyListener( final Runnable listener )
+		{
+			dirtyListener = listener;
+		}
+	}
+
+	static class ShortArray extends DirtyShortArray implements Listenable
+	{
+		private static final AtomicIntegerFieldUpdater< ShortArray > STATE = AtomicIntegerFieldUpdater.newUpdater( ShortArray.class, "state" );
+
+		private volatile int state = 0;
+
+		private Runnable dirtyListener;
+
+		ShortArray( final int numEntities )
+		{
+			super( numEntities );
+		}
+
+		@Override
+		public void setValue( final int index, final short value )
+		{
+			data[ index ] = value;
+			if ( state == 0 )
+				setDirty();
+		}
+
+		@Override
+		public ShortArray createArray( final int numEntities )
+		{
+			return new ShortArray( numEntities );
+		}
+
+		@Override
+		public boolean isDirty()
+		{
+			return state != 0;
+		}
+
+		@Override
+		public void setDirty()
+		{
+			if ( STATE.compareAndSet( this, 0, 1 ) )
+			{
+				final Runnable listener = dirtyListener;
+				if ( listener != null )
+					listener.run();
+			}
+		}
+
+		@Override
+		public void setDirty( final boolean dirty )
+		{
+			if ( dirty )
+				setDirty();
+			else
+				state = 0;
+		}
+
+		@Override
+		public void setDirtyListener( final Runnable listener )
+		{
+			dirtyListener = listener;
+		}
+	}
+
+	static class IntArray extends DirtyIntArray implements Listenable
+	{
+		private static final AtomicIntegerFieldUpdater< IntArray > STATE = AtomicIntegerFieldUpdater.newUpdater( IntArray.class, "state" );
+
+		private volatile int state = 0;
+
+		private Runnable dirtyListener;
+
+		IntArray( final int numEntities )
+		{
+			super( numEntities );
+		}
+
+		@Override
+		public void setValue( final int index, final int value )
+		{
+			data[ index ] = value;
+			if ( state == 0 )
+				setDirty();
+		}
+
+		@Override
+		public IntArray createArray( final int numEntities )
+		{
+			return new IntArray( numEntities );
+		}
+
+		@Override
+		public boolean isDirty()
+		{
+			return state != 0;
+		}
+
+		@Override
+		public void setDirty()
+		{
+			if ( STATE.compareAndSet( this, 0, 1 ) )
+			{
+				final Runnable listener = dirtyListener;
+				if ( listener != null )
+					listener.run();
+			}
+		}
+
+		@Override
+		public void setDirty( final boolean dirty )
+		{
+			if ( dirty )
+				setDirty();
+			else
+				state = 0;
+		}
+
+		@Override
+		public void setDirtyListener( final Runnable listener )
+		{
+			dirtyListener = listener;
+		}
+	}
+
+	static class LongArray extends DirtyLongArray implements Listenable
+	{
+		private static final AtomicIntegerFieldUpdater< LongArray > STATE = AtomicIntegerFieldUpdater.newUpdater( LongArray.class, "state" );
+
+		private volatile int state = 0;
+
+		private Runnable dirtyListener;
+
+		LongArray( final int numEntities )
+		{
+			super( numEntities );
+		}
+
+		@Override
+		public void setValue( final int index, final long value )
+		{
+			data[ index ] = value;
+			if ( state == 0 )
+				setDirty();
+		}
+
+		@Override
+		public LongArray createArray( final int numEntities )
+		{
+			return new LongArray( numEntities );
+		}
+
+		@Override
+		public boolean isDirty()
+		{
+			return state != 0;
+		}
+
+		@Override
+		public void setDirty()
+		{
+			if ( STATE.compareAndSet( this, 0, 1 ) )
+			{
+				final Runnable listener = dirtyListener;
+				if ( listener != null )
+					listener.run();
+			}
+		}
+
+		@Override
+		public void setDirty( final boolean dirty )
+		{
+			if ( dirty )
+				setDirty();
+			else
+				state = 0;
+		}
+
+		@Override
+		public void setDirtyListener( final Runnable listener )
+		{
+			dirtyListener = listener;
+		}
+	}
+
+	static class FloatArray extends DirtyFloatArray implements Listenable
+	{
+		private static final AtomicIntegerFieldUpdater< FloatArray > STATE = AtomicIntegerFieldUpdater.newUpdater( FloatArray.class, "state" );
+
+		private volatile int state = 0;
+
+		private Runnable dirtyListener;
+
+		FloatArray( final int numEntities )
+		{
+			super( numEntities );
+		}
+
+		@Override
+		public void setValue( final int index, final float value )
+		{
+			data[ index ] = value;
+			if ( state == 0 )
+				setDirty();
+		}
+
+		@Override
+		public FloatArray createArray( final int numEntities )
+		{
+			return new FloatArray( numEntities );
+		}
+
+		@Override
+		public boolean isDirty()
+		{
+			return state != 0;
+		}
+
+		@Override
+		public void setDirty()
+		{
+			if ( STATE.compareAndSet( this, 0, 1 ) )
+			{
+				final Runnable listener = dirtyListener;
+				if ( listener != null )
+					listener.run();
+			}
+		}
+
+		@Override
+		public void setDirty( final boolean dirty )
+		{
+			if ( dirty )
+				setDirty();
+			else
+				state = 0;
+		}
+
+		@Override
+		public void setDirtyListener( final Runnable listener )
+		{
+			dirtyListener = listener;
+		}
+	}
+
+	static class DoubleArray extends DirtyDoubleArray implements Listenable
+	{
+		private static final AtomicIntegerFieldUpdater< DoubleArray > STATE = AtomicIntegerFieldUpdater.newUpdater( DoubleArray.class, "state" );
+
+		private volatile int state = 0;
+
+		private Runnable dirtyListener;
+
+		DoubleArray( final int numEntities )
+		{
+			super( numEntities );
+		}
+
+		@Override
+		public void setValue( final int index, final double value )
+		{
+			data[ index ] = value;
+			if ( state == 0 )
+				setDirty();
+		}
+
+		@Override
+		public DoubleArray createArray( final int numEntities )
+		{
+			return new DoubleArray( numEntities );
+		}
+
+		@Override
+		public boolean isDirty()
+		{
+			return state != 0;
+		}
+
+		@Override
+		public void setDirty()
+		{
+			if ( STATE.compareAndSet( this, 0, 1 ) )
+			{
+				final Runnable listener = dirtyListener;
+				if ( listener != null )
+					listener.run();
+			}
+		}
+
+		@Override
+		public void setDirty( final boolean dirty )
+		{
+			if ( dirty )
+				setDirty();
+			else
+				state = 0;
+		}
+
+		@Override
+		public void setDirtyListener( final Runnable listener )
+		{
+			dirtyListener = listener;
+		}
+	}
+}
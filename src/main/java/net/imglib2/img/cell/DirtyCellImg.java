@@ -0,0 +1,269 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import net.imglib2.Dirty;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.list.ListImg;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.parallel.TaskExecutor;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.IntervalIndexer;
+
+/**
+ * A {@link CellImg} that keeps track of which cells have been modified since
+ * they were last {@link #flush(CellWriter) flushed}. Use
+ * {@link DirtyCellImgFactory} to create {@code DirtyCellImg}s.
+ * <p>
+ * Every cell is backed by a {@link Dirty} access (a subclass of the {@code
+ * Dirty*Array} accesses with a thread-safe dirty flag). The first write to a
+ * clean cell (through any {@code RandomAccess}, {@code Cursor}, or
+ * {@code PrimitiveBlocks}) adds the flat index of the cell to a concurrent
+ * dirty-cell index. Subsequent writes to the same cell only check the dirty
+ * flag of the access, so tracking adds no overhead to bulk writes.
+ *
+ * @param <T>
+ *            the pixel type
+ * @param <A>
+ *            the underlying native access type
+ */
+public class DirtyCellImg< T extends NativeType< T >, A extends ArrayDataAccess< A > & Dirty > extends CellImg< T, A >
+{
+	/**
+	 * Writes the data of a {@link Cell}, for example to disk.
+	 *
+	 * @param <A>
+	 *            the underlying native access type
+	 */
+	@FunctionalInterface
+	public interface CellWriter< A >
+	{
+		void write( Cell< A > cell ) throws IOException;
+	}
+
+	private final Set< Long > dirtyCells;
+
+	/**
+	 * The cell accesses must have been created by {@link
+	 * DirtyCellImgFactory}.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if a cell access does not notify about becoming dirty
+	 */
+	public DirtyCellImg(
+			final DirtyCellImgFactory< T > factory,
+			final CellGrid grid,
+			final ListImg< Cell< A > > imgOfCells,
+			final Fraction entitiesPerPixel )
+	{
+		super( factory, grid, imgOfCells, entitiesPerPixel );
+		dirtyCells = ConcurrentHashMap.newKeySet();
+		long index = 0;
+		for ( final Cell< A > cell : imgOfCells )
+		{
+			final Long cellIndex = index++;
+			final A data = cell.getData();
+			if ( !( data instanceof DirtyCellAccesses.Listenable ) )
+				throw new IllegalArgumentException( "Cells must be created by DirtyCellImgFactory" );
+			( ( DirtyCellAccesses.Listenable ) data ).setDirtyListener( () -> dirtyCells.add( cellIndex ) );
+			if ( data.isDirty() )
+				dirtyCells.add( cellIndex );
+		}
+	}
+
+	/**
+	 * Get the number of cells that have been modified since they were last
+	 * flushed.
+	 */
+	public int numDirtyCells()
+	{
+		return dirtyCells.size();
+	}
+
+	/**
+	 * Check whether the cell at the given grid position has been modified since
+	 * it was last flushed.
+	 *
+	 * @param gridPosition
+	 *            position of the cell in the cell grid
+	 */
+	public boolean isDirty( final long... gridPosition )
+	{
+		return dirtyCells.contains( IntervalIndexer.positionToIndex( gridPosition, grid.getGridDimensions() ) );
+	}
+
+	/**
+	 * Get a snapshot of the cells that are currently dirty, ordered by flat
+	 * cell index. The dirty flags of the cells are not changed.
+	 */
+	public List< Cell< A > > dirtyCells()
+	{
+		return getCells( sortedDirtyCellIndices() );
+	}
+
+	private long[] sortedDirtyCellIndices()
+	{
+		final long[] indices = dirtyCells.stream().mapToLong( Long::longValue ).toArray();
+		Arrays.sort( indices );
+		return indices;
+	}
+
+	private List< Cell< A > > getCells( final long[] indices )
+	{
+		final RandomAccess< Cell< A > > access = getCells().randomAccess();
+		final long[] gridDimensions = grid.getGridDimensions();
+		final long[] gridPosition = new long[ gridDimensions.length ];
+		final List< Cell< A > > cells = new ArrayList<>( indices.length );
+		for ( final long index : indices )
+		{
+			IntervalIndexer.indexToPosition( index, gridDimensions, gridPosition );
+			cells.add( access.setPositionAndGet( gridPosition ) );
+		}
+		return cells;
+	}
+
+	/**
+	 * Pass every dirty cell to {@code writer} and mark it clean.
+	 * <p>
+	 * A cell is marked clean before it is written. Writes to the cell from any
+	 * thread that happen after it was marked clean (that is, while or after
+	 * it is passed to the {@code writer}) leave it dirty, and it remains in
+	 * the dirty-cell index. If {@code writer} fails for a cell, that cell is
+	 * marked dirty again and the exception is rethrown. Cells that were not
+	 * written yet remain dirty.
+	 * <p>
+	 * Cells are written in parallel if the calling thread is within a {@link
+	 * Parallelization} context (see {@link #flush(CellWriter, TaskExecutor)}).
+	 *
+	 * @param writer
+	 *            writes the cell data
+	 */
+	public void flush( final CellWriter< A > writer ) throws IOException
+	{
+		flush( writer, Parallelization.getTaskExecutor() );
+	}
+
+	/**
+	 * Pass every dirty cell to {@code writer} and mark it clean, using the
+	 * given {@link TaskExecutor} to write cells in parallel.
+	 *
+	 * @param writer
+	 *            writes the cell data. Must be thread-safe if
+	 *            {@code taskExecutor} is multi-threaded.
+	 * @param taskExecutor
+	 *            used to write cells in parallel
+	 *
+	 * @see #flush(CellWriter)
+	 */
+	public void flush( final CellWriter< A > writer, final TaskExecutor taskExecutor ) throws IOException
+	{
+		final long[] indices = sortedDirtyCellIndices();
+		final List< Cell< A > > cells = getCells( indices );
+		if ( taskExecutor.getParallelism() <= 1 || indices.length <= 1 )
+		{
+			for ( int i = 0; i < indices.length; ++i )
+				flush( indices[ i ], cells.get( i ), writer );
+		}
+		else
+		{
+			final List< Integer > tasks = IntStream.range( 0, indices.length ).boxed().collect( Collectors.toList() );
+			try
+			{
+				taskExecutor.forEach( tasks, i -> {
+					try
+					{
+						flush( indices[ i ], cells.get( i ), writer );
+					}
+					catch ( final IOException e )
+					{
+						throw new UncheckedIOException( e );
+					}
+				} );
+			}
+			catch ( final UncheckedIOException e )
+			{
+				throw e.getCause();
+			}
+		}
+	}
+
+	private void flush( final long index, final Cell< A > cell, final CellWriter< A > writer ) throws IOException
+	{
+		final A data = cell.getData();
+		// NB: Clear the flag first. A concurrent write, that sees the cleared
+		// flag, sets it again (and possibly re-adds the index before it is
+		// removed here). Therefore, the flag is re-checked after writing.
+		data.setDirty( false );
+		dirtyCells.remove( index );
+		try
+		{
+			writer.write( cell );
+		}
+		catch ( final IOException | RuntimeException | Error e )
+		{
+			data.setDirty();
+			dirtyCells.add( index );
+			throw e;
+		}
+		if ( data.isDirty() )
+			dirtyCells.add( index );
+	}
+
+	@Override
+	public DirtyCellImgFactory< T > factory()
+	{
+		return ( DirtyCellImgFactory< T > ) super.factory();
+	}
+
+	@Override
+	public DirtyCellImg< T, A > copy()
+	{
+		@SuppressWarnings( "unchecked" )
+		final DirtyCellImg< T, A > copy = ( DirtyCellImg< T, A > ) factory().create( dimension );
+		copyDataTo( copy );
+		return copy;
+	}
+}
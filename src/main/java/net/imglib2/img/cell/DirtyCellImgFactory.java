@@ -0,0 +1,147 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import net.imglib2.Dimensions;
+import net.imglib2.Dirty;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.cell.CellGrid.CellDimensionsAndSteps;
+import net.imglib2.img.list.ListImg;
+import net.imglib2.img.list.ListLocalizingCursor;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+
+/**
+ * Factory for creating {@link DirtyCellImg DirtyCellImgs}, that is, {@link
+ * CellImg}s that keep track of modified cells so that they can be written
+ * back incrementally (see {@link DirtyCellImg#flush}).
+ *
+ * @param <T>
+ *            the pixel type
+ */
+public class DirtyCellImgFactory< T extends NativeType< T > > extends CellImgFactory< T >
+{
+	private final int[] defaultCellDimensions;
+
+	public DirtyCellImgFactory( final T type )
+	{
+		this( type, 10 );
+	}
+
+	public DirtyCellImgFactory( final T type, final int... cellDimensions )
+	{
+		super( type, cellDimensions );
+		defaultCellDimensions = Dimensions.verify( cellDimensions ).clone();
+	}
+
+	@Override
+	public DirtyCellImg< T, ? > create( final long... dimensions )
+	{
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final DirtyCellImg< T, ? > img = create( dimensions, type(), ( NativeTypeFactory ) type().getNativeTypeFactory() );
+		return img;
+	}
+
+	@Override
+	public DirtyCellImg< T, ? > create( final Dimensions dimensions )
+	{
+		return create( Intervals.dimensionsAsLongArray( dimensions ) );
+	}
+
+	@Override
+	public DirtyCellImg< T, ? > create( final int[] dimensions )
+	{
+		return create( Util.int2long( dimensions ) );
+	}
+
+	private < A extends ArrayDataAccess< A > & Dirty > DirtyCellImg< T, A > create(
+			final long[] dimensions,
+			final T type,
+			final NativeTypeFactory< T, ? super A > typeFactory )
+	{
+		Dimensions.verify( dimensions );
+
+		final int n = dimensions.length;
+		final Fraction entitiesPerPixel = type.getEntitiesPerPixel();
+		final int[] cellDimensions = getCellDimensions( defaultCellDimensions, n, entitiesPerPixel );
+
+		final CellGrid grid = new CellGrid( dimensions, cellDimensions );
+		final long[] gridDimensions = new long[ grid.numDimensions() ];
+		grid.gridDimensions( gridDimensions );
+
+		final Cell< A > cellType = new Cell<>( new int[] { 1 }, new long[] { 1 }, null );
+		final ListImg< Cell< A > > cells = new ListImg<>( gridDimensions, cellType );
+
+		final long[] cellGridPosition = new long[ n ];
+		final A access = DirtyCellAccesses.get( typeFactory.getPrimitiveType() );
+		final ListLocalizingCursor< Cell< A > > cellCursor = cells.localizingCursor();
+		while ( cellCursor.hasNext() )
+		{
+			cellCursor.fwd();
+			cellCursor.localize( cellGridPosition );
+			final long[] cellMin = new long[ n ];
+			final CellDimensionsAndSteps dimsAndSteps = grid.getCellDimensions( cellGridPosition, cellMin );
+			final A data = access.createArray( ( int ) entitiesPerPixel.mulCeil( dimsAndSteps.numPixels() ) );
+			cellCursor.set( new Cell<>( dimsAndSteps, cellMin, data ) );
+		}
+
+		final DirtyCellImg< T, A > img = new DirtyCellImg<>( this, grid, cells, entitiesPerPixel );
+		img.setLinkedType( typeFactory.createLinkedType( img ) );
+		return img;
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	@Override
+	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
+	{
+		if ( NativeType.class.isInstance( type ) )
+			return new DirtyCellImgFactory( ( NativeType ) type, defaultCellDimensions );
+		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
+	}
+
+	@Deprecated
+	@Override
+	public DirtyCellImg< T, ? > create( final long[] dimensions, final T type )
+	{
+		cache( type );
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final DirtyCellImg< T, ? > img = create( dimensions, type, ( NativeTypeFactory ) type.getNativeTypeFactory() );
+		return img;
+	}
+}
@@ -45,7 +45,8 @@ import net.imglib2.util.Fraction;
 /**
  * A {@link AbstractCellImg} that obtains its Cells lazily when they are
  * accessed. Cells are obtained by a {@link Get} method that is provided by the
- * user. Typically, this is some kind of cache.
+ * user. Typically, this is some kind of cache, for example a
+ * {@link BoundedCellCache}.
  *
  * @param <T>
  *            the pixel type
@@ -116,6 +117,14 @@ public class LazyCellImg< T extends NativeType< T >, A extends DataAccess >
 			return get.get( index );
 		}
 
+		/**
+		 * Get the {@link Get loader} that provides the cells.
+		 */
+		public Get< T > getCellLoader()
+		{
+			return get;
+		}
+
 		@Override
 		public T getType()
 		{
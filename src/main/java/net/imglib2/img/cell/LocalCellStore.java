@@ -0,0 +1,648 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.basictypeaccess.ArrayDataAccessFactory;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.cell.LazyCellImg.Get;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.parallel.TaskExecutor;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.PrimitiveType;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+
+/**
+ * A simple chunked storage format for cell images in a local directory.
+ * <p>
+ * The directory contains a header file {@value #HEADER_FILE_NAME} (in {@link
+ * Properties} format) that describes the {@link CellGrid}, the pixel type and
+ * the compression, and one file per cell. Cell files are named by the cell
+ * grid position (for example {@code 2_0_1.cell}) and contain the primitive
+ * data of the cell in little-endian byte order, either {@link Compression#RAW
+ * raw} or {@link Compression#DEFLATE Deflate}-compressed. Cells without a file
+ * are read as zeros.
+ * <p>
+ * Use {@link #write(AbstractCellImg, Path, Compression)} to store all cells of
+ * an image, and {@link #open(Path)} followed by {@link #openImg()} to reopen it
+ * as a {@link LazyCellImg} that reads only the cells that are accessed. The
+ * {@link #writeCell(Cell)} method can be used as a {@link
+ * DirtyCellImg.CellWriter} to write back only modified cells.
+ * <p>
+ * Cells are written and read through {@link FileChannel}s. The storage arrays
+ * of {@code byte} cells (backed by {@code byte[]} or {@code ByteBuffer}) are
+ * written directly, because their byte order does not matter; other primitive
+ * types are converted to little-endian bytes in chunks, through a bounded pool
+ * of reusable direct buffers.
+ */
+public class LocalCellStore
+{
+	/**
+	 * How cell files are compressed.
+	 */
+	public enum Compression
+	{
+		/**
+		 * Cell files contain the uncompressed little-endian cell data.
+		 */
+		RAW,
+
+		/**
+		 * Cell files contain the little-endian cell data, byte-shuffled and
+		 * compressed with {@link Deflater}.
+		 */
+		DEFLATE
+	}
+
+	/**
+	 * Name of the header file in the store directory.
+	 */
+	public static final String HEADER_FILE_NAME = "cells.properties";
+
+	private static final String CELL_FILE_SUFFIX = ".cell";
+
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * Size in bytes of the direct buffers that non-byte cells are staged
+	 * through. Larger cells are written and read in several chunks.
+	 */
+	private static final int STAGING_BUFFER_SIZE = 1 << 18;
+
+	/**
+	 * Pool of staging buffers that are not in use. The pool is shared by all
+	 * stores and threads, and bounded, so that at most {@code
+	 * availableProcessors() * STAGING_BUFFER_SIZE} bytes of off-heap memory
+	 * are retained, independent of the number of threads.
+	 */
+	private static final BlockingQueue< ByteBuffer > stagingBuffers = new ArrayBlockingQueue<>( Runtime.getRuntime().availableProcessors() );
+
+	private final Path directory;
+
+	private final CellGrid grid;
+
+	private final PrimitiveType primitiveType;
+
+	private final Fraction entitiesPerPixel;
+
+	private final Compression compression;
+
+	private final String typeClassName;
+
+	private final DeflateCellCodec codec;
+
+	private LocalCellStore(
+			final Path directory,
+			final CellGrid grid,
+			final PrimitiveType primitiveType,
+			final Fraction entitiesPerPixel,
+			final Compression compression,
+			final String typeClassName )
+	{
+		this.directory = directory;
+		this.grid = grid;
+		this.primitiveType = primitiveType;
+		this.entitiesPerPixel = entitiesPerPixel;
+		this.compression = compression;
+		this.typeClassName = typeClassName;
+		codec = compression == Compression.DEFLATE
+				? new DeflateCellCodec( primitiveType, Deflater.BEST_SPEED )
+				: null;
+	}
+
+	/**
+	 * Create a new, empty store in {@code directory}. The directory is created
+	 * if it does not exist. An existing header is overwritten, existing cell
+	 * files are not removed.
+	 *
+	 * @param directory
+	 *            the store directory
+	 * @param grid
+	 *            the cell grid of the stored image
+	 * @param type
+	 *            the pixel type of the stored image
+	 * @param compression
+	 *            how cell files are compressed
+	 *
+	 * @return the new store
+	 */
+	public static LocalCellStore create( final Path directory, final CellGrid grid, final NativeType< ? > type, final Compression compression ) throws IOException
+	{
+		final LocalCellStore store = new LocalCellStore(
+				directory,
+				new CellGrid( grid.getImgDimensions(), getCellDimensions( grid ) ),
+				type.getNativeTypeFactory().getPrimitiveType(),
+				type.getEntitiesPerPixel(),
+				compression,
+				type.getClass().getName() );
+		Files.createDirectories( directory );
+		store.writeHeader();
+		return store;
+	}
+
+	/**
+	 * Open an existing store in {@code directory}.
+	 *
+	 * @param directory
+	 *            the store directory
+	 *
+	 * @return the store
+	 *
+	 * @throws IOException
+	 *             if the header cannot be read or is invalid
+	 */
+	public static LocalCellStore open( final Path directory ) throws IOException
+	{
+		final Properties header = new Properties();
+		try ( final Reader reader = Files.newBufferedReader( directory.resolve( HEADER_FILE_NAME ), StandardCharsets.UTF_8 ) )
+		{
+			header.load( reader );
+		}
+		try
+		{
+			final int version = Integer.parseInt( header.getProperty( "version" ) );
+			if ( version != FORMAT_VERSION )
+				throw new IOException( "Unsupported format version " + version + " in " + directory );
+			final long[] dimensions = Arrays.stream( header.getProperty( "dimensions" ).split( "," ) ).mapToLong( Long::parseLong ).toArray();
+			final int[] cellDimensions = Arrays.stream( header.getProperty( "cellDimensions" ).split( "," ) ).mapToInt( Integer::parseInt ).toArray();
+			final String[] epp = header.getProperty( "entitiesPerPixel" ).split( "/" );
+			return new LocalCellStore(
+					directory,
+					new CellGrid( dimensions, cellDimensions ),
+					PrimitiveType.valueOf( header.getProperty( "primitiveType" ) ),
+					new Fraction( Long.parseLong( epp[ 0 ] ), Long.parseLong( epp[ 1 ] ) ),
+					Compression.valueOf( header.getProperty( "compression" ) ),
+					header.getProperty( "type" ) );
+		}
+		catch ( final RuntimeException e )
+		{
+			throw new IOException( "Invalid header in " + directory, e );
+		}
+	}
+
+	/**
+	 * Store all cells of {@code img} in a new store in {@code directory}.
+	 * Cells are written in parallel if the calling thread is within a {@link
+	 * Parallelization} context.
+	 *
+	 * @param img
+	 *            the image to store
+	 * @param directory
+	 *            the store directory
+	 * @param compression
+	 *            how cell files are compressed
+	 *
+	 * @return the new store
+	 */
+	public static LocalCellStore write( final AbstractCellImg< ?, ?, ?, ? > img, final Path directory, final Compression compression ) throws IOException
+	{
+		return write( img, directory, compression, Parallelization.getTaskExecutor() );
+	}
+
+	/**
+	 * Store all cells of {@code img} in a new store in {@code directory},
+	 * using the given {@link TaskExecutor} to write cells in parallel.
+	 *
+	 * @param img
+	 *            the image to store
+	 * @param directory
+	 *            the store directory
+	 * @param compression
+	 *            how cell files are compressed
+	 * @param taskExecutor
+	 *            used to write cells in parallel
+	 *
+	 * @return the new store
+	 */
+	public static LocalCellStore write( final AbstractCellImg< ?, ?, ?, ? > img, final Path directory, final Compression compression, final TaskExecutor taskExecutor ) throws IOException
+	{
+		final LocalCellStore store = create( directory, img.getCellGrid(), img.getType(), compression );
+		store.writeCells( img, taskExecutor );
+		return store;
+	}
+
+	/**
+	 * Write all cells of {@code img}, using the given {@link TaskExecutor} to
+	 * write cells in parallel. The cell grid of {@code img} must match the
+	 * cell grid of this store.
+	 *
+	 * @param img
+	 *            the image whose cells to write
+	 * @param taskExecutor
+	 *            used to write cells in parallel
+	 */
+	public void writeCells( final AbstractCellImg< ?, ?, ?, ? > img, final TaskExecutor taskExecutor ) throws IOException
+	{
+		final CellGrid imgGrid = img.getCellGrid();
+		if ( !Arrays.equals( imgGrid.getImgDimensions(), grid.getImgDimensions() ) || !Arrays.equals( getCellDimensions( imgGrid ), getCellDimensions( grid ) ) )
+			throw new IllegalArgumentException( "Cell grid of image " + imgGrid + " does not match cell grid of store " + grid );
+
+		final long numCells = Intervals.numElements( grid.getGridDimensions() );
+		final int numTasks = ( int ) Math.max( 1, Math.min( numCells, taskExecutor.suggestNumberOfTasks() ) );
+		final List< long[] > ranges = new ArrayList<>();
+		for ( int i = 0; i < numTasks; ++i )
+			ranges.add( new long[] { numCells * i / numTasks, numCells * ( i + 1 ) / numTasks } );
+		try
+		{
+			taskExecutor.forEach( ranges, range -> {
+				final RandomAccess< ? extends Cell< ? > > cells = img.getCells().randomAccess();
+				final long[] cellGridPosition = new long[ grid.numDimensions() ];
+				for ( long index = range[ 0 ]; index < range[ 1 ]; ++index )
+				{
+					grid.getCellGridPositionFlat( index, cellGridPosition );
+					cells.setPosition( cellGridPosition );
+					try
+					{
+						writeCell( index, cells.get() );
+					}
+					catch ( final IOException e )
+					{
+						throw new UncheckedIOException( e );
+					}
+				}
+			} );
+		}
+		catch ( final UncheckedIOException e )
+		{
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Write {@code cell}. The grid position of the cell is derived from its
+	 * min coordinates. The cell data must be an {@link ArrayDataAccess} of the
+	 * primitive type of this store.
+	 *
+	 * @param cell
+	 *            the cell to write
+	 */
+	public void writeCell( final Cell< ? > cell ) throws IOException
+	{
+		final long[] cellGridPosition = new long[ grid.numDimensions() ];
+		for ( int d = 0; d < cellGridPosition.length; ++d )
+			cellGridPosition[ d ] = cell.min( d ) / grid.cellDimension( d );
+		writeCell( grid.getCellGridIndexFlat( cellGridPosition ), cell );
+	}
+
+	/**
+	 * Write the cell with flattened grid index {@code index}. The cell data
+	 * must be an {@link ArrayDataAccess} of the primitive type of this store.
+	 *
+	 * @param index
+	 *            flattened grid index of the cell
+	 * @param cell
+	 *            the cell to write
+	 */
+	public void writeCell( final long index, final Cell< ? > cell ) throws IOException
+	{
+		final Object data = cell.getData();
+		if ( !( data instanceof ArrayDataAccess ) )
+			throw new IllegalArgumentException( "Cannot write cell data of type " + data.getClass().getName() );
+		final int numEntities = numEntities( index );
+		final Object storage = ( ( ArrayDataAccess< ? > ) data ).getCurrentStorageArray();
+
+		try ( final FileChannel channel = FileChannel.open( cellPath( index ),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING ) )
+		{
+			if ( compression == Compression.DEFLATE )
+				writeFully( channel, ByteBuffer.wrap( codec.compress( storage, numEntities ) ) );
+			else if ( storage instanceof byte[] )
+				writeFully( channel, ByteBuffer.wrap( ( byte[] ) storage, 0, numEntities ) );
+			else if ( primitiveType == PrimitiveType.BYTE && storage instanceof ByteBuffer )
+				writeFully( channel, ( ByteBuffer ) ( ( ByteBuffer ) storage ).duplicate().clear().limit( numEntities ) );
+			else
+			{
+				final ByteBuffer buf = acquireStagingBuffer();
+				try
+				{
+					final int chunkSize = buf.capacity() / primitiveType.getByteCount();
+					for ( int offset = 0; offset < numEntities; offset += chunkSize )
+					{
+						buf.clear();
+						PrimitiveArrayBuffers.put( primitiveType, storage, offset, Math.min( chunkSize, numEntities - offset ), buf );
+						buf.flip();
+						writeFully( channel, buf );
+					}
+				}
+				finally
+				{
+					releaseStagingBuffer( buf );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read the cell with flattened grid index {@code index}. If there is no
+	 * file for the cell, a cell filled with zeros is returned.
+	 *
+	 * @param index
+	 *            flattened grid index of the cell
+	 * @param accessType
+	 *            an instance of the access type, used to create the cell data
+	 *
+	 * @return the cell
+	 */
+	public < A extends ArrayDataAccess< A > > Cell< A > readCell( final long index, final A accessType ) throws IOException
+	{
+		final long[] cellMin = new long[ grid.numDimensions() ];
+		final int[] cellDims = new int[ grid.numDimensions() ];
+		grid.getCellDimensions( index, cellMin, cellDims );
+		final int numEntities = numEntities( index );
+		final A data = accessType.createArray( numEntities );
+		final Object storage = data.getCurrentStorageArray();
+		final int numBytes = numEntities * primitiveType.getByteCount();
+
+		try ( final FileChannel channel = FileChannel.open( cellPath( index ), StandardOpenOption.READ ) )
+		{
+			if ( compression == Compression.DEFLATE )
+			{
+				final long size = channel.size();
+				if ( size > Integer.MAX_VALUE )
+					throw new IOException( "Cell file " + cellPath( index ) + " is too large" );
+				final ByteBuffer compressed = ByteBuffer.allocate( ( int ) size );
+				readFully( channel, compressed );
+				codec.decompress( compressed.array(), storage, numEntities );
+			}
+			else if ( storage instanceof byte[] )
+				readFully( channel, ByteBuffer.wrap( ( byte[] ) storage, 0, numBytes ) );
+			else if ( primitiveType == PrimitiveType.BYTE && storage instanceof ByteBuffer )
+				readFully( channel, ( ByteBuffer ) ( ( ByteBuffer ) storage ).duplicate().clear().limit( numBytes ) );
+			else
+			{
+				final ByteBuffer buf = acquireStagingBuffer();
+				try
+				{
+					final int chunkSize = buf.capacity() / primitiveType.getByteCount();
+					for ( int offset = 0; offset < numEntities; offset += chunkSize )
+					{
+						final int length = Math.min( chunkSize, numEntities - offset );
+						buf.clear();
+						buf.limit( length * primitiveType.getByteCount() );
+						readFully( channel, buf );
+						buf.flip();
+						PrimitiveArrayBuffers.get( primitiveType, buf, storage, offset, length );
+					}
+				}
+				finally
+				{
+					releaseStagingBuffer( buf );
+				}
+			}
+		}
+		catch ( final NoSuchFileException e )
+		{
+			// NB: missing cells are empty
+		}
+		return new Cell<>( cellDims, cellMin, data );
+	}
+
+	/**
+	 * Get a {@link LazyCellImg} cell loader that reads cells from this store.
+	 * {@code IOException}s are rethrown as {@link UncheckedIOException}s.
+	 *
+	 * @param accessType
+	 *            an instance of the access type, used to create the cell data
+	 *
+	 * @return the cell loader
+	 */
+	public < A extends ArrayDataAccess< A > > Get< Cell< A > > cellLoader( final A accessType )
+	{
+		return index -> {
+			try
+			{
+				return readCell( index, accessType );
+			}
+			catch ( final IOException e )
+			{
+				throw new UncheckedIOException( e );
+			}
+		};
+	}
+
+	/**
+	 * Open the stored image as a {@link LazyCellImg} with the given pixel
+	 * type. Cells are read when they are accessed, and are not cached (wrap
+	 * {@link #cellLoader} in a {@link BoundedCellCache} to cache cells).
+	 *
+	 * @param type
+	 *            the pixel type. Must have the same primitive type and entities
+	 *            per pixel as the stored image.
+	 *
+	 * @return the lazily loaded image
+	 */
+	public < T extends NativeType< T > > LazyCellImg< T, ? > openImg( final T type )
+	{
+		if ( type.getNativeTypeFactory().getPrimitiveType() != primitiveType || !sameFraction( type.getEntitiesPerPixel(), entitiesPerPixel ) )
+			throw new IllegalArgumentException( "Type " + type.getClass().getName() + " is incompatible with stored type " + typeClassName );
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final LazyCellImg< T, ? > img = openImg( type, ( ArrayDataAccess ) ArrayDataAccessFactory.get( type ) );
+		return img;
+	}
+
+	private < T extends NativeType< T >, A extends ArrayDataAccess< A > > LazyCellImg< T, A > openImg( final T type, final A accessType )
+	{
+		return new LazyCellImg<>( grid, type, cellLoader( accessType ) );
+	}
+
+	/**
+	 * Open the stored image as a {@link LazyCellImg} with the stored pixel
+	 * type. The stored type class must have a public no-argument constructor.
+	 *
+	 * @return the lazily loaded image
+	 *
+	 * @see #openImg(NativeType)
+	 */
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	public LazyCellImg< ?, ? > openImg()
+	{
+		final NativeType type;
+		try
+		{
+			type = ( NativeType ) Class.forName( typeClassName ).newInstance();
+		}
+		catch ( final ReflectiveOperationException | ClassCastException e )
+		{
+			throw new IllegalStateException( "Cannot instantiate stored type " + typeClassName, e );
+		}
+		return openImg( type );
+	}
+
+	/**
+	 * Get the store directory.
+	 */
+	public Path getDirectory()
+	{
+		return directory;
+	}
+
+	/**
+	 * Get the cell grid of the stored image.
+	 */
+	public CellGrid getCellGrid()
+	{
+		return grid;
+	}
+
+	/**
+	 * Get the primitive type of the stored cell data.
+	 */
+	public PrimitiveType getPrimitiveType()
+	{
+		return primitiveType;
+	}
+
+	/**
+	 * Get the class name of the stored pixel type.
+	 */
+	public String getTypeClassName()
+	{
+		return typeClassName;
+	}
+
+	/**
+	 * Get the compression of cell files.
+	 */
+	public Compression getCompression()
+	{
+		return compression;
+	}
+
+	/**
+	 * Get the path of the file of the cell with flattened grid index {@code
+	 * index}.
+	 */
+	public Path cellPath( final long index )
+	{
+		final long[] cellGridPosition = new long[ grid.numDimensions() ];
+		grid.getCellGridPositionFlat( index, cellGridPosition );
+		return directory.resolve( Arrays.stream( cellGridPosition )
+				.mapToObj( Long::toString )
+				.collect( Collectors.joining( "_", "", CELL_FILE_SUFFIX ) ) );
+	}
+
+	private int numEntities( final long index )
+	{
+		final long[] cellMin = new long[ grid.numDimensions() ];
+		final int[] cellDims = new int[ grid.numDimensions() ];
+		grid.getCellDimensions( index, cellMin, cellDims );
+		return ( int ) entitiesPerPixel.mulCeil( Intervals.numElements( cellDims ) );
+	}
+
+	private void writeHeader() throws IOException
+	{
+		final Properties header = new Properties();
+		header.setProperty( "version", Integer.toString( FORMAT_VERSION ) );
+		header.setProperty( "dimensions", Arrays.stream( grid.getImgDimensions() ).mapToObj( Long::toString ).collect( Collectors.joining( "," ) ) );
+		header.setProperty( "cellDimensions", Arrays.stream( getCellDimensions( grid ) ).mapToObj( Integer::toString ).collect( Collectors.joining( "," ) ) );
+		header.setProperty( "primitiveType", primitiveType.name() );
+		header.setProperty( "entitiesPerPixel", entitiesPerPixel.getNumerator() + "/" + entitiesPerPixel.getDenominator() );
+		header.setProperty( "compression", compression.name() );
+		header.setProperty( "byteOrder", "LITTLE_ENDIAN" );
+		header.setProperty( "type", typeClassName );
+		try ( final Writer writer = Files.newBufferedWriter( directory.resolve( HEADER_FILE_NAME ), StandardCharsets.UTF_8 ) )
+		{
+			header.store( writer, "ImgLib2 cell store" );
+		}
+	}
+
+	private static int[] getCellDimensions( final CellGrid grid )
+	{
+		final int[] cellDimensions = new int[ grid.numDimensions() ];
+		grid.cellDimensions( cellDimensions );
+		return cellDimensions;
+	}
+
+	private static boolean sameFraction( final Fraction a, final Fraction b )
+	{
+		return a.getNumerator() * b.getDenominator() == b.getNumerator() * a.getDenominator();
+	}
+
+	private static void readFully( final FileChannel channel, final ByteBuffer dst ) throws IOException
+	{
+		while ( dst.hasRemaining() )
+			if ( channel.read( dst ) < 0 )
+				throw new IOException( "Unexpected end of cell file" );
+	}
+
+	private static void writeFully( final FileChannel channel, final ByteBuffer src ) throws IOException
+	{
+		while ( src.hasRemaining() )
+			channel.write( src );
+	}
+
+	/**
+	 * Get a direct little-endian staging buffer of {@link
+	 * #STAGING_BUFFER_SIZE} bytes from the pool, or allocate a new one if the
+	 * pool is empty.
+	 */
+	private static ByteBuffer acquireStagingBuffer()
+	{
+		final ByteBuffer buf = stagingBuffers.poll();
+		return buf != null
+				? buf
+				: ByteBuffer.allocateDirect( STAGING_BUFFER_SIZE ).order( ByteOrder.LITTLE_ENDIAN );
+	}
+
+	/**
+	 * Return a staging buffer to the pool. If the pool is full, the buffer is
+	 * dropped.
+	 */
+	private static void releaseStagingBuffer( final ByteBuffer buf )
+	{
+		stagingBuffers.offer( buf );
+	}
+}
@@ -0,0 +1,110 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+import java.util.List;
+
+import net.imglib2.img.basictypeaccess.DataAccess;
+import net.imglib2.img.list.ListImg;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.Fraction;
+
+/**
+ * A {@link CellImg} whose cells are backed by memory-mapped regions of a
+ * local file. Use {@link MappedCellImgFactory} to create
+ * {@code MappedCellImg}s.
+ *
+ * @param <T>
+ *            the pixel type
+ * @param <A>
+ *            the underlying native access type
+ */
+public class MappedCellImg< T extends NativeType< T >, A extends DataAccess > extends CellImg< T, A >
+{
+	private final File file;
+
+	private final List< MappedByteBuffer > regions;
+
+	public MappedCellImg(
+			final MappedCellImgFactory< T > factory,
+			final CellGrid grid,
+			final ListImg< Cell< A > > imgOfCells,
+			final Fraction entitiesPerPixel,
+			final File file,
+			final List< MappedByteBuffer > regions )
+	{
+		super( factory, grid, imgOfCells, entitiesPerPixel );
+		this.file = file;
+		this.regions = regions;
+	}
+
+	/**
+	 * Get the file that backs the pixel data of this image. Cells are stored
+	 * consecutively in flat cell grid order, each cell in flattened (x
+	 * fastest) order.
+	 *
+	 * @return the backing file
+	 */
+	public File getFile()
+	{
+		return file;
+	}
+
+	/**
+	 * Force all changes made to the pixel data to be written to the backing
+	 * file (see {@link MappedByteBuffer#force()}).
+	 */
+	public void flush()
+	{
+		for ( final MappedByteBuffer region : regions )
+			region.force();
+	}
+
+	@Override
+	public MappedCellImgFactory< T > factory()
+	{
+		return ( MappedCellImgFactory< T > ) super.factory();
+	}
+
+	@Override
+	public MappedCellImg< T, A > copy()
+	{
+		@SuppressWarnings( "unchecked" )
+		final MappedCellImg< T, A > copy = ( MappedCellImg< T, A > ) factory().create( dimension );
+		copyDataTo( copy );
+		return copy;
+	}
+}
@@ -0,0 +1,300 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.Dimensions;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.basictypeaccess.nio.BufferAccess;
+import net.imglib2.img.basictypeaccess.nio.BufferDataAccessFactory;
+import net.imglib2.img.cell.CellGrid.CellDimensionsAndSteps;
+import net.imglib2.img.list.ListImg;
+import net.imglib2.img.list.ListLocalizingCursor;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+
+/**
+ * Factory for creating {@link MappedCellImg MappedCellImgs}, that is, {@link
+ * CellImg}s whose cells are backed by memory-mapped regions of a local file.
+ * <p>
+ * Every {@link #create} call creates a new file in the {@code directory}
+ * given to the constructor. The file is sized to hold all cells, but (on file
+ * systems that support sparse files) no disk space is used until pixels are
+ * written. Each cell is a {@link BufferAccess} on a slice of a {@link
+ * MappedByteBuffer}. Modified pixels are written back to the file by the
+ * operating system (use {@link MappedCellImg#flush()} to force this).
+ * <p>
+ * Because a single {@code MappedByteBuffer} cannot exceed 2GB, the file is
+ * mapped in several regions of at most {@code maxRegionBytes} each. Cells
+ * never straddle region boundaries.
+ * <p>
+ * Only {@code NativeType}s that are backed by a primitive type with a {@link
+ * BufferAccess} implementation are supported (that is, all primitive types
+ * except {@code boolean}).
+ *
+ * @param <T>
+ *            the pixel type
+ */
+public class MappedCellImgFactory< T extends NativeType< T > > extends CellImgFactory< T >
+{
+	/**
+	 * Default maximum size of a mapped region of the file (1 GB).
+	 */
+	public static final long DEFAULT_MAX_REGION_BYTES = 1L << 30;
+
+	private final File directory;
+
+	private final int[] defaultCellDimensions;
+
+	private final ByteOrder byteOrder;
+
+	private final long maxRegionBytes;
+
+	private final boolean deleteOnExit;
+
+	/**
+	 * Create a factory that creates {@link MappedCellImg}s with files in the
+	 * given {@code directory}. Cells are of size <em>64 x 64 x ... x 64</em>,
+	 * pixels are stored in native byte order, and files are deleted when the
+	 * virtual machine terminates.
+	 *
+	 * @param type
+	 *            the pixel type
+	 * @param directory
+	 *            directory in which to create the files
+	 */
+	public MappedCellImgFactory( final T type, final File directory )
+	{
+		this( type, directory, 64 );
+	}
+
+	/**
+	 * Create a factory that creates {@link MappedCellImg}s with files in the
+	 * given {@code directory}. Pixels are stored in native byte order, and
+	 * files are deleted when the virtual machine terminates.
+	 *
+	 * @param type
+	 *            the pixel type
+	 * @param directory
+	 *            directory in which to create the files
+	 * @param cellDimensions
+	 *            dimensions of a standard cell
+	 */
+	public MappedCellImgFactory( final T type, final File directory, final int... cellDimensions )
+	{
+		this( type, directory, ByteOrder.nativeOrder(), DEFAULT_MAX_REGION_BYTES, true, cellDimensions );
+	}
+
+	/**
+	 * Create a factory that creates {@link MappedCellImg}s with files in the
+	 * given {@code directory}.
+	 *
+	 * @param type
+	 *            the pixel type
+	 * @param directory
+	 *            directory in which to create the files
+	 * @param byteOrder
+	 *            byte order of pixel data in the files
+	 * @param maxRegionBytes
+	 *            maximum size of a single mapped region of a file. Must be
+	 *            large enough to hold one cell, and at most {@code
+	 *            Integer.MAX_VALUE}.
+	 * @param deleteOnExit
+	 *            whether created files should be deleted when the virtual
+	 *            machine terminates
+	 * @param cellDimensions
+	 *            dimensions of a standard cell
+	 */
+	public MappedCellImgFactory(
+			final T type,
+			final File directory,
+			final ByteOrder byteOrder,
+			final long maxRegionBytes,
+			final boolean deleteOnExit,
+			final int... cellDimensions )
+	{
+		super( type, cellDimensions );
+		if ( maxRegionBytes <= 0 || maxRegionBytes > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "maxRegionBytes must be in range [1, Integer.MAX_VALUE]" );
+		this.directory = directory;
+		this.defaultCellDimensions = Dimensions.verify( cellDimensions ).clone();
+		this.byteOrder = byteOrder;
+		this.maxRegionBytes = maxRegionBytes;
+		this.deleteOnExit = deleteOnExit;
+	}
+
+	@Override
+	public MappedCellImg< T, ? > create( final long... dimensions )
+	{
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final MappedCellImg< T, ? > img = create( dimensions, type(), ( NativeTypeFactory ) type().getNativeTypeFactory() );
+		return img;
+	}
+
+	@Override
+	public MappedCellImg< T, ? > create( final Dimensions dimensions )
+	{
+		return create( Intervals.dimensionsAsLongArray( dimensions ) );
+	}
+
+	@Override
+	public MappedCellImg< T, ? > create( final int[] dimensions )
+	{
+		return create( Util.int2long( dimensions ) );
+	}
+
+	private < A extends BufferAccess< A > > MappedCellImg< T, A > create(
+			final long[] dimensions,
+			final T type,
+			final NativeTypeFactory< T, ? super A > typeFactory )
+	{
+		Dimensions.verify( dimensions );
+
+		final int n = dimensions.length;
+		final Fraction entitiesPerPixel = type.getEntitiesPerPixel();
+		final int[] cellDimensions = getCellDimensions( defaultCellDimensions, n, entitiesPerPixel );
+
+		final CellGrid grid = new CellGrid( dimensions, cellDimensions );
+		final long[] gridDimensions = new long[ grid.numDimensions() ];
+		grid.gridDimensions( gridDimensions );
+
+		final A access = BufferDataAccessFactory.get( typeFactory );
+		final int bytesPerEntity = access.getNumBytesPerEntity();
+		final long maxCellBytes = entitiesPerPixel.mulCeil( Intervals.numElements( cellDimensions ) ) * bytesPerEntity;
+		if ( maxCellBytes > maxRegionBytes )
+			throw new IllegalArgumentException( "Cell size (" + maxCellBytes + " bytes) exceeds maxRegionBytes (" + maxRegionBytes + " bytes). Use smaller cell size." );
+
+		// compute total file size
+		final Cell< A > cellType = new Cell<>( new int[] { 1 }, new long[] { 1 }, null );
+		final ListImg< Cell< A > > cells = new ListImg<>( gridDimensions, cellType );
+		final long[] cellGridPosition = new long[ n ];
+		long totalBytes = 0;
+		final ListLocalizingCursor< Cell< A > > sizeCursor = cells.localizingCursor();
+		while ( sizeCursor.hasNext() )
+		{
+			sizeCursor.fwd();
+			sizeCursor.localize( cellGridPosition );
+			final CellDimensionsAndSteps dimsAndSteps = grid.getCellDimensions( cellGridPosition, new long[ n ] );
+			totalBytes += entitiesPerPixel.mulCeil( dimsAndSteps.numPixels() ) * bytesPerEntity;
+		}
+
+		final File file;
+		final List< MappedByteBuffer > regions = new ArrayList<>();
+		try
+		{
+			file = File.createTempFile( "imglib2-cells-", ".raw", directory );
+			if ( deleteOnExit )
+				file.deleteOnExit();
+			try ( final RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+					final FileChannel channel = raf.getChannel() )
+			{
+				raf.setLength( totalBytes );
+
+				MappedByteBuffer region = null;
+				long regionStart = 0;
+				long offset = 0;
+				final ListLocalizingCursor< Cell< A > > cellCursor = cells.localizingCursor();
+				while ( cellCursor.hasNext() )
+				{
+					cellCursor.fwd();
+					cellCursor.localize( cellGridPosition );
+					final long[] cellMin = new long[ n ];
+					final CellDimensionsAndSteps dimsAndSteps = grid.getCellDimensions( cellGridPosition, cellMin );
+					final int numEntities = ( int ) entitiesPerPixel.mulCeil( dimsAndSteps.numPixels() );
+					final long cellBytes = ( long ) numEntities * bytesPerEntity;
+
+					if ( region == null || offset + cellBytes > regionStart + region.capacity() )
+					{
+						regionStart = offset;
+						region = channel.map( FileChannel.MapMode.READ_WRITE, regionStart, Math.min( maxRegionBytes, totalBytes - regionStart ) );
+						regions.add( region );
+					}
+
+					final ByteBuffer slice = slice( region, ( int ) ( offset - regionStart ), ( int ) cellBytes );
+					cellCursor.set( new Cell<>( dimsAndSteps, cellMin, access.newInstance( slice, true ) ) );
+					offset += cellBytes;
+				}
+			}
+		}
+		catch ( final IOException e )
+		{
+			throw new UncheckedIOException( e );
+		}
+
+		final MappedCellImg< T, A > img = new MappedCellImg<>( this, grid, cells, entitiesPerPixel, file, regions );
+		img.setLinkedType( typeFactory.createLinkedType( img ) );
+		return img;
+	}
+
+	private ByteBuffer slice( final ByteBuffer region, final int position, final int length )
+	{
+		final ByteBuffer dup = region.duplicate();
+		dup.limit( position + length );
+		dup.position( position );
+		return dup.slice().order( byteOrder );
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	@Override
+	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
+	{
+		if ( NativeType.class.isInstance( type ) )
+			return new MappedCellImgFactory( ( NativeType ) type, directory, byteOrder, maxRegionBytes, deleteOnExit, defaultCellDimensions );
+		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
+	}
+
+	@Deprecated
+	@Override
+	public MappedCellImg< T, ? > create( final long[] dimensions, final T type )
+	{
+		cache( type );
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final MappedCellImg< T, ? > img = create( dimensions, type, ( NativeTypeFactory ) type.getNativeTypeFactory() );
+		return img;
+	}
+}
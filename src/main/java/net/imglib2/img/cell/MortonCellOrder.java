@@ -0,0 +1,194 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.util.Arrays;
+
+import net.imglib2.Localizable;
+
+/**
+ * Maps between the grid coordinates of cells and their index in
+ * {@link CellOrder#MORTON Morton} iteration order, and between the global
+ * index of a pixel in {@link CellIterationOrder} and the cell containing it.
+ * <p>
+ * Grid coordinates are encoded as interleaved bits. Dimensions with fewer
+ * cells contribute fewer bits, so elongated grids do not waste code space.
+ * The Morton codes of all cells are computed and sorted once, together with
+ * the global index of the first pixel of each cell. Conversions from
+ * coordinates to iteration index are binary searches on the sorted codes.
+ */
+final class MortonCellOrder
+{
+	private final int n;
+
+	private final int[] bits;
+
+	private final int maxBits;
+
+	/**
+	 * Morton codes of all cells, sorted. {@code codes[i]} is the code of the
+	 * {@code i}th cell in iteration order.
+	 */
+	private final long[] codes;
+
+	/**
+	 * {@code firstPixel[i]} is the global index of the first pixel of the
+	 * {@code i}th cell in iteration order. {@code firstPixel[numCells]} is the
+	 * total number of pixels.
+	 */
+	private final long[] firstPixel;
+
+	MortonCellOrder( final CellGrid grid )
+	{
+		n = grid.numDimensions();
+		final long[] numCells = grid.getGridDimensions();
+
+		bits = new int[ n ];
+		int totalBits = 0;
+		int mb = 0;
+		long size = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			bits[ d ] = 64 - Long.numberOfLeadingZeros( numCells[ d ] - 1 );
+			totalBits += bits[ d ];
+			mb = Math.max( mb, bits[ d ] );
+			size *= numCells[ d ];
+		}
+		maxBits = mb;
+		if ( totalBits > 63 )
+			throw new IllegalArgumentException( "Cell grid " + Arrays.toString( numCells ) + " is too large for Morton order." );
+		if ( size > Integer.MAX_VALUE - 8 )
+			throw new IllegalArgumentException( "Too many cells (" + size + ") for Morton order." );
+
+		final int numCellsTotal = ( int ) size;
+		codes = new long[ numCellsTotal ];
+		final long[] pos = new long[ n ];
+		for ( int i = 0; i < numCellsTotal; ++i )
+		{
+			codes[ i ] = encode( pos );
+			for ( int d = 0; d < n; ++d )
+			{
+				if ( ++pos[ d ] < numCells[ d ] )
+					break;
+				pos[ d ] = 0;
+			}
+		}
+		Arrays.sort( codes );
+
+		firstPixel = new long[ numCellsTotal + 1 ];
+		for ( int i = 0; i < numCellsTotal; ++i )
+		{
+			decode( codes[ i ], pos );
+			long numPixels = 1;
+			for ( int d = 0; d < n; ++d )
+				numPixels *= grid.getCellDimension( d, pos[ d ] );
+			firstPixel[ i + 1 ] = firstPixel[ i ] + numPixels;
+		}
+	}
+
+	long encode( final long[] gridPosition )
+	{
+		long code = 0;
+		int bit = 0;
+		for ( int l = 0; l < maxBits; ++l )
+			for ( int d = 0; d < n; ++d )
+				if ( l < bits[ d ] )
+					code |= ( ( gridPosition[ d ] >> l ) & 1 ) << bit++;
+		return code;
+	}
+
+	long encode( final Localizable gridPosition )
+	{
+		long code = 0;
+		int bit = 0;
+		for ( int l = 0; l < maxBits; ++l )
+			for ( int d = 0; d < n; ++d )
+				if ( l < bits[ d ] )
+					code |= ( ( gridPosition.getLongPosition( d ) >> l ) & 1 ) << bit++;
+		return code;
+	}
+
+	void decode( final long code, final long[] gridPosition )
+	{
+		Arrays.fill( gridPosition, 0, n, 0 );
+		int bit = 0;
+		for ( int l = 0; l < maxBits; ++l )
+			for ( int d = 0; d < n; ++d )
+				if ( l < bits[ d ] )
+					gridPosition[ d ] |= ( ( code >> bit++ ) & 1 ) << l;
+	}
+
+	/**
+	 * Get the iteration index of the cell with the given grid coordinates.
+	 */
+	long iterationIndex( final long[] gridPosition )
+	{
+		return Arrays.binarySearch( codes, encode( gridPosition ) );
+	}
+
+	/**
+	 * Get the iteration index of the cell with the given grid coordinates.
+	 */
+	long iterationIndex( final Localizable gridPosition )
+	{
+		return Arrays.binarySearch( codes, encode( gridPosition ) );
+	}
+
+	/**
+	 * Get the grid coordinates of the cell with the given iteration index.
+	 */
+	void gridPosition( final long iterationIndex, final long[] gridPosition )
+	{
+		decode( codes[ ( int ) iterationIndex ], gridPosition );
+	}
+
+	/**
+	 * Get the global index of the first pixel in the cell with the given
+	 * iteration index.
+	 */
+	long indexOfFirstPixelInCell( final long iterationIndex )
+	{
+		return firstPixel[ ( int ) iterationIndex ];
+	}
+
+	/**
+	 * Get the iteration index of the cell containing the pixel with the given
+	 * global index.
+	 */
+	long iterationIndexOfPixel( final long index )
+	{
+		final int i = Arrays.binarySearch( firstPixel, index );
+		return i >= 0 ? i : -i - 2;
+	}
+}
@@ -0,0 +1,214 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.util.Arrays;
+
+import net.imglib2.type.NativeType;
+
+/**
+ * {@link CellRandomAccess} that also caches the cells in the
+ * 3<sup><em>n</em></sup> neighbourhood of a recently visited cell, so that
+ * moving back and forth across cell borders (e.g., for neighbourhood access
+ * near cell borders) does not repeat the cell lookup. The cache is
+ * re-centered when a cell outside the neighbourhood is visited.
+ * <p>
+ * Cached {@code Cell} objects are reused when revisited, so this must only be
+ * used if the cells returned by {@code img.getCells()} never change (see
+ * {@link AbstractCellImg#setCacheNeighbourCells(boolean)}).
+ */
+class NeighbourCachingCellRandomAccess< T extends NativeType< T >, C extends Cell< ? > > extends CellRandomAccess< T, C >
+{
+	/**
+	 * Neighbour cells are cached only up to this dimensionality.
+	 */
+	static final int MAX_CACHED_NEIGHBOURHOOD_DIMENSIONS = 5;
+
+	/**
+	 * Grid position of the cell at the center of the cached neighbourhood.
+	 * This is {@code null} only while the super constructor runs.
+	 */
+	private final long[] anchor;
+
+	/**
+	 * For each cell of the cached neighbourhood (flattened): whether the
+	 * neighbour's {@code cellSteps}, {@code cellMin}, {@code cellMax} are
+	 * cached (at offset {@code i * n} in the respective array), and the cell
+	 * itself (if it was already retrieved).
+	 */
+	private final boolean[] neighbourValid;
+
+	private final int[] neighbourSteps;
+
+	private final long[] neighbourMin;
+
+	private final long[] neighbourMax;
+
+	private final Object[] neighbourCells;
+
+	/**
+	 * Index of the current cell in the cached neighbourhood.
+	 */
+	private int currentNeighbour;
+
+	NeighbourCachingCellRandomAccess( final NeighbourCachingCellRandomAccess< T, C > randomAccess )
+	{
+		super( randomAccess );
+		anchor = new long[ n ];
+		final int numNeighbours = randomAccess.neighbourValid.length;
+		neighbourValid = new boolean[ numNeighbours ];
+		neighbourSteps = new int[ numNeighbours * n ];
+		neighbourMin = new long[ numNeighbours * n ];
+		neighbourMax = new long[ numNeighbours * n ];
+		neighbourCells = new Object[ numNeighbours ];
+		center();
+	}
+
+	NeighbourCachingCellRandomAccess( final AbstractCellImg< T, ?, C, ? > img )
+	{
+		super( img );
+		if ( n > MAX_CACHED_NEIGHBOURHOOD_DIMENSIONS )
+			throw new IllegalArgumentException( "Neighbour cells are cached only up to " + MAX_CACHED_NEIGHBOURHOOD_DIMENSIONS + " dimensions" );
+		anchor = new long[ n ];
+		final int numNeighbours = ( int ) Math.pow( 3, n );
+		neighbourValid = new boolean[ numNeighbours ];
+		neighbourSteps = new int[ numNeighbours * n ];
+		neighbourMin = new long[ numNeighbours * n ];
+		neighbourMax = new long[ numNeighbours * n ];
+		neighbourCells = new Object[ numNeighbours ];
+		center();
+	}
+
+	/**
+	 * Center the (empty) neighbourhood on the current cell.
+	 */
+	private void center()
+	{
+		randomAccessOnCells.localize( anchor );
+		currentNeighbour = neighbourValid.length / 2;
+		if ( !isOutOfBounds )
+			storeNeighbour( currentNeighbour );
+	}
+
+	@SuppressWarnings( "unchecked" )
+	@Override
+	public C getCell()
+	{
+		Object cell = neighbourCells[ currentNeighbour ];
+		if ( cell == null )
+		{
+			cell = randomAccessOnCells.get();
+			neighbourCells[ currentNeighbour ] = cell;
+		}
+		return ( C ) cell;
+	}
+
+	@Override
+	public NeighbourCachingCellRandomAccess< T, C > copy()
+	{
+		return new NeighbourCachingCellRandomAccess<>( this );
+	}
+
+	/**
+	 * Set currentCellSteps, currentCellMin, currentCellMax, and typeIndex for
+	 * the cell at the current randomAccessOnCells position, using the cached
+	 * neighbourhood if possible. If the cell is not in the neighbourhood of the
+	 * anchor cell, the neighbourhood is re-centered on the cell.
+	 */
+	@Override
+	protected void updateCell()
+	{
+		if ( anchor == null )
+		{
+			// NB: called from the super constructor
+			super.updateCell();
+			return;
+		}
+
+		int i = 0;
+		for ( int d = n - 1; d >= 0; --d )
+		{
+			final long o = randomAccessOnCells.getLongPosition( d ) - anchor[ d ];
+			if ( o < -1 || o > 1 )
+			{
+				i = -1;
+				break;
+			}
+			i = 3 * i + ( int ) o + 1;
+		}
+
+		if ( i < 0 )
+		{
+			randomAccessOnCells.localize( anchor );
+			Arrays.fill( neighbourValid, false );
+			Arrays.fill( neighbourCells, null );
+			i = neighbourValid.length / 2;
+		}
+		currentNeighbour = i;
+
+		if ( neighbourValid[ i ] )
+		{
+			int index = 0;
+			for ( int d = 0, o = i * n; d < n; ++d, ++o )
+			{
+				currentCellSteps[ d ] = neighbourSteps[ o ];
+				currentCellMin[ d ] = neighbourMin[ o ];
+				currentCellMax[ d ] = neighbourMax[ o ];
+				index += neighbourSteps[ o ] * ( int ) ( position[ d ] - neighbourMin[ o ] );
+			}
+			typeIndex.set( index );
+		}
+		else
+		{
+			super.updateCell();
+			storeNeighbour( i );
+		}
+	}
+
+	/**
+	 * Store currentCellSteps, currentCellMin, currentCellMax as the {@code i}-th
+	 * neighbour.
+	 */
+	private void storeNeighbour( final int i )
+	{
+		for ( int d = 0, o = i * n; d < n; ++d, ++o )
+		{
+			neighbourSteps[ o ] = currentCellSteps[ d ];
+			neighbourMin[ o ] = currentCellMin[ d ];
+			neighbourMax[ o ] = currentCellMax[ d ];
+		}
+		neighbourValid[ i ] = true;
+		neighbourCells[ i ] = null;
+	}
+}
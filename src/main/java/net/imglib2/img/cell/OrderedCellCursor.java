@@ -0,0 +1,137 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import net.imglib2.AbstractCursor;
+import net.imglib2.RandomAccess;
+
+/**
+ * A {@code Cursor} over the cells of an image of cells, visiting them in the
+ * {@link CellGrid#getCellOrder() cell order} of a {@link CellGrid}. The cursor
+ * position is the grid position of the current cell.
+ *
+ * @param <C>
+ *            the cell type
+ */
+class OrderedCellCursor< C > extends AbstractCursor< C >
+{
+	private final CellGrid grid;
+
+	private final RandomAccess< C > access;
+
+	private final long lastIndex;
+
+	private final long[] position;
+
+	private long index;
+
+	OrderedCellCursor( final CellGrid grid, final RandomAccess< C > access )
+	{
+		super( grid.numDimensions() );
+		this.grid = grid;
+		this.access = access;
+		long numCells = 1;
+		for ( int d = 0; d < n; ++d )
+			numCells *= grid.gridDimension( d );
+		lastIndex = numCells - 1;
+		position = new long[ n ];
+		index = -1;
+	}
+
+	private OrderedCellCursor( final OrderedCellCursor< C > cursor )
+	{
+		super( cursor.n );
+		grid = cursor.grid;
+		access = cursor.access.copy();
+		lastIndex = cursor.lastIndex;
+		position = cursor.position.clone();
+		index = cursor.index;
+	}
+
+	@Override
+	public C get()
+	{
+		return access.get();
+	}
+
+	@Override
+	public C getType()
+	{
+		return access.getType();
+	}
+
+	@Override
+	public void fwd()
+	{
+		jumpFwd( 1 );
+	}
+
+	@Override
+	public void jumpFwd( final long steps )
+	{
+		index += steps;
+		grid.getCellGridPositionAtIterationIndex( index, position );
+		access.setPosition( position );
+	}
+
+	@Override
+	public void reset()
+	{
+		index = -1;
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		return index < lastIndex;
+	}
+
+	@Override
+	public void localize( final long[] pos )
+	{
+		System.arraycopy( position, 0, pos, 0, n );
+	}
+
+	@Override
+	public long getLongPosition( final int d )
+	{
+		return position[ d ];
+	}
+
+	@Override
+	public OrderedCellCursor< C > copy()
+	{
+		return new OrderedCellCursor<>( this );
+	}
+}
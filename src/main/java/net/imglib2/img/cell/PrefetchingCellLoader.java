@@ -0,0 +1,268 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.imglib2.img.cell.LazyCellImg.Get;
+
+/**
+ * A {@link LazyCellImg} cell loader that asynchronously loads the cells
+ * following the most recently requested cell in {@link CellIterationOrder}
+ * into a {@link BoundedCellCache}.
+ * <p>
+ * When a {@link CellCursor} or {@code CellSpliterator} walks a
+ * {@link LazyCellImg}, it requests cells one after another in iteration
+ * order. Whenever a new cell is requested, this loader submits loading of the
+ * next {@code numPrefetch} cells to a bounded executor. Loading (I/O,
+ * decompression, etc.) of upcoming cells then overlaps with processing the
+ * current cell. If a cell is requested while it is still being prefetched,
+ * the request waits for the pending load instead of loading the cell again
+ * (see {@link BoundedCellCache}).
+ * <p>
+ * {@code PrimitiveBlocks.copy} on a {@link LazyCellImg} with a
+ * {@code PrefetchingCellLoader} {@link #prefetch(long) prefetches} all cells
+ * touched by the requested region before copying.
+ * <p>
+ * Prefetch requests that cannot be queued because the executor is saturated
+ * are dropped. The cache should be large enough to hold at least
+ * {@code numPrefetch + 1} cells per concurrent traversal, otherwise
+ * prefetched cells may be evicted before they are used.
+ *
+ * @param <A>
+ *            access type of the cells
+ */
+public class PrefetchingCellLoader< A > implements Get< Cell< A > >, AutoCloseable
+{
+	private final CellGrid grid;
+
+	private final BoundedCellCache< A > cache;
+
+	private final int numPrefetch;
+
+	private final long numCells;
+
+	private final ExecutorService executor;
+
+	private final boolean ownsExecutor;
+
+	/**
+	 * Indices of cells that are queued for prefetching.
+	 */
+	private final Set< Long > queued = ConcurrentHashMap.newKeySet();
+
+	private volatile long lastIndex = -1;
+
+	private final AtomicLong prefetchCount = new AtomicLong();
+
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	/**
+	 * Create a prefetching loader that uses {@code numThreads} daemon threads
+	 * to load cells. Call {@link #close()} to shut them down.
+	 *
+	 * @param grid
+	 *            the cell grid of the {@link LazyCellImg}
+	 * @param cache
+	 *            cache that loads and holds the cells
+	 * @param numPrefetch
+	 *            how many cells following the current cell (in iteration
+	 *            order) to prefetch
+	 * @param numThreads
+	 *            number of threads used for prefetching
+	 */
+	public PrefetchingCellLoader( final CellGrid grid, final BoundedCellCache< A > cache, final int numPrefetch, final int numThreads )
+	{
+		this( grid, cache, numPrefetch, createExecutor( numThreads, Math.max( 1, numPrefetch ) * numThreads ), true );
+	}
+
+	/**
+	 * Create a prefetching loader that submits cell loading to the given
+	 * {@code executor}. The executor should be bounded (for example, a
+	 * {@code ThreadPoolExecutor} with a bounded queue). Prefetch requests that
+	 * are rejected by the executor are dropped.
+	 *
+	 * @param grid
+	 *            the cell grid of the {@link LazyCellImg}
+	 * @param cache
+	 *            cache that loads and holds the cells
+	 * @param numPrefetch
+	 *            how many cells following the current cell (in iteration
+	 *            order) to prefetch
+	 * @param executor
+	 *            used to load cells asynchronously
+	 */
+	public PrefetchingCellLoader( final CellGrid grid, final BoundedCellCache< A > cache, final int numPrefetch, final ExecutorService executor )
+	{
+		this( grid, cache, numPrefetch, executor, false );
+	}
+
+	private PrefetchingCellLoader( final CellGrid grid, final BoundedCellCache< A > cache, final int numPrefetch, final ExecutorService executor, final boolean ownsExecutor )
+	{
+		if ( numPrefetch < 0 )
+			throw new IllegalArgumentException( "numPrefetch must not be negative" );
+		this.grid = grid;
+		this.cache = cache;
+		this.numPrefetch = numPrefetch;
+		this.executor = executor;
+		this.ownsExecutor = ownsExecutor;
+		long size = 1;
+		for ( int d = 0; d < grid.numDimensions(); ++d )
+			size *= grid.gridDimension( d );
+		numCells = size;
+	}
+
+	private static ExecutorService createExecutor( final int numThreads, final int queueCapacity )
+	{
+		final AtomicInteger threadCount = new AtomicInteger();
+		final ThreadFactory threadFactory = r -> {
+			final Thread thread = new Thread( r, "imglib2-cell-prefetch-" + threadCount.incrementAndGet() );
+			thread.setDaemon( true );
+			return thread;
+		};
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor( numThreads, numThreads, 10, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>( queueCapacity ), threadFactory, new ThreadPoolExecutor.AbortPolicy() );
+		executor.allowCoreThreadTimeOut( true );
+		return executor;
+	}
+
+	@Override
+	public Cell< A > get( final long index )
+	{
+		if ( numPrefetch > 0 && index != lastIndex )
+		{
+			lastIndex = index;
+			prefetchFollowing( index );
+		}
+		return cache.get( index );
+	}
+
+	/**
+	 * Prefetch the {@code numPrefetch} cells following the cell with the
+	 * given flattened grid {@code index} in iteration order.
+	 */
+	private void prefetchFollowing( final long index )
+	{
+		final long[] gridPosition = new long[ grid.numDimensions() ];
+		grid.getCellGridPositionFlat( index, gridPosition );
+		final long iterationIndex = grid.getCellIterationIndex( gridPosition );
+		final long last = Math.min( numCells - 1, iterationIndex + numPrefetch );
+		for ( long i = iterationIndex + 1; i <= last; ++i )
+		{
+			grid.getCellGridPositionAtIterationIndex( i, gridPosition );
+			prefetch( grid.getCellGridIndexFlat( gridPosition ) );
+		}
+	}
+
+	/**
+	 * Asynchronously load the cell with the given flattened grid
+	 * {@code index}, unless it is already cached, being loaded, or queued.
+	 *
+	 * @param index
+	 *            flattened grid index of the cell
+	 */
+	public void prefetch( final long index )
+	{
+		if ( cache.contains( index ) || !queued.add( index ) )
+			return;
+		try
+		{
+			executor.execute( () -> {
+				try
+				{
+					cache.get( index );
+					prefetchCount.incrementAndGet();
+				}
+				catch ( final RuntimeException e )
+				{
+					// NB: The error will surface when the cell is requested.
+				}
+				finally
+				{
+					queued.remove( index );
+				}
+			} );
+		}
+		catch ( final RejectedExecutionException e )
+		{
+			queued.remove( index );
+			droppedCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Get the cache that holds the cells.
+	 */
+	public BoundedCellCache< A > getCache()
+	{
+		return cache;
+	}
+
+	/**
+	 * Get the number of cells that have been prefetched.
+	 */
+	public long prefetchCount()
+	{
+		return prefetchCount.get();
+	}
+
+	/**
+	 * Get the number of prefetch requests that were dropped because the
+	 * executor was saturated.
+	 */
+	public long droppedCount()
+	{
+		return droppedCount.get();
+	}
+
+	/**
+	 * Shut down the prefetching threads, if they were created by this loader.
+	 * Cells can still be loaded synchronously after closing.
+	 */
+	@Override
+	public void close()
+	{
+		if ( ownsExecutor )
+			executor.shutdownNow();
+	}
+}
@@ -0,0 +1,281 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+
+import net.imglib2.type.PrimitiveType;
+
+/**
+ * Bulk copies between primitive storage (Java arrays or typed {@link Buffer}s)
+ * and {@link ByteBuffer}s. Values are converted to and from the byte order of
+ * the {@code ByteBuffer}.
+ */
+final class PrimitiveArrayBuffers
+{
+	private PrimitiveArrayBuffers()
+	{}
+
+	/**
+	 * Copy the first {@code length} elements of {@code src} into {@code dst}.
+	 *
+	 * @see #put(PrimitiveType, Object, int, int, ByteBuffer)
+	 */
+	static void put( final PrimitiveType primitiveType, final Object src, final int length, final ByteBuffer dst )
+	{
+		put( primitiveType, src, 0, length, dst );
+	}
+
+	/**
+	 * Copy {@code length} elements of {@code src}, starting at element {@code
+	 * offset}, into {@code dst}, starting at the current position of {@code
+	 * dst}, and advance the position of {@code dst}.
+	 *
+	 * @param primitiveType
+	 *            primitive type of the elements
+	 * @param src
+	 *            a primitive array or typed {@link Buffer} (which is not
+	 *            modified)
+	 * @param offset
+	 *            index of the first element of {@code src} to copy
+	 * @param length
+	 *            number of elements to copy
+	 * @param dst
+	 *            destination buffer
+	 */
+	static void put( final PrimitiveType primitiveType, final Object src, final int offset, final int length, final ByteBuffer dst )
+	{
+		final int pos = dst.position();
+		if ( src instanceof Buffer )
+		{
+			final Buffer s = duplicate( src );
+			s.clear();
+			s.limit( offset + length );
+			s.position( offset );
+			switch ( primitiveType )
+			{
+			case BYTE:
+				dst.duplicate().put( ( ByteBuffer ) s );
+				break;
+			case CHAR:
+				dst.asCharBuffer().put( ( CharBuffer ) s );
+				break;
+			case SHORT:
+				dst.asShortBuffer().put( ( ShortBuffer ) s );
+				break;
+			case INT:
+				dst.asIntBuffer().put( ( IntBuffer ) s );
+				break;
+			case LONG:
+				dst.asLongBuffer().put( ( LongBuffer ) s );
+				break;
+			case FLOAT:
+				dst.asFloatBuffer().put( ( FloatBuffer ) s );
+				break;
+			case DOUBLE:
+				dst.asDoubleBuffer().put( ( DoubleBuffer ) s );
+				break;
+			default:
+				throw new IllegalArgumentException( "Unsupported primitive type " + primitiveType );
+			}
+		}
+		else
+		{
+			switch ( primitiveType )
+			{
+			case BOOLEAN:
+			{
+				final boolean[] a = ( boolean[] ) src;
+				for ( int i = 0; i < length; ++i )
+					dst.put( pos + i, a[ offset + i ] ? ( byte ) 1 : ( byte ) 0 );
+				break;
+			}
+			case BYTE:
+				dst.duplicate().put( ( byte[] ) src, offset, length );
+				break;
+			case CHAR:
+				dst.asCharBuffer().put( ( char[] ) src, offset, length );
+				break;
+			case SHORT:
+				dst.asShortBuffer().put( ( short[] ) src, offset, length );
+				break;
+			case INT:
+				dst.asIntBuffer().put( ( int[] ) src, offset, length );
+				break;
+			case LONG:
+				dst.asLongBuffer().put( ( long[] ) src, offset, length );
+				break;
+			case FLOAT:
+				dst.asFloatBuffer().put( ( float[] ) src, offset, length );
+				break;
+			case DOUBLE:
+				dst.asDoubleBuffer().put( ( double[] ) src, offset, length );
+				break;
+			default:
+				throw new IllegalArgumentException( "Unsupported primitive type " + primitiveType );
+			}
+		}
+		dst.position( pos + length * primitiveType.getByteCount() );
+	}
+
+	/**
+	 * Copy {@code length} elements from {@code src} into the first elements of
+	 * {@code dst}.
+	 *
+	 * @see #get(PrimitiveType, ByteBuffer, Object, int, int)
+	 */
+	static void get( final PrimitiveType primitiveType, final ByteBuffer src, final Object dst, final int length )
+	{
+		get( primitiveType, src, dst, 0, length );
+	}
+
+	/**
+	 * Copy {@code length} elements from {@code src}, starting at the current
+	 * position of {@code src}, into {@code dst}, starting at element {@code
+	 * offset}, and advance the position of
+	 * {@code src}.
+	 *
+	 * @param primitiveType
+	 *            primitive type of the elements
+	 * @param src
+	 *            source buffer
+	 * @param dst
+	 *            a primitive array or typed {@link Buffer} (whose position is
+	 *            not modified)
+	 * @param offset
+	 *            index of the first element of {@code dst} to copy to
+	 * @param length
+	 *            number of elements to copy
+	 */
+	static void get( final PrimitiveType primitiveType, final ByteBuffer src, final Object dst, final int offset, final int length )
+	{
+		final int pos = src.position();
+		if ( dst instanceof Buffer )
+		{
+			final Buffer d = duplicate( dst );
+			d.clear();
+			d.position( offset );
+			switch ( primitiveType )
+			{
+			case BYTE:
+				( ( ByteBuffer ) d ).put( ( ByteBuffer ) src.duplicate().limit( pos + length ) );
+				break;
+			case CHAR:
+				( ( CharBuffer ) d ).put( ( CharBuffer ) src.asCharBuffer().limit( length ) );
+				break;
+			case SHORT:
+				( ( ShortBuffer ) d ).put( ( ShortBuffer ) src.asShortBuffer().limit( length ) );
+				break;
+			case INT:
+				( ( IntBuffer ) d ).put( ( IntBuffer ) src.asIntBuffer().limit( length ) );
+				break;
+			case LONG:
+				( ( LongBuffer ) d ).put( ( LongBuffer ) src.asLongBuffer().limit( length ) );
+				break;
+			case FLOAT:
+				( ( FloatBuffer ) d ).put( ( FloatBuffer ) src.asFloatBuffer().limit( length ) );
+				break;
+			case DOUBLE:
+				( ( DoubleBuffer ) d ).put( ( DoubleBuffer ) src.asDoubleBuffer().limit( length ) );
+				break;
+			default:
+				throw new IllegalArgumentException( "Unsupported primitive type " + primitiveType );
+			}
+		}
+		else
+		{
+			switch ( primitiveType )
+			{
+			case BOOLEAN:
+			{
+				final boolean[] a = ( boolean[] ) dst;
+				for ( int i = 0; i < length; ++i )
+					a[ offset + i ] = src.get( pos + i ) != 0;
+				break;
+			}
+			case BYTE:
+				src.duplicate().get( ( byte[] ) dst, offset, length );
+				break;
+			case CHAR:
+				src.asCharBuffer().get( ( char[] ) dst, offset, length );
+				break;
+			case SHORT:
+				src.asShortBuffer().get( ( short[] ) dst, offset, length );
+				break;
+			case INT:
+				src.asIntBuffer().get( ( int[] ) dst, offset, length );
+				break;
+			case LONG:
+				src.asLongBuffer().get( ( long[] ) dst, offset, length );
+				break;
+			case FLOAT:
+				src.asFloatBuffer().get( ( float[] ) dst, offset, length );
+				break;
+			case DOUBLE:
+				src.asDoubleBuffer().get( ( double[] ) dst, offset, length );
+				break;
+			default:
+				throw new IllegalArgumentException( "Unsupported primitive type " + primitiveType );
+			}
+		}
+		src.position( pos + length * primitiveType.getByteCount() );
+	}
+
+	// NB: Buffer.duplicate() only exists in the Buffer base class since Java 9
+	private static Buffer duplicate( final Object buffer )
+	{
+		if ( buffer instanceof ByteBuffer )
+			return ( ( ByteBuffer ) buffer ).duplicate();
+		if ( buffer instanceof CharBuffer )
+			return ( ( CharBuffer ) buffer ).duplicate();
+		if ( buffer instanceof ShortBuffer )
+			return ( ( ShortBuffer ) buffer ).duplicate();
+		if ( buffer instanceof IntBuffer )
+			return ( ( IntBuffer ) buffer ).duplicate();
+		if ( buffer instanceof LongBuffer )
+			return ( ( LongBuffer ) buffer ).duplicate();
+		if ( buffer instanceof FloatBuffer )
+			return ( ( FloatBuffer ) buffer ).duplicate();
+		if ( buffer instanceof DoubleBuffer )
+			return ( ( DoubleBuffer ) buffer ).duplicate();
+		throw new IllegalArgumentException( "Unsupported buffer type " + buffer.getClass() );
+	}
+}
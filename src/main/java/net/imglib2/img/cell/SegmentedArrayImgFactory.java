@@ -0,0 +1,178 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import net.imglib2.Dimensions;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.NativeImg;
+import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+
+/**
+ * Factory for flat images of any size. Images whose data fits into a single
+ * primitive array are created as {@link ArrayImg}. Larger images are created
+ * as {@link CellImg} with <em>segment</em> cells: each cell spans the full
+ * image in the leading dimensions, a contiguous range in one dimension, and a
+ * single slice in all remaining dimensions. That is, the cells are consecutive
+ * segments of the flat (row-major) pixel array, and iterating the image visits
+ * pixels in flat order, switching cells only once per segment.
+ * <p>
+ * (The pixel accessors of {@code NativeType}s address pixels within a
+ * primitive array by {@code int} index, therefore a single {@code ArrayImg}
+ * cannot exceed {@code Integer.MAX_VALUE} entities.)
+ *
+ * @param <T>
+ *            the pixel type
+ */
+public class SegmentedArrayImgFactory< T extends NativeType< T > > extends NativeImgFactory< T >
+{
+	/**
+	 * The default maximum number of entities per segment. This is the largest
+	 * array size that is supported by common JVMs.
+	 */
+	public static final int DEFAULT_MAX_SEGMENT_ENTITIES = Integer.MAX_VALUE - 8;
+
+	private final int maxSegmentEntities;
+
+	public SegmentedArrayImgFactory( final T type )
+	{
+		this( type, DEFAULT_MAX_SEGMENT_ENTITIES );
+	}
+
+	/**
+	 * @param type
+	 *            the pixel type
+	 * @param maxSegmentEntities
+	 *            maximum number of entities in a single primitive array. Images
+	 *            up to this size are created as {@link ArrayImg}.
+	 */
+	public SegmentedArrayImgFactory( final T type, final int maxSegmentEntities )
+	{
+		super( type );
+		if ( maxSegmentEntities < 1 )
+			throw new IllegalArgumentException( "maxSegmentEntities must be positive" );
+		this.maxSegmentEntities = maxSegmentEntities;
+	}
+
+	@Override
+	public NativeImg< T, ? > create( final long... dimensions )
+	{
+		Dimensions.verify( dimensions );
+		final Fraction entitiesPerPixel = type().getEntitiesPerPixel();
+		if ( entitiesPerPixel.mulCeil( Intervals.numElements( dimensions ) ) <= maxSegmentEntities )
+			return new ArrayImgFactory<>( type() ).create( dimensions );
+		final int[] segmentDimensions = getSegmentDimensions( dimensions, entitiesPerPixel, maxSegmentEntities );
+		return new CellImgFactory<>( type(), segmentDimensions ).create( dimensions );
+	}
+
+	@Override
+	public NativeImg< T, ? > create( final Dimensions dimensions )
+	{
+		return create( Intervals.dimensionsAsLongArray( dimensions ) );
+	}
+
+	@Override
+	public NativeImg< T, ? > create( final int[] dimensions )
+	{
+		return create( Util.int2long( dimensions ) );
+	}
+
+	/**
+	 * Compute the cell dimensions of segments of an image with the given
+	 * {@code dimensions}, such that each segment holds at most {@code
+	 * maxSegmentEntities} entities.
+	 * <p>
+	 * The leading dimensions of a segment are the full image dimensions, as
+	 * far as they fit. The next dimension is split into as few parts of
+	 * (nearly) equal size as possible, and the remaining dimensions are 1.
+	 *
+	 * @param dimensions
+	 *            image dimensions
+	 * @param entitiesPerPixel
+	 *            number of entities per pixel of the pixel type
+	 * @param maxSegmentEntities
+	 *            maximum number of entities per segment
+	 *
+	 * @return segment cell dimensions
+	 */
+	public static int[] getSegmentDimensions( final long[] dimensions, final Fraction entitiesPerPixel, final int maxSegmentEntities )
+	{
+		// the number of pixels in a cell is limited to int range as well
+		final long maxPixels = Math.min(
+				maxSegmentEntities * entitiesPerPixel.getDenominator() / entitiesPerPixel.getNumerator(),
+				DEFAULT_MAX_SEGMENT_ENTITIES );
+		if ( maxPixels < 1 )
+			throw new IllegalArgumentException( "maxSegmentEntities is too small to hold a single pixel" );
+
+		final int n = dimensions.length;
+		final int[] segmentDimensions = new int[ n ];
+		long remaining = maxPixels;
+		int d = 0;
+		for ( ; d < n && dimensions[ d ] <= remaining; ++d )
+		{
+			segmentDimensions[ d ] = ( int ) dimensions[ d ];
+			remaining /= dimensions[ d ];
+		}
+		if ( d < n )
+		{
+			final long numParts = ( dimensions[ d ] + remaining - 1 ) / remaining;
+			segmentDimensions[ d ] = ( int ) ( ( dimensions[ d ] + numParts - 1 ) / numParts );
+			for ( ++d; d < n; ++d )
+				segmentDimensions[ d ] = 1;
+		}
+		return segmentDimensions;
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	@Override
+	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
+	{
+		if ( type instanceof NativeType )
+			return new SegmentedArrayImgFactory( ( NativeType ) type, maxSegmentEntities );
+		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
+	}
+
+	@Deprecated
+	@Override
+	public NativeImg< T, ? > create( final long[] dimensions, final T type )
+	{
+		return new SegmentedArrayImgFactory<>( type, maxSegmentEntities ).create( dimensions );
+	}
+}
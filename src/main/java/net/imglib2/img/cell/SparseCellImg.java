@@ -0,0 +1,297 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteAccess;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteAccess.Materializer;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.util.Intervals;
+
+/**
+ * A {@link CellImg}-like image whose cells are allocated lazily. Use {@link
+ * SparseCellImgFactory} to create {@code SparseCellImg}s.
+ * <p>
+ * Cells that have not been written to share immutable storage arrays that are
+ * filled with a constant background value (one shared array per distinct cell
+ * size). A cell gets its own storage array only when it is first written to
+ * (see {@link CopyOnWriteAccess}). Only materialized cells are retained;
+ * the access of a background cell is only weakly referenced, while it is in
+ * use by some accessor. Creating and reading a huge (mostly background) image
+ * is therefore essentially free, and memory consumption is proportional to
+ * the number of {@link #numMaterializedCells() materialized} cells.
+ *
+ * @param <T>
+ *            the pixel type
+ * @param <A>
+ *            the underlying native access type
+ */
+public class SparseCellImg< T extends NativeType< T >, A extends ArrayDataAccess< A > & CopyOnWriteAccess > extends LazyCellImg< T, A >
+{
+	private final SparseCellImgFactory< T > factory;
+
+	private final SparseCells< A > cells;
+
+	SparseCellImg( final SparseCellImgFactory< T > factory, final CellGrid grid, final T type, final SparseCells< A > cells )
+	{
+		super( grid, type, cells );
+		this.factory = factory;
+		this.cells = cells;
+	}
+
+	/**
+	 * Get the number of cells that have their own (non-shared) storage array,
+	 * that is, cells that have been written to.
+	 */
+	public long numMaterializedCells()
+	{
+		return cells.numMaterialized();
+	}
+
+	/**
+	 * Returns {@code true} if the cell at the given grid position has its own
+	 * (non-shared) storage array.
+	 *
+	 * @param cellGridPosition
+	 *            position of the cell in the cell grid
+	 */
+	public boolean isMaterialized( final long... cellGridPosition )
+	{
+		return cells.isMaterialized( IntervalIndexer.positionToIndex( cellGridPosition, getCellGrid().getGridDimensions() ) );
+	}
+
+	@Override
+	public SparseCellImgFactory< T > factory()
+	{
+		return factory;
+	}
+
+	/**
+	 * Create a copy of this image. Only materialized cells are copied.
+	 */
+	@Override
+	public SparseCellImg< T, A > copy()
+	{
+		@SuppressWarnings( "unchecked" )
+		final SparseCellImg< T, A > copy = ( SparseCellImg< T, A > ) factory().create( dimension );
+		cells.copyTo( copy.cells );
+		return copy;
+	}
+
+	/**
+	 * Get the number of cells that are retained by this image. Only
+	 * materialized cells are retained.
+	 */
+	long numRetainedCells()
+	{
+		return cells.numRetained();
+	}
+
+	/**
+	 * Provides the cells of a {@link SparseCellImg}.
+	 * <p>
+	 * Only materialized cells are retained. For a cell that has not been
+	 * written to, {@link #get} returns a {@code Cell} with a {@code
+	 * CopyOnWriteAccess} on the shared background array. There is at most one
+	 * such access per cell at any time: it is weakly referenced, and handed out
+	 * again as long as some accessor uses it. When it is written to, it is
+	 * materialized to the storage array of the retained cell. Thus, all
+	 * accessors of a cell see the same pixels.
+	 */
+	static class SparseCells< A extends ArrayDataAccess< A > & CopyOnWriteAccess > implements Get< Cell< A > >
+	{
+		private final CellGrid grid;
+
+		private final LongFunction< Object > createSharedData;
+
+		private final BiFunction< Object, Materializer, A > createAccess;
+
+		private final Map< Long, Object > sharedData = new ConcurrentHashMap<>();
+
+		private final Map< Long, Cell< A > > cells = new ConcurrentHashMap<>();
+
+		private final Map< Long, AccessReference< A > > backgroundAccesses = new ConcurrentHashMap<>();
+
+		private final ReferenceQueue< A > releasedAccesses = new ReferenceQueue<>();
+
+		private final AtomicLong numMaterialized = new AtomicLong();
+
+
+		/**
+		 * @param grid
+		 *            the cell grid
+		 * @param createSharedData
+		 *            creates a background-filled storage array for a cell
+		 *            with the given number of pixels
+		 * @param createAccess
+		 *            creates a {@code CopyOnWriteAccess} for a given shared
+		 *            storage array and {@code Materializer}
+		 */
+		SparseCells(
+				final CellGrid grid,
+				final LongFunction< Object > createSharedData,
+				final BiFunction< Object, Materializer, A > createAccess )
+		{
+			this.grid = grid;
+			this.createSharedData = createSharedData;
+			this.createAccess = createAccess;
+		}
+
+		@Override
+		public Cell< A > get( final long index )
+		{
+			final Cell< A > cell = cells.get( index );
+			if ( cell != null )
+				return cell;
+
+			final int n = grid.numDimensions();
+			final long[] cellMin = new long[ n ];
+			final int[] cellDims = new int[ n ];
+			grid.getCellDimensions( index, cellMin, cellDims );
+			return new Cell<>( cellDims, cellMin, backgroundAccess( index, cellDims, cellMin ) );
+		}
+
+		/**
+		 * Get the access of the cell at {@code index}. If the cell is not
+		 * materialized, this is the unique {@code CopyOnWriteAccess} on the
+		 * shared background array that is currently in use for the cell, or a
+		 * new one, if there is none.
+		 */
+		private A backgroundAccess( final long index, final int[] cellDims, final long[] cellMin )
+		{
+			final AccessReference< A > ref = backgroundAccesses.get( index );
+			final A access = ref == null ? null : ref.get();
+			if ( access != null )
+				return access;
+
+			synchronized ( backgroundAccesses )
+			{
+				expungeReleasedAccesses();
+				final Cell< A > cell = cells.get( index );
+				if ( cell != null )
+					return cell.getData();
+				final AccessReference< A > existing = backgroundAccesses.get( index );
+				final A existingAccess = existing == null ? null : existing.get();
+				if ( existingAccess != null )
+					return existingAccess;
+
+				final long numPixels = Intervals.numElements( cellDims );
+				final Object data = sharedData.computeIfAbsent( numPixels, createSharedData::apply );
+				final A created = createAccess.apply( data, copy -> materialize( index, cellDims, cellMin, copy ) );
+				backgroundAccesses.put( index, new AccessReference<>( index, created, releasedAccesses ) );
+				return created;
+			}
+		}
+
+		private void expungeReleasedAccesses()
+		{
+			Reference< ? extends A > ref;
+			while ( ( ref = releasedAccesses.poll() ) != null )
+				backgroundAccesses.remove( ( ( AccessReference< ? > ) ref ).index, ref );
+		}
+
+		/**
+		 * Get the storage array of the retained cell at {@code index}. If
+		 * there is no retained cell yet, create it with a storage array
+		 * provided by {@code copy}.
+		 */
+		private Object materialize( final long index, final int[] cellDims, final long[] cellMin, final Supplier< ? > copy )
+		{
+			final Object array = cells.computeIfAbsent( index, i -> {
+				final Object a = copy.get();
+				final A access = createAccess.apply( a, shared -> a );
+				access.materialize();
+				numMaterialized.incrementAndGet();
+				return new Cell<>( cellDims, cellMin, access );
+			} ).getData().getCurrentStorageArray();
+			backgroundAccesses.remove( index );
+			return array;
+		}
+
+		/**
+		 * Weak reference to the background access of the cell at {@code
+		 * index}.
+		 */
+		private static class AccessReference< A > extends WeakReference< A >
+		{
+			final long index;
+
+			AccessReference( final long index, final A access, final ReferenceQueue< ? super A > queue )
+			{
+				super( access, queue );
+				this.index = index;
+			}
+		}
+
+		long numMaterialized()
+		{
+			return numMaterialized.get();
+		}
+
+		long numRetained()
+		{
+			return cells.size();
+		}
+
+		boolean isMaterialized( final long index )
+		{
+			return cells.containsKey( index );
+		}
+
+		/**
+		 * Copy materialized cells into {@code target}, which must have the
+		 * same grid and background value.
+		 */
+		void copyTo( final SparseCells< A > target )
+		{
+			cells.forEach( ( index, cell ) -> {
+				final A src = cell.getData();
+				final A dest = target.get( index ).getData();
+				dest.materialize();
+				System.arraycopy( src.getCurrentStorageArray(), 0, dest.getCurrentStorageArray(), 0, src.getArrayLength() );
+			} );
+		}
+	}
+}
@@ -0,0 +1,242 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.util.function.BiFunction;
+
+import net.imglib2.Dimensions;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.ArrayDataAccessFactory;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteAccess;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteAccess.Materializer;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteBooleanArray;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteByteArray;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteCharArray;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteDoubleArray;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteFloatArray;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteIntArray;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteLongArray;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteShortArray;
+import net.imglib2.img.cell.SparseCellImg.SparseCells;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.type.PrimitiveType;
+import net.imglib2.util.Cast;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+
+/**
+ * Factory for creating {@link SparseCellImg}s, that is, cell images whose
+ * cells share a constant background storage array until they are written to.
+ * <p>
+ * Example: create a (virtually) zeroed label volume of 100000<sup>3</sup>
+ * voxels, of which only the written cells occupy memory:
+ * <pre>{@code
+ * 		SparseCellImg< UnsignedShortType, ? > labels = new SparseCellImgFactory<>( new UnsignedShortType(), 64 ).create( 100000, 100000, 100000 );
+ * 		labels.randomAccess().setPositionAndGet( 500, 600, 700 ).set( 1 );
+ * 		labels.numMaterializedCells(); // == 1
+ * }</pre>
+ *
+ * @param <T>
+ *            the pixel type
+ */
+public class SparseCellImgFactory< T extends NativeType< T > > extends NativeImgFactory< T >
+{
+	private final int[] defaultCellDimensions;
+
+	private final T background;
+
+	/**
+	 * Create a factory for {@link SparseCellImg}s with the default
+	 * background value of {@code type} (i.e., {@code type.createVariable()},
+	 * typically zero) and cells of size <em>10 x 10 x ... x 10</em>.
+	 *
+	 * @param type
+	 *            the pixel type
+	 */
+	public SparseCellImgFactory( final T type )
+	{
+		this( type, 10 );
+	}
+
+	/**
+	 * Create a factory for {@link SparseCellImg}s with the default
+	 * background value of {@code type} (i.e., {@code type.createVariable()},
+	 * typically zero).
+	 *
+	 * @param type
+	 *            the pixel type
+	 * @param cellDimensions
+	 *            dimensions of a standard cell
+	 */
+	public SparseCellImgFactory( final T type, final int... cellDimensions )
+	{
+		this( type, type.createVariable(), cellDimensions );
+	}
+
+	/**
+	 * Create a factory for {@link SparseCellImg}s whose pixels are initially
+	 * set to {@code background}.
+	 *
+	 * @param type
+	 *            the pixel type
+	 * @param background
+	 *            initial value of all pixels
+	 * @param cellDimensions
+	 *            dimensions of a standard cell
+	 */
+	public SparseCellImgFactory( final T type, final T background, final int... cellDimensions )
+	{
+		super( type );
+		this.defaultCellDimensions = Dimensions.verify( cellDimensions ).clone();
+		this.background = background.copy();
+		if ( type.getNativeTypeFactory().getPrimitiveType() == PrimitiveType.UNDEFINED )
+			throw new IllegalArgumentException( "Type " + type.getClass().getSimpleName() + " is not supported" );
+	}
+
+	@Override
+	public SparseCellImg< T, ? > create( final long... dimensions )
+	{
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final SparseCellImg< T, ? > img = create( dimensions, ( NativeTypeFactory ) type().getNativeTypeFactory() );
+		return img;
+	}
+
+	@Override
+	public SparseCellImg< T, ? > create( final Dimensions dimensions )
+	{
+		return create( Intervals.dimensionsAsLongArray( dimensions ) );
+	}
+
+	@Override
+	public SparseCellImg< T, ? > create( final int[] dimensions )
+	{
+		return create( Util.int2long( dimensions ) );
+	}
+
+	private < A extends ArrayDataAccess< A > & CopyOnWriteAccess > SparseCellImg< T, A > create(
+			final long[] dimensions,
+			final NativeTypeFactory< T, ? super A > typeFactory )
+	{
+		Dimensions.verify( dimensions );
+
+		final int n = dimensions.length;
+		final Fraction entitiesPerPixel = type().getEntitiesPerPixel();
+		final int[] cellDimensions = CellImgFactory.getCellDimensions( defaultCellDimensions, n, entitiesPerPixel );
+		final CellGrid grid = new CellGrid( dimensions, cellDimensions );
+
+		final BiFunction< Object, Materializer, A > createAccess = accessFactory( typeFactory.getPrimitiveType() );
+		final SparseCells< A > cells = new SparseCells<>( grid, numPixels -> createSharedData( Cast.unchecked( typeFactory ), numPixels ), createAccess );
+		return new SparseCellImg<>( this, grid, type(), cells );
+	}
+
+	/**
+	 * Create a storage array for {@code numPixels} pixels, filled with the
+	 * {@code background} value.
+	 */
+	private < A extends ArrayDataAccess< A > > Object createSharedData( final NativeTypeFactory< T, ? super A > typeFactory, final long numPixels )
+	{
+		final Fraction entitiesPerPixel = type().getEntitiesPerPixel();
+		final A access = ArrayDataAccessFactory.get( typeFactory );
+		final A data = access.createArray( ( int ) entitiesPerPixel.mulCeil( numPixels ) );
+		final ArrayImg< T, A > img = new ArrayImg<>( data, new long[] { numPixels }, entitiesPerPixel );
+		img.setLinkedType( typeFactory.createLinkedType( img ) );
+		if ( !background.valueEquals( type().createVariable() ) )
+			img.forEach( t -> t.set( background ) );
+		return data.getCurrentStorageArray();
+	}
+
+	/**
+	 * Get a function that creates a {@code CopyOnWriteAccess} of the given
+	 * {@code primitiveType} for a shared storage array and {@code
+	 * Materializer}.
+	 */
+	@SuppressWarnings( "unchecked" )
+	static < A extends ArrayDataAccess< A > & CopyOnWriteAccess > BiFunction< Object, Materializer, A > accessFactory( final PrimitiveType primitiveType )
+	{
+		final BiFunction< Object, Materializer, ? > factory;
+		switch ( primitiveType )
+		{
+		case BOOLEAN:
+			factory = ( data, materializer ) -> new CopyOnWriteBooleanArray( ( boolean[] ) data, materializer );
+			break;
+		case BYTE:
+			factory = ( data, materializer ) -> new CopyOnWriteByteArray( ( byte[] ) data, materializer );
+			break;
+		case CHAR:
+			factory = ( data, materializer ) -> new CopyOnWriteCharArray( ( char[] ) data, materializer );
+			break;
+		case SHORT:
+			factory = ( data, materializer ) -> new CopyOnWriteShortArray( ( short[] ) data, materializer );
+			break;
+		case INT:
+			factory = ( data, materializer ) -> new CopyOnWriteIntArray( ( int[] ) data, materializer );
+			break;
+		case LONG:
+			factory = ( data, materializer ) -> new CopyOnWriteLongArray( ( long[] ) data, materializer );
+			break;
+		case FLOAT:
+			factory = ( data, materializer ) -> new CopyOnWriteFloatArray( ( float[] ) data, materializer );
+			break;
+		case DOUBLE:
+			factory = ( data, materializer ) -> new CopyOnWriteDoubleArray( ( double[] ) data, materializer );
+			break;
+		default:
+			throw new IllegalArgumentException();
+		}
+		return ( BiFunction< Object, Materializer, A > ) factory;
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	@Override
+	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
+	{
+		if ( NativeType.class.isInstance( type ) )
+			return new SparseCellImgFactory( ( NativeType ) type, defaultCellDimensions );
+		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
+	}
+
+	@Deprecated
+	@Override
+	public SparseCellImg< T, ? > create( final long[] dimensions, final T type )
+	{
+		cache( type );
+		return create( dimensions );
+	}
+}
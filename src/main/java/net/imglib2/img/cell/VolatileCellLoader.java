@@ -0,0 +1,348 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.imglib2.img.basictypeaccess.volatiles.VolatileArrayDataAccess;
+import net.imglib2.img.cell.LazyCellImg.Get;
+import net.imglib2.util.Fraction;
+
+/**
+ * A non-blocking {@link LazyCellImg} cell loader for {@link
+ * VolatileArrayDataAccess volatile} cells.
+ * <p>
+ * Loaded cells are held in a {@link BoundedCellCache}. If a requested cell is
+ * not in the cache, {@link #get(long)} immediately returns a placeholder cell
+ * with an {@link VolatileArrayDataAccess#isValid() invalid} access, and
+ * enqueues the cell for loading by background threads. Once loaded, the cell
+ * is returned by subsequent requests.
+ * <p>
+ * Queued cells are loaded in order of priority. By default, the most recently
+ * requested cell is loaded first. After {@link #setFocus(double...)}, the cell
+ * whose center is closest to the focus point is loaded first (ties are broken
+ * by recency). Requesting a cell that is already queued updates its priority.
+ *
+ * @param <A>
+ *            volatile access type of the cells
+ */
+public class VolatileCellLoader< A extends VolatileArrayDataAccess< A > > implements Get< Cell< A > >, AutoCloseable
+{
+	private static final class Request
+	{
+		final long index;
+
+		final double priority;
+
+		final long sequence;
+
+		Request( final long index, final double priority, final long sequence )
+		{
+			this.index = index;
+			this.priority = priority;
+			this.sequence = sequence;
+		}
+	}
+
+	/**
+	 * Lower priority value is loaded first; among equal priorities, the most
+	 * recent request is loaded first.
+	 */
+	private static final Comparator< Request > ORDER = Comparator
+			.comparingDouble( ( Request r ) -> r.priority )
+			.thenComparing( r -> -r.sequence );
+
+	private final CellGrid grid;
+
+	private final Fraction entitiesPerPixel;
+
+	private final BoundedCellCache< A > cache;
+
+	private final A accessType;
+
+	/**
+	 * Invalid placeholder arrays, shared between placeholder cells of the same
+	 * size.
+	 */
+	private final Map< Integer, A > placeholders = new ConcurrentHashMap<>();
+
+	/**
+	 * Queued requests ordered by priority, and among equal priorities by
+	 * submission sequence (most recent first, see {@link #ORDER}). Guarded by
+	 * {@code this}.
+	 */
+	private final TreeSet< Request > queue = new TreeSet<>( ORDER );
+
+	private final Map< Long, Request > queued = new HashMap<>();
+
+	private double[] focus;
+
+	private long sequence;
+
+	private boolean closed;
+
+	private final Thread[] workers;
+
+	private final AtomicLong loadCount = new AtomicLong();
+
+	private final AtomicLong failureCount = new AtomicLong();
+
+	/**
+	 * Create a loader that uses {@code numThreads} daemon threads to load cells
+	 * into {@code cache}. Call {@link #close()} to shut them down.
+	 *
+	 * @param grid
+	 *            the cell grid of the {@link LazyCellImg}
+	 * @param entitiesPerPixel
+	 *            number of storage entities per pixel of the pixel type
+	 * @param accessType
+	 *            an instance of the access type, used to create invalid
+	 *            placeholder accesses
+	 * @param cache
+	 *            cache that (synchronously) loads and holds the valid cells
+	 * @param numThreads
+	 *            number of loader threads
+	 */
+	public VolatileCellLoader(
+			final CellGrid grid,
+			final Fraction entitiesPerPixel,
+			final A accessType,
+			final BoundedCellCache< A > cache,
+			final int numThreads )
+	{
+		if ( numThreads < 1 )
+			throw new IllegalArgumentException( "numThreads must be positive" );
+		this.grid = grid;
+		this.entitiesPerPixel = entitiesPerPixel;
+		this.accessType = accessType;
+		this.cache = cache;
+		workers = new Thread[ numThreads ];
+		for ( int i = 0; i < numThreads; ++i )
+		{
+			workers[ i ] = new Thread( this::run, "imglib2-volatile-cell-loader-" + ( i + 1 ) );
+			workers[ i ].setDaemon( true );
+			workers[ i ].start();
+		}
+	}
+
+	@Override
+	public Cell< A > get( final long index )
+	{
+		final Cell< A > cell = cache.getIfPresent( index );
+		if ( cell != null )
+			return cell;
+		enqueue( index );
+		return placeholder( index );
+	}
+
+	private Cell< A > placeholder( final long index )
+	{
+		final long[] cellMin = new long[ grid.numDimensions() ];
+		final int[] cellDims = new int[ grid.numDimensions() ];
+		grid.getCellDimensions( index, cellMin, cellDims );
+		long numPixels = 1;
+		for ( final int d : cellDims )
+			numPixels *= d;
+		final int numEntities = ( int ) entitiesPerPixel.mulCeil( numPixels );
+		final A data = placeholders.computeIfAbsent( numEntities, n -> accessType.createArray( n, false ) );
+		return new Cell<>( cellDims, cellMin, data );
+	}
+
+	private synchronized void enqueue( final long index )
+	{
+		if ( closed || cache.contains( index ) )
+			return;
+		final Request previous = queued.remove( index );
+		if ( previous != null )
+			queue.remove( previous );
+		final Request request = new Request( index, priority( index ), ++sequence );
+		queued.put( index, request );
+		queue.add( request );
+		notify();
+	}
+
+	/**
+	 * Squared distance from the center of the cell to the focus point, or 0 if
+	 * no focus is set.
+	 */
+	private double priority( final long index )
+	{
+		if ( focus == null )
+			return 0;
+		final int n = grid.numDimensions();
+		final long[] cellMin = new long[ n ];
+		final int[] cellDims = new int[ n ];
+		grid.getCellDimensions( index, cellMin, cellDims );
+		double sqDist = 0;
+		for ( int d = 0; d < n; ++d )
+		{
+			final double diff = cellMin[ d ] + 0.5 * ( cellDims[ d ] - 1 ) - focus[ d ];
+			sqDist += diff * diff;
+		}
+		return sqDist;
+	}
+
+	/**
+	 * Load queued cells closest to {@code focus} first. Queued requests are
+	 * re-prioritized.
+	 *
+	 * @param focus
+	 *            focus point in image coordinates
+	 */
+	public synchronized void setFocus( final double... focus )
+	{
+		if ( focus.length != grid.numDimensions() )
+			throw new IllegalArgumentException( "focus must have " + grid.numDimensions() + " dimensions" );
+		this.focus = focus.clone();
+		reprioritize();
+	}
+
+	/**
+	 * Load the most recently requested queued cells first. Queued requests are
+	 * re-prioritized.
+	 */
+	public synchronized void clearFocus()
+	{
+		focus = null;
+		reprioritize();
+	}
+
+	private void reprioritize()
+	{
+		queue.clear();
+		for ( final Map.Entry< Long, Request > entry : queued.entrySet() )
+		{
+			final Request r = entry.getValue();
+			final Request request = new Request( r.index, priority( r.index ), r.sequence );
+			entry.setValue( request );
+			queue.add( request );
+		}
+	}
+
+	private synchronized Request take() throws InterruptedException
+	{
+		while ( queue.isEmpty() && !closed )
+			wait();
+		if ( closed )
+			return null;
+		final Request request = queue.pollFirst();
+		queued.remove( request.index );
+		return request;
+	}
+
+	private void run()
+	{
+		try
+		{
+			Request request;
+			while ( ( request = take() ) != null )
+			{
+				try
+				{
+					cache.get( request.index );
+					loadCount.incrementAndGet();
+				}
+				catch ( final RuntimeException e )
+				{
+					// NB: The cell stays invalid and will be re-queued when
+					// requested again.
+					failureCount.incrementAndGet();
+				}
+			}
+		}
+		catch ( final InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Remove all queued requests. Cells that are currently being loaded are
+	 * not affected.
+	 */
+	public synchronized void clearQueue()
+	{
+		queue.clear();
+		queued.clear();
+	}
+
+	/**
+	 * Get the number of cells waiting to be loaded.
+	 */
+	public synchronized int numQueued()
+	{
+		return queue.size();
+	}
+
+	/**
+	 * Get the cache that holds the loaded cells.
+	 */
+	public BoundedCellCache< A > getCache()
+	{
+		return cache;
+	}
+
+	/**
+	 * Get the number of cells that have been loaded in the background.
+	 */
+	public long loadCount()
+	{
+		return loadCount.get();
+	}
+
+	/**
+	 * Get the number of background loads that failed.
+	 */
+	public long failureCount()
+	{
+		return failureCount.get();
+	}
+
+	/**
+	 * Stop the loader threads. Queued requests are discarded, and subsequent
+	 * requests for missing cells return placeholders without being queued.
+	 */
+	@Override
+	public synchronized void close()
+	{
+		closed = true;
+		clearQueue();
+		notifyAll();
+	}
+}
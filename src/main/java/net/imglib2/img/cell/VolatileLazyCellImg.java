@@ -0,0 +1,133 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import net.imglib2.img.basictypeaccess.AccessFlags;
+import net.imglib2.img.basictypeaccess.ArrayDataAccessFactory;
+import net.imglib2.img.basictypeaccess.volatiles.VolatileArrayDataAccess;
+import net.imglib2.type.NativeType;
+
+/**
+ * A {@link LazyCellImg} that never blocks on missing cells. Missing cells are
+ * represented by placeholder cells with {@link
+ * VolatileArrayDataAccess#isValid() invalid} accesses, while the actual cells
+ * are loaded in the background in order of priority (see {@link
+ * VolatileCellLoader}).
+ * <p>
+ * Use a {@link net.imglib2.Volatile} pixel type (for example, {@code
+ * VolatileUnsignedShortType}) so that pixels of placeholder cells report
+ * {@code isValid() == false}. Renderers can then paint what is available and
+ * repaint later.
+ *
+ * @param <T>
+ *            the (volatile) pixel type
+ * @param <A>
+ *            volatile access type of the cells
+ */
+public class VolatileLazyCellImg< T extends NativeType< T >, A extends VolatileArrayDataAccess< A > > extends LazyCellImg< T, A >
+{
+	private final VolatileCellLoader< A > cellLoader;
+
+	/**
+	 * Create a {@code VolatileLazyCellImg} that loads cells with {@code
+	 * loader} in {@code numThreads} background threads, and keeps up to {@code
+	 * maxCacheBytes} of loaded cells in memory. Call {@link #close()} to stop
+	 * the background threads.
+	 *
+	 * @param grid
+	 *            the cell grid
+	 * @param type
+	 *            the pixel type
+	 * @param loader
+	 *            loads (valid) cells, given their flattened grid index
+	 * @param maxCacheBytes
+	 *            maximum total size of loaded cells kept in memory
+	 * @param numThreads
+	 *            number of loader threads
+	 */
+	public VolatileLazyCellImg( final CellGrid grid, final T type, final Get< Cell< A > > loader, final long maxCacheBytes, final int numThreads )
+	{
+		this( grid, type, new VolatileCellLoader<>(
+				grid,
+				type.getEntitiesPerPixel(),
+				ArrayDataAccessFactory.get( type, AccessFlags.setOf( AccessFlags.VOLATILE ) ),
+				new BoundedCellCache<>( loader, maxCacheBytes ),
+				numThreads ) );
+	}
+
+	/**
+	 * Create a {@code VolatileLazyCellImg} with the given {@code cellLoader}.
+	 *
+	 * @param grid
+	 *            the cell grid
+	 * @param type
+	 *            the pixel type
+	 * @param cellLoader
+	 *            provides cells (or placeholders) without blocking
+	 */
+	public VolatileLazyCellImg( final CellGrid grid, final T type, final VolatileCellLoader< A > cellLoader )
+	{
+		super( grid, type, cellLoader );
+		this.cellLoader = cellLoader;
+	}
+
+	/**
+	 * Get the loader that provides cells and placeholders.
+	 */
+	public VolatileCellLoader< A > getCellLoader()
+	{
+		return cellLoader;
+	}
+
+	/**
+	 * Load queued cells closest to {@code focus} first.
+	 *
+	 * @param focus
+	 *            focus point in image coordinates
+	 *
+	 * @see VolatileCellLoader#setFocus(double...)
+	 */
+	public void setFocus( final double... focus )
+	{
+		cellLoader.setFocus( focus );
+	}
+
+	/**
+	 * Stop the background loader threads.
+	 */
+	public void close()
+	{
+		cellLoader.close();
+	}
+}
@@ -0,0 +1,207 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.loops;
+
+import java.util.Arrays;
+
+import net.imglib2.parallel.TaskMonitor;
+
+/**
+ * Distributes a range of work units {@code [0, numUnits)} among a fixed
+ * number of workers, splitting the remaining work on demand.
+ * <p>
+ * Initially, each worker owns an equal, contiguous range of units, which it
+ * claims one by one from the front. When a worker runs out of units, it
+ * steals the upper half of the largest remaining range of another worker
+ * (or its last unit, if only one is left). Ranges are split recursively in
+ * this way, down to a single unit. Thus, as
+ * long as there is work left, no worker sits idle, while workers with
+ * uniformly expensive units continue on their contiguous ranges without
+ * interruption.
+ * <p>
+ * If a {@link TaskMonitor} is given, it is checked for cancellation before
+ * each unit.
+ */
+final class AdaptiveChunks
+{
+	/**
+	 * Default minimum number of pixels per work unit.
+	 */
+	static final long DEFAULT_MIN_CHUNK_SIZE = 4096;
+
+	/**
+	 * Maximum number of work units per worker.
+	 */
+	static final int MAX_UNITS_PER_WORKER = 64;
+
+	private final Range[] ranges;
+
+	private final int[] pending;
+
+	private final TaskMonitor monitor;
+
+	AdaptiveChunks( final int numUnits, final int numWorkers, final TaskMonitor monitor )
+	{
+		this.ranges = new Range[ numWorkers ];
+		for ( int i = 0; i < numWorkers; i++ )
+			ranges[ i ] = new Range( ( int ) ( ( long ) i * numUnits / numWorkers ), ( int ) ( ( long ) ( i + 1 ) * numUnits / numWorkers ) );
+		this.pending = new int[ numWorkers ];
+		Arrays.fill( pending, -1 );
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Returns the number of work units that should be used for an image with
+	 * {@code numElements} pixels, such that each unit has at least
+	 * {@code minChunkSize} pixels.
+	 */
+	static int suggestNumberOfUnits( final long numElements, final long minChunkSize, final int numWorkers )
+	{
+		final long units = numElements / Math.max( 1, minChunkSize );
+		return ( int ) Math.max( 1, Math.min( units, ( long ) numWorkers * MAX_UNITS_PER_WORKER ) );
+	}
+
+	int numWorkers()
+	{
+		return ranges.length;
+	}
+
+	/**
+	 * Claims a unit for the given {@code worker}, to be returned by the next
+	 * call to {@link #next}. Returns {@code false} if no work is left.
+	 */
+	boolean hasNext( final int worker )
+	{
+		if ( pending[ worker ] < 0 )
+			pending[ worker ] = claim( worker );
+		return pending[ worker ] >= 0;
+	}
+
+	/**
+	 * Returns the next unit to be processed by the given {@code worker}, or
+	 * {@code -1} if no work is left.
+	 */
+	int next( final int worker )
+	{
+		final int unit = hasNext( worker ) ? pending[ worker ] : -1;
+		pending[ worker ] = -1;
+		if ( unit >= 0 && monitor != null )
+			monitor.checkCancelled();
+		return unit;
+	}
+
+	private int claim( final int worker )
+	{
+		final Range own = ranges[ worker ];
+		while ( true )
+		{
+			final int unit = own.claim();
+			if ( unit >= 0 )
+				return unit;
+			if ( !steal( own ) )
+				return -1;
+		}
+	}
+
+	private boolean steal( final Range thief )
+	{
+		while ( true )
+		{
+			Range victim = null;
+			int max = 0;
+			for ( final Range range : ranges )
+			{
+				final int remaining = range.remaining();
+				if ( remaining > max )
+				{
+					max = remaining;
+					victim = range;
+				}
+			}
+			if ( victim == null )
+				return false;
+			final long stolen = victim.splitOffUpperHalf();
+			if ( stolen >= 0 )
+			{
+				thief.set( ( int ) ( stolen >>> 32 ), ( int ) stolen );
+				return true;
+			}
+		}
+	}
+
+	private static final class Range
+	{
+		private int lo;
+
+		private int hi;
+
+		Range( final int lo, final int hi )
+		{
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		synchronized int claim()
+		{
+			return lo < hi ? lo++ : -1;
+		}
+
+		synchronized int remaining()
+		{
+			return hi - lo;
+		}
+
+		synchronized void set( final int lo, final int hi )
+		{
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		/**
+		 * Removes the upper half of the remaining units (the last unit, if
+		 * only one remains), and returns it as {@code (lo << 32) | hi}, or
+		 * returns {@code -1} if no units remain.
+		 */
+		synchronized long splitOffUpperHalf()
+		{
+			final int remaining = hi - lo;
+			if ( remaining < 1 )
+				return -1;
+			final int mid = lo + remaining / 2;
+			final long stolen = ( ( long ) mid << 32 ) | hi;
+			hi = mid;
+			return stolen;
+		}
+	}
+}
@@ -0,0 +1,193 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.loops;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.transform.integer.MixedTransform;
+import net.imglib2.view.IntervalView;
+import net.imglib2.view.MixedTransformView;
+
+/**
+ * Finds the cell boundaries of images that are (views of) {@link
+ * AbstractCellImg}s, so that {@link LoopBuilder} can split the loop interval
+ * into chunks that do not straddle cells.
+ * <p>
+ * Cell boundaries are described per dimension by a spacing and an offset
+ * relative to the min of the image: A new cell starts at {@code x} if {@code
+ * x - offset} is a multiple of {@code spacing}. Views are unwrapped through
+ * {@link IntervalView}s and {@link MixedTransformView}s (that is, translation,
+ * permutation, inversion, and slicing).
+ */
+class CellAlignment
+{
+	private CellAlignment()
+	{
+		// NB: Prevent instantiation of utility class.
+	}
+
+	/**
+	 * Split {@code interval} into chunks that are aligned to the cell
+	 * boundaries shared by all cell-backed {@code images}. In dimensions where
+	 * the cell-backed images disagree, chunks are not aligned. If none of the
+	 * images is cell-backed, this is equivalent to {@link
+	 * IntervalChunks#chunkInterval(Interval, int)}.
+	 */
+	static List< Interval > chunkInterval( final RandomAccessibleInterval< ? >[] images, final Interval interval, final int numberOfChunks )
+	{
+		final int n = interval.numDimensions();
+		long[] spacing = null;
+		long[] offset = null;
+		final long[] s = new long[ n ];
+		final long[] o = new long[ n ];
+		for ( final RandomAccessibleInterval< ? > image : images )
+		{
+			if ( !findCellBoundaries( image, s, o ) )
+				continue;
+			if ( spacing == null )
+			{
+				spacing = s.clone();
+				offset = o.clone();
+			}
+			else
+			{
+				for ( int d = 0; d < n; d++ )
+				{
+					if ( spacing[ d ] != s[ d ] || offset[ d ] != o[ d ] )
+					{
+						spacing[ d ] = 1;
+						offset[ d ] = 0;
+					}
+				}
+			}
+		}
+		return spacing == null
+				? IntervalChunks.chunkInterval( interval, numberOfChunks )
+				: IntervalChunks.chunkInterval( interval, numberOfChunks, spacing, offset );
+	}
+
+	/**
+	 * If {@code image} is a (view of a) cell image, compute the cell boundary
+	 * {@code spacing} and {@code offset} (relative to the min of {@code image})
+	 * for each dimension, and return {@code true}. Dimensions that are not
+	 * constrained have spacing 1. If {@code image} is not cell-backed, return
+	 * {@code false}.
+	 */
+	static boolean findCellBoundaries( final RandomAccessibleInterval< ? > image, final long[] spacing, final long[] offset )
+	{
+		final int n = image.numDimensions();
+
+		// For every dimension d of image, the position in the current source
+		// is coordinate[ d ] = sign[ d ] * x + origin[ d ], where x is the
+		// position relative to the min of image.
+		int[] dimension = new int[ n ];
+		long[] sign = new long[ n ];
+		long[] origin = new long[ n ];
+		for ( int d = 0; d < n; d++ )
+		{
+			dimension[ d ] = d;
+			sign[ d ] = 1;
+			origin[ d ] = image.min( d );
+		}
+
+		RandomAccessible< ? > source = image;
+		while ( true )
+		{
+			if ( source instanceof AbstractCellImg )
+			{
+				final CellGrid grid = ( ( AbstractCellImg< ?, ?, ?, ? > ) source ).getCellGrid();
+				for ( int d = 0; d < n; d++ )
+				{
+					if ( dimension[ d ] < 0 )
+					{
+						spacing[ d ] = 1;
+						offset[ d ] = 0;
+					}
+					else
+					{
+						final long cellSize = grid.cellDimension( dimension[ d ] );
+						spacing[ d ] = cellSize;
+						// a cell starts where the source coordinate is a
+						// multiple of cellSize (or, if inverted, where the
+						// next source coordinate is)
+						offset[ d ] = sign[ d ] > 0
+								? Math.floorMod( -origin[ d ], cellSize )
+								: Math.floorMod( origin[ d ] + 1, cellSize );
+					}
+				}
+				return true;
+			}
+			else if ( source instanceof IntervalView )
+			{
+				source = ( ( IntervalView< ? > ) source ).getSource();
+			}
+			else if ( source instanceof MixedTransformView )
+			{
+				final MixedTransformView< ? > view = ( MixedTransformView< ? > ) source;
+				final MixedTransform t = view.getTransformToSource();
+				final int m = t.numTargetDimensions();
+				// for each view dimension, the source dimension it maps to
+				final int[] sourceDimension = new int[ t.numSourceDimensions() ];
+				Arrays.fill( sourceDimension, -1 );
+				for ( int sd = 0; sd < m; sd++ )
+					if ( !t.getComponentZero( sd ) )
+						sourceDimension[ t.getComponentMapping( sd ) ] = sd;
+				for ( int d = 0; d < n; d++ )
+				{
+					if ( dimension[ d ] < 0 )
+						continue;
+					final int sd = sourceDimension[ dimension[ d ] ];
+					dimension[ d ] = sd;
+					if ( sd >= 0 )
+					{
+						final long s = t.getComponentInversion( sd ) ? -1 : 1;
+						sign[ d ] *= s;
+						origin[ d ] = t.getTranslation( sd ) + s * origin[ d ];
+					}
+				}
+				source = view.getSource();
+			}
+			else
+			{
+				return false;
+			}
+		}
+	}
+}
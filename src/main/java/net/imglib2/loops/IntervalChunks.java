@@ -36,12 +36,14 @@ package net.imglib2.loops;
 
 import net.imglib2.FinalInterval;
 import net.imglib2.Interval;
+import net.imglib2.img.cell.CellGrid;
 import net.imglib2.util.IntervalIndexer;
 import net.imglib2.util.Intervals;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.LongUnaryOperator;
 
 public class IntervalChunks
 {
@@ -58,16 +60,102 @@ public class IntervalChunks
 		return generateGrid( interval, chunkDimensions );
 	}
 
+	/**
+	 * Returns a list of disjoint intervals, that covers the given interval.
+	 * Chunk boundaries are aligned to a grid: In dimension {@code d}, a chunk
+	 * may only start at positions {@code x} (relative to the min of the given
+	 * interval) where {@code x - gridOffset[d]} is a multiple of
+	 * {@code gridSpacing[d]}. Use this to avoid that chunks straddle the cells
+	 * of a cell image.
+	 * <p>
+	 * Due to the divisibility of whole numbers, and because chunk sizes must
+	 * be multiples of the grid spacing, the number of returned intervals may
+	 * differ from {@code numberOfChunks}. If only one chunk is requested, the
+	 * interval is returned as a single chunk, regardless of the grid.
+	 *
+	 * @param interval
+	 *            the interval to split
+	 * @param numberOfChunks
+	 *            the desired number of chunks
+	 * @param gridSpacing
+	 *            grid spacing for each dimension ({@code 1} means no
+	 *            constraint)
+	 * @param gridOffset
+	 *            grid offset for each dimension, relative to the min of
+	 *            {@code interval}
+	 */
+	public static List< Interval > chunkInterval( Interval interval, int numberOfChunks, long[] gridSpacing, long[] gridOffset )
+	{
+		if ( numberOfChunks <= 1 )
+			return chunkInterval( interval, 1 );
+		long[] chunkDimensions = suggestChunkSize( Intervals.dimensionsAsLongArray( interval ), numberOfChunks, gridSpacing );
+		long[] offsets = new long[ chunkDimensions.length ];
+		Arrays.setAll( offsets, d -> Math.floorMod( gridOffset[ d ], chunkDimensions[ d ] ) );
+		return generateGrid( interval, chunkDimensions, offsets );
+	}
+
+	/**
+	 * Returns a list of disjoint, one-dimensional intervals, that cover the
+	 * range of pixel indices of a cell image with the given {@code grid}, in
+	 * {@link net.imglib2.img.cell.CellIterationOrder cell iteration order}.
+	 * No interval contains pixels of more than one cell, unless it contains
+	 * these cells completely. That is, if there are more cells than
+	 * {@code numberOfChunks}, each interval covers a contiguous range of whole
+	 * cells. Otherwise, each cell is split into equal parts.
+	 */
+	public static List< Interval > chunkCellIndices( CellGrid grid, int numberOfChunks )
+	{
+		final long numCells = Intervals.numElements( grid.getGridDimensions() );
+		final long numPixels = Intervals.numElements( grid.getImgDimensions() );
+		final LongUnaryOperator firstPixel = cell -> cell == numCells ? numPixels : grid.indexOfFirstPixelInCell( cell );
+		List< Interval > result = new ArrayList<>();
+		if ( numCells >= numberOfChunks )
+		{
+			for ( long i = 0; i < numberOfChunks; i++ )
+			{
+				final long from = firstPixel.applyAsLong( i * numCells / numberOfChunks );
+				final long to = firstPixel.applyAsLong( ( i + 1 ) * numCells / numberOfChunks );
+				result.add( new FinalInterval( new long[] { from }, new long[] { to - 1 } ) );
+			}
+		}
+		else
+		{
+			final long piecesPerCell = divideAndRoundUp( numberOfChunks, numCells );
+			for ( long cell = 0; cell < numCells; cell++ )
+			{
+				final long from = firstPixel.applyAsLong( cell );
+				final long to = firstPixel.applyAsLong( cell + 1 );
+				final long pieceSize = divideAndRoundUp( to - from, piecesPerCell );
+				for ( long min = from; min < to; min += pieceSize )
+					result.add( new FinalInterval( new long[] { min }, new long[] { Math.min( to, min + pieceSize ) - 1 } ) );
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Suggest a chunk size that can be used, to divide an interval of the
 	 * given dimensions, into the given number of chunks.
 	 */
 	static long[] suggestChunkSize( long[] dimensions, long numberOfChunks )
+	{
+		long[] gridSpacing = new long[ dimensions.length ];
+		Arrays.fill( gridSpacing, 1 );
+		return suggestChunkSize( dimensions, numberOfChunks, gridSpacing );
+	}
+
+	/**
+	 * Suggest a chunk size that can be used, to divide an interval of the
+	 * given dimensions, into the given number of chunks. The chunk size in
+	 * each dimension is a multiple of {@code gridSpacing}.
+	 */
+	static long[] suggestChunkSize( long[] dimensions, long numberOfChunks, long[] gridSpacing )
 	{
 		long[] chunkSize = new long[ dimensions.length ];
 		for ( int i = dimensions.length - 1; i >= 0; i-- )
 		{
 			chunkSize[ i ] = Math.max( 1, dimensions[ i ] / numberOfChunks );
+			chunkSize[ i ] = divideAndRoundUp( chunkSize[ i ], gridSpacing[ i ] ) * gridSpacing[ i ];
 			final long divisions = divideAndRoundUp( dimensions[ i ], chunkSize[ i ] );
 			numberOfChunks = divideAndRoundUp( numberOfChunks, divisions );
 		}
@@ -81,13 +169,26 @@ public class IntervalChunks
 	 * These can be smaller.
 	 */
 	static List< Interval > generateGrid( Interval interval, long[] cellDimensions )
+	{
+		return generateGrid( interval, cellDimensions, new long[ interval.numDimensions() ] );
+	}
+
+	/**
+	 * Returns a list of disjoint intervals, that covers the given interval.
+	 * The grid is shifted by {@code offsets} (relative to the min of the given
+	 * interval, {@code 0 <= offsets[d] < cellDimensions[d]}). Intervals at the
+	 * border of the given interval can be smaller than {@code cellDimensions}.
+	 */
+	static List< Interval > generateGrid( Interval interval, long[] cellDimensions, long[] offsets )
 	{
 		final int n = interval.numDimensions();
 		long[] totalMin = Intervals.minAsLongArray( interval );
 		long[] totalMax = Intervals.maxAsLongArray( interval );
 		long[] dimensions = Intervals.dimensionsAsLongArray( interval );
-		long[] cellNumbers = new long[ dimensions.length ];
-		Arrays.setAll(cellNumbers, d -> divideAndRoundUp( dimensions[ d ], cellDimensions[ d ] ) );
+		long[] firstSize = new long[ n ];
+		Arrays.setAll( firstSize, d -> offsets[ d ] == 0 ? cellDimensions[ d ] : Math.min( offsets[ d ], dimensions[ d ] ) );
+		long[] cellNumbers = new long[ n ];
+		Arrays.setAll( cellNumbers, d -> 1 + divideAndRoundUp( dimensions[ d ] - Math.min( firstSize[ d ], dimensions[ d ] ), cellDimensions[ d ] ) );
 		long elements = Intervals.numElements( cellNumbers );
 		long[] cellIndicies = new long[ n ];
 		long[] min = new long[ n ];
@@ -98,8 +199,9 @@ public class IntervalChunks
 			IntervalIndexer.indexToPosition( cell, cellNumbers, cellIndicies );
 			for ( int d = 0; d < n; d++ )
 			{
-				min[ d ] = totalMin[ d ] + cellIndicies[ d ] * cellDimensions[ d ];
-				max[ d ] = Math.min( totalMax[ d ], min[ d ] + cellDimensions[ d ] - 1 );
+				final long i = cellIndicies[ d ];
+				min[ d ] = totalMin[ d ] + ( i == 0 ? 0 : firstSize[ d ] + ( i - 1 ) * cellDimensions[ d ] );
+				max[ d ] = Math.min( totalMax[ d ], totalMin[ d ] + firstSize[ d ] + i * cellDimensions[ d ] - 1 );
 			}
 			result.add( new FinalInterval( min, max ) );
 		}
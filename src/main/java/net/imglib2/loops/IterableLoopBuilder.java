@@ -40,11 +40,14 @@ import net.imglib2.Interval;
 import net.imglib2.IterableInterval;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessible;
+import net.imglib2.img.cell.AbstractCellImg;
 import net.imglib2.loops.IntervalChunks;
 import net.imglib2.loops.LoopBuilder;
+import net.imglib2.parallel.ExecutionMetrics;
 import net.imglib2.parallel.Parallelization;
 import net.imglib2.parallel.TaskExecutor;
 import net.imglib2.parallel.TaskExecutors;
+import net.imglib2.parallel.TaskMonitor;
 
 import java.util.Arrays;
 import java.util.List;
@@ -133,9 +136,13 @@ public class IterableLoopBuilder< T >
 	 */
 	public < R > List< R > forEachChunk( Function< LoopBuilder.Chunk< T >, R > chunkAction )
 	{
-		List< Interval > intervals = IntervalChunks.chunkInterval( new FinalInterval( firstImage.size() ), taskExecutor.suggestNumberOfTasks() );
+		final TaskExecutor executor = TaskMonitor.inheritCurrent( taskExecutor );
+		final int nTasks = executor.suggestNumberOfTasks();
+		List< Interval > intervals = firstImage instanceof AbstractCellImg
+				? IntervalChunks.chunkCellIndices( ( ( AbstractCellImg< ?, ?, ?, ? > ) firstImage ).getCellGrid(), nTasks )
+				: IntervalChunks.chunkInterval( new FinalInterval( firstImage.size() ), nTasks );
 		List< Chunk< T > > chunks = ListUtils.map( interval -> new Chunk< T >( firstImage, otherImages, interval ), intervals );
-		return taskExecutor.forEachApply( chunks, chunkAction );
+		return ExecutionMetrics.withTag( IterableLoopBuilder.class.getSimpleName(), () -> executor.forEachApply( chunks, chunkAction ) );
 	}
 
 	/**
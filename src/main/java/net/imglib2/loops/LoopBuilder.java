@@ -33,15 +33,21 @@
  */
 package net.imglib2.loops;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.StringJoiner;
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleConsumer;
+import java.util.function.LongBinaryOperator;
 import java.util.function.LongConsumer;
+import java.util.function.Supplier;
 
 import net.imglib2.Cursor;
 import net.imglib2.Dimensions;
@@ -52,12 +58,16 @@ import net.imglib2.Positionable;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.img.array.AbstractArrayCursor;
+import net.imglib2.img.cell.AbstractCellImg;
 import net.imglib2.img.cell.CellCursor;
 import net.imglib2.img.planar.PlanarCursor;
 import net.imglib2.parallel.TaskExecutor;
+import net.imglib2.parallel.ExecutionMetrics;
 import net.imglib2.parallel.Parallelization;
 import net.imglib2.parallel.TaskExecutors;
+import net.imglib2.parallel.TaskMonitor;
 import net.imglib2.util.Intervals;
+import net.imglib2.util.RealSum;
 import net.imglib2.view.Views;
 import net.imglib2.view.iteration.SlicingCursor;
 
@@ -91,6 +101,8 @@ public class LoopBuilder< T >
 
 	// fields
 
+	private static final String TAG = LoopBuilder.class.getSimpleName();
+
 	private final Dimensions dimensions;
 
 	private final RandomAccessibleInterval< ? >[] images;
@@ -99,6 +111,8 @@ public class LoopBuilder< T >
 
 	private boolean useFlatIterationOrder = false;
 
+	private long adaptiveMinChunkSize = 0;
+
 	// public methods
 
 	/**
@@ -186,17 +200,187 @@ public class LoopBuilder< T >
 	 * return totalSum;
 	 * }
 	 * </pre>
+	 * Reductions like this are simpler with {@link #collect}, {@link #reduceDouble},
+	 * {@link #reduceLong} and {@link #sum}.
 	 */
 	public < R > List< R > forEachChunk( final Function< Chunk< T >, R > action )
 	{
 		Objects.requireNonNull( action );
 		if ( Intervals.numElements( dimensions ) == 0 )
 			return Collections.emptyList();
+		final TaskExecutor executor = TaskMonitor.inheritCurrent( taskExecutor );
 		List< IterableInterval< ? > > iterableIntervals = imagesAsIterableIntervals();
 		if ( allCursorsAreFast( iterableIntervals ) )
-			return runUsingCursors( iterableIntervals, action );
+			return runUsingCursors( executor, iterableIntervals, action );
 		else
-			return runUsingRandomAccesses( action );
+			return runUsingRandomAccesses( executor, action );
+	}
+
+	/**
+	 * Performs a mutable reduction over the pixels of the images. For each
+	 * chunk, a container is created by {@code supplier}, and the pixels of
+	 * the chunk are passed to the action returned by {@code accumulator}
+	 * for that container. Finally, the containers of all chunks are combined
+	 * using {@code combiner}, which merges the second container into the
+	 * first.
+	 * <p>
+	 * The following example calculates the sum of the pixel values of an
+	 * image, compare {@link #forEachChunk}:
+	 *
+	 * <pre>
+	 * {@code
+	 *
+	 * IntType sum = LoopBuilder.setImages( image ).multiThreaded().collect(
+	 *     IntType::new,
+	 *     s -> pixel -> s.add( pixel ),
+	 *     IntType::add
+	 * );
+	 * }
+	 * </pre>
+	 *
+	 * @param supplier
+	 *            creates a new, empty container
+	 * @param accumulator
+	 *            returns a pixel action, that accumulates into the given
+	 *            container
+	 * @param combiner
+	 *            merges the second container into the first
+	 * @return the combined container, or an empty container if the images
+	 *         are empty
+	 */
+	public < A > A collect( final Supplier< A > supplier, final Function< A, T > accumulator, final BiConsumer< A, A > combiner )
+	{
+		Objects.requireNonNull( supplier );
+		Objects.requireNonNull( accumulator );
+		Objects.requireNonNull( combiner );
+		final List< A > results = forEachChunk( chunk -> {
+			final A container = supplier.get();
+			chunk.forEachPixel( accumulator.apply( container ) );
+			return container;
+		} );
+		if ( results.isEmpty() )
+			return supplier.get();
+		final A result = results.get( 0 );
+		for ( int i = 1; i < results.size(); i++ )
+			combiner.accept( result, results.get( i ) );
+		return result;
+	}
+
+	/**
+	 * Reduces the pixels of the images to a {@code double} value, using a
+	 * primitive accumulator per chunk. The pixel action returned by
+	 * {@code action} passes values to the given {@link DoubleConsumer},
+	 * which folds them into the accumulator using {@code op}. For example,
+	 * the maximum of an image:
+	 *
+	 * <pre>
+	 * {@code
+	 *
+	 * double max = LoopBuilder.setImages( image ).multiThreaded().reduceDouble(
+	 *     Double.NEGATIVE_INFINITY,
+	 *     Math::max,
+	 *     acc -> pixel -> acc.accept( pixel.getRealDouble() )
+	 * );
+	 * }
+	 * </pre>
+	 *
+	 * @param identity
+	 *            the identity value of {@code op}
+	 * @param op
+	 *            associative function that combines two values
+	 * @param action
+	 *            returns a pixel action, that passes values to the given
+	 *            accumulator
+	 * @return the reduced value, or {@code identity} if the images are empty
+	 */
+	public double reduceDouble( final double identity, final DoubleBinaryOperator op, final Function< DoubleConsumer, T > action )
+	{
+		Objects.requireNonNull( op );
+		Objects.requireNonNull( action );
+		final List< double[] > results = forEachChunk( chunk -> {
+			final double[] value = { identity };
+			chunk.forEachPixel( action.apply( x -> value[ 0 ] = op.applyAsDouble( value[ 0 ], x ) ) );
+			return value;
+		} );
+		double result = identity;
+		for ( final double[] value : results )
+			result = op.applyAsDouble( result, value[ 0 ] );
+		return result;
+	}
+
+	/**
+	 * Reduces the pixels of the images to a {@code long} value, using a
+	 * primitive accumulator per chunk. For example, the number of pixels
+	 * above a threshold:
+	 *
+	 * <pre>
+	 * {@code
+	 *
+	 * long count = LoopBuilder.setImages( image ).multiThreaded().reduceLong(
+	 *     0,
+	 *     Long::sum,
+	 *     acc -> pixel -> acc.accept( pixel.get() > threshold ? 1 : 0 )
+	 * );
+	 * }
+	 * </pre>
+	 *
+	 * @param identity
+	 *            the identity value of {@code op}
+	 * @param op
+	 *            associative function that combines two values
+	 * @param action
+	 *            returns a pixel action, that passes values to the given
+	 *            accumulator
+	 * @return the reduced value, or {@code identity} if the images are empty
+	 *
+	 * @see #reduceDouble
+	 */
+	public long reduceLong( final long identity, final LongBinaryOperator op, final Function< LongConsumer, T > action )
+	{
+		Objects.requireNonNull( op );
+		Objects.requireNonNull( action );
+		final List< long[] > results = forEachChunk( chunk -> {
+			final long[] value = { identity };
+			chunk.forEachPixel( action.apply( x -> value[ 0 ] = op.applyAsLong( value[ 0 ], x ) ) );
+			return value;
+		} );
+		long result = identity;
+		for ( final long[] value : results )
+			result = op.applyAsLong( result, value[ 0 ] );
+		return result;
+	}
+
+	/**
+	 * Sums up {@code double} values, computed from the pixels of the images,
+	 * using compensated summation ({@link RealSum}) per chunk and for the
+	 * combination of the chunks. For example, the mean of an image:
+	 *
+	 * <pre>
+	 * {@code
+	 *
+	 * double mean = LoopBuilder.setImages( image ).multiThreaded().sum(
+	 *     acc -> pixel -> acc.accept( pixel.getRealDouble() )
+	 * ) / Intervals.numElements( image );
+	 * }
+	 * </pre>
+	 *
+	 * @param action
+	 *            returns a pixel action, that passes the values to sum up to
+	 *            the given accumulator
+	 * @return the sum, or {@code 0} if the images are empty
+	 */
+	public double sum( final Function< DoubleConsumer, T > action )
+	{
+		Objects.requireNonNull( action );
+		final List< RealSum > results = forEachChunk( chunk -> {
+			final RealSum sum = new RealSum();
+			chunk.forEachPixel( action.apply( sum::add ) );
+			return sum;
+		} );
+		final RealSum total = new RealSum();
+		for ( final RealSum sum : results )
+			total.add( sum.getSum() );
+		return total.getSum();
 	}
 
 	private boolean allCursorsAreFast( List< IterableInterval< ? > > iterableIntervals )
@@ -301,6 +485,45 @@ public class LoopBuilder< T >
 		return this;
 	}
 
+	/**
+	 * Use adaptive chunking with a default minimum chunk size.
+	 *
+	 * @see #adaptiveChunking(long)
+	 */
+	public LoopBuilder< T > adaptiveChunking()
+	{
+		return adaptiveChunking( AdaptiveChunks.DEFAULT_MIN_CHUNK_SIZE );
+	}
+
+	/**
+	 * By default, a multi-threaded {@link LoopBuilder} splits the images
+	 * into a fixed number of equally sized chunks up front. If the cost per
+	 * pixel is non-uniform (e.g. masked operations, or lazily loaded images
+	 * with cache misses), some threads finish early and sit idle.
+	 * <p>
+	 * Calling this method causes {@link LoopBuilder} to split the images
+	 * on demand instead: Each thread starts with an equal share of the
+	 * image. A thread that has finished its share takes over half of the
+	 * largest remaining share of another thread, recursively, down to pieces
+	 * of {@code minChunkSize} pixels.
+	 * <p>
+	 * Each thread processes a single {@link Chunk}, that covers all the
+	 * pieces processed by that thread. Hence, {@link #forEachChunk} returns
+	 * at most one result per thread. {@link Chunk#forEachPixel} must be
+	 * called only once per chunk.
+	 *
+	 * @param minChunkSize
+	 *            minimum number of pixels that are processed without
+	 *            rebalancing. {@code 0} disables adaptive chunking.
+	 */
+	public LoopBuilder< T > adaptiveChunking( long minChunkSize )
+	{
+		if ( minChunkSize < 0 )
+			throw new IllegalArgumentException( "minChunkSize must not be negative" );
+		this.adaptiveMinChunkSize = minChunkSize;
+		return this;
+	}
+
 	public interface TriConsumer< A, B, C >
 	{
 		void accept( A a, B b, C c );
@@ -348,12 +571,21 @@ public class LoopBuilder< T >
 		}
 	}
 
-	private < R > List< R > runUsingRandomAccesses( Function< Chunk< T >, R > chunkAction )
+	private < R > List< R > runUsingRandomAccesses( TaskExecutor taskExecutor, Function< Chunk< T >, R > chunkAction )
 	{
-		final int nTasks = taskExecutor.suggestNumberOfTasks();
 		final Interval interval = new FinalInterval( dimensions );
-		final List< Interval > chunks = IntervalChunks.chunkInterval( interval, nTasks );
-		return taskExecutor.forEachApply( chunks, chunk -> runOnChunkUsingRandomAccesses( images, chunkAction, chunk ) );
+		if ( adaptiveMinChunkSize > 0 )
+		{
+			final int numWorkers = Math.max( 1, taskExecutor.getParallelism() );
+			final int numUnits = AdaptiveChunks.suggestNumberOfUnits( Intervals.numElements( interval ), adaptiveMinChunkSize, numWorkers );
+			final List< Interval > units = CellAlignment.chunkInterval( images, interval, numUnits );
+			return runAdaptive( taskExecutor, units.size(), numWorkers, ( scheduler, worker ) ->
+					runOnUnitsUsingRandomAccesses( images, chunkAction, units, scheduler, worker ) );
+		}
+		final int nTasks = taskExecutor.suggestNumberOfTasks();
+		final List< Interval > chunks = CellAlignment.chunkInterval( images, interval, nTasks );
+		return ExecutionMetrics.withTag( TAG, () ->
+				taskExecutor.forEachApply( chunks, chunk -> runOnChunkUsingRandomAccesses( images, chunkAction, chunk ) ) );
 	}
 
 	static < T, R > R runOnChunkUsingRandomAccesses( RandomAccessibleInterval[] images, Function< Chunk< T >, R > chunkAction, Interval subInterval )
@@ -368,6 +600,41 @@ public class LoopBuilder< T >
 		} );
 	}
 
+	static < T, R > R runOnUnitsUsingRandomAccesses( RandomAccessibleInterval[] images, Function< Chunk< T >, R > chunkAction, List< Interval > units, AdaptiveChunks scheduler, int worker )
+	{
+		final List< RandomAccess< ? > > samplers = ListUtils.map( LoopBuilder::initRandomAccess, images );
+		final Positionable synced = SyncedPositionables.create( samplers );
+		return chunkAction.apply( pixelAction -> {
+			final Runnable runnable = BindActionToSamplers.bindActionToSamplers( pixelAction, samplers );
+			final long[] position = new long[ images[ 0 ].numDimensions() ];
+			final long[] offset = new long[ position.length ];
+			for ( int unit = scheduler.next( worker ); unit >= 0; unit = scheduler.next( worker ) )
+			{
+				final Interval subInterval = units.get( unit );
+				for ( int d = 0; d < position.length; d++ )
+				{
+					offset[ d ] = subInterval.min( d ) - position[ d ];
+					position[ d ] = subInterval.min( d );
+				}
+				synced.move( offset );
+				LoopUtils.createIntervalLoop( synced, subInterval, runnable ).run();
+			}
+		} );
+	}
+
+	private static < R > List< R > runAdaptive( TaskExecutor taskExecutor, int numUnits, int numWorkers, BiFunction< AdaptiveChunks, Integer, R > workerAction )
+	{
+		final AdaptiveChunks scheduler = new AdaptiveChunks( numUnits, Math.min( numUnits, numWorkers ), TaskMonitor.of( taskExecutor ) );
+		final List< Integer > workers = new ArrayList<>( scheduler.numWorkers() );
+		for ( int i = 0; i < scheduler.numWorkers(); i++ )
+			workers.add( i );
+		final List< List< R > > results = ExecutionMetrics.withTag( TAG, () -> taskExecutor.forEachApply( workers, worker ->
+				scheduler.hasNext( worker ) ? Collections.singletonList( workerAction.apply( scheduler, worker ) ) : Collections.emptyList() ) );
+		final List< R > flat = new ArrayList<>( results.size() );
+		results.forEach( flat::addAll );
+		return flat;
+	}
+
 	private static RandomAccess< ? > initRandomAccess( final RandomAccessibleInterval< ? > image )
 	{
 		final RandomAccess< ? > ra = image.randomAccess();
@@ -382,13 +649,28 @@ public class LoopBuilder< T >
 				equalIterationOrderIterableIntervals();
 	}
 
-	private < R > List< R > runUsingCursors( List< IterableInterval< ? > > iterableIntervals, Function< Chunk< T >, R > chunkAction )
+	private < R > List< R > runUsingCursors( TaskExecutor taskExecutor, List< IterableInterval< ? > > iterableIntervals, Function< Chunk< T >, R > chunkAction )
 	{
+		final IterableInterval< ? > first = iterableIntervals.get( 0 );
+		if ( adaptiveMinChunkSize > 0 )
+		{
+			final int numWorkers = Math.max( 1, taskExecutor.getParallelism() );
+			final int numUnits = AdaptiveChunks.suggestNumberOfUnits( Intervals.numElements( images[ 0 ] ), adaptiveMinChunkSize, numWorkers );
+			final List< Interval > units = chunkFlatIndices( first, numUnits );
+			return runAdaptive( taskExecutor, units.size(), numWorkers, ( scheduler, worker ) ->
+					runOnUnitsUsingCursors( iterableIntervals, chunkAction, units, scheduler, worker ) );
+		}
 		int nTasks = taskExecutor.suggestNumberOfTasks();
-		final FinalInterval indices = new FinalInterval( Intervals.numElements( images[ 0 ] ) );
-		List< Interval > chunks = IntervalChunks.chunkInterval( indices, nTasks );
-		return taskExecutor.forEachApply( chunks, chunk ->
-				LoopBuilder.runOnChunkUsingCursors( iterableIntervals, chunkAction, chunk.min( 0 ), chunk.dimension( 0 ) ) );
+		final List< Interval > chunks = chunkFlatIndices( first, nTasks );
+		return ExecutionMetrics.withTag( TAG, () -> taskExecutor.forEachApply( chunks, chunk ->
+				LoopBuilder.runOnChunkUsingCursors( iterableIntervals, chunkAction, chunk.min( 0 ), chunk.dimension( 0 ) ) ) );
+	}
+
+	private List< Interval > chunkFlatIndices( IterableInterval< ? > first, int numberOfChunks )
+	{
+		return first instanceof AbstractCellImg
+				? IntervalChunks.chunkCellIndices( ( ( AbstractCellImg< ?, ?, ?, ? > ) first ).getCellGrid(), numberOfChunks )
+				: IntervalChunks.chunkInterval( new FinalInterval( Intervals.numElements( images[ 0 ] ) ), numberOfChunks );
 	}
 
 	static < T, R > R runOnChunkUsingCursors( List< IterableInterval< ? > > iterableIntervals, Function< Chunk< T >, R > chunkAction, long offset, long numElements )
@@ -402,6 +684,29 @@ public class LoopBuilder< T >
 		} );
 	}
 
+	static < T, R > R runOnUnitsUsingCursors( List< IterableInterval< ? > > iterableIntervals, Function< Chunk< T >, R > chunkAction, List< Interval > units, AdaptiveChunks scheduler, int worker )
+	{
+		final List< Cursor< ? > > cursors = ListUtils.map( IterableInterval::cursor, iterableIntervals );
+		return chunkAction.apply( pixelAction -> {
+			final LongConsumer cursorLoop = FastCursorLoops.createLoop( pixelAction, cursors );
+			long position = 0;
+			for ( int unit = scheduler.next( worker ); unit >= 0; unit = scheduler.next( worker ) )
+			{
+				final long offset = units.get( unit ).min( 0 );
+				final long numElements = units.get( unit ).dimension( 0 );
+				if ( offset < position )
+				{
+					cursors.forEach( Cursor::reset );
+					position = 0;
+				}
+				if ( offset > position )
+					jumpFwd( cursors, offset - position );
+				cursorLoop.accept( numElements );
+				position = offset + numElements;
+			}
+		} );
+	}
+
 	private static void jumpFwd( List< Cursor< ? > > cursors, long offset )
 	{
 		for ( Cursor< ? > cursor : cursors )
@@ -137,6 +137,23 @@ public class OutOfBoundsMirrorExpWindowing< T extends NumericType< T > > extends
 		return outOfBoundsRandomAccess.get();
 	}
 
+	/**
+	 * Get the lookup tables for the weights. {@code getWeights()[d][distance]}
+	 * is the weight of a pixel that is {@code distance + 1} pixels outside the
+	 * interval in dimension {@code d}. Beyond the end of the lookup table, the
+	 * weight is {@code 0}. The weight of a pixel that is out-of-bounds in
+	 * several dimensions is the product of the respective weights.
+	 *
+	 * @return a copy of the weight lookup tables
+	 */
+	public float[][] getWeights()
+	{
+		final float[][] copy = new float[ weights.length ][];
+		for ( int d = 0; d < weights.length; ++d )
+			copy[ d ] = weights[ d ].clone();
+		return copy;
+	}
+
 	final protected float getWeight( final long[] zeroMinPosition )
 	{
 		float weight = 1;
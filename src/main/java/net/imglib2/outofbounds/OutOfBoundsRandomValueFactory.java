@@ -70,11 +70,26 @@ public class OutOfBoundsRandomValueFactory< T extends RealType< T >, F extends I
 		this.max = max;
 	}
 
+	public double getMin()
+	{
+		return min;
+	}
+
+	public double getMax()
+	{
+		return max;
+	}
+
 	public void setRandom( final Random rnd )
 	{
 		this.rnd = rnd;
 	}
 
+	public Random getRandom()
+	{
+		return rnd;
+	}
+
 	@Override
 	public OutOfBoundsRandomValue< T > create( final F f )
 	{
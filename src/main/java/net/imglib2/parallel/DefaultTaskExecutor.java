@@ -150,7 +150,7 @@ public class DefaultTaskExecutor implements TaskExecutor
 	 * read. This method unwraps the {@link ExecutionException} and thereby
 	 * reveals the original exception, and ensures it's complete stack trace.
 	 */
-	private RuntimeException unwrapExecutionException( Throwable e )
+	static RuntimeException unwrapExecutionException( Throwable e )
 	{
 		if ( e instanceof ExecutionException )
 		{
@@ -164,7 +164,7 @@ public class DefaultTaskExecutor implements TaskExecutor
 			return new RuntimeException( e );
 	}
 
-	private < T > T[] concatenate( final T[] a, final T[] b )
+	private static < T > T[] concatenate( final T[] a, final T[] b )
 	{
 		int aLen = a.length;
 		int bLen = b.length;
@@ -0,0 +1,269 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.parallel;
+
+import java.util.function.Supplier;
+
+/**
+ * Timing statistics of a single {@link TaskExecutor#runAll runAll},
+ * {@link TaskExecutor#forEach forEach} or {@link TaskExecutor#forEachApply
+ * forEachApply} call, as recorded by an
+ * {@link TaskExecutors#instrumented(TaskExecutor, Listener) instrumented}
+ * {@link TaskExecutor}.
+ * <p>
+ * All times are in nanoseconds:
+ * <ul>
+ * <li><em>wall time</em>: from the submission of the tasks until all tasks
+ * are finished,</li>
+ * <li><em>task time</em>: from the start to the end of a single task,</li>
+ * <li><em>queueing delay</em>: from the submission of the tasks until a
+ * single task is started.</li>
+ * </ul>
+ * Load imbalance shows as a high {@link #getStragglerRatio() straggler
+ * ratio}, and as a low {@link #getUtilization() utilization}.
+ * <p>
+ * Submissions can be attributed to their origin with
+ * {@link #withTag(String, Supplier)}. {@link net.imglib2.loops.LoopBuilder},
+ * {@link net.imglib2.loops.IterableLoopBuilder} and the parallel
+ * {@link net.imglib2.blocks.PrimitiveBlocks} copy tag their submissions with
+ * their class name.
+ */
+public final class ExecutionMetrics
+{
+	/**
+	 * Receives the {@link ExecutionMetrics} of every call to an
+	 * {@link TaskExecutors#instrumented(TaskExecutor, Listener) instrumented}
+	 * {@link TaskExecutor}. May be called concurrently from multiple threads.
+	 */
+	@FunctionalInterface
+	public interface Listener
+	{
+		void executed( ExecutionMetrics metrics );
+	}
+
+	private static final ThreadLocal< String > currentTag = new ThreadLocal<>();
+
+	/**
+	 * Run {@code action}, tagging all submissions to
+	 * {@link TaskExecutors#instrumented instrumented} {@link TaskExecutor}s
+	 * that are made by the current thread with {@code tag}.
+	 */
+	public static < R > R withTag( final String tag, final Supplier< R > action )
+	{
+		final String old = currentTag.get();
+		currentTag.set( tag );
+		try
+		{
+			return action.get();
+		}
+		finally
+		{
+			currentTag.set( old );
+		}
+	}
+
+	/**
+	 * Returns the tag set by {@link #withTag} for the current thread, or
+	 * {@code null}.
+	 */
+	public static String currentTag()
+	{
+		return currentTag.get();
+	}
+
+	private final String tag;
+
+	private final int parallelism;
+
+	private final long wallNanos;
+
+	private final long[] taskNanos;
+
+	private final long[] queueingNanos;
+
+	private final int numThreads;
+
+	ExecutionMetrics( final String tag, final int parallelism, final long wallNanos, final long[] taskNanos, final long[] queueingNanos, final int numThreads )
+	{
+		this.tag = tag;
+		this.parallelism = parallelism;
+		this.wallNanos = wallNanos;
+		this.taskNanos = taskNanos;
+		this.queueingNanos = queueingNanos;
+		this.numThreads = numThreads;
+	}
+
+	/**
+	 * Returns the tag of the submission, or {@code null} if it was not
+	 * tagged.
+	 */
+	public String getTag()
+	{
+		return tag;
+	}
+
+	/**
+	 * Returns the number of tasks.
+	 */
+	public int getNumTasks()
+	{
+		return taskNanos.length;
+	}
+
+	/**
+	 * Returns the {@link TaskExecutor#getParallelism() parallelism} of the
+	 * executor.
+	 */
+	public int getParallelism()
+	{
+		return parallelism;
+	}
+
+	/**
+	 * Returns the number of distinct threads that ran the tasks.
+	 */
+	public int getNumThreads()
+	{
+		return numThreads;
+	}
+
+	/**
+	 * Returns the wall time of the call.
+	 */
+	public long getWallNanos()
+	{
+		return wallNanos;
+	}
+
+	/**
+	 * Returns the time of task {@code i}.
+	 */
+	public long getTaskNanos( final int i )
+	{
+		return taskNanos[ i ];
+	}
+
+	/**
+	 * Returns the queueing delay of task {@code i}.
+	 */
+	public long getQueueingNanos( final int i )
+	{
+		return queueingNanos[ i ];
+	}
+
+	/**
+	 * Returns the sum of all task times.
+	 */
+	public long getTotalTaskNanos()
+	{
+		long sum = 0;
+		for ( final long t : taskNanos )
+			sum += t;
+		return sum;
+	}
+
+	/**
+	 * Returns the mean task time.
+	 */
+	public double getMeanTaskNanos()
+	{
+		return taskNanos.length == 0 ? 0 : ( double ) getTotalTaskNanos() / taskNanos.length;
+	}
+
+	/**
+	 * Returns the time of the slowest task.
+	 */
+	public long getMaxTaskNanos()
+	{
+		return max( taskNanos );
+	}
+
+	/**
+	 * Returns the mean queueing delay.
+	 */
+	public double getMeanQueueingNanos()
+	{
+		if ( queueingNanos.length == 0 )
+			return 0;
+		long sum = 0;
+		for ( final long t : queueingNanos )
+			sum += t;
+		return ( double ) sum / queueingNanos.length;
+	}
+
+	/**
+	 * Returns the longest queueing delay.
+	 */
+	public long getMaxQueueingNanos()
+	{
+		return max( queueingNanos );
+	}
+
+	/**
+	 * Returns the ratio of the slowest task time to the mean task time. This
+	 * is 1 for perfectly balanced tasks.
+	 */
+	public double getStragglerRatio()
+	{
+		final double mean = getMeanTaskNanos();
+		return mean == 0 ? 1 : getMaxTaskNanos() / mean;
+	}
+
+	/**
+	 * Returns the fraction of the available thread time (wall time *
+	 * parallelism) that was spent running tasks. This is 1 if all threads were
+	 * busy for the whole call.
+	 */
+	public double getUtilization()
+	{
+		final double available = ( double ) wallNanos * Math.max( 1, parallelism );
+		return available == 0 ? 1 : Math.min( 1, getTotalTaskNanos() / available );
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format( "ExecutionMetrics{tag=%s, tasks=%d, parallelism=%d, threads=%d, wall=%.3fms, meanTask=%.3fms, maxTask=%.3fms, straggler=%.2f, meanQueueing=%.3fms, utilization=%.2f}",
+				tag, getNumTasks(), parallelism, numThreads, wallNanos * 1e-6, getMeanTaskNanos() * 1e-6, getMaxTaskNanos() * 1e-6,
+				getStragglerRatio(), getMeanQueueingNanos() * 1e-6, getUtilization() );
+	}
+
+	private static long max( final long[] values )
+	{
+		long max = 0;
+		for ( final long t : values )
+			max = Math.max( max, t );
+		return max;
+	}
+}
@@ -0,0 +1,145 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A {@link TaskExecutor} that records {@link ExecutionMetrics} for every
+ * {@link #runAll}, {@link #forEach} and {@link #forEachApply} call, and
+ * reports them to an {@link ExecutionMetrics.Listener}.
+ * <p>
+ * Tasks run with this executor as {@link Parallelization#getTaskExecutor()
+ * thread-local executor}, so that nested parallel code is instrumented as
+ * well. Metrics are only reported for calls that complete without exception.
+ *
+ * @see TaskExecutors#instrumented(TaskExecutor, ExecutionMetrics.Listener)
+ */
+class InstrumentedTaskExecutor implements DelegatingTaskExecutor
+{
+	private final TaskExecutor delegate;
+
+	private final ExecutionMetrics.Listener listener;
+
+	InstrumentedTaskExecutor( final TaskExecutor delegate, final ExecutionMetrics.Listener listener )
+	{
+		this.delegate = delegate;
+		this.listener = listener;
+	}
+
+	@Override
+	public TaskExecutor getDelegate()
+	{
+		return delegate;
+	}
+
+	@Override
+	public ExecutorService getExecutorService()
+	{
+		return delegate.getExecutorService();
+	}
+
+	@Override
+	public int getParallelism()
+	{
+		return delegate.getParallelism();
+	}
+
+	@Override
+	public int suggestNumberOfTasks()
+	{
+		return delegate.suggestNumberOfTasks();
+	}
+
+	@Override
+	public void runAll( final List< Runnable > tasks )
+	{
+		forEachApply( tasks, task -> {
+			task.run();
+			return null;
+		} );
+	}
+
+	@Override
+	public < T > void forEach( final List< ? extends T > parameters, final Consumer< ? super T > task )
+	{
+		forEachApply( parameters, value -> {
+			task.accept( value );
+			return null;
+		} );
+	}
+
+	@Override
+	public < T, R > List< R > forEachApply( final List< ? extends T > parameters, final Function< ? super T, ? extends R > task )
+	{
+		final String tag = ExecutionMetrics.currentTag();
+		final int numTasks = parameters.size();
+		final List< Integer > indices = new ArrayList<>( numTasks );
+		for ( int i = 0; i < numTasks; i++ )
+			indices.add( i );
+		final long[] taskNanos = new long[ numTasks ];
+		final long[] queueingNanos = new long[ numTasks ];
+		final Set< Thread > threads = ConcurrentHashMap.newKeySet();
+
+		final long submitted = System.nanoTime();
+		final List< R > results = delegate.forEachApply( indices, i -> {
+			final long start = System.nanoTime();
+			threads.add( Thread.currentThread() );
+			final R result;
+			try (Parallelization.Frame frame = Parallelization.setExecutorRequiresReset( this ))
+			{
+				result = task.apply( parameters.get( i ) );
+			}
+			taskNanos[ i ] = System.nanoTime() - start;
+			queueingNanos[ i ] = start - submitted;
+			return result;
+		} );
+		final long wallNanos = System.nanoTime() - submitted;
+
+		listener.executed( new ExecutionMetrics( tag, getParallelism(), wallNanos, taskNanos, queueingNanos, threads.size() ) );
+		return results;
+	}
+
+	@Override
+	public void close()
+	{
+		delegate.close();
+	}
+}
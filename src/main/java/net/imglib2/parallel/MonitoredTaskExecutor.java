@@ -0,0 +1,160 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.parallel;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A {@link TaskExecutor} that checks a {@link TaskMonitor} for cancellation
+ * before each task, and reports each completed task to it.
+ * <p>
+ * Tasks run with this executor as {@link Parallelization#getTaskExecutor()
+ * thread-local executor}, so that nested parallel code is monitored as well.
+ * If the computation is cancelled, the remaining tasks fail fast with a
+ * {@link java.util.concurrent.CancellationException}, which is rethrown by
+ * {@link #runAll}, {@link #forEach} and {@link #forEachApply}.
+ *
+ * @see TaskExecutors#monitored(TaskExecutor, TaskMonitor)
+ */
+class MonitoredTaskExecutor implements DelegatingTaskExecutor
+{
+	private final TaskExecutor delegate;
+
+	private final TaskMonitor monitor;
+
+	private final TaskExecutor context;
+
+	MonitoredTaskExecutor( final TaskExecutor delegate, final TaskMonitor monitor )
+	{
+		this.delegate = delegate;
+		this.monitor = monitor;
+		this.context = this;
+	}
+
+	/**
+	 * Create a {@code MonitoredTaskExecutor}, whose tasks run with the given
+	 * {@code context} as {@link Parallelization#getTaskExecutor() thread-local
+	 * executor}.
+	 */
+	MonitoredTaskExecutor( final TaskExecutor delegate, final TaskMonitor monitor, final TaskExecutor context )
+	{
+		this.delegate = delegate;
+		this.monitor = monitor;
+		this.context = context;
+	}
+
+	@Override
+	public TaskExecutor getDelegate()
+	{
+		return delegate;
+	}
+
+	TaskMonitor getMonitor()
+	{
+		return monitor;
+	}
+
+	@Override
+	public ExecutorService getExecutorService()
+	{
+		return delegate.getExecutorService();
+	}
+
+	@Override
+	public int getParallelism()
+	{
+		return delegate.getParallelism();
+	}
+
+	@Override
+	public int suggestNumberOfTasks()
+	{
+		return delegate.suggestNumberOfTasks();
+	}
+
+	@Override
+	public void runAll( final List< Runnable > tasks )
+	{
+		submit( tasks.size() );
+		delegate.forEach( tasks, task -> run( () -> {
+			task.run();
+			return null;
+		} ) );
+	}
+
+	@Override
+	public < T > void forEach( final List< ? extends T > parameters, final Consumer< ? super T > task )
+	{
+		submit( parameters.size() );
+		delegate.forEach( parameters, value -> run( () -> {
+			task.accept( value );
+			return null;
+		} ) );
+	}
+
+	@Override
+	public < T, R > List< R > forEachApply( final List< ? extends T > parameters, final Function< ? super T, ? extends R > task )
+	{
+		submit( parameters.size() );
+		return delegate.forEachApply( parameters, value -> run( () -> task.apply( value ) ) );
+	}
+
+	@Override
+	public void close()
+	{
+		delegate.close();
+	}
+
+	private void submit( final int numTasks )
+	{
+		monitor.checkCancelled();
+		monitor.tasksSubmitted( numTasks );
+	}
+
+	private < R > R run( final Supplier< R > task )
+	{
+		monitor.checkCancelled();
+		final R result;
+		try (Parallelization.Frame frame = Parallelization.setExecutorRequiresReset( context ))
+		{
+			result = task.get();
+		}
+		monitor.taskCompleted();
+		return result;
+	}
+}
@@ -146,6 +146,47 @@ public final class TaskExecutors
 		return forExecutorService( Executors.newFixedThreadPool( numThreads, threadFactory ) );
 	}
 
+	/**
+	 * Returns a {@link TaskExecutor} for I/O-bound tasks, that runs each task
+	 * in its own (virtual, on Java 21+) thread, with at most
+	 * {@code maxConcurrency} tasks running at the same time. CPU-bound work
+	 * within the tasks uses {@link #multiThreaded()}.
+	 * The {@link TaskExecutor} needs to be closed by calling {@link TaskExecutor#close()}.
+	 *
+	 * @see ThreadPerTaskExecutor
+	 */
+	public static TaskExecutor threadPerTask( int maxConcurrency )
+	{
+		return new ThreadPerTaskExecutor( maxConcurrency );
+	}
+
+	/**
+	 * Returns a {@link TaskExecutor} that runs the tasks using the given
+	 * {@code taskExecutor}, checks the given {@link TaskMonitor} for
+	 * cancellation before each task and reports completed tasks to it.
+	 * Nested parallel code, that uses {@link Parallelization#getTaskExecutor()},
+	 * is monitored as well.
+	 *
+	 * @see TaskMonitor
+	 */
+	public static TaskExecutor monitored( TaskExecutor taskExecutor, TaskMonitor monitor )
+	{
+		return new MonitoredTaskExecutor( taskExecutor, monitor );
+	}
+
+	/**
+	 * Returns a {@link TaskExecutor} that runs the tasks using the given
+	 * {@code taskExecutor}, and reports {@link ExecutionMetrics} of every call
+	 * to the given {@code listener}. Nested parallel code, that uses
+	 * {@link Parallelization#getTaskExecutor()}, is instrumented as well.
+	 *
+	 * @see ExecutionMetrics
+	 */
+	public static TaskExecutor instrumented( TaskExecutor taskExecutor, ExecutionMetrics.Listener listener )
+	{
+		return new InstrumentedTaskExecutor( taskExecutor, listener );
+	}
+
 	/**
 	 * Returns a {@link ThreadFactory}. Whenever this thread factory is used
 	 * to create a thread, a {@link TaskExecutor} will is create and assigned
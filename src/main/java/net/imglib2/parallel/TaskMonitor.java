@@ -0,0 +1,234 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.parallel;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cancellation token and progress counter for computations that are run by
+ * a {@link TaskExecutor}.
+ * <p>
+ * A {@code TaskMonitor} is attached to a {@link TaskExecutor} using
+ * {@link TaskExecutors#monitored(TaskExecutor, TaskMonitor)}. The monitored
+ * executor checks for cancellation before each task, and counts completed
+ * tasks. As the monitored executor is also the
+ * {@link Parallelization#getTaskExecutor() thread-local executor} within the
+ * tasks, nested parallel code (e.g. {@link net.imglib2.loops.LoopBuilder})
+ * checks the same monitor at chunk granularity.
+ * <p>
+ * Here is an example, that aborts a superseded computation:
+ *
+ * <pre>
+ * {@code
+ * TaskMonitor monitor = new TaskMonitor();
+ * TaskExecutor executor = TaskExecutors.monitored( TaskExecutors.multiThreaded(), monitor );
+ * // in a background thread:
+ * Parallelization.runWithExecutor( executor, () -> {
+ *     LoopBuilder.setImages( output ).multiThreaded().forEachPixel( ... );
+ * } ); // throws CancellationException if cancelled
+ * // when the result is no longer needed:
+ * monitor.cancel();
+ * }
+ * </pre>
+ */
+public class TaskMonitor
+{
+	/**
+	 * Receives progress updates from a {@link TaskMonitor}.
+	 */
+	@FunctionalInterface
+	public interface ProgressListener
+	{
+		/**
+		 * Called whenever a task completes. May be called concurrently from
+		 * multiple threads. {@code totalTasks} grows as nested tasks are
+		 * submitted.
+		 *
+		 * @param completedTasks
+		 *            number of completed tasks
+		 * @param totalTasks
+		 *            number of submitted tasks
+		 */
+		void progress( long completedTasks, long totalTasks );
+	}
+
+	private volatile boolean cancelled = false;
+
+	private volatile long deadline = Long.MAX_VALUE;
+
+	private volatile boolean hasDeadline = false;
+
+	private final AtomicLong completedTasks = new AtomicLong();
+
+	private final AtomicLong totalTasks = new AtomicLong();
+
+	private final ProgressListener listener;
+
+	/**
+	 * Create a {@code TaskMonitor} without progress listener.
+	 */
+	public TaskMonitor()
+	{
+		this( null );
+	}
+
+	/**
+	 * Create a {@code TaskMonitor} that reports progress to the given
+	 * {@code listener}.
+	 *
+	 * @param listener
+	 *            progress listener, may be {@code null}.
+	 */
+	public TaskMonitor( final ProgressListener listener )
+	{
+		this.listener = listener;
+	}
+
+	/**
+	 * Request cancellation. Tasks that have not been started yet will throw
+	 * a {@link CancellationException} instead of running.
+	 */
+	public void cancel()
+	{
+		cancelled = true;
+	}
+
+	/**
+	 * Cancel automatically, once the given time has elapsed.
+	 */
+	public void setTimeout( final long timeout, final TimeUnit unit )
+	{
+		deadline = System.nanoTime() + unit.toNanos( timeout );
+		hasDeadline = true;
+	}
+
+	/**
+	 * Returns {@code true} if {@link #cancel()} was called, or the timeout has
+	 * elapsed.
+	 */
+	public boolean isCancelled()
+	{
+		if ( cancelled )
+			return true;
+		if ( hasDeadline && System.nanoTime() - deadline >= 0 )
+		{
+			cancelled = true;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Throws a {@link CancellationException} if {@link #isCancelled()}.
+	 */
+	public void checkCancelled()
+	{
+		if ( isCancelled() )
+			throw new CancellationException( "Computation was cancelled." );
+	}
+
+	/**
+	 * Returns the number of completed tasks.
+	 */
+	public long getCompletedTasks()
+	{
+		return completedTasks.get();
+	}
+
+	/**
+	 * Returns the number of submitted tasks.
+	 */
+	public long getTotalTasks()
+	{
+		return totalTasks.get();
+	}
+
+	void tasksSubmitted( final int numTasks )
+	{
+		totalTasks.addAndGet( numTasks );
+	}
+
+	void taskCompleted()
+	{
+		final long completed = completedTasks.incrementAndGet();
+		if ( listener != null )
+			listener.progress( completed, totalTasks.get() );
+	}
+
+	/**
+	 * Returns the {@link TaskMonitor} of the
+	 * {@link Parallelization#getTaskExecutor() current thread-local executor},
+	 * or {@code null} if it is not {@link TaskExecutors#monitored monitored}.
+	 */
+	public static TaskMonitor current()
+	{
+		return of( Parallelization.getTaskExecutor() );
+	}
+
+	/**
+	 * Returns the {@link TaskMonitor} of the given executor, or {@code null}
+	 * if it is not {@link TaskExecutors#monitored monitored}. The monitor is
+	 * also found if the monitored executor is decorated further (e.g.
+	 * {@link TaskExecutors#instrumented instrumented}).
+	 */
+	public static TaskMonitor of( TaskExecutor taskExecutor )
+	{
+		while ( taskExecutor instanceof DelegatingTaskExecutor )
+		{
+			if ( taskExecutor instanceof MonitoredTaskExecutor )
+				return ( ( MonitoredTaskExecutor ) taskExecutor ).getMonitor();
+			taskExecutor = ( ( DelegatingTaskExecutor ) taskExecutor ).getDelegate();
+		}
+		return null;
+	}
+
+	/**
+	 * Returns {@code taskExecutor}, monitored by the {@link #current()
+	 * current monitor}, if there is one and {@code taskExecutor} is not
+	 * monitored itself. This is used by loops that run on an explicitly
+	 * chosen executor, e.g. a single threaded
+	 * {@link net.imglib2.loops.LoopBuilder}, to still honor cancellation of
+	 * the surrounding computation.
+	 */
+	public static TaskExecutor inheritCurrent( final TaskExecutor taskExecutor )
+	{
+		if ( of( taskExecutor ) != null )
+			return taskExecutor;
+		final TaskExecutor current = Parallelization.getTaskExecutor();
+		final TaskMonitor monitor = of( current );
+		return monitor == null ? taskExecutor : new MonitoredTaskExecutor( taskExecutor, monitor, current );
+	}
+}
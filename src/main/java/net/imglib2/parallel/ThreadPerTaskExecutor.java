@@ -0,0 +1,294 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.parallel;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A {@link TaskExecutor} for I/O-bound tasks, that runs each task in its own
+ * thread. On Java 21 and newer, virtual threads are used. On older Java
+ * versions, threads are taken from a cached pool of platform threads.
+ * <p>
+ * Two limits are configured separately:
+ * <ul>
+ * <li>{@code maxConcurrency} bounds the number of tasks that run at the same
+ * time (e.g., the number of concurrently loaded or written cells).</li>
+ * <li>{@code cpuTaskExecutor} is used for CPU-bound work: Within the tasks,
+ * {@link Parallelization#getTaskExecutor()} returns {@code cpuTaskExecutor},
+ * and {@link #getParallelism()} and {@link #suggestNumberOfTasks()} report
+ * its values.</li>
+ * </ul>
+ * If a task fails, the tasks that have not been started are skipped, the
+ * running tasks are interrupted, and the first exception is rethrown once all
+ * started tasks have finished.
+ */
+public class ThreadPerTaskExecutor implements TaskExecutor
+{
+	private final ExecutorService executorService;
+
+	private final int maxConcurrency;
+
+	private final TaskExecutor cpuTaskExecutor;
+
+	private final boolean virtualThreads;
+
+	/**
+	 * Create a {@code ThreadPerTaskExecutor} that runs at most {@code
+	 * maxConcurrency} tasks at the same time, and uses {@link
+	 * TaskExecutors#multiThreaded()} for CPU-bound work.
+	 *
+	 * @param maxConcurrency
+	 *            maximum number of concurrently running tasks
+	 */
+	public ThreadPerTaskExecutor( final int maxConcurrency )
+	{
+		this( maxConcurrency, TaskExecutors.multiThreaded() );
+	}
+
+	/**
+	 * Create a {@code ThreadPerTaskExecutor} that runs at most {@code
+	 * maxConcurrency} tasks at the same time, and uses {@code
+	 * cpuTaskExecutor} for CPU-bound work.
+	 *
+	 * @param maxConcurrency
+	 *            maximum number of concurrently running tasks
+	 * @param cpuTaskExecutor
+	 *            used for CPU-bound work within tasks. It is not closed by
+	 *            {@link #close()}.
+	 */
+	public ThreadPerTaskExecutor( final int maxConcurrency, final TaskExecutor cpuTaskExecutor )
+	{
+		if ( maxConcurrency < 1 )
+			throw new IllegalArgumentException( "maxConcurrency must be positive" );
+		this.maxConcurrency = maxConcurrency;
+		this.cpuTaskExecutor = cpuTaskExecutor;
+		final ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+		virtualThreads = virtual != null;
+		executorService = virtualThreads ? virtual : Executors.newCachedThreadPool( platformThreadFactory() );
+	}
+
+	/**
+	 * Whether tasks are run on virtual threads.
+	 */
+	public boolean usesVirtualThreads()
+	{
+		return virtualThreads;
+	}
+
+	/**
+	 * Get the maximum number of concurrently running tasks.
+	 */
+	public int getMaxConcurrency()
+	{
+		return maxConcurrency;
+	}
+
+	@Override
+	public int getParallelism()
+	{
+		return cpuTaskExecutor.getParallelism();
+	}
+
+	@Override
+	public int suggestNumberOfTasks()
+	{
+		return cpuTaskExecutor.suggestNumberOfTasks();
+	}
+
+	@Override
+	public void runAll( final List< Runnable > tasks )
+	{
+		final List< Function< Void, Object > > functions = new ArrayList<>( tasks.size() );
+		for ( final Runnable task : tasks )
+			functions.add( ignored -> {
+				task.run();
+				return null;
+			} );
+		invokeAll( Collections.nCopies( tasks.size(), null ), functions );
+	}
+
+	@Override
+	public < T > void forEach( final List< ? extends T > parameters, final Consumer< ? super T > task )
+	{
+		invokeAll( parameters, Collections.nCopies( parameters.size(), parameter -> {
+			task.accept( parameter );
+			return null;
+		} ) );
+	}
+
+	@Override
+	public < T, R > List< R > forEachApply( final List< ? extends T > parameters, final Function< ? super T, ? extends R > task )
+	{
+		return invokeAll( parameters, Collections.nCopies( parameters.size(), task ) );
+	}
+
+	/**
+	 * Apply {@code functions.get(i)} to {@code parameters.get(i)} for all
+	 * {@code i}, with at most {@code maxConcurrency} functions running at the
+	 * same time.
+	 */
+	private < T, R > List< R > invokeAll( final List< ? extends T > parameters, final List< ? extends Function< ? super T, ? extends R > > functions )
+	{
+		final int numTasks = parameters.size();
+		final Semaphore permits = new Semaphore( maxConcurrency );
+		final AtomicReference< Throwable > failure = new AtomicReference<>();
+		final List< Future< R > > futures = new ArrayList<>( numTasks );
+		try
+		{
+			for ( int i = 0; i < numTasks && failure.get() == null; ++i )
+			{
+				permits.acquire();
+				if ( failure.get() != null )
+				{
+					permits.release();
+					break;
+				}
+				final T parameter = parameters.get( i );
+				final Function< ? super T, ? extends R > function = functions.get( i );
+				final Future< R > future = executorService.submit( () -> {
+					try (Parallelization.Frame frame = Parallelization.setExecutorRequiresReset( cpuTaskExecutor ))
+					{
+						return function.apply( parameter );
+					}
+					catch ( final Throwable t )
+					{
+						if ( failure.compareAndSet( null, t ) )
+							cancel( futures );
+						throw t;
+					}
+					finally
+					{
+						permits.release();
+					}
+				} );
+				synchronized ( futures )
+				{
+					futures.add( future );
+				}
+			}
+			// a task may have failed before its siblings were submitted
+			if ( failure.get() != null )
+				cancel( futures );
+
+			final List< R > results = new ArrayList<>( numTasks );
+			for ( final Future< R > future : futures )
+			{
+				try
+				{
+					results.add( future.get() );
+				}
+				catch ( final CancellationException | ExecutionException e )
+				{
+					// NB: report the first failure below
+				}
+			}
+			if ( failure.get() != null )
+				throw DefaultTaskExecutor.unwrapExecutionException( new ExecutionException( failure.get() ) );
+			return results;
+		}
+		catch ( final InterruptedException e )
+		{
+			cancel( futures );
+			Thread.currentThread().interrupt();
+			throw new RuntimeException( e );
+		}
+	}
+
+	private static void cancel( final List< ? extends Future< ? > > futures )
+	{
+		synchronized ( futures )
+		{
+			for ( final Future< ? > future : futures )
+				future.cancel( true );
+		}
+	}
+
+	@Override
+	public ExecutorService getExecutorService()
+	{
+		return executorService;
+	}
+
+	@Override
+	public void close()
+	{
+		executorService.shutdown();
+	}
+
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	private static ThreadFactory platformThreadFactory()
+	{
+		return runnable -> {
+			final Thread thread = new Thread( runnable, "imglib2-task-" + threadCount.incrementAndGet() );
+			thread.setDaemon( true );
+			return thread;
+		};
+	}
+
+	/**
+	 * Create {@code Executors.newThreadPerTaskExecutor(Thread.ofVirtual().factory())}
+	 * if virtual threads are available (Java 21+), or return {@code null}.
+	 */
+	private static ExecutorService newVirtualThreadPerTaskExecutor()
+	{
+		try
+		{
+			final Object builder = Thread.class.getMethod( "ofVirtual" ).invoke( null );
+			final Class< ? > builderClass = Class.forName( "java.lang.Thread$Builder" );
+			final Object namedBuilder = builderClass.getMethod( "name", String.class, long.class ).invoke( builder, "imglib2-virtual-task-", 1L );
+			final ThreadFactory factory = ( ThreadFactory ) builderClass.getMethod( "factory" ).invoke( namedBuilder );
+			final Method newThreadPerTaskExecutor = Executors.class.getMethod( "newThreadPerTaskExecutor", ThreadFactory.class );
+			return ( ExecutorService ) newThreadPerTaskExecutor.invoke( null, factory );
+		}
+		catch ( final ReflectiveOperationException | RuntimeException e )
+		{
+			return null;
+		}
+	}
+}
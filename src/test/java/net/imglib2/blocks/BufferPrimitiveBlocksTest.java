@@ -0,0 +1,215 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Random;
+
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converters;
+import net.imglib2.converter.RealFloatConverter;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.nio.ShortBufferAccess;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.outofbounds.OutOfBoundsMirrorExpWindowingFactory;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+public class BufferPrimitiveBlocksTest
+{
+	private final Random random = new Random( 1L );
+
+	private final Img< UnsignedShortType > cellImg = fill( new CellImgFactory<>( new UnsignedShortType(), 16, 8, 4 ).create( 50, 40, 30 ) );
+
+	private < I extends Img< UnsignedShortType > > I fill( final I img )
+	{
+		img.forEach( t -> t.set( random.nextInt( 65536 ) ) );
+		return img;
+	}
+
+	private final long[] min = { -3, 5, -2 };
+
+	private final int[] size = { 60, 20, 10 };
+
+	@Test
+	public void testByteBuffer()
+	{
+		final PrimitiveBlocks< UnsignedShortType > blocks = PrimitiveBlocks.of( Views.extendZero( cellImg ), PrimitiveBlocks.OnFallback.FAIL );
+		final short[] expected = copyToArray( blocks, min, size );
+		for ( final ByteOrder order : new ByteOrder[] { ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN } )
+		{
+			for ( final boolean direct : new boolean[] { false, true } )
+			{
+				final int numBytes = 2 * expected.length;
+				final ByteBuffer buffer = ( direct ? ByteBuffer.allocateDirect( numBytes + 6 ) : ByteBuffer.allocate( numBytes + 6 ) ).order( order );
+				buffer.position( 6 );
+				blocks.copy( min, buffer, size );
+				assertEquals( 6, buffer.position() );
+				assertEquals( numBytes + 6, buffer.limit() );
+				for ( int i = 0; i < expected.length; ++i )
+					assertEquals( expected[ i ], buffer.getShort( 6 + 2 * i ) );
+			}
+		}
+	}
+
+	@Test
+	public void testTypedBuffer()
+	{
+		final PrimitiveBlocks< UnsignedShortType > blocks = PrimitiveBlocks.of( Views.extendMirrorSingle( cellImg ), PrimitiveBlocks.OnFallback.FAIL );
+		final short[] expected = copyToArray( blocks, min, size );
+		final ShortBuffer buffer = ShortBuffer.allocate( expected.length );
+		blocks.copy( min, buffer, size );
+		assertArrayEquals( expected, buffer.array() );
+	}
+
+	@Test
+	public void testTransformedAndConverted()
+	{
+		final RandomAccessible< UnsignedShortType > permuted = Views.permute( Views.invertAxis( Views.extendBorder( cellImg ), 2 ), 0, 2 );
+		testFloatBuffer( Converters.convert( permuted, new RealFloatConverter<>(), new FloatType() ) );
+		testFloatBuffer( Converters.convert( Views.extendPeriodic( cellImg ), new RealFloatConverter<>(), new FloatType() ) );
+
+		final PrimitiveBlocks< UnsignedShortType > blocks = PrimitiveBlocks.of( permuted, PrimitiveBlocks.OnFallback.FAIL );
+		final short[] expected = copyToArray( blocks, min, size );
+		final ByteBuffer buffer = ByteBuffer.allocateDirect( 2 * expected.length ).order( ByteOrder.BIG_ENDIAN );
+		blocks.copy( min, buffer, size );
+		final short[] actual = new short[ expected.length ];
+		buffer.asShortBuffer().get( actual );
+		assertArrayEquals( expected, actual );
+	}
+
+	@Test
+	public void testFill()
+	{
+		// out-of-bounds values are computed after copying from the root
+		final OutOfBoundsMirrorExpWindowingFactory< UnsignedShortType, RandomAccessibleInterval< UnsignedShortType > > factory =
+				new OutOfBoundsMirrorExpWindowingFactory<>( new int[] { 4, 6, 2 } );
+		final PrimitiveBlocks< UnsignedShortType > blocks = PrimitiveBlocks.of( Views.extend( cellImg, factory ), PrimitiveBlocks.OnFallback.FAIL );
+		final short[] expected = copyToArray( blocks, min, size );
+		final ShortBuffer buffer = ShortBuffer.allocate( expected.length );
+		blocks.copy( min, buffer, size );
+		assertArrayEquals( expected, buffer.array() );
+	}
+
+	@Test
+	public void testBufferBackedSource()
+	{
+		final long[] dims = { 50, 40, 30 };
+		final Img< UnsignedShortType > img = fill( ArrayImgs.unsignedShorts( new ShortBufferAccess( ( int ) Intervals.numElements( dims ) ), dims ) );
+		final PrimitiveBlocks< UnsignedShortType > blocks = PrimitiveBlocks.of( Views.extendValue( img, 17 ), PrimitiveBlocks.OnFallback.FAIL );
+		final short[] expected = new short[ ( int ) Intervals.numElements( size ) ];
+		new FallbackPrimitiveBlocks<>( Views.extendValue( img, 17 ), new UnsignedShortType() ).copy( min, expected, size );
+
+		final short[] array = new short[ expected.length ];
+		blocks.copy( min, array, size );
+		assertArrayEquals( expected, array );
+
+		final ShortBuffer buffer = ShortBuffer.allocate( expected.length );
+		blocks.copy( min, buffer, size );
+		assertArrayEquals( expected, buffer.array() );
+		blocks.copy( min, buffer, size ); // copying again must not be affected by the previous copy
+		assertArrayEquals( expected, buffer.array() );
+	}
+
+	@Test
+	public void testFallback()
+	{
+		final RandomAccessible< UnsignedShortType > view = Views.extendPeriodic( Views.interval( Views.extendBorder( cellImg ), Intervals.createMinSize( -5, -5, -5, 60, 50, 40 ) ) );
+		final PrimitiveBlocks< UnsignedShortType > blocks = PrimitiveBlocks.of( view );
+		final short[] expected = copyToArray( blocks, min, size );
+		final ByteBuffer buffer = ByteBuffer.allocate( 2 * expected.length ).order( ByteOrder.LITTLE_ENDIAN );
+		blocks.copy( min, buffer, size );
+		final short[] actual = new short[ expected.length ];
+		buffer.asShortBuffer().get( actual );
+		assertArrayEquals( expected, actual );
+	}
+
+	@Test
+	public void testParallel()
+	{
+		final Img< UnsignedShortType > img = fill( new CellImgFactory<>( new UnsignedShortType(), 32, 16, 8 ).create( 200, 150, 70 ) );
+		final PrimitiveBlocks< UnsignedShortType > blocks = PrimitiveBlocks.of( img );
+		final long[] pos = { 3, 5, 7 };
+		final int[] sz = { 180, 140, 61 };
+		final short[] expected = copyToArray( blocks, pos, sz );
+		final ByteBuffer buffer = ByteBuffer.allocateDirect( 2 * expected.length + 2 ).order( ByteOrder.LITTLE_ENDIAN );
+		buffer.position( 2 );
+		Parallelization.runWithNumThreads( 4, () -> blocks.parallel().copy( pos, buffer, sz ) );
+		assertEquals( 2, buffer.position() );
+		final short[] actual = new short[ expected.length ];
+		buffer.asShortBuffer().get( actual );
+		assertArrayEquals( expected, actual );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testWrongBufferType()
+	{
+		PrimitiveBlocks.of( cellImg ).copy( min, IntBuffer.allocate( 20000 ), size );
+	}
+
+	private static void testFloatBuffer( final RandomAccessible< FloatType > view )
+	{
+		final long[] min = { -3, 5, -2 };
+		final int[] size = { 60, 20, 10 };
+		final PrimitiveBlocks< FloatType > blocks = PrimitiveBlocks.of( view, PrimitiveBlocks.OnFallback.FAIL );
+		final float[] expected = new float[ ( int ) Intervals.numElements( size ) ];
+		blocks.copy( min, expected, size );
+		final FloatBuffer buffer = ByteBuffer.allocateDirect( 4 * expected.length ).order( ByteOrder.nativeOrder() ).asFloatBuffer();
+		blocks.copy( min, buffer, size );
+		final float[] actual = new float[ expected.length ];
+		buffer.get( actual );
+		assertArrayEquals( expected, actual, 0 );
+	}
+
+	private static short[] copyToArray( final PrimitiveBlocks< UnsignedShortType > blocks, final long[] min, final int[] size )
+	{
+		final short[] array = new short[ ( int ) Intervals.numElements( size ) ];
+		blocks.copy( min, array, size );
+		return array;
+	}
+}
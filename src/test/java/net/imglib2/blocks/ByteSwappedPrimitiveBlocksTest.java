@@ -0,0 +1,263 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import net.imglib2.RandomAccessible;
+import net.imglib2.converter.Converters;
+import net.imglib2.converter.RealFloatConverter;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.nio.ShortBufferAccess;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.PrimitiveType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+public class ByteSwappedPrimitiveBlocksTest
+{
+	private final Random random = new Random( 1L );
+
+	private final Img< UnsignedShortType > cellImg = fill( new CellImgFactory<>( new UnsignedShortType(), 16, 8, 4 ).create( 50, 40, 30 ) );
+
+	private < I extends Img< UnsignedShortType > > I fill( final I img )
+	{
+		img.forEach( t -> t.set( random.nextInt( 65536 ) ) );
+		return img;
+	}
+
+	private final long[] min = { -3, 5, -2 };
+
+	private final int[] size = { 60, 20, 10 };
+
+	@Test
+	public void testMemCopySwap()
+	{
+		final short[] shorts = { 0x0102, ( short ) 0xa0b0, 0x7f00 };
+		final short[] swappedShorts = new short[ 3 ];
+		cast( MemCopy.forPrimitiveTypeSwapped( PrimitiveType.SHORT ) ).copyForward( shorts, 0, swappedShorts, 0, 3 );
+		assertArrayEquals( new short[] { 0x0201, ( short ) 0xb0a0, 0x007f }, swappedShorts );
+
+		final int[] ints = new int[ 4 ];
+		cast( MemCopy.SWAP_INT ).copyReverse( new int[] { 0x01020304, 0x05060708 }, 1, ints, 1, 2 );
+		assertArrayEquals( new int[] { 0, 0x08070605, 0x04030201, 0 }, ints );
+
+		final double[] doubles = { 1.5, -2.25 };
+		final ByteBuffer bigEndian = ByteBuffer.allocate( 16 ).order( ByteOrder.BIG_ENDIAN );
+		bigEndian.asDoubleBuffer().put( doubles );
+		final double[] raw = new double[ 2 ];
+		bigEndian.order( ByteOrder.LITTLE_ENDIAN ).asDoubleBuffer().get( raw );
+		final double[] swapped = new double[ 4 ];
+		cast( MemCopy.SWAP_DOUBLE ).copyStrided( raw, 0, swapped, 0, 2, 2 );
+		assertArrayEquals( new double[] { 1.5, 0, -2.25, 0 }, swapped, 0 );
+
+		final float[] floats = new float[ 3 ];
+		cast( MemCopy.SWAP_FLOAT ).copyValue( new float[] { Float.intBitsToFloat( 0x0000803f ) }, 0, floats, 0, 3 );
+		assertArrayEquals( new float[] { 1, 1, 1 }, floats, 0 );
+
+		assertSame( MemCopy.BYTE, MemCopy.forPrimitiveTypeSwapped( PrimitiveType.BYTE ) );
+	}
+
+	@Test
+	public void testCopy()
+	{
+		testCopy( Views.extendValue( cellImg, 0x1234 ) );
+		testCopy( Views.extendMirrorDouble( fill( new PlanarImgFactory<>( new UnsignedShortType() ).create( 30, 20, 10 ) ) ) );
+		testCopy( Views.permute( Views.invertAxis( Views.extendBorder( cellImg ), 2 ), 0, 2 ) );
+		testCopy( Views.subsample( Views.extendPeriodic( cellImg ), 2, 1, 3 ) );
+		testCopy( Views.extendZero( Views.stack( fill( ArrayImgs.unsignedShorts( 50, 40 ) ), fill( ArrayImgs.unsignedShorts( 50, 40 ) ) ) ) );
+
+		final long[] dims = { 50, 40, 30 };
+		testCopy( Views.extendValue( fill( ArrayImgs.unsignedShorts( new ShortBufferAccess( ( int ) Intervals.numElements( dims ) ), dims ) ), 17 ) );
+	}
+
+	@Test
+	public void testCopyConverted()
+	{
+		final RandomAccessible< FloatType > view = Converters.convert( Views.extendBorder( cellImg ), new RealFloatConverter<>(), new FloatType() );
+		final PrimitiveBlocks< FloatType > blocks = PrimitiveBlocks.of( view, PrimitiveBlocks.OnFallback.FAIL );
+		final float[] expected = new float[ ( int ) Intervals.numElements( size ) ];
+		blocks.copy( min, expected, size );
+		final float[] swapped = new float[ expected.length ];
+		blocks.byteSwapped().copy( min, swapped, size );
+		for ( int i = 0; i < expected.length; ++i )
+			assertEquals( Float.floatToRawIntBits( expected[ i ] ), Integer.reverseBytes( Float.floatToRawIntBits( swapped[ i ] ) ) );
+	}
+
+	@Test
+	public void testCopyToBuffer()
+	{
+		final PrimitiveBlocks< UnsignedShortType > blocks = PrimitiveBlocks.of( Views.extendZero( cellImg ), PrimitiveBlocks.OnFallback.FAIL );
+		final short[] expected = new short[ ( int ) Intervals.numElements( size ) ];
+		blocks.copy( min, expected, size );
+		final ByteBuffer buffer = ByteBuffer.allocateDirect( 2 * expected.length ).order( ByteOrder.LITTLE_ENDIAN );
+		blocks.byteSwapped().copy( min, buffer, size );
+		final short[] actual = new short[ expected.length ];
+		buffer.order( ByteOrder.BIG_ENDIAN ).asShortBuffer().get( actual );
+		assertArrayEquals( expected, actual );
+	}
+
+	@Test
+	public void testWrite()
+	{
+		final int[] blockSize = { 20, 10, 5 };
+		final short[] data = new short[ ( int ) Intervals.numElements( blockSize ) ];
+		for ( int i = 0; i < data.length; ++i )
+			data[ i ] = ( short ) random.nextInt( 65536 );
+		final short[] swapped = swap( data );
+
+		final long[] pos = { 12, 3, 20 };
+		testWrite( new CellImgFactory<>( new UnsignedShortType(), 16, 8, 4 ).create( 50, 40, 30 ), pos, swapped, blockSize, data );
+
+		final long[] dims = { 50, 40, 30 };
+		testWrite( ArrayImgs.unsignedShorts( new ShortBufferAccess( ( int ) Intervals.numElements( dims ) ), dims ), pos, swapped, blockSize, data );
+
+		// permuted view
+		final Img< UnsignedShortType > img = new CellImgFactory<>( new UnsignedShortType(), 16, 8, 4 ).create( 50, 40, 30 );
+		final RandomAccessible< UnsignedShortType > view = Views.permute( Views.invertAxis( img, 0 ), 0, 2 );
+		PrimitiveBlocks.of( view ).byteSwapped().write( new long[] { 5, 3, -32 }, swapped, blockSize );
+		final short[] actual = new short[ data.length ];
+		PrimitiveBlocks.of( view ).copy( new long[] { 5, 3, -32 }, actual, blockSize );
+		assertArrayEquals( data, actual );
+	}
+
+	@Test
+	public void testFallback()
+	{
+		final RandomAccessible< UnsignedShortType > view = Views.extendPeriodic( Views.interval( Views.extendBorder( cellImg ), Intervals.createMinSize( -5, -5, -5, 60, 50, 40 ) ) );
+		final PrimitiveBlocks< UnsignedShortType > blocks = PrimitiveBlocks.of( view );
+		final PrimitiveBlocks< UnsignedShortType > swappedBlocks = blocks.byteSwapped();
+		assertTrue( swappedBlocks instanceof ByteSwappedPrimitiveBlocks );
+		assertSame( blocks, swappedBlocks.byteSwapped() );
+
+		final short[] expected = new short[ ( int ) Intervals.numElements( size ) ];
+		blocks.copy( min, expected, size );
+		final short[] actual = new short[ expected.length ];
+		swappedBlocks.threadSafe().copy( min, actual, size );
+		assertArrayEquals( swap( expected ), actual );
+	}
+
+	@Test
+	public void testParallelAndDoubleSwap()
+	{
+		final PrimitiveBlocks< UnsignedShortType > blocks = PrimitiveBlocks.of( Views.extendZero( cellImg ) );
+		final short[] expected = new short[ ( int ) Intervals.numElements( size ) ];
+		blocks.copy( min, expected, size );
+
+		final short[] actual = new short[ expected.length ];
+		blocks.parallel().byteSwapped().copy( min, actual, size );
+		assertArrayEquals( swap( expected ), actual );
+
+		blocks.byteSwapped().threadSafe().byteSwapped().copy( min, actual, size );
+		assertArrayEquals( expected, actual );
+	}
+
+	@Test
+	public void testNothingToSwap()
+	{
+		final Img< UnsignedByteType > img = ArrayImgs.unsignedBytes( 10, 10 );
+		img.forEach( t -> t.set( random.nextInt( 256 ) ) );
+		final byte[] expected = new byte[ 100 ];
+		PrimitiveBlocks.of( img ).copy( new long[ 2 ], expected, new int[] { 10, 10 } );
+		final byte[] actual = new byte[ 100 ];
+		PrimitiveBlocks.of( img ).byteSwapped().copy( new long[ 2 ], actual, new int[] { 10, 10 } );
+		assertArrayEquals( expected, actual );
+	}
+
+	@Test
+	public void testIngestBigEndianRawData()
+	{
+		// big-endian raw data, wrapped as ArrayImg
+		final long[] dims = { 7, 5 };
+		final ByteBuffer raw = ByteBuffer.allocate( 8 * 35 ).order( ByteOrder.BIG_ENDIAN );
+		for ( int i = 0; i < 35; ++i )
+			raw.putDouble( 8 * i, i * 0.5 );
+		final ArrayImg< DoubleType, ? > img = ArrayImgs.doubles( raw, dims );
+		final double[] data = new double[ 35 ];
+		PrimitiveBlocks.of( img ).copy( new long[ 2 ], data, new int[] { 7, 5 } );
+		for ( int i = 0; i < 35; ++i )
+			assertEquals( i * 0.5, data[ i ], 0 );
+	}
+
+	private void testCopy( final RandomAccessible< UnsignedShortType > view )
+	{
+		final PrimitiveBlocks< UnsignedShortType > blocks = PrimitiveBlocks.of( view, PrimitiveBlocks.OnFallback.FAIL );
+		final short[] expected = new short[ ( int ) Intervals.numElements( size ) ];
+		blocks.copy( min, expected, size );
+		final short[] actual = new short[ expected.length ];
+		final PrimitiveBlocks< UnsignedShortType > swapped = blocks.byteSwapped();
+		assertTrue( swapped instanceof ViewPrimitiveBlocks );
+		swapped.copy( min, actual, size );
+		assertArrayEquals( swap( expected ), actual );
+	}
+
+	private static void testWrite( final Img< UnsignedShortType > img, final long[] pos, final short[] src, final int[] size, final short[] expected )
+	{
+		PrimitiveBlocks.of( img ).byteSwapped().write( pos, src, size );
+		final short[] actual = new short[ expected.length ];
+		PrimitiveBlocks.of( img ).copy( pos, actual, size );
+		assertArrayEquals( expected, actual );
+	}
+
+	private static short[] swap( final short[] data )
+	{
+		final short[] swapped = Arrays.copyOf( data, data.length );
+		for ( int i = 0; i < data.length; ++i )
+			swapped[ i ] = Short.reverseBytes( data[ i ] );
+		return swapped;
+	}
+
+	@SuppressWarnings( "unchecked" )
+	private static < T > MemCopy< T, T > cast( final MemCopy< ?, ? > memCopy )
+	{
+		return ( MemCopy< T, T > ) memCopy;
+	}
+}
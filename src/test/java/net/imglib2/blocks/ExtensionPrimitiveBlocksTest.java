@@ -0,0 +1,202 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.outofbounds.OutOfBoundsMirrorExpWindowingFactory;
+import net.imglib2.outofbounds.OutOfBoundsRandomValueFactory;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+public class ExtensionPrimitiveBlocksTest
+{
+	private final Random random = new Random( 1L );
+
+	private Img< FloatType > cellImg( final long... dims )
+	{
+		final Img< FloatType > img = new CellImgFactory<>( new FloatType(), 5, 4, 3 ).create( dims );
+		img.forEach( t -> t.set( random.nextFloat() * 100 ) );
+		return img;
+	}
+
+	private Img< UnsignedByteType > arrayImg( final long... dims )
+	{
+		final Img< UnsignedByteType > img = new ArrayImgFactory<>( new UnsignedByteType() ).create( dims );
+		img.forEach( t -> t.set( random.nextInt( 256 ) ) );
+		return img;
+	}
+
+	private Img< UnsignedByteType > planarImg( final long... dims )
+	{
+		final Img< UnsignedByteType > img = new PlanarImgFactory<>( new UnsignedByteType() ).create( dims );
+		img.forEach( t -> t.set( random.nextInt( 256 ) ) );
+		return img;
+	}
+
+	@Test
+	public void testPeriodic()
+	{
+		final Img< FloatType > img = cellImg( 13, 9, 7 );
+		testCopy( Views.extendPeriodic( img ), new long[] { -20, -3, 5 }, new int[] { 40, 25, 17 } );
+		testCopy( Views.extendPeriodic( img ), new long[] { -130, 90, -71 }, new int[] { 6, 5, 4 } );
+		testCopy( Views.extendPeriodic( planarImg( 13, 9, 7 ) ), new long[] { -20, -3, 5 }, new int[] { 40, 25, 17 } );
+		testCopy( Views.extendPeriodic( Views.translate( arrayImg( 13, 9, 7 ), 3, -5, 100 ) ), new long[] { -20, -3, 5 }, new int[] { 40, 25, 17 } );
+	}
+
+	@Test
+	public void testPeriodicTransformed()
+	{
+		final Img< FloatType > img = cellImg( 13, 9, 7 );
+		final RandomAccessible< FloatType > view = Views.subsample(
+				Views.permute( Views.invertAxis( Views.extendPeriodic( img ), 1 ), 0, 2 ),
+				2, 3, 1 );
+		testCopy( view, new long[] { -10, -7, 5 }, new int[] { 20, 15, 17 } );
+	}
+
+	@Test
+	public void testPeriodicStack()
+	{
+		final RandomAccessible< UnsignedByteType > view = Views.extendPeriodic( Views.stack( arrayImg( 13, 9 ), planarImg( 13, 9 ), arrayImg( 13, 9 ) ) );
+		testCopy( view, new long[] { -20, -3, -5 }, new int[] { 40, 25, 17 } );
+	}
+
+	@Test
+	public void testExpWindowing()
+	{
+		final OutOfBoundsMirrorExpWindowingFactory< FloatType, RandomAccessibleInterval< FloatType > > factory =
+				new OutOfBoundsMirrorExpWindowingFactory<>( new int[] { 4, 6, 2 } );
+		factory.setExponent( 3 );
+		final RandomAccessible< FloatType > view = Views.extend( cellImg( 13, 9, 7 ), factory );
+		assertTrue( ViewAnalyzer.getViewProperties( view ).isFullySupported() );
+		testCopy( view, new long[] { -6, -8, -3 }, new int[] { 26, 25, 13 } );
+		testCopy( view, new long[] { 2, 1, 1 }, new int[] { 5, 5, 5 } );
+
+		final OutOfBoundsMirrorExpWindowingFactory< UnsignedByteType, RandomAccessibleInterval< UnsignedByteType > > linearFactory =
+				new OutOfBoundsMirrorExpWindowingFactory<>( 0.4f );
+		linearFactory.setExponent( 1 );
+		testCopy( Views.extend( arrayImg( 20, 12, 7 ), linearFactory ), new long[] { -6, -8, -3 }, new int[] { 36, 25, 13 } );
+	}
+
+	@Test
+	public void testExpWindowingTransformed()
+	{
+		final OutOfBoundsMirrorExpWindowingFactory< FloatType, RandomAccessibleInterval< FloatType > > factory =
+				new OutOfBoundsMirrorExpWindowingFactory<>( new int[] { 4, 6, 2 } );
+		// weights must be re-ordered from extension dimensions to root dimensions
+		final RandomAccessible< FloatType > view = Views.permute(
+				Views.extend( Views.permute( Views.invertAxis( cellImg( 13, 9, 7 ), 2 ), 0, 2 ), factory ),
+				1, 2 );
+		testCopy( view, new long[] { -6, -8, -3 }, new int[] { 26, 25, 13 } );
+	}
+
+	@Test
+	public void testExpWindowingStack()
+	{
+		final OutOfBoundsMirrorExpWindowingFactory< UnsignedByteType, RandomAccessibleInterval< UnsignedByteType > > factory =
+				new OutOfBoundsMirrorExpWindowingFactory<>( new int[] { 4, 6, 2 } );
+		final RandomAccessible< UnsignedByteType > view = Views.extend( Views.stack( arrayImg( 13, 9 ), planarImg( 13, 9 ), arrayImg( 13, 9 ) ), factory );
+		assertTrue( ViewAnalyzer.getViewProperties( view ).isFullySupported() );
+		testCopy( view, new long[] { -6, -8, -3 }, new int[] { 26, 25, 9 } );
+	}
+
+	@Test
+	public void testRandomValue()
+	{
+		final Img< FloatType > img = cellImg( 13, 9, 7 );
+		final OutOfBoundsRandomValueFactory< FloatType, RandomAccessibleInterval< FloatType > > factory =
+				new OutOfBoundsRandomValueFactory<>( new FloatType(), 1000, 2000 );
+		final RandomAccessible< FloatType > view = Views.extend( img, factory );
+		final PrimitiveBlocks< FloatType > blocks = PrimitiveBlocks.of( view, PrimitiveBlocks.OnFallback.FAIL );
+
+		final long[] min = { -3, -4, 2 };
+		final int[] size = { 20, 10, 8 };
+		final float[] dest = new float[ ( int ) Intervals.numElements( size ) ];
+		blocks.copy( min, dest, size );
+
+		final RandomAccess< FloatType > ra = img.randomAccess();
+		final long[] pos = new long[ 3 ];
+		int i = 0;
+		for ( int z = 0; z < size[ 2 ]; ++z )
+			for ( int y = 0; y < size[ 1 ]; ++y )
+				for ( int x = 0; x < size[ 0 ]; ++x, ++i )
+				{
+					pos[ 0 ] = min[ 0 ] + x;
+					pos[ 1 ] = min[ 1 ] + y;
+					pos[ 2 ] = min[ 2 ] + z;
+					if ( Intervals.contains( img, new Point( pos ) ) )
+						assertEquals( ra.setPositionAndGet( pos ).get(), dest[ i ], 0 );
+					else
+						assertTrue( dest[ i ] >= 1000 && dest[ i ] < 2000 );
+				}
+	}
+
+	/**
+	 * Check that copying a block with optimized {@code PrimitiveBlocks} gives
+	 * the same result as with the {@code LoopBuilder} fall-back.
+	 */
+	private static < T extends NativeType< T > > void testCopy( final RandomAccessible< T > view, final long[] min, final int[] size )
+	{
+		final PrimitiveBlocks< T > blocks = PrimitiveBlocks.of( view, PrimitiveBlocks.OnFallback.FAIL );
+		final PrimitiveBlocks< T > fallback = new FallbackPrimitiveBlocks<>( view, view.getType() );
+
+		final int len = ( int ) Intervals.numElements( size );
+		final PrimitiveTypeProperties< ?, ? > props = PrimitiveTypeProperties.get( view.getType().getNativeTypeFactory().getPrimitiveType() );
+		final Object expected = props.allocate( len );
+		final Object actual = props.allocate( len );
+		fallback.copy( min, expected, size );
+		blocks.copy( min, actual, size );
+		if ( expected instanceof float[] )
+			assertArrayEquals( ( float[] ) expected, ( float[] ) actual, 0 );
+		else
+			assertArrayEquals( ( byte[] ) expected, ( byte[] ) actual );
+	}
+}
@@ -0,0 +1,153 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+
+import net.imglib2.RandomAccessible;
+import net.imglib2.converter.Converters;
+import net.imglib2.converter.RealFloatConverter;
+import net.imglib2.img.Img;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+public class ParallelPrimitiveBlocksTest
+{
+	private final Random random = new Random( 1L );
+
+	private final Img< UnsignedShortType > cellImg = fill( new CellImgFactory<>( new UnsignedShortType(), 32, 16, 8 ).create( 200, 150, 70 ) );
+
+	private Img< UnsignedShortType > fill( final Img< UnsignedShortType > img )
+	{
+		img.forEach( t -> t.set( random.nextInt( 65536 ) ) );
+		return img;
+	}
+
+	@Test
+	public void testCellImg()
+	{
+		testCopy( cellImg, new long[] { 0, 0, 0 }, new int[] { 200, 150, 70 } );
+		testCopy( cellImg, new long[] { 3, 5, 7 }, new int[] { 180, 140, 61 } );
+	}
+
+	@Test
+	public void testLargeBlockManyChunks()
+	{
+		// more than ParallelPrimitiveBlocks.MAX_CHUNK_ELEMENTS
+		testCopy( Views.extendMirrorSingle( cellImg ), new long[] { -20, -30, -40 }, new int[] { 256, 256, 100 } );
+	}
+
+	@Test
+	public void testSplitDimensionNotLast()
+	{
+		// the last dimension with size > 1 is split
+		testCopy( cellImg, new long[] { 0, 0, 40 }, new int[] { 200, 150, 1 } );
+		testCopy( Views.hyperSlice( cellImg, 1, 20 ), new long[] { -10, 0 }, new int[] { 2000, 70 } );
+	}
+
+	@Test
+	public void testTransformedAndConverted()
+	{
+		final RandomAccessible< FloatType > view = Converters.convert(
+				Views.permute( Views.invertAxis( Views.extendBorder( cellImg ), 2 ), 0, 2 ),
+				new RealFloatConverter<>(),
+				new FloatType() );
+		testCopy( view, new long[] { -65, -10, -5 }, new int[] { 70, 160, 210 } );
+	}
+
+	@Test
+	public void testPlanarImg()
+	{
+		final Img< UnsignedShortType > img = fill( new PlanarImgFactory<>( new UnsignedShortType() ).create( 100, 80, 60 ) );
+		testCopy( img, new long[] { 0, 0, 0 }, new int[] { 100, 80, 60 } );
+	}
+
+	@Test
+	public void testFallback()
+	{
+		final RandomAccessible< UnsignedShortType > view = Views.extendPeriodic( Views.interval( Views.extendBorder( cellImg ), Intervals.createMinSize( -5, -5, -5, 210, 160, 80 ) ) );
+		testCopy( view, new long[] { -5, -5, -5 }, new int[] { 300, 170, 20 } );
+	}
+
+	@Test
+	public void testCellBoundaries()
+	{
+		final ViewPrimitiveBlocks< ?, ? > translated = ( ViewPrimitiveBlocks< ?, ? > ) PrimitiveBlocks.of( Views.translate( cellImg, 0, 0, 3 ) );
+		assertArrayEquals( new long[] { 8, 3 }, translated.cellBoundaries( 2 ) );
+
+		// cells start at view coordinates ..., -15, -7, 1
+		final ViewPrimitiveBlocks< ?, ? > inverted = ( ViewPrimitiveBlocks< ?, ? > ) PrimitiveBlocks.of( Views.permute( Views.invertAxis( cellImg, 2 ), 0, 2 ) );
+		assertArrayEquals( new long[] { 8, 1 }, inverted.cellBoundaries( 0 ) );
+		assertArrayEquals( new long[] { 32, 0 }, inverted.cellBoundaries( 2 ) );
+
+		assertNull( ( ( ViewPrimitiveBlocks< ?, ? > ) PrimitiveBlocks.of( Views.subsample( cellImg, 2 ) ) ).cellBoundaries( 0 ) );
+	}
+
+	@Test
+	public void testParallelOfParallel()
+	{
+		final PrimitiveBlocks< UnsignedShortType > blocks = PrimitiveBlocks.of( cellImg ).parallel();
+		assertSame( blocks, blocks.parallel() );
+		assertSame( blocks, blocks.threadSafe() );
+	}
+
+	private static < T extends NativeType< T > > void testCopy( final RandomAccessible< T > view, final long[] min, final int[] size )
+	{
+		final PrimitiveBlocks< T > blocks = PrimitiveBlocks.of( view, PrimitiveBlocks.OnFallback.ACCEPT );
+		final PrimitiveBlocks< T > parallel = blocks.independentCopy().parallel();
+
+		final PrimitiveTypeProperties< ?, ? > props = PrimitiveTypeProperties.get( view.getType().getNativeTypeFactory().getPrimitiveType() );
+		final int len = ( int ) Intervals.numElements( size );
+		final Object expected = props.allocate( len );
+		final Object actual = props.allocate( len );
+		blocks.copy( min, expected, size );
+		Parallelization.runWithNumThreads( 4, () -> parallel.copy( min, actual, size ) );
+		if ( expected instanceof float[] )
+			assertArrayEquals( ( float[] ) expected, ( float[] ) actual, 0 );
+		else
+			assertArrayEquals( ( short[] ) expected, ( short[] ) actual );
+	}
+}
@@ -0,0 +1,172 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+import static net.imglib2.blocks.PrimitiveBlocksListener.CopierType.ARRAY_IMG;
+import static net.imglib2.blocks.PrimitiveBlocksListener.CopierType.CELL_IMG;
+import static net.imglib2.blocks.PrimitiveBlocksListener.CopierType.FALLBACK;
+import static net.imglib2.blocks.PrimitiveBlocksListener.CopierType.STACK;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.imglib2.RandomAccessible;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.position.FunctionRandomAccessible;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PrimitiveBlocksMetricsTest
+{
+	private PrimitiveBlocksStatistics statistics;
+
+	@Before
+	public void setUp()
+	{
+		statistics = new PrimitiveBlocksStatistics();
+		PrimitiveBlocksMetrics.addListener( statistics );
+	}
+
+	@After
+	public void tearDown()
+	{
+		PrimitiveBlocksMetrics.removeListener( statistics );
+	}
+
+	private static RandomAccessible< FloatType > functionView()
+	{
+		return new FunctionRandomAccessible<>( 2, ( pos, t ) -> t.setReal( pos.getDoublePosition( 0 ) ), FloatType::new );
+	}
+
+	@Test
+	public void testCopyStatistics()
+	{
+		final PrimitiveBlocks< UnsignedShortType > arrayBlocks = PrimitiveBlocks.of( Views.extendBorder( ArrayImgs.unsignedShorts( 20, 20 ) ) );
+		final PrimitiveBlocks< FloatType > cellBlocks = PrimitiveBlocks.of( new CellImgFactory<>( new FloatType(), 8 ).create( 20, 20 ) );
+
+		arrayBlocks.copy( new long[] { -2, 3 }, new short[ 50 ], new int[] { 10, 5 } );
+		arrayBlocks.copy( new long[] { 0, 0 }, new short[ 4 ], new int[] { 2, 2 } );
+		cellBlocks.copy( new long[] { 5, 5 }, new float[ 100 ], new int[] { 10, 10 } );
+
+		assertEquals( 2, statistics.copyCount( ARRAY_IMG ) );
+		assertEquals( 2 * ( 50 + 4 ), statistics.bytesCopied( ARRAY_IMG ) );
+		assertEquals( 1, statistics.copyCount( CELL_IMG ) );
+		assertEquals( 4 * 100, statistics.bytesCopied( CELL_IMG ) );
+		assertEquals( 0, statistics.copyCount( FALLBACK ) );
+		assertEquals( 0, statistics.getFallbackCount() );
+		assertTrue( statistics.copyNanos( ARRAY_IMG ) > 0 );
+
+		final Map< String, Long > counts = statistics.getCopyCounts();
+		assertEquals( 2L, ( long ) counts.get( "ARRAY_IMG" ) );
+		assertEquals( 1L, ( long ) counts.get( "CELL_IMG" ) );
+
+		statistics.reset();
+		assertEquals( 0, statistics.copyCount( ARRAY_IMG ) );
+		assertEquals( 0, statistics.bytesCopied( CELL_IMG ) );
+	}
+
+	@Test
+	public void testStackViewCopyIsRecordedOnce()
+	{
+		final RandomAccessible< FloatType > stack = Views.stack(
+				ArrayImgs.floats( 10, 10 ),
+				Views.rotate( ArrayImgs.floats( 10, 10 ), 0, 1 ),
+				new CellImgFactory<>( new FloatType(), 4 ).create( 10, 10 ) );
+		final PrimitiveBlocks< FloatType > blocks = PrimitiveBlocks.of( stack );
+
+		blocks.copy( new long[] { 1, 1, 0 }, new float[ 5 * 5 * 3 ], new int[] { 5, 5, 3 } );
+
+		assertEquals( 1, statistics.copyCount( STACK ) );
+		assertEquals( 4 * 5 * 5 * 3, statistics.bytesCopied( STACK ) );
+		for ( final PrimitiveBlocksListener.CopierType type : Arrays.asList( ARRAY_IMG, CELL_IMG, FALLBACK ) )
+			assertEquals( 0, statistics.copyCount( type ) );
+		assertEquals( 0, statistics.getFallbackCount() );
+	}
+
+	@Test
+	public void testFallbackStatistics()
+	{
+		final PrimitiveBlocks< FloatType > blocks = PrimitiveBlocks.of( functionView(), PrimitiveBlocks.OnFallback.ACCEPT );
+		assertEquals( 1, statistics.getFallbackCount() );
+		final Map< String, Long > reasons = statistics.getFallbackReasons();
+		assertEquals( 1, reasons.size() );
+		assertEquals( 1L, ( long ) reasons.values().iterator().next() );
+
+		final float[] dest = new float[ 12 ];
+		blocks.copy( new long[] { 1, 1 }, dest, new int[] { 4, 3 } );
+		assertEquals( 1, statistics.copyCount( FALLBACK ) );
+		assertEquals( 4 * 12, statistics.bytesCopied( FALLBACK ) );
+		assertEquals( 2, dest[ 1 ], 0 );
+	}
+
+	@Test
+	public void testRemoveListener()
+	{
+		PrimitiveBlocksMetrics.removeListener( statistics );
+		PrimitiveBlocks.of( ArrayImgs.floats( 10 ) ).copy( new long[] { 0 }, new float[ 10 ], new int[] { 10 } );
+		PrimitiveBlocks.of( functionView(), PrimitiveBlocks.OnFallback.ACCEPT );
+		assertEquals( 0, statistics.copyCount( ARRAY_IMG ) );
+		assertEquals( 0, statistics.getFallbackCount() );
+	}
+
+	@Test
+	public void testMBean() throws Exception
+	{
+		final ObjectName name = statistics.registerMBean( "net.imglib2.blocks:type=PrimitiveBlocksStatistics,name=test" );
+		try
+		{
+			PrimitiveBlocks.of( ArrayImgs.floats( 10 ) ).copy( new long[] { 0 }, new float[ 10 ], new int[] { 10 } );
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			assertEquals( 0L, server.getAttribute( name, "FallbackCount" ) );
+			server.invoke( name, "reset", null, null );
+			assertEquals( 0, statistics.copyCount( ARRAY_IMG ) );
+		}
+		finally
+		{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean( name );
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.function.Function;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converters;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.nio.ShortBufferAccess;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+public class PrimitiveBlocksWriteTest
+{
+	private static final long[] dims = { 30, 20, 10 };
+
+	@Test
+	public void testArrayImg()
+	{
+		testWrite( new ArrayImgFactory<>( new UnsignedShortType() ).create( dims ), Function.identity() );
+	}
+
+	@Test
+	public void testBufferArrayImg()
+	{
+		final int n = ( int ) Intervals.numElements( dims );
+		testWrite( ArrayImgs.unsignedShorts( new ShortBufferAccess( n ), dims ), Function.identity() );
+	}
+
+	@Test
+	public void testPlanarImg()
+	{
+		testWrite( new PlanarImgFactory<>( new UnsignedShortType() ).create( dims ), Function.identity() );
+	}
+
+	@Test
+	public void testCellImg()
+	{
+		testWrite( new CellImgFactory<>( new UnsignedShortType(), 7, 6, 4 ).create( dims ), Function.identity() );
+	}
+
+	@Test
+	public void testPermutedView()
+	{
+		testWrite( new CellImgFactory<>( new UnsignedShortType(), 7, 6, 4 ).create( dims ),
+				img -> Views.permute( Views.invertAxis( img, 1 ), 0, 2 ) );
+	}
+
+	@Test
+	public void testRotatedSlicedView()
+	{
+		testWrite( new CellImgFactory<>( new UnsignedShortType(), 7, 6, 4 ).create( dims ),
+				img -> Views.rotate( Views.hyperSlice( img, 2, 5 ), 0, 1 ) );
+	}
+
+	@Test
+	public void testTranslatedExtendedView()
+	{
+		testWrite( new ArrayImgFactory<>( new UnsignedShortType() ).create( dims ),
+				img -> Views.interval( Views.translate( Views.extendBorder( img ), 5, -3, 2 ), Views.translate( img, 5, -3, 2 ) ) );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testOutOfBounds()
+	{
+		final Img< UnsignedShortType > img = new ArrayImgFactory<>( new UnsignedShortType() ).create( dims );
+		final PrimitiveBlocks< UnsignedShortType > blocks = PrimitiveBlocks.of( Views.extendZero( img ) );
+		blocks.write( new int[] { -2, 0, 0 }, new short[ 5 * 5 * 5 ], new int[] { 5, 5, 5 } );
+	}
+
+	@Test( expected = UnsupportedOperationException.class )
+	public void testConverterNotSupported()
+	{
+		final Img< UnsignedShortType > img = new ArrayImgFactory<>( new UnsignedShortType() ).create( dims );
+		final RandomAccessible< FloatType > converted = Converters.convert( ( RandomAccessible< UnsignedShortType > ) img, ( a, b ) -> b.set( a.get() ), new FloatType() );
+		final PrimitiveBlocks< FloatType > blocks = PrimitiveBlocks.of( converted );
+		blocks.write( new int[] { 0, 0, 0 }, new float[ 5 * 5 * 5 ], new int[] { 5, 5, 5 } );
+	}
+
+	/**
+	 * Write a block into the {@code view} of {@code img} and verify that the
+	 * pixels of the view are set correctly, that pixels outside the block are
+	 * untouched, and that copying the block returns the written data.
+	 */
+	private static void testWrite(
+			final RandomAccessibleInterval< UnsignedShortType > img,
+			final Function< RandomAccessibleInterval< UnsignedShortType >, RandomAccessibleInterval< UnsignedShortType > > createView )
+	{
+		final RandomAccessibleInterval< UnsignedShortType > view = createView.apply( img );
+		final int n = view.numDimensions();
+		final long[] min = new long[ n ];
+		final int[] size = new int[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			size[ d ] = ( int ) Math.min( view.dimension( d ), 2 + 3 * d );
+			min[ d ] = view.min( d ) + ( view.dimension( d ) - size[ d ] ) / 2;
+		}
+
+		final short[] data = new short[ ( int ) Intervals.numElements( size ) ];
+		for ( int i = 0; i < data.length; ++i )
+			data[ i ] = ( short ) ( i + 1 );
+
+		final PrimitiveBlocks< UnsignedShortType > blocks = PrimitiveBlocks.of( view, PrimitiveBlocks.OnFallback.FAIL );
+		blocks.write( min, data, size );
+
+		final FinalInterval block = FinalInterval.createMinSize( min, Util.int2long( size ) );
+		final Cursor< UnsignedShortType > c = Views.flatIterable( Views.interval( view, block ) ).cursor();
+		int i = 0;
+		while ( c.hasNext() )
+			assertEquals( data[ i++ ], ( short ) c.next().get() );
+
+		long numNonZero = 0;
+		for ( final UnsignedShortType t : Views.iterable( img ) )
+			if ( t.get() != 0 )
+				++numNonZero;
+		assertEquals( data.length, numNonZero );
+
+		final short[] copy = new short[ data.length ];
+		blocks.copy( min, copy, size );
+		assertArrayEquals( data, copy );
+	}
+}
@@ -49,6 +49,13 @@ public class RangesTest
 	// simplified 1D copy() for testing computed ranges
 	// takes into account Range.dir copy direction
 	static void copy( final List< Range > ranges, final int[][] data, final int[] dest )
+	{
+		copy( ranges, data, dest, 1 );
+	}
+
+	// simplified 1D copy() for testing computed ranges of subsampled blocks
+	// successive source elements are step apart (in Range.dir direction)
+	static void copy( final List< Range > ranges, final int[][] data, final int[] dest, final int step )
 	{
 		int x = 0;
 		for ( Range range : ranges )
@@ -64,12 +71,12 @@ public class RangesTest
 				if ( range.dir == FORWARD )
 				{
 					for ( int i = 0; i < range.w; ++i )
-						dest[ x++ ] = cell[ range.cellx + i ];
+						dest[ x++ ] = cell[ range.cellx + i * step ];
 				}
 				else if ( range.dir == BACKWARD )
 				{
 					for ( int i = 0; i < range.w; ++i )
-						dest[ x++ ] = cell[ range.cellx - i ];
+						dest[ x++ ] = cell[ range.cellx - i * step ];
 				}
 				else if ( range.dir == STAY )
 				{
@@ -309,4 +316,87 @@ public class RangesTest
 			Assert.assertArrayEquals( expectedDest, dest );
 		}
 	}
+
+	@Test
+	public void copyPeriodic()
+	{
+		// test data:
+		// image consisting of 2 cells with 4 elements each.
+		// border cell is truncated.
+		int[][] data = {
+				{ 0, 1, 2, 3 },
+				{ 4, 5 }
+		};
+		final int iw = 6; // image width
+		final int cw = 4; // cell width
+
+		// periodic it looks like this:
+		//   3   4   5   0   1   2   3   4   5   0   1   2   3   4   5   0   1
+		// ------------|===============|=======|------------------------------
+
+		final int[] dest = new int[ 11 ];
+		final int bw = dest.length;
+
+		final List< Range > ranges = RangesImpl.findRanges_periodic( -9, bw, iw, cw );
+		copy( ranges, data, dest );
+
+		final Range[] expectedRanges = {
+				new Range( 0, 3, 1, FORWARD, 0 ),
+				new Range( 1, 0, 2, FORWARD, 1 ),
+				new Range( 0, 0, 4, FORWARD, 3 ),
+				new Range( 1, 0, 2, FORWARD, 7 ),
+				new Range( 0, 0, 2, FORWARD, 9 )
+		};
+		Assert.assertArrayEquals( expectedRanges, ranges.toArray() );
+
+		final int[] expectedDest = new int[] { 3, 4, 5, 0, 1, 2, 3, 4, 5, 0, 1 };
+		Assert.assertArrayEquals( expectedDest, dest );
+	}
+
+	@Test
+	public void copySubsampled()
+	{
+		// test data:
+		// image consisting of 2 cells with 4 elements each.
+		// border cell is truncated.
+		int[][] data = {
+				{ 0, 1, 2, 3 },
+				{ 4, 5 }
+		};
+		final int iw = 6; // image width
+		final int cw = 4; // cell width
+
+		final int[] dest = new int[ 6 ];
+		final int bw = dest.length;
+		final int step = 2;
+
+		{
+			// singled mirrored, every 2nd element, starting at -3:
+			//  -3  -1   1   3   5   7
+			//   3   1   1   3   5   3
+			final List< Range > ranges = Ranges.forExtension( Extension.mirrorSingle() ).findRanges( -3, bw, iw, cw, step );
+			copy( ranges, data, dest, step );
+
+			final int[] expectedDest = new int[] { 3, 1, 1, 3, 5, 3 };
+			Assert.assertArrayEquals( expectedDest, dest );
+		}
+		{
+			// constant, every 2nd element, starting at -2:
+			//  -2   0   2   4   6   8
+			//  -1   0   2   4  -1  -1
+			final List< Range > ranges = Ranges.forExtension( Extension.constant( null ) ).findRanges( -2, bw, iw, cw, step );
+			copy( ranges, data, dest, step );
+
+			final Range[] expectedRanges = {
+					new Range( -1, -1, 1, CONSTANT, 0 ),
+					new Range( 0, 0, 2, FORWARD, 1 ),
+					new Range( 1, 0, 1, FORWARD, 3 ),
+					new Range( -1, -1, 2, CONSTANT, 4 )
+			};
+			Assert.assertArrayEquals( expectedRanges, ranges.toArray() );
+
+			final int[] expectedDest = new int[] { -1, 0, 2, 4, -1, -1 };
+			Assert.assertArrayEquals( expectedDest, dest );
+		}
+	}
 }
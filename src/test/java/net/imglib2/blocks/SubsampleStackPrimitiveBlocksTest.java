@@ -0,0 +1,232 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converters;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+public class SubsampleStackPrimitiveBlocksTest
+{
+	private final Random random = new Random( 1L );
+
+	private < I extends Img< UnsignedShortType > > I fill( final I img )
+	{
+		img.forEach( t -> t.set( random.nextInt( 65536 ) ) );
+		return img;
+	}
+
+	private Img< UnsignedShortType > cellImg( final long... dims )
+	{
+		return fill( new CellImgFactory<>( new UnsignedShortType(), 5, 4, 3 ).create( dims ) );
+	}
+
+	private Img< UnsignedShortType > arrayImg( final long... dims )
+	{
+		return fill( new ArrayImgFactory<>( new UnsignedShortType() ).create( dims ) );
+	}
+
+	private Img< UnsignedShortType > planarImg( final long... dims )
+	{
+		return fill( new PlanarImgFactory<>( new UnsignedShortType() ).create( dims ) );
+	}
+
+	@Test
+	public void testSubsampleInterval()
+	{
+		final RandomAccessibleInterval< UnsignedShortType > view = Views.subsample( cellImg( 31, 22, 13 ), 2 );
+		assertTrue( ViewAnalyzer.getViewProperties( view ).isFullySupported() );
+		testCopy( view, new long[] { 0, 0, 0 }, new int[] { 16, 11, 7 } );
+		testCopy( view, new long[] { 3, 2, 1 }, new int[] { 9, 5, 4 } );
+	}
+
+	@Test
+	public void testSubsampleExtended()
+	{
+		final RandomAccessible< UnsignedShortType > view = Views.subsample( Views.extendMirrorSingle( cellImg( 31, 22, 13 ) ), 3, 2, 1 );
+		testCopy( view, new long[] { -7, -5, -3 }, new int[] { 20, 20, 20 } );
+		testCopy( view, new long[] { 4, 6, 8 }, new int[] { 9, 5, 4 } );
+	}
+
+	@Test
+	public void testSubsampleExtendedPlanar()
+	{
+		final RandomAccessible< UnsignedShortType > view = Views.subsample( Views.extendMirrorDouble( planarImg( 31, 22, 13 ) ), 2, 3, 2 );
+		testCopy( view, new long[] { -7, -5, -3 }, new int[] { 20, 20, 10 } );
+	}
+
+	@Test
+	public void testSubsampleInverted()
+	{
+		final RandomAccessible< UnsignedShortType > view = Views.subsample( Views.invertAxis( Views.extendZero( arrayImg( 31, 22, 13 ) ), 0 ), 2, 3, 1 );
+		testCopy( view, new long[] { -17, -2, -1 }, new int[] { 20, 10, 15 } );
+	}
+
+	@Test
+	public void testTransformsAroundSubsample()
+	{
+		final RandomAccessible< UnsignedShortType > view = Views.permute(
+				Views.translate(
+						Views.subsample( Views.translate( Views.extendBorder( cellImg( 31, 22, 13 ) ), 3, -2, 1 ), 2, 3, 2 ),
+						1, 2, -3 ),
+				0, 2 );
+		testCopy( view, new long[] { -3, -4, -5 }, new int[] { 12, 11, 10 } );
+	}
+
+	@Test
+	public void testSubsampleBeforeExtensionNotSupported()
+	{
+		final RandomAccessible< UnsignedShortType > view = Views.extendBorder( Views.subsample( cellImg( 31, 22, 13 ), 2 ) );
+		assertFalse( ViewAnalyzer.getViewProperties( view ).isFullySupported() );
+	}
+
+	@Test
+	public void testSubsampleWrite()
+	{
+		final Img< UnsignedShortType > img = cellImg( 31, 22, 13 );
+		final RandomAccessibleInterval< UnsignedShortType > view = Views.subsample( Views.invertAxis( img, 1 ), 2, 3, 2 );
+		testWrite( view, new long[] { 1, 2, 1 }, new int[] { 13, 5, 6 } );
+	}
+
+	private List< RandomAccessibleInterval< UnsignedShortType > > slices()
+	{
+		return Arrays.asList(
+				cellImg( 21, 17 ),
+				arrayImg( 21, 17 ),
+				Views.permute( planarImg( 17, 21 ), 0, 1 ),
+				Converters.convert( ( RandomAccessibleInterval< UnsignedShortType > ) arrayImg( 21, 17 ), ( a, b ) -> b.set( a.get() / 2 ), new UnsignedShortType() ) );
+	}
+
+	@Test
+	public void testStack()
+	{
+		final RandomAccessibleInterval< UnsignedShortType > view = Views.stack( slices() );
+		assertTrue( ViewAnalyzer.getViewProperties( view ).isFullySupported() );
+		testCopy( view, new long[] { 0, 0, 0 }, new int[] { 21, 17, 4 } );
+		testCopy( view, new long[] { 3, 4, 1 }, new int[] { 10, 5, 2 } );
+	}
+
+	@Test
+	public void testStackExtendedAndPermuted()
+	{
+		final RandomAccessible< UnsignedShortType > view = Views.permute( Views.extendMirrorSingle( Views.stack( slices() ) ), 0, 2 );
+		testCopy( view, new long[] { -3, -5, -4 }, new int[] { 10, 30, 31 } );
+		final RandomAccessible< UnsignedShortType > zero = Views.extendZero( Views.stack( slices().subList( 0, 3 ) ) );
+		testCopy( zero, new long[] { -3, -5, -2 }, new int[] { 30, 20, 8 } );
+		final RandomAccessible< UnsignedShortType > border = Views.extendBorder( Views.stack( slices() ) );
+		testCopy( border, new long[] { -3, -5, -2 }, new int[] { 30, 20, 8 } );
+	}
+
+	@Test
+	public void testConstantExtendedStackOfConvertedSlicesNotSupported()
+	{
+		// the out-of-bounds value cannot be pushed below the converter of hyperslice 3
+		final RandomAccessible< UnsignedShortType > view = Views.extendZero( Views.stack( slices() ) );
+		assertFalse( ViewAnalyzer.getViewProperties( view ).isFullySupported() );
+	}
+
+	@Test
+	public void testStackOfTranslatedSlices()
+	{
+		final RandomAccessibleInterval< UnsignedShortType > view = Views.stack(
+				Views.translate( cellImg( 21, 17 ), 5, -3 ),
+				Views.translate( arrayImg( 21, 17 ), 5, -3 ) );
+		testCopy( view, new long[] { 6, -2, 0 }, new int[] { 10, 5, 2 } );
+	}
+
+	@Test
+	public void testStackWrite()
+	{
+		final RandomAccessibleInterval< UnsignedShortType > view = Views.stack( cellImg( 21, 17 ), arrayImg( 21, 17 ), planarImg( 21, 17 ) );
+		testWrite( view, new long[] { 2, 3, 0 }, new int[] { 10, 5, 3 } );
+		testWrite( Views.permute( view, 0, 2 ), new long[] { 1, 3, 2 }, new int[] { 2, 5, 10 } );
+	}
+
+	/**
+	 * Check that copying a block with optimized {@code PrimitiveBlocks} gives
+	 * the same result as with the {@code LoopBuilder} fall-back.
+	 */
+	private static void testCopy( final RandomAccessible< UnsignedShortType > view, final long[] min, final int[] size )
+	{
+		final PrimitiveBlocks< UnsignedShortType > blocks = PrimitiveBlocks.of( view, PrimitiveBlocks.OnFallback.FAIL );
+		final PrimitiveBlocks< UnsignedShortType > fallback = new FallbackPrimitiveBlocks<>( view, view.getType() );
+
+		final int len = ( int ) Intervals.numElements( size );
+		final short[] expected = new short[ len ];
+		final short[] actual = new short[ len ];
+		fallback.copy( min, expected, size );
+		blocks.copy( min, actual, size );
+		assertArrayEquals( expected, actual );
+	}
+
+	/**
+	 * Check that writing a block with optimized {@code PrimitiveBlocks} sets
+	 * the corresponding pixels of the {@code view}.
+	 */
+	private static void testWrite( final RandomAccessibleInterval< UnsignedShortType > view, final long[] min, final int[] size )
+	{
+		final PrimitiveBlocks< UnsignedShortType > blocks = PrimitiveBlocks.of( view, PrimitiveBlocks.OnFallback.FAIL );
+
+		final int len = ( int ) Intervals.numElements( size );
+		final short[] data = new short[ len ];
+		for ( int i = 0; i < len; ++i )
+			data[ i ] = ( short ) ( 7 * i + 1 );
+		blocks.write( min, data, size );
+
+		final Cursor< UnsignedShortType > c = Views.flatIterable( Views.interval( view, FinalInterval.createMinSize( min, Util.int2long( size ) ) ) ).cursor();
+		for ( int i = 0; i < len; ++i )
+			assertEquals( data[ i ], ( short ) c.next().get() );
+	}
+}
@@ -0,0 +1,257 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.blocks;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.img.cell.LazyCellImg;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+public class UnaryBlockOperatorTest
+{
+	private static final long[] dims = { 23, 17, 9 };
+
+	private static ArrayImg< UnsignedShortType, ShortArray > randomImg()
+	{
+		final ArrayImg< UnsignedShortType, ShortArray > img = ArrayImgs.unsignedShorts( dims );
+		final Random random = new Random( 1L );
+		img.forEach( t -> t.set( random.nextInt( 1000 ) ) );
+		return img;
+	}
+
+	/**
+	 * Box mean of {@code source} at {@code pos}, computed naively.
+	 */
+	private static double boxMean( final RandomAccessible< ? extends RealType< ? > > source, final long[] pos, final int[] radius )
+	{
+		final RandomAccess< ? extends RealType< ? > > ra = source.randomAccess();
+		final long[] p = new long[ 3 ];
+		double sum = 0;
+		int count = 0;
+		for ( int z = -radius[ 2 ]; z <= radius[ 2 ]; ++z )
+			for ( int y = -radius[ 1 ]; y <= radius[ 1 ]; ++y )
+				for ( int x = -radius[ 0 ]; x <= radius[ 0 ]; ++x )
+				{
+					p[ 0 ] = pos[ 0 ] + x;
+					p[ 1 ] = pos[ 1 ] + y;
+					p[ 2 ] = pos[ 2 ] + z;
+					sum += ra.setPositionAndGet( p ).getRealDouble();
+					++count;
+				}
+		return sum / count;
+	}
+
+	@Test
+	public void testConvert()
+	{
+		final ArrayImg< UnsignedShortType, ShortArray > img = randomImg();
+		final PrimitiveBlocks< FloatType > blocks = PrimitiveBlocks.of( img )
+				.andThen( UnaryBlockOperators.convert( new UnsignedShortType(), new FloatType() ) );
+		assertEquals( 3, blocks.numDimensions() );
+
+		final int[] size = { 10, 5, 4 };
+		final long[] pos = { 3, 7, 2 };
+		final float[] dest = new float[ 10 * 5 * 4 ];
+		blocks.copy( pos, dest, size );
+
+		final short[] expected = new short[ dest.length ];
+		PrimitiveBlocks.of( img ).copy( pos, expected, size );
+		for ( int i = 0; i < dest.length; ++i )
+			assertEquals( expected[ i ] & 0xffff, dest[ i ], 0 );
+	}
+
+	@Test
+	public void testChainedPointwise()
+	{
+		final ArrayImg< UnsignedShortType, ShortArray > img = randomImg();
+		final UnaryBlockOperator< UnsignedShortType, DoubleType > op = UnaryBlockOperators.convert( new UnsignedShortType(), new DoubleType() )
+				.andThen( UnaryBlockOperators.pointwise( new DoubleType(), v -> 2 * v + 1 ) )
+				.andThen( UnaryBlockOperators.pointwise( new DoubleType(), Math::sqrt ) );
+		final PrimitiveBlocks< DoubleType > blocks = PrimitiveBlocks.of( img ).andThen( op );
+
+		final int[] size = { 8, 8, 3 };
+		final long[] pos = { 0, 4, 6 };
+		final double[] dest = new double[ 8 * 8 * 3 ];
+		blocks.copy( pos, dest, size );
+
+		final short[] src = new short[ dest.length ];
+		PrimitiveBlocks.of( img ).copy( pos, src, size );
+		for ( int i = 0; i < dest.length; ++i )
+			assertEquals( Math.sqrt( 2 * ( src[ i ] & 0xffff ) + 1 ), dest[ i ], 1e-12 );
+	}
+
+	@Test
+	public void testBoxMeanHalo()
+	{
+		final ArrayImg< UnsignedShortType, ShortArray > img = randomImg();
+		final int[] radius = { 2, 1, 3 };
+		final PrimitiveBlocks< FloatType > blocks = PrimitiveBlocks.of( Views.extendMirrorSingle( img ) )
+				.andThen( UnaryBlockOperators.convert( new UnsignedShortType(), new FloatType() ) )
+				.andThen( UnaryBlockOperators.boxMean( new FloatType(), radius ) );
+
+		// block at the image border, such that the halo is out-of-bounds
+		final int[] size = { 12, 9, 5 };
+		final long[] pos = { -1, 10, 6 };
+		final float[] dest = new float[ 12 * 9 * 5 ];
+		blocks.copy( pos, dest, size );
+
+		final RandomAccessible< UnsignedShortType > extended = Views.extendMirrorSingle( img );
+		final long[] p = new long[ 3 ];
+		int i = 0;
+		for ( int z = 0; z < size[ 2 ]; ++z )
+			for ( int y = 0; y < size[ 1 ]; ++y )
+				for ( int x = 0; x < size[ 0 ]; ++x )
+				{
+					p[ 0 ] = pos[ 0 ] + x;
+					p[ 1 ] = pos[ 1 ] + y;
+					p[ 2 ] = pos[ 2 ] + z;
+					assertEquals( boxMean( extended, p, radius ), dest[ i++ ], 1e-3 );
+				}
+	}
+
+	@Test
+	public void testChainedHalos()
+	{
+		final ArrayImg< UnsignedShortType, ShortArray > img = randomImg();
+		final PrimitiveBlocks< DoubleType > once = PrimitiveBlocks.of( Views.extendBorder( img ) )
+				.andThen( UnaryBlockOperators.convert( new UnsignedShortType(), new DoubleType() ) )
+				.andThen( UnaryBlockOperators.boxMean( new DoubleType(), 1, 1, 0 ) );
+		final UnaryBlockOperator< DoubleType, DoubleType > box = UnaryBlockOperators.boxMean( new DoubleType(), 1, 1, 0 );
+		final PrimitiveBlocks< DoubleType > twice = once.andThen( box.andThen( box.independentCopy() ) );
+
+		final int[] size = { 6, 5, 2 };
+		final long[] pos = { 4, 4, 1 };
+		final double[] dest = new double[ 6 * 5 * 2 ];
+		twice.copy( pos, dest, size );
+
+		// three box means with radius 1 => source interval is padded by 3
+		final BlockProcessor< ?, ? > processor = box.andThen( box ).andThen( box ).blockProcessor();
+		processor.setTargetInterval( pos, size );
+		assertArrayEquals( new long[] { 1, 1, 1 }, processor.getSourcePos() );
+		assertArrayEquals( new int[] { 12, 11, 2 }, processor.getSourceSize() );
+
+		// compare to applying the last two box means on a pre-computed block
+		final double[] padded = new double[ 10 * 9 * 2 ];
+		once.copy( new long[] { 2, 2, 1 }, padded, new int[] { 10, 9, 2 } );
+		final ArrayImg< DoubleType, ? > paddedImg = ArrayImgs.doubles( padded, 10, 9, 2 );
+		final RandomAccessible< DoubleType > translated = Views.translate( paddedImg, 2, 2, 1 );
+		final ArrayImg< DoubleType, ? > tmp = ArrayImgs.doubles( 8, 7, 2 );
+		final Cursor< DoubleType > c = Views.translate( tmp, 3, 3, 1 ).localizingCursor();
+		final long[] p = new long[ 3 ];
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( p );
+			c.get().set( boxMean( translated, p, new int[] { 1, 1, 0 } ) );
+		}
+		final RandomAccessible< DoubleType > tmpTranslated = Views.translate( tmp, 3, 3, 1 );
+		int i = 0;
+		for ( int z = 0; z < size[ 2 ]; ++z )
+			for ( int y = 0; y < size[ 1 ]; ++y )
+				for ( int x = 0; x < size[ 0 ]; ++x )
+				{
+					p[ 0 ] = pos[ 0 ] + x;
+					p[ 1 ] = pos[ 1 ] + y;
+					p[ 2 ] = pos[ 2 ] + z;
+					assertEquals( boxMean( tmpTranslated, p, new int[] { 1, 1, 0 } ), dest[ i++ ], 1e-9 );
+				}
+	}
+
+	@Test
+	public void testBufferDest()
+	{
+		final ArrayImg< UnsignedShortType, ShortArray > img = randomImg();
+		final PrimitiveBlocks< FloatType > blocks = PrimitiveBlocks.of( Views.extendZero( img ) )
+				.andThen( UnaryBlockOperators.convert( new UnsignedShortType(), new FloatType() ) )
+				.andThen( UnaryBlockOperators.pointwise( new FloatType(), v -> -v ) );
+
+		final int[] size = { 7, 6, 5 };
+		final long[] pos = { 20, -2, 1 };
+		final float[] expected = new float[ 7 * 6 * 5 ];
+		blocks.copy( pos, expected, size );
+
+		final FloatBuffer buffer = ByteBuffer.allocateDirect( 4 * expected.length ).order( ByteOrder.nativeOrder() ).asFloatBuffer();
+		blocks.copy( pos, buffer, size );
+		final float[] actual = new float[ expected.length ];
+		buffer.get( actual );
+		assertArrayEquals( expected, actual, 0 );
+	}
+
+	@Test
+	public void testLazyCellImg()
+	{
+		final ArrayImg< UnsignedShortType, ShortArray > img = randomImg();
+		final int[] radius = { 1, 2, 1 };
+		final PrimitiveBlocks< FloatType > blocks = PrimitiveBlocks.of( Views.extendMirrorDouble( img ) )
+				.andThen( UnaryBlockOperators.convert( new UnsignedShortType(), new FloatType() ) )
+				.andThen( UnaryBlockOperators.boxMean( new FloatType(), radius ) );
+		final LazyCellImg< FloatType, ? > lazy = BlockCellLoader.lazyCellImg( blocks, dims, new int[] { 8, 8, 4 } );
+
+		final RandomAccessible< UnsignedShortType > extended = Views.extendMirrorDouble( img );
+		final long[] p = new long[ 3 ];
+		final Cursor< FloatType > c = lazy.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( p );
+			assertEquals( boxMean( extended, p, radius ), c.get().get(), 1e-3 );
+		}
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testHaloDimensionMismatch()
+	{
+		PrimitiveBlocks.of( Views.extendBorder( ArrayImgs.floats( 10, 10 ) ) )
+				.andThen( UnaryBlockOperators.boxMean( new FloatType(), 1, 1, 1 ) )
+				.copy( new long[] { 0, 0 }, new float[ 4 ], new int[] { 2, 2 } );
+	}
+}
@@ -37,6 +37,8 @@ package net.imglib2.img.array;
 import static org.junit.Assert.assertArrayEquals;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Random;
 
 import org.junit.Assert;
@@ -515,6 +517,25 @@ public class ArrayImgsTest
 		}
 	}
 
+	/** Tests wrapping {@link ByteBuffer}s with {@link ArrayImgs}. */
+	@Test
+	public void testByteBuffer()
+	{
+		final ByteBuffer bigEndian = ByteBuffer.allocate( 4 * nElements ).order( ByteOrder.BIG_ENDIAN );
+		for ( int i = 0; i < nElements; ++i )
+			bigEndian.putInt( 4 * i, -i );
+		final ArrayImg< IntType, ? > ints = ArrayImgs.ints( bigEndian, dims );
+		int i = 0;
+		for ( final IntType t : ints )
+			Assert.assertEquals( -( i++ ), t.get() );
+
+		final ByteBuffer littleEndian = ByteBuffer.allocateDirect( 2 * nElements ).order( ByteOrder.LITTLE_ENDIAN );
+		final ArrayImg< UnsignedShortType, ? > shorts = ArrayImgs.unsignedShorts( littleEndian, dims );
+		shorts.forEach( t -> t.set( 0xabcd ) );
+		Assert.assertEquals( ( byte ) 0xcd, littleEndian.get( 0 ) );
+		Assert.assertEquals( ( byte ) 0xab, littleEndian.get( 1 ) );
+	}
+
 	@Test
 	public void testInvalidDimensions()
 	{
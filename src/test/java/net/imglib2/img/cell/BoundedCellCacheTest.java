@@ -0,0 +1,182 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.type.numeric.integer.IntType;
+
+import org.junit.Test;
+
+public class BoundedCellCacheTest
+{
+	private final CellGrid grid = new CellGrid( new long[] { 40, 30 }, new int[] { 10, 10 } );
+
+	private final AtomicInteger numLoads = new AtomicInteger();
+
+	private Cell< IntArray > load( final long index )
+	{
+		numLoads.incrementAndGet();
+		final long[] cellMin = new long[ 2 ];
+		final int[] cellDims = new int[ 2 ];
+		grid.getCellDimensions( index, cellMin, cellDims );
+		final int[] data = new int[ cellDims[ 0 ] * cellDims[ 1 ] ];
+		final Cell< IntArray > cell = new Cell<>( cellDims, cellMin, new IntArray( data ) );
+		final long[] pos = new long[ 2 ];
+		for ( int i = 0; i < data.length; ++i )
+		{
+			cell.indexToGlobalPosition( i, pos );
+			data[ i ] = ( int ) ( pos[ 0 ] + 100 * pos[ 1 ] );
+		}
+		return cell;
+	}
+
+	@Test
+	public void testHitsAndMisses()
+	{
+		final BoundedCellCache< IntArray > cache = new BoundedCellCache<>( this::load, Long.MAX_VALUE );
+		final LazyCellImg< IntType, IntArray > img = new LazyCellImg<>( grid, new IntType(), cache );
+
+		final long[] pos = new long[ 2 ];
+		for ( int pass = 0; pass < 2; ++pass )
+		{
+			final Cursor< IntType > c = img.localizingCursor();
+			while ( c.hasNext() )
+			{
+				c.fwd();
+				c.localize( pos );
+				assertEquals( pos[ 0 ] + 100 * pos[ 1 ], c.get().get() );
+			}
+		}
+
+		assertEquals( 12, numLoads.get() );
+		assertEquals( 12, cache.missCount() );
+		assertEquals( 12, cache.size() );
+		assertEquals( 0, cache.evictionCount() );
+		assertEquals( 12 * 100 * Integer.BYTES, cache.weight() );
+	}
+
+	@Test
+	public void testEviction()
+	{
+		// room for 2 cells
+		final BoundedCellCache< IntArray > cache = new BoundedCellCache<>( this::load, 2 * 100 * Integer.BYTES );
+
+		final Cell< IntArray > c0 = cache.get( 0 );
+		cache.get( 1 );
+		assertSame( c0, cache.get( 0 ) ); // 0 is now most recently used
+		cache.get( 2 ); // evicts 1
+		assertEquals( 1, cache.evictionCount() );
+		assertEquals( 2, cache.size() );
+		assertSame( c0, cache.get( 0 ) );
+		assertEquals( 3, numLoads.get() );
+		cache.get( 1 ); // reloads 1, evicts 2
+		assertEquals( 4, numLoads.get() );
+		assertEquals( 2, cache.evictionCount() );
+		assertEquals( 2, cache.hitCount() );
+		assertEquals( 4, cache.missCount() );
+	}
+
+	@Test
+	public void testConcurrentLoadsAreDeduplicated() throws Exception
+	{
+		final int numThreads = 8;
+		final CountDownLatch loaderEntered = new CountDownLatch( 1 );
+		final CountDownLatch release = new CountDownLatch( 1 );
+		final BoundedCellCache< IntArray > cache = new BoundedCellCache<>( index -> {
+			loaderEntered.countDown();
+			try
+			{
+				release.await();
+			}
+			catch ( final InterruptedException e )
+			{
+				throw new RuntimeException( e );
+			}
+			return load( index );
+		}, Long.MAX_VALUE );
+
+		final ExecutorService es = Executors.newFixedThreadPool( numThreads );
+		final List< Future< Cell< IntArray > > > futures = new ArrayList<>();
+		futures.add( es.submit( () -> cache.get( 5 ) ) );
+		loaderEntered.await();
+		for ( int i = 1; i < numThreads; ++i )
+			futures.add( es.submit( () -> cache.get( 5 ) ) );
+		Thread.sleep( 50 );
+		release.countDown();
+
+		final Cell< IntArray > cell = futures.get( 0 ).get();
+		for ( final Future< Cell< IntArray > > future : futures )
+			assertSame( cell, future.get() );
+		es.shutdown();
+
+		assertEquals( 1, numLoads.get() );
+		assertEquals( 1, cache.missCount() );
+	}
+
+	@Test
+	public void testFailedLoadIsNotCached()
+	{
+		final AtomicInteger attempts = new AtomicInteger();
+		final BoundedCellCache< IntArray > cache = new BoundedCellCache<>( index -> {
+			if ( attempts.incrementAndGet() == 1 )
+				throw new IllegalStateException( "first attempt fails" );
+			return load( index );
+		}, Long.MAX_VALUE );
+
+		try
+		{
+			cache.get( 3 );
+		}
+		catch ( final IllegalStateException e )
+		{
+			assertEquals( "first attempt fails", e.getMessage() );
+		}
+		assertEquals( 0, cache.size() );
+		cache.get( 3 );
+		assertEquals( 1, cache.size() );
+		assertEquals( 2, attempts.get() );
+	}
+}
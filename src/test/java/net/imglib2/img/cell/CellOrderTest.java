@@ -0,0 +1,236 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Spliterator;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.stream.LocalizableSpliterator;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.ImgTestHelper;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+
+import org.junit.Test;
+
+public class CellOrderTest
+{
+	@Test
+	public void testMortonCellImg()
+	{
+		final long[][] dim = ImgTestHelper.dims();
+		for ( int i = 0; i < dim.length; ++i )
+		{
+			if ( dim[ i ].length > 1 && dim[ i ].length < 5 )
+			{
+				assertTrue( "ArrayImg vs Morton CellImg failed for dim = " + Util.printCoordinates( dim[ i ] ),
+						ImgTestHelper.testImg( dim[ i ], new ArrayImgFactory<>( new FloatType() ), new CellImgFactory<>( new FloatType(), CellOrder.MORTON, 10 ) ) );
+				assertTrue( "Morton CellImg vs ArrayImg failed for dim = " + Util.printCoordinates( dim[ i ] ),
+						ImgTestHelper.testImg( dim[ i ], new CellImgFactory<>( new FloatType(), CellOrder.MORTON, 7 ), new ArrayImgFactory<>( new FloatType() ) ) );
+			}
+		}
+	}
+
+	@Test
+	public void testZOrderOfCells()
+	{
+		final CellImg< IntType, ? > img = new CellImgFactory<>( new IntType(), CellOrder.MORTON, 2, 2 ).create( 8, 8 );
+		final List< long[] > visited = new ArrayList<>();
+		final Cursor< IntType > c = img.cursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			final long[] cellPos = new long[] { c.getLongPosition( 0 ) / 2, c.getLongPosition( 1 ) / 2 };
+			if ( visited.isEmpty() || !Arrays.equals( visited.get( visited.size() - 1 ), cellPos ) )
+				visited.add( cellPos );
+		}
+		final long[][] expected = {
+				{ 0, 0 }, { 1, 0 }, { 0, 1 }, { 1, 1 },
+				{ 2, 0 }, { 3, 0 }, { 2, 1 }, { 3, 1 },
+				{ 0, 2 }, { 1, 2 }, { 0, 3 }, { 1, 3 },
+				{ 2, 2 }, { 3, 2 }, { 2, 3 }, { 3, 3 } };
+		assertEquals( expected.length, visited.size() );
+		for ( int i = 0; i < expected.length; ++i )
+			assertArrayEquals( expected[ i ], visited.get( i ) );
+	}
+
+	@Test
+	public void testIterationIndex()
+	{
+		final CellGrid grid = new CellGrid( new long[] { 53, 27, 11 }, new int[] { 5, 4, 3 }, CellOrder.MORTON );
+		final long[] gridDims = grid.getGridDimensions();
+		final int numCells = ( int ) Intervals.numElements( gridDims );
+		final boolean[] seen = new boolean[ numCells ];
+		final long[] pos = new long[ 3 ];
+		final long[] pos2 = new long[ 3 ];
+		final long[] indices = new long[ 2 ];
+		long firstPixel = 0;
+		for ( int i = 0; i < numCells; ++i )
+		{
+			grid.getCellGridPositionAtIterationIndex( i, pos );
+			assertEquals( i, grid.getCellIterationIndex( pos ) );
+			final int flat = ( int ) grid.getCellGridIndexFlat( pos );
+			assertFalse( seen[ flat ] );
+			seen[ flat ] = true;
+
+			grid.getIndicesFromGridPosition( pos, indices );
+			assertEquals( i, indices[ 0 ] );
+			assertEquals( firstPixel, indices[ 1 ] );
+			assertEquals( firstPixel, grid.indexOfFirstPixelInCell( i ) );
+
+			grid.getCellAndPixelIndices( firstPixel + 1, indices );
+			assertEquals( i, indices[ 0 ] );
+			assertEquals( 1, indices[ 1 ] );
+
+			final long[] cellMin = new long[ 3 ];
+			firstPixel += grid.getCellDimensions( pos, cellMin ).numPixels();
+
+			IntervalIndexer.indexToPosition( flat, gridDims, pos2 );
+			assertArrayEquals( pos, pos2 );
+		}
+		assertEquals( 53 * 27 * 11, firstPixel );
+	}
+
+	@Test
+	public void testCursorsAndSpliterator()
+	{
+		final long[] dims = { 53, 27, 11 };
+		final CellImg< IntType, ? > img = new CellImgFactory<>( new IntType(), CellOrder.MORTON, 5, 4, 3 ).create( dims );
+		final RandomAccess< IntType > ra = img.randomAccess();
+		final long[] pos = new long[ 3 ];
+		for ( int i = 0; i < Intervals.numElements( dims ); ++i )
+		{
+			IntervalIndexer.indexToPosition( i, dims, pos );
+			ra.setPositionAndGet( pos ).set( i );
+		}
+
+		// every pixel is visited exactly once, cursor positions are consistent
+		final Cursor< IntType > c = img.cursor();
+		final Cursor< IntType > lc = img.localizingCursor();
+		final boolean[] seen = new boolean[ ( int ) Intervals.numElements( dims ) ];
+		final List< Integer > order = new ArrayList<>();
+		while ( c.hasNext() )
+		{
+			final int v = c.next().get();
+			assertEquals( v, lc.next().get() );
+			c.localize( pos );
+			assertEquals( v, IntervalIndexer.positionToIndex( pos, dims ) );
+			assertArrayEquals( pos, lc.positionAsLongArray() );
+			assertFalse( seen[ v ] );
+			seen[ v ] = true;
+			order.add( v );
+		}
+		assertFalse( lc.hasNext() );
+
+		// jumpFwd is consistent with fwd
+		for ( final long steps : new long[] { 1, 17, 60, 333, 1234 } )
+		{
+			final Cursor< IntType > jc = img.cursor();
+			final Cursor< IntType > jlc = img.localizingCursor();
+			for ( long i = steps - 1; i < order.size(); i += steps )
+			{
+				jc.jumpFwd( steps );
+				jlc.jumpFwd( steps );
+				assertEquals( ( int ) order.get( ( int ) i ), jc.get().get() );
+				assertEquals( ( int ) order.get( ( int ) i ), jlc.get().get() );
+			}
+		}
+
+		// spliterator visits pixels in the same order, also when split
+		final LocalizableSpliterator< IntType > spliterator = img.spliterator();
+		final Spliterator< IntType > prefix = spliterator.trySplit();
+		final List< Integer > splitOrder = new ArrayList<>();
+		prefix.forEachRemaining( t -> splitOrder.add( t.get() ) );
+		spliterator.forEachRemaining( t -> splitOrder.add( t.get() ) );
+		assertEquals( order, splitOrder );
+
+		final long sum = img.parallelStream().mapToLong( IntType::get ).sum();
+		final long n = Intervals.numElements( dims );
+		assertEquals( n * ( n - 1 ) / 2, sum );
+	}
+
+	@Test
+	public void testIterationOrder()
+	{
+		final CellImg< IntType, ? > flat = new CellImgFactory<>( new IntType(), 5, 4 ).create( 23, 17 );
+		final CellImg< IntType, ? > morton1 = new CellImgFactory<>( new IntType(), CellOrder.MORTON, 5, 4 ).create( 23, 17 );
+		final CellImg< IntType, ? > morton2 = new CellImgFactory<>( new IntType(), CellOrder.MORTON, 5, 4 ).create( 23, 17 );
+		assertNotEquals( flat.iterationOrder(), morton1.iterationOrder() );
+		assertEquals( morton1.iterationOrder(), morton2.iterationOrder() );
+		assertEquals( CellOrder.MORTON, morton1.copy().getCellGrid().getCellOrder() );
+	}
+
+	@Test
+	public void testLazyCellImg()
+	{
+		final CellGrid grid = new CellGrid( new long[] { 40, 30 }, new int[] { 10, 10 }, CellOrder.MORTON );
+		final List< Long > loaded = new ArrayList<>();
+		final LazyCellImg< IntType, IntArray > img = new LazyCellImg<>( grid, new IntType(), index -> {
+			loaded.add( index );
+			final long[] cellMin = new long[ 2 ];
+			final int[] cellDims = new int[ 2 ];
+			grid.getCellDimensions( index, cellMin, cellDims );
+			final int[] data = new int[ cellDims[ 0 ] * cellDims[ 1 ] ];
+			Arrays.fill( data, ( int ) index );
+			return new Cell<>( cellDims, cellMin, new IntArray( data ) );
+		} );
+
+		final Cursor< IntType > c = img.localizingCursor();
+		final long[] cellPos = new long[ 2 ];
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			grid.getCellPosition( c.positionAsLongArray(), cellPos );
+			assertEquals( grid.getCellGridIndexFlat( cellPos ), c.get().get() );
+		}
+		// cells are requested in Z-order (loader is passed flat indices)
+		final List< Long > requested = new ArrayList<>( new LinkedHashSet<>( loaded ) );
+		assertEquals( Arrays.asList( 0L, 1L, 4L, 5L, 2L, 3L, 6L, 7L, 8L, 9L, 10L, 11L ), requested );
+	}
+}
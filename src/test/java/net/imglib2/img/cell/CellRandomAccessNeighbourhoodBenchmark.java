@@ -0,0 +1,138 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.type.numeric.integer.IntType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare {@link CellRandomAccess} with and without caching of neighbour
+ * cells, for 3x3x3 neighbourhood access at every pixel of an image with small
+ * cells (where most neighbourhoods straddle cell borders). The lazy image
+ * obtains its cells from a {@link BoundedCellCache}, where cell lookups are
+ * more expensive than for a {@link CellImg}.
+ */
+@State( Scope.Benchmark )
+@Warmup( iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS )
+@Measurement( iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( 1 )
+public class CellRandomAccessNeighbourhoodBenchmark
+{
+	@Param( { "4", "8", "32" } )
+	int cellSize;
+
+	@Param( { "false", "true" } )
+	boolean cacheNeighbourCells;
+
+	private final long[] dimensions = { 64, 64, 64 };
+
+	private CellImg< IntType, IntArray > cellImg;
+
+	private LazyCellImg< IntType, IntArray > lazyImg;
+
+	@SuppressWarnings( "unchecked" )
+	@Setup
+	public void setup()
+	{
+		cellImg = ( CellImg< IntType, IntArray > ) new CellImgFactory<>( new IntType(), cellSize ).create( dimensions );
+		final List< Cell< IntArray > > cells = new ArrayList<>();
+		cellImg.getCells().forEach( cells::add );
+		lazyImg = new LazyCellImg<>( cellImg.getCellGrid(), new IntType(), new BoundedCellCache<>( index -> cells.get( ( int ) index ), Long.MAX_VALUE ) );
+		cellImg.setCacheNeighbourCells( cacheNeighbourCells );
+		lazyImg.setCacheNeighbourCells( cacheNeighbourCells );
+	}
+
+	@Benchmark
+	public long cellImgStencil()
+	{
+		return stencilSum( cellImg.randomAccess() );
+	}
+
+	@Benchmark
+	public long lazyCellImgStencil()
+	{
+		return stencilSum( lazyImg.randomAccess() );
+	}
+
+	private long stencilSum( final RandomAccess< IntType > ra )
+	{
+		long sum = 0;
+		final long[] pos = new long[ 3 ];
+		for ( long z = 1; z < dimensions[ 2 ] - 1; ++z )
+			for ( long y = 1; y < dimensions[ 1 ] - 1; ++y )
+				for ( long x = 1; x < dimensions[ 0 ] - 1; ++x )
+					for ( int dz = -1; dz <= 1; ++dz )
+						for ( int dy = -1; dy <= 1; ++dy )
+							for ( int dx = -1; dx <= 1; ++dx )
+							{
+								pos[ 0 ] = x + dx;
+								pos[ 1 ] = y + dy;
+								pos[ 2 ] = z + dz;
+								ra.setPosition( pos );
+								sum += ra.get().get();
+							}
+		return sum;
+	}
+
+	public static void main( final String... args ) throws RunnerException
+	{
+		final Options opt = new OptionsBuilder()
+				.include( CellRandomAccessNeighbourhoodBenchmark.class.getSimpleName() )
+				.build();
+		new Runner( opt ).run();
+	}
+}
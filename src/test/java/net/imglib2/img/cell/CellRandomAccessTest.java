@@ -0,0 +1,220 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.Intervals;
+
+import org.junit.Test;
+
+public class CellRandomAccessTest
+{
+	private final long[] dimensions = { 23, 17, 12 };
+
+	private final CellGrid grid = new CellGrid( dimensions, new int[] { 5, 4, 3 } );
+
+	private final AtomicInteger numGets = new AtomicInteger();
+
+	private static int value( final long[] pos )
+	{
+		return ( int ) ( pos[ 0 ] + 100 * pos[ 1 ] + 10000 * pos[ 2 ] );
+	}
+
+	private LazyCellImg< IntType, IntArray > createImg()
+	{
+		final Cell< ? >[] cells = new Cell[ ( int ) Intervals.numElements( grid.getGridDimensions() ) ];
+		return new LazyCellImg<>( grid, new IntType(), index -> {
+			numGets.incrementAndGet();
+			synchronized ( cells )
+			{
+				if ( cells[ ( int ) index ] == null )
+				{
+					final long[] cellMin = new long[ 3 ];
+					final int[] cellDims = new int[ 3 ];
+					grid.getCellDimensions( index, cellMin, cellDims );
+					final Cell< IntArray > cell = new Cell<>( cellDims, cellMin, new IntArray( cellDims[ 0 ] * cellDims[ 1 ] * cellDims[ 2 ] ) );
+					cells[ ( int ) index ] = cell;
+				}
+				@SuppressWarnings( "unchecked" )
+				final Cell< IntArray > cell = ( Cell< IntArray > ) cells[ ( int ) index ];
+				return cell;
+			}
+		} );
+	}
+
+	private LazyCellImg< IntType, IntArray > createFilledImg()
+	{
+		final LazyCellImg< IntType, IntArray > img = createImg();
+		final long[] pos = new long[ 3 ];
+		final Cursor< IntType > c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( pos );
+			c.get().set( value( pos ) );
+		}
+		return img;
+	}
+
+	@Test
+	public void testRandomMoves()
+	{
+		final LazyCellImg< IntType, IntArray > img = createFilledImg();
+		for ( final boolean cacheNeighbourCells : new boolean[] { false, true } )
+		{
+			final Random random = new Random( 1 );
+			img.setCacheNeighbourCells( cacheNeighbourCells );
+			final CellRandomAccess< IntType, ? > ra = img.randomAccess();
+			final long[] pos = new long[ 3 ];
+			for ( int i = 0; i < 10000; ++i )
+			{
+				final int d = random.nextInt( 3 );
+				switch ( random.nextInt( 5 ) )
+				{
+				case 0:
+					ra.fwd( d );
+					break;
+				case 1:
+					ra.bck( d );
+					break;
+				case 2:
+					ra.move( random.nextInt( 9 ) - 4, d );
+					break;
+				case 3:
+					// occasionally leave the image
+					ra.setPosition( random.nextInt( ( int ) dimensions[ d ] + 4 ) - 2, d );
+					break;
+				default:
+					final long[] target = new long[ 3 ];
+					for ( int k = 0; k < 3; ++k )
+						target[ k ] = random.nextInt( ( int ) dimensions[ k ] );
+					ra.setPosition( target );
+					break;
+				}
+				ra.localize( pos );
+				boolean inside = true;
+				for ( int k = 0; k < 3; ++k )
+					inside &= pos[ k ] >= 0 && pos[ k ] < dimensions[ k ];
+				if ( inside )
+				{
+					assertEquals( value( pos ), ra.get().get() );
+					if ( i % 7 == 0 )
+						assertEquals( value( pos ), ra.copy().get().get() );
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testStencilAtCellCornerReusesNeighbourCells()
+	{
+		final LazyCellImg< IntType, IntArray > img = createFilledImg();
+		// corner shared by 8 cells
+		final long[] center = { 5, 4, 3 };
+		final long[] pos = new long[ 3 ];
+
+		for ( final boolean cacheNeighbourCells : new boolean[] { false, true } )
+		{
+			img.setCacheNeighbourCells( cacheNeighbourCells );
+			final RandomAccess< IntType > ra = img.randomAccess();
+			numGets.set( 0 );
+			for ( int repeat = 0; repeat < 10; ++repeat )
+				for ( int z = -1; z <= 1; ++z )
+					for ( int y = -1; y <= 1; ++y )
+						for ( int x = -1; x <= 1; ++x )
+						{
+							pos[ 0 ] = center[ 0 ] + x;
+							pos[ 1 ] = center[ 1 ] + y;
+							pos[ 2 ] = center[ 2 ] + z;
+							ra.setPosition( pos );
+							assertEquals( value( pos ), ra.get().get() );
+						}
+			if ( cacheNeighbourCells )
+				assertEquals( 8, numGets.get() );
+			else
+				assertTrue( numGets.get() > 8 );
+		}
+	}
+
+	@Test
+	public void testCacheNeighbourCellsOption()
+	{
+		final LazyCellImg< IntType, IntArray > img = createImg();
+		assertFalse( img.isCacheNeighbourCells() );
+		assertEquals( CellRandomAccess.class, img.randomAccess().getClass() );
+		img.setCacheNeighbourCells( true );
+		assertTrue( img.isCacheNeighbourCells() );
+		assertEquals( NeighbourCachingCellRandomAccess.class, img.randomAccess().getClass() );
+		assertEquals( NeighbourCachingCellRandomAccess.class, img.randomAccess().copy().getClass() );
+
+		// not supported for more than 5 dimensions
+		final CellImg< IntType, ? > img6d = new CellImgFactory<>( new IntType(), 2 ).create( 2, 2, 2, 2, 2, 2 );
+		img6d.setCacheNeighbourCells( true );
+		assertFalse( img6d.isCacheNeighbourCells() );
+	}
+
+	@Test
+	public void testDefaultSeesReplacedCells()
+	{
+		// the loader returns a new cell object (with a new value) on every call
+		final CellGrid grid = new CellGrid( new long[] { 20, 10 }, new int[] { 10, 10 } );
+		final AtomicInteger version = new AtomicInteger();
+		final LazyCellImg< IntType, IntArray > img = new LazyCellImg<>( grid, new IntType(), index -> {
+			final long[] cellMin = new long[ 2 ];
+			final int[] cellDims = new int[ 2 ];
+			grid.getCellDimensions( index, cellMin, cellDims );
+			final int[] data = new int[ cellDims[ 0 ] * cellDims[ 1 ] ];
+			Arrays.fill( data, version.incrementAndGet() );
+			return new Cell<>( cellDims, cellMin, new IntArray( data ) );
+		} );
+
+		final RandomAccess< IntType > ra = img.randomAccess();
+		ra.setPosition( new long[] { 9, 5 } );
+		final int first = ra.get().get();
+		ra.fwd( 0 ); // neighbour cell
+		ra.bck( 0 ); // back to the first cell, which was replaced
+		assertTrue( ra.get().get() > first );
+	}
+}
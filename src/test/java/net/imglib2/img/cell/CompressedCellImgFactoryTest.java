@@ -0,0 +1,214 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.stream.StreamSupport;
+
+import net.imglib2.Cursor;
+import net.imglib2.blocks.PrimitiveBlocks;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.PrimitiveType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.ImgTestHelper;
+import net.imglib2.util.Util;
+
+import org.junit.Test;
+
+public class CompressedCellImgFactoryTest
+{
+	@Test
+	public void testCompressedCellImg()
+	{
+		final long[][] dim = ImgTestHelper.dims();
+		for ( int i = 0; i < dim.length; ++i )
+		{
+			if ( dim[ i ].length > 1 )
+			{
+				// working set of (at most) 3 cells
+				assertTrue( "ArrayImg vs CompressedCellImg failed for dim = " + Util.printCoordinates( dim[ i ] ),
+						ImgTestHelper.testImg( dim[ i ], new ArrayImgFactory<>( new FloatType() ), new CompressedCellImgFactory<>( new FloatType(), 3 * 4 * 1000, 10 ) ) );
+				assertTrue( "CompressedCellImg vs ArrayImg failed for dim = " + Util.printCoordinates( dim[ i ] ),
+						ImgTestHelper.testImg( dim[ i ], new CompressedCellImgFactory<>( new FloatType(), 3 * 4 * 343, 7 ), new ArrayImgFactory<>( new FloatType() ) ) );
+			}
+		}
+	}
+
+	private static int value( final long[] pos )
+	{
+		return ( int ) ( ( pos[ 0 ] / 4 + pos[ 1 ] / 4 + pos[ 2 ] ) % 7 );
+	}
+
+	@Test
+	public void testRecompressOnEviction() throws InterruptedException
+	{
+		final CompressedCellImg< UnsignedShortType, ? > img = new CompressedCellImgFactory<>( new UnsignedShortType(), 2 * 32 * 32 * 8 * 2, 32, 32, 8 ).create( 128, 96, 24 );
+		final long[] pos = new long[ 3 ];
+		Cursor< UnsignedShortType > c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( pos );
+			c.get().set( value( pos ) );
+		}
+		c = null;
+		assertTrue( img.workingSetSize() <= 2 );
+
+		// wait until the garbage collector has released the evicted cells
+		img.clearWorkingSet();
+		final long numCells = 4 * 3 * 3;
+		for ( int i = 0; i < 100 && img.numCompressedCells() < numCells; ++i )
+		{
+			System.gc();
+			Thread.sleep( 10 );
+		}
+		assertEquals( numCells, img.numCompressedCells() );
+		assertTrue( img.compressedSizeInBytes() < 128 * 96 * 24 * 2 / 5 );
+
+		c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( pos );
+			assertEquals( value( pos ), c.get().get() );
+		}
+
+		final long sum = StreamSupport.stream( img.spliterator(), true ).mapToLong( UnsignedShortType::get ).sum();
+		long expected = 0;
+		c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( pos );
+			expected += value( pos );
+		}
+		assertEquals( expected, sum );
+	}
+
+	@Test
+	public void testWritesThroughEvictedAccessAreKept()
+	{
+		// working set holds nothing: every cell is evicted immediately
+		final CompressedCellImg< FloatType, ? > img = new CompressedCellImgFactory<>( new FloatType(), 0, 4, 4 ).create( 16, 16 );
+		final Cursor< FloatType > c = img.cursor();
+		c.fwd();
+		img.randomAccess().setPositionAndGet( 10, 10 );
+		System.gc();
+		c.get().set( 5 );
+		c.reset();
+		c.fwd();
+		assertEquals( 5, c.get().get(), 0 );
+		assertEquals( 5, img.randomAccess().setPositionAndGet( 0, 0 ).get(), 0 );
+	}
+
+	@Test
+	public void testPrimitiveBlocks()
+	{
+		final CompressedCellImg< UnsignedShortType, ? > img = new CompressedCellImgFactory<>( new UnsignedShortType(), 0, 8, 8 ).create( 30, 20 );
+		final PrimitiveBlocks< UnsignedShortType > blocks = PrimitiveBlocks.of( img );
+		final short[] src = new short[ 15 * 12 ];
+		for ( int i = 0; i < src.length; ++i )
+			src[ i ] = ( short ) i;
+		blocks.write( new long[] { 5, 3 }, src, new int[] { 15, 12 } );
+		final short[] dest = new short[ src.length ];
+		blocks.copy( new long[] { 5, 3 }, dest, new int[] { 15, 12 } );
+		assertArrayEquals( src, dest );
+	}
+
+	@Test
+	public void testCodec()
+	{
+		final Random random = new Random( 1 );
+		final int length = 1000;
+		for ( final PrimitiveType primitiveType : new PrimitiveType[] { PrimitiveType.BOOLEAN, PrimitiveType.BYTE, PrimitiveType.SHORT, PrimitiveType.INT, PrimitiveType.DOUBLE } )
+		{
+			final DeflateCellCodec codec = new DeflateCellCodec( primitiveType, 6 );
+			final Object array;
+			final Object decompressed;
+			switch ( primitiveType )
+			{
+			case BOOLEAN:
+			{
+				final boolean[] a = new boolean[ length ];
+				for ( int i = 0; i < length; ++i )
+					a[ i ] = random.nextBoolean();
+				array = a;
+				decompressed = new boolean[ length ];
+				break;
+			}
+			case BYTE:
+			{
+				final byte[] a = new byte[ length ];
+				random.nextBytes( a );
+				array = a;
+				decompressed = new byte[ length ];
+				break;
+			}
+			case SHORT:
+			{
+				final short[] a = new short[ length ];
+				for ( int i = 0; i < length; ++i )
+					a[ i ] = ( short ) random.nextInt();
+				array = a;
+				decompressed = new short[ length ];
+				break;
+			}
+			case INT:
+				array = random.ints( length ).toArray();
+				decompressed = new int[ length ];
+				break;
+			default:
+				array = random.doubles( length ).toArray();
+				decompressed = new double[ length ];
+				break;
+			}
+			codec.decompress( codec.compress( array, length ), decompressed, length );
+			if ( array instanceof boolean[] )
+				assertArrayEquals( ( boolean[] ) array, ( boolean[] ) decompressed );
+			else if ( array instanceof byte[] )
+				assertArrayEquals( ( byte[] ) array, ( byte[] ) decompressed );
+			else if ( array instanceof short[] )
+				assertArrayEquals( ( short[] ) array, ( short[] ) decompressed );
+			else if ( array instanceof int[] )
+				assertArrayEquals( ( int[] ) array, ( int[] ) decompressed );
+			else
+				assertArrayEquals( ( double[] ) array, ( double[] ) decompressed, 0 );
+		}
+	}
+}
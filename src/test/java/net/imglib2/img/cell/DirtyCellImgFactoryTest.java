@@ -0,0 +1,223 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.blocks.PrimitiveBlocks;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.basictypeaccess.array.DirtyShortArray;
+import net.imglib2.parallel.TaskExecutor;
+import net.imglib2.parallel.TaskExecutors;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.ImgTestHelper;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+public class DirtyCellImgFactoryTest
+{
+	@Test
+	public void testDirtyCellImg()
+	{
+		final long[][] dim = ImgTestHelper.dims();
+		for ( int i = 0; i < dim.length; ++i )
+		{
+			if ( dim[ i ].length > 1 && dim[ i ].length < 5 )
+			{
+				assertTrue( "ArrayImg vs DirtyCellImg failed for dim = " + Util.printCoordinates( dim[ i ] ),
+						ImgTestHelper.testImg( dim[ i ], new ArrayImgFactory<>( new FloatType() ), new DirtyCellImgFactory<>( new FloatType(), 10 ) ) );
+				assertTrue( "DirtyCellImg vs ArrayImg failed for dim = " + Util.printCoordinates( dim[ i ] ),
+						ImgTestHelper.testImg( dim[ i ], new DirtyCellImgFactory<>( new FloatType(), 7 ), new ArrayImgFactory<>( new FloatType() ) ) );
+			}
+		}
+	}
+
+	@SuppressWarnings( "unchecked" )
+	private static DirtyCellImg< UnsignedShortType, DirtyShortArray > createImg()
+	{
+		// 4 x 3 cells
+		return ( DirtyCellImg< UnsignedShortType, DirtyShortArray > ) new DirtyCellImgFactory<>( new UnsignedShortType(), 10, 10 ).create( 40, 30 );
+	}
+
+	@Test
+	public void testWritesMarkTouchedCells()
+	{
+		final DirtyCellImg< UnsignedShortType, DirtyShortArray > img = createImg();
+		assertEquals( 0, img.numDirtyCells() );
+
+		// reading does not mark cells
+		for ( final UnsignedShortType t : img )
+			assertEquals( 0, t.get() );
+		assertEquals( 0, img.numDirtyCells() );
+
+		final RandomAccess< UnsignedShortType > ra = img.randomAccess();
+		ra.setPositionAndGet( 15, 5 ).set( 1 );
+		ra.setPositionAndGet( 16, 6 ).set( 2 );
+		assertEquals( 1, img.numDirtyCells() );
+		assertTrue( img.isDirty( 1, 0 ) );
+		assertFalse( img.isDirty( 0, 0 ) );
+
+		final Cursor< UnsignedShortType > c = Views.interval( img, new long[] { 35, 25 }, new long[] { 39, 29 } ).cursor();
+		while ( c.hasNext() )
+			c.next().set( 3 );
+		assertEquals( 2, img.numDirtyCells() );
+		assertTrue( img.isDirty( 3, 2 ) );
+
+		final List< Cell< DirtyShortArray > > dirty = img.dirtyCells();
+		assertEquals( 2, dirty.size() );
+		assertEquals( 10, dirty.get( 0 ).min( 0 ) );
+		assertEquals( 30, dirty.get( 1 ).min( 0 ) );
+	}
+
+	@Test
+	public void testPrimitiveBlocksWriteMarksCells()
+	{
+		final DirtyCellImg< UnsignedShortType, DirtyShortArray > img = createImg();
+		final PrimitiveBlocks< UnsignedShortType > blocks = PrimitiveBlocks.of( img );
+		final short[] data = new short[ 4 * 4 ];
+		blocks.write( new long[] { 8, 8 }, data, new int[] { 4, 4 } );
+		assertEquals( 4, img.numDirtyCells() );
+		assertTrue( img.isDirty( 0, 0 ) );
+		assertTrue( img.isDirty( 1, 0 ) );
+		assertTrue( img.isDirty( 0, 1 ) );
+		assertTrue( img.isDirty( 1, 1 ) );
+	}
+
+	@Test
+	public void testFlush() throws IOException
+	{
+		final DirtyCellImg< UnsignedShortType, DirtyShortArray > img = createImg();
+		final RandomAccess< UnsignedShortType > ra = img.randomAccess();
+		ra.setPositionAndGet( 5, 5 ).set( 1 );
+		ra.setPositionAndGet( 25, 25 ).set( 2 );
+
+		final List< Long > written = new ArrayList<>();
+		img.flush( cell -> {
+			assertFalse( cell.getData().isDirty() );
+			written.add( cell.min( 0 ) + 1000 * cell.min( 1 ) );
+		} );
+		assertEquals( 0, img.numDirtyCells() );
+		assertEquals( 2, written.size() );
+		assertEquals( 0, ( long ) written.get( 0 ) );
+		assertEquals( 20 + 20000, ( long ) written.get( 1 ) );
+
+		// flushing again writes nothing
+		written.clear();
+		img.flush( cell -> written.add( 0L ) );
+		assertTrue( written.isEmpty() );
+
+		// writing after flush marks the cell again
+		ra.setPositionAndGet( 6, 6 ).set( 3 );
+		assertEquals( 1, img.numDirtyCells() );
+		assertTrue( img.isDirty( 0, 0 ) );
+	}
+
+	@Test
+	public void testFailedFlushKeepsCellDirty()
+	{
+		final DirtyCellImg< UnsignedShortType, DirtyShortArray > img = createImg();
+		img.randomAccess().setPositionAndGet( 5, 5 ).set( 1 );
+		try
+		{
+			img.flush( cell -> {
+				throw new IOException( "write failed" );
+			} );
+			fail( "expected IOException" );
+		}
+		catch ( final IOException e )
+		{
+			assertEquals( "write failed", e.getMessage() );
+		}
+		assertEquals( 1, img.numDirtyCells() );
+		assertTrue( img.isDirty( 0, 0 ) );
+		assertTrue( img.dirtyCells().get( 0 ).getData().isDirty() );
+	}
+
+	@Test
+	public void testParallelFlush() throws IOException
+	{
+		final DirtyCellImg< UnsignedShortType, DirtyShortArray > img = createImg();
+		for ( final UnsignedShortType t : img )
+			t.set( 7 );
+		assertEquals( 12, img.numDirtyCells() );
+
+		final Set< Long > written = Collections.newSetFromMap( new ConcurrentHashMap<>() );
+		try ( final TaskExecutor taskExecutor = TaskExecutors.fixedThreadPool( 4 ) )
+		{
+			img.flush( cell -> written.add( cell.min( 0 ) + 1000 * cell.min( 1 ) ), taskExecutor );
+		}
+		assertEquals( 12, written.size() );
+		assertEquals( 0, img.numDirtyCells() );
+	}
+
+	@Test
+	public void testConcurrentWriteDuringFlushKeepsCellDirty() throws Exception
+	{
+		final DirtyCellImg< UnsignedShortType, DirtyShortArray > img = createImg();
+		final RandomAccess< UnsignedShortType > ra = img.randomAccess();
+		ra.setPositionAndGet( 5, 5 ).set( 1 );
+
+		img.flush( cell -> {
+			// another thread writes to the cell while it is being flushed
+			final Thread writer = new Thread( () -> img.randomAccess().setPositionAndGet( 6, 6 ).set( 2 ) );
+			writer.start();
+			try
+			{
+				writer.join();
+			}
+			catch ( final InterruptedException e )
+			{
+				throw new RuntimeException( e );
+			}
+		} );
+		assertEquals( 1, img.numDirtyCells() );
+		assertTrue( img.isDirty( 0, 0 ) );
+		assertTrue( img.dirtyCells().get( 0 ).getData().isDirty() );
+	}
+}
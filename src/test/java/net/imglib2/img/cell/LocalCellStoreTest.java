@@ -0,0 +1,194 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.basictypeaccess.array.DirtyShortArray;
+import net.imglib2.img.cell.LocalCellStore.Compression;
+import net.imglib2.parallel.TaskExecutor;
+import net.imglib2.parallel.TaskExecutors;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LocalCellStoreTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static < T extends RealType< T > > void fill( final Img< T > img )
+	{
+		final long[] pos = new long[ img.numDimensions() ];
+		final Cursor< T > c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( pos );
+			c.get().setReal( ( pos[ 0 ] + 7 * pos[ 1 ] + 3 * pos[ 2 ] ) % 100 );
+		}
+	}
+
+	private static < T extends RealType< T > > void assertImgEquals( final Img< T > expected, final Img< ? extends RealType< ? > > actual )
+	{
+		final Cursor< T > c = expected.localizingCursor();
+		final RandomAccess< ? extends RealType< ? > > ra = actual.randomAccess();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			ra.setPosition( c );
+			assertEquals( c.get().getRealDouble(), ra.get().getRealDouble(), 0 );
+		}
+	}
+
+	private void testRoundTrip( final CellImg< ?, ? > img, final Compression compression ) throws IOException
+	{
+		final Path dir = folder.newFolder().toPath();
+		final TaskExecutor te = TaskExecutors.fixedThreadPool( 4 );
+		final LocalCellStore written;
+		try
+		{
+			written = LocalCellStore.write( img, dir, compression, te );
+		}
+		finally
+		{
+			te.close();
+		}
+		assertEquals( Views.iterable( img.getCells() ).size(), Files.list( dir ).filter( p -> p.toString().endsWith( ".cell" ) ).count() );
+
+		final LocalCellStore store = LocalCellStore.open( dir );
+		assertEquals( written.getCellGrid(), store.getCellGrid() );
+		assertEquals( img.getType().getClass().getName(), store.getTypeClassName() );
+		assertEquals( compression, store.getCompression() );
+
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final Img< ? extends RealType< ? > > reopened = ( Img ) store.openImg();
+		assertEquals( img.getType().getClass(), reopened.getType().getClass() );
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final Img< RealType > expected = ( Img ) img;
+		assertImgEquals( expected, reopened );
+	}
+
+	@Test
+	public void testRawRoundTrip() throws IOException
+	{
+		final CellImg< UnsignedShortType, ? > img = new CellImgFactory<>( new UnsignedShortType(), 8, 7, 5 ).create( 30, 20, 11 );
+		fill( img );
+		testRoundTrip( img, Compression.RAW );
+	}
+
+	@Test
+	public void testDeflateRoundTrip() throws IOException
+	{
+		final CellImg< FloatType, ? > img = new CellImgFactory<>( new FloatType(), 8, 7, 5 ).create( 30, 20, 11 );
+		fill( img );
+		testRoundTrip( img, Compression.DEFLATE );
+	}
+
+	@Test
+	public void testByteAndBufferBackedCells() throws IOException
+	{
+		final CellImg< ByteType, ? > bytes = new CellImgFactory<>( new ByteType(), 8, 7, 5 ).create( 30, 20, 11 );
+		fill( bytes );
+		testRoundTrip( bytes, Compression.RAW );
+
+		final MappedCellImg< UnsignedShortType, ? > mapped = new MappedCellImgFactory<>( new UnsignedShortType(), folder.newFolder(), 8, 7, 5 ).create( 30, 20, 11 );
+		fill( mapped );
+		testRoundTrip( mapped, Compression.RAW );
+		testRoundTrip( mapped, Compression.DEFLATE );
+	}
+
+	@Test
+	public void testRawRoundTripCellsLargerThanStagingBuffer() throws IOException
+	{
+		// cells are staged through buffers in several chunks
+		final CellImg< DoubleType, ? > doubles = new CellImgFactory<>( new DoubleType(), 64, 64, 20 ).create( 100, 70, 30 );
+		fill( doubles );
+		testRoundTrip( doubles, Compression.RAW );
+
+		final MappedCellImg< UnsignedShortType, ? > mapped = new MappedCellImgFactory<>( new UnsignedShortType(), folder.newFolder(), 64, 64, 40 ).create( 100, 70, 50 );
+		fill( mapped );
+		testRoundTrip( mapped, Compression.RAW );
+	}
+
+	@Test
+	public void testWriteDirtyCells() throws IOException
+	{
+		@SuppressWarnings( "unchecked" )
+		final DirtyCellImg< UnsignedShortType, DirtyShortArray > img = ( DirtyCellImg< UnsignedShortType, DirtyShortArray > ) new DirtyCellImgFactory<>( new UnsignedShortType(), 10, 10 ).create( 40, 30 );
+		final Path dir = folder.newFolder().toPath();
+		final LocalCellStore store = LocalCellStore.create( dir, img.getCellGrid(), img.getType(), Compression.RAW );
+
+		final RandomAccess< UnsignedShortType > ra = img.randomAccess();
+		ra.setPosition( new long[] { 15, 25 } );
+		ra.get().set( 1234 );
+		img.flush( store::writeCell, TaskExecutors.singleThreaded() );
+
+		// only the modified cell is written
+		final long index = img.getCellGrid().getCellGridIndexFlat( new long[] { 1, 2 } );
+		assertTrue( Files.exists( store.cellPath( index ) ) );
+		assertEquals( 1, Files.list( dir ).filter( p -> p.toString().endsWith( ".cell" ) ).count() );
+
+		// missing cells read as zero
+		final RandomAccess< UnsignedShortType > reopened = LocalCellStore.open( dir ).openImg( new UnsignedShortType() ).randomAccess();
+		reopened.setPosition( new long[] { 15, 25 } );
+		assertEquals( 1234, reopened.get().get() );
+		reopened.setPosition( new long[] { 0, 0 } );
+		assertEquals( 0, reopened.get().get() );
+		assertFalse( Files.exists( store.cellPath( 0 ) ) );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testIncompatibleType() throws IOException
+	{
+		final CellImg< UnsignedShortType, ? > img = new CellImgFactory<>( new UnsignedShortType(), 8 ).create( 10, 10 );
+		LocalCellStore.write( img, folder.newFolder().toPath(), Compression.RAW ).openImg( new FloatType() );
+	}
+}
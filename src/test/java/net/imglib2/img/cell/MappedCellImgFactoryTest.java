@@ -0,0 +1,135 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.ImgTestHelper;
+import net.imglib2.util.Util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedCellImgFactoryTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testMappedCellImg() throws IOException
+	{
+		final File dir = folder.newFolder();
+		final long[][] dim = ImgTestHelper.dims();
+		for ( int i = 0; i < dim.length; ++i )
+		{
+			if ( dim[ i ].length > 1 && dim[ i ].length < 5 )
+			{
+				assertTrue( "ArrayImg vs MappedCellImg failed for dim = " + Util.printCoordinates( dim[ i ] ),
+						ImgTestHelper.testImg( dim[ i ], new ArrayImgFactory<>( new FloatType() ), new MappedCellImgFactory<>( new FloatType(), dir, 10 ) ) );
+				assertTrue( "MappedCellImg vs ArrayImg failed for dim = " + Util.printCoordinates( dim[ i ] ),
+						ImgTestHelper.testImg( dim[ i ], new MappedCellImgFactory<>( new FloatType(), dir, 7 ), new ArrayImgFactory<>( new FloatType() ) ) );
+			}
+		}
+	}
+
+	@Test
+	public void testMultipleRegionsWriteThrough() throws IOException
+	{
+		// each cell is 10 * 10 * 2 = 200 bytes, regions hold 3 cells
+		final MappedCellImgFactory< UnsignedShortType > factory = new MappedCellImgFactory<>(
+				new UnsignedShortType(), folder.newFolder(), ByteOrder.BIG_ENDIAN, 600, true, 10, 10 );
+		final MappedCellImg< UnsignedShortType, ? > img = factory.create( 45, 32 );
+
+		final long[] pos = new long[ 2 ];
+		final Cursor< UnsignedShortType > c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( pos );
+			c.get().set( ( int ) ( pos[ 0 ] + 100 * pos[ 1 ] ) );
+		}
+		img.flush();
+
+		final CellGrid grid = img.getCellGrid();
+		final long fileSize = img.getFile().length();
+		assertEquals( 45 * 32 * 2, fileSize );
+		try ( final RandomAccessFile raf = new RandomAccessFile( img.getFile(), "r" );
+				final FileChannel channel = raf.getChannel() )
+		{
+			final ByteBuffer bytes = ByteBuffer.allocate( ( int ) fileSize ).order( ByteOrder.BIG_ENDIAN );
+			channel.read( bytes, 0 );
+			bytes.flip();
+
+			final long numCells = grid.getGridDimensions()[ 0 ] * grid.getGridDimensions()[ 1 ];
+			final long[] cellMin = new long[ 2 ];
+			final int[] cellDims = new int[ 2 ];
+			int offset = 0;
+			for ( long index = 0; index < numCells; ++index )
+			{
+				grid.getCellDimensions( index, cellMin, cellDims );
+				for ( int y = 0; y < cellDims[ 1 ]; ++y )
+					for ( int x = 0; x < cellDims[ 0 ]; ++x )
+					{
+						assertEquals( cellMin[ 0 ] + x + 100 * ( cellMin[ 1 ] + y ), bytes.getShort( offset ) );
+						offset += 2;
+					}
+			}
+		}
+
+		final MappedCellImg< UnsignedShortType, ? > copy = img.copy();
+		final RandomAccess< UnsignedShortType > ra = copy.randomAccess();
+		ra.setPosition( new long[] { 44, 31 } );
+		assertEquals( 44 + 3100, ra.get().get() );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testCellLargerThanRegion() throws IOException
+	{
+		new MappedCellImgFactory<>( new FloatType(), folder.newFolder(), ByteOrder.nativeOrder(), 100, true, 10, 10 ).create( 20, 20 );
+	}
+}
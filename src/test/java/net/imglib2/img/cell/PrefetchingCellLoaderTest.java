@@ -0,0 +1,150 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.imglib2.Cursor;
+import net.imglib2.blocks.PrimitiveBlocks;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.type.numeric.integer.IntType;
+
+import org.junit.Test;
+
+public class PrefetchingCellLoaderTest
+{
+	private final CellGrid grid = new CellGrid( new long[] { 40, 30 }, new int[] { 10, 10 } );
+
+	private final AtomicInteger numLoads = new AtomicInteger();
+
+	private final Set< Long > loadedByPrefetchThread = ConcurrentHashMap.newKeySet();
+
+	private Cell< IntArray > load( final long index, final long sleepMillis )
+	{
+		numLoads.incrementAndGet();
+		if ( Thread.currentThread().getName().startsWith( "imglib2-cell-prefetch" ) )
+			loadedByPrefetchThread.add( index );
+		try
+		{
+			Thread.sleep( sleepMillis );
+		}
+		catch ( final InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+		}
+		final long[] cellMin = new long[ 2 ];
+		final int[] cellDims = new int[ 2 ];
+		grid.getCellDimensions( index, cellMin, cellDims );
+		final int[] data = new int[ cellDims[ 0 ] * cellDims[ 1 ] ];
+		final Cell< IntArray > cell = new Cell<>( cellDims, cellMin, new IntArray( data ) );
+		final long[] pos = new long[ 2 ];
+		for ( int i = 0; i < data.length; ++i )
+		{
+			cell.indexToGlobalPosition( i, pos );
+			data[ i ] = ( int ) ( pos[ 0 ] + 100 * pos[ 1 ] );
+		}
+		return cell;
+	}
+
+	@Test
+	public void testCursorTraversal()
+	{
+		final BoundedCellCache< IntArray > cache = new BoundedCellCache<>( index -> load( index, 5 ), Long.MAX_VALUE );
+		try ( final PrefetchingCellLoader< IntArray > loader = new PrefetchingCellLoader<>( grid, cache, 3, 2 ) )
+		{
+			final LazyCellImg< IntType, IntArray > img = new LazyCellImg<>( grid, new IntType(), loader );
+			final long[] pos = new long[ 2 ];
+			final Cursor< IntType > c = img.localizingCursor();
+			while ( c.hasNext() )
+			{
+				c.fwd();
+				c.localize( pos );
+				assertEquals( pos[ 0 ] + 100 * pos[ 1 ], c.get().get() );
+			}
+
+			// every cell is loaded exactly once
+			assertEquals( 12, numLoads.get() );
+			assertTrue( loader.prefetchCount() > 0 );
+			assertTrue( !loadedByPrefetchThread.isEmpty() );
+			assertTrue( !loadedByPrefetchThread.contains( 0L ) );
+		}
+	}
+
+	@Test
+	public void testPrimitiveBlocksCopyPrefetchesTouchedCells()
+	{
+		final BoundedCellCache< IntArray > cache = new BoundedCellCache<>( index -> load( index, 50 ), Long.MAX_VALUE );
+		try ( final PrefetchingCellLoader< IntArray > loader = new PrefetchingCellLoader<>( grid, cache, 0, 4 ) )
+		{
+			final LazyCellImg< IntType, IntArray > img = new LazyCellImg<>( grid, new IntType(), loader );
+			final PrimitiveBlocks< IntType > blocks = PrimitiveBlocks.of( img );
+
+			// touches cells (1,1), (2,1), (1,2), (2,2)
+			final int[] dest = new int[ 12 * 12 ];
+			blocks.copy( new long[] { 14, 14 }, dest, new int[] { 12, 12 } );
+			for ( int y = 0; y < 12; ++y )
+				for ( int x = 0; x < 12; ++x )
+					assertEquals( 14 + x + 100 * ( 14 + y ), dest[ x + 12 * y ] );
+
+			assertTrue( loadedByPrefetchThread.size() > 1 );
+			final Set< Long > touched = ConcurrentHashMap.newKeySet();
+			touched.add( 5L );
+			touched.add( 6L );
+			touched.add( 9L );
+			touched.add( 10L );
+			assertTrue( touched.containsAll( loadedByPrefetchThread ) );
+		}
+	}
+
+	@Test
+	public void testClosedLoaderStillLoadsSynchronously()
+	{
+		final BoundedCellCache< IntArray > cache = new BoundedCellCache<>( index -> load( index, 0 ), Long.MAX_VALUE );
+		final PrefetchingCellLoader< IntArray > loader = new PrefetchingCellLoader<>( grid, cache, 4, 1 );
+		loader.close();
+		final LazyCellImg< IntType, IntArray > img = new LazyCellImg<>( grid, new IntType(), loader );
+		long sum = 0;
+		for ( final IntType t : img )
+			sum += t.get();
+		assertTrue( sum > 0 );
+		assertEquals( 12, numLoads.get() );
+		assertEquals( 0, loader.prefetchCount() );
+		assertTrue( loader.droppedCount() > 0 );
+	}
+}
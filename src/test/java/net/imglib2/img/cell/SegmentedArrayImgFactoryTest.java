@@ -0,0 +1,104 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.NativeImg;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.ImgTestHelper;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.util.Util;
+
+import org.junit.Test;
+
+public class SegmentedArrayImgFactoryTest
+{
+	@Test
+	public void testSmallImagesAreArrayImgs()
+	{
+		final NativeImg< FloatType, ? > img = new SegmentedArrayImgFactory<>( new FloatType(), 1000 ).create( 10, 100 );
+		assertTrue( img instanceof ArrayImg );
+	}
+
+	@Test
+	public void testSegmentDimensions()
+	{
+		final Fraction one = new Fraction();
+		assertArrayEquals( new int[] { 100, 10 }, SegmentedArrayImgFactory.getSegmentDimensions( new long[] { 100, 50 }, one, 1000 ) );
+		assertArrayEquals( new int[] { 100, 10, 1 }, SegmentedArrayImgFactory.getSegmentDimensions( new long[] { 100, 20, 3 }, one, 1000 ) );
+		assertArrayEquals( new int[] { 834 }, SegmentedArrayImgFactory.getSegmentDimensions( new long[] { 2500 }, one, 1000 ) );
+		assertArrayEquals( new int[] { 834, 1 }, SegmentedArrayImgFactory.getSegmentDimensions( new long[] { 2500, 3 }, one, 1000 ) );
+		assertArrayEquals( new int[] { 640 }, SegmentedArrayImgFactory.getSegmentDimensions( new long[] { 6400 }, new BitType().getEntitiesPerPixel(), 10 ) );
+		assertArrayEquals( new int[] { 1 << 30, 1 }, SegmentedArrayImgFactory.getSegmentDimensions( new long[] { 1L << 31, 1L << 10 }, one, Integer.MAX_VALUE - 8 ) );
+	}
+
+	@Test
+	public void testFlatIteration()
+	{
+		for ( final long[] dimensions : new long[][] { { 2500 }, { 100, 50 }, { 2500, 3 }, { 30, 20, 7 } } )
+		{
+			final NativeImg< FloatType, ? > img = new SegmentedArrayImgFactory<>( new FloatType(), 1000 ).create( dimensions );
+			assertTrue( img instanceof CellImg );
+			final long[] pos = new long[ dimensions.length ];
+			final Cursor< FloatType > c = img.localizingCursor();
+			for ( long i = 0; c.hasNext(); ++i )
+			{
+				c.fwd();
+				c.localize( pos );
+				assertEquals( i, IntervalIndexer.positionToIndex( pos, dimensions ) );
+			}
+		}
+	}
+
+	@Test
+	public void testSegmentedImg()
+	{
+		final long[][] dim = ImgTestHelper.dims();
+		for ( int i = 0; i < dim.length; ++i )
+		{
+			assertTrue( "ArrayImg vs segmented failed for dim = " + Util.printCoordinates( dim[ i ] ),
+					ImgTestHelper.testImg( dim[ i ], new ArrayImgFactory<>( new FloatType() ), new SegmentedArrayImgFactory<>( new FloatType(), 5000 ) ) );
+			assertTrue( "segmented vs ArrayImg failed for dim = " + Util.printCoordinates( dim[ i ] ),
+					ImgTestHelper.testImg( dim[ i ], new SegmentedArrayImgFactory<>( new FloatType(), 7777 ), new ArrayImgFactory<>( new FloatType() ) ) );
+		}
+	}
+}
@@ -0,0 +1,219 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.blocks.PrimitiveBlocks;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.loops.LoopBuilder;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.ImgTestHelper;
+import net.imglib2.util.Util;
+
+import org.junit.Test;
+
+public class SparseCellImgFactoryTest
+{
+	@Test
+	public void testSparseCellImg()
+	{
+		final long[][] dim = ImgTestHelper.dims();
+		for ( int i = 0; i < dim.length; ++i )
+		{
+			if ( dim[ i ].length > 1 )
+			{
+				assertTrue( "ArrayImg vs SparseCellImg failed for dim = " + Util.printCoordinates( dim[ i ] ),
+						ImgTestHelper.testImg( dim[ i ], new ArrayImgFactory<>( new FloatType() ), new SparseCellImgFactory<>( new FloatType(), 10 ) ) );
+				assertTrue( "SparseCellImg vs ArrayImg failed for dim = " + Util.printCoordinates( dim[ i ] ),
+						ImgTestHelper.testImg( dim[ i ], new SparseCellImgFactory<>( new FloatType(), 7 ), new ArrayImgFactory<>( new FloatType() ) ) );
+			}
+		}
+	}
+
+	@Test
+	public void testHugeImageIsFree()
+	{
+		final SparseCellImg< UnsignedShortType, ? > img = new SparseCellImgFactory<>( new UnsignedShortType(), 64 ).create( 100000, 100000, 100000 );
+		assertEquals( 0, img.numMaterializedCells() );
+
+		final RandomAccess< UnsignedShortType > ra = img.randomAccess();
+		assertEquals( 0, ra.setPositionAndGet( 99999, 12345, 50000 ).get() );
+		assertEquals( 0, img.numMaterializedCells() );
+
+		ra.setPositionAndGet( 500, 600, 700 ).set( 1 );
+		ra.setPositionAndGet( 501, 601, 701 ).set( 2 );
+		assertEquals( 1, img.numMaterializedCells() );
+		assertTrue( img.isMaterialized( 500 / 64, 600 / 64, 700 / 64 ) );
+		assertFalse( img.isMaterialized( 0, 0, 0 ) );
+
+		assertEquals( 1, img.randomAccess().setPositionAndGet( 500, 600, 700 ).get() );
+		assertEquals( 2, img.randomAccess().setPositionAndGet( 501, 601, 701 ).get() );
+		assertEquals( 0, img.randomAccess().setPositionAndGet( 502, 602, 702 ).get() );
+	}
+
+	@Test
+	public void testReadingDoesNotRetainCells()
+	{
+		final SparseCellImg< UnsignedShortType, ? > img = new SparseCellImgFactory<>( new UnsignedShortType(), 16 ).create( 200, 150, 100 );
+		for ( final UnsignedShortType t : img )
+			assertEquals( 0, t.get() );
+		final Cursor< UnsignedShortType > c = img.localizingCursor();
+		while ( c.hasNext() )
+			assertEquals( 0, c.next().get() );
+		assertEquals( 0, img.numRetainedCells() );
+		assertEquals( 0, img.numMaterializedCells() );
+
+		img.randomAccess().setPositionAndGet( 20, 30, 40 ).set( 5 );
+		assertEquals( 1, img.numRetainedCells() );
+	}
+
+	@Test
+	public void testAccessesObtainedBeforeFirstWriteShareStorage()
+	{
+		final SparseCellImg< UnsignedShortType, ? > img = new SparseCellImgFactory<>( new UnsignedShortType(), 16 ).create( 64, 64 );
+		// both accesses obtain the (unmaterialized) cell before any write
+		final RandomAccess< UnsignedShortType > ra1 = img.randomAccess();
+		final RandomAccess< UnsignedShortType > ra2 = img.randomAccess();
+		final UnsignedShortType t1 = ra1.setPositionAndGet( 1, 1 );
+		final UnsignedShortType t2 = ra2.setPositionAndGet( 2, 2 );
+		t1.set( 1 );
+		t2.set( 2 );
+		assertEquals( 1, img.numMaterializedCells() );
+		assertEquals( 1, ra2.setPositionAndGet( 1, 1 ).get() );
+		assertEquals( 2, ra1.setPositionAndGet( 2, 2 ).get() );
+		assertEquals( 2, img.randomAccess().setPositionAndGet( 2, 2 ).get() );
+	}
+
+	@Test
+	public void testWriteIsVisibleToReadingAccessor()
+	{
+		final SparseCellImg< UnsignedShortType, ? > img = new SparseCellImgFactory<>( new UnsignedShortType(), 16 ).create( 64, 64 );
+		final RandomAccess< UnsignedShortType > reader = img.randomAccess();
+		assertEquals( 0, reader.setPositionAndGet( 1, 1 ).get() );
+		img.randomAccess().setPositionAndGet( 1, 1 ).set( 7 );
+		assertEquals( 7, reader.get().get() );
+		assertEquals( 7, reader.setPositionAndGet( 1, 1 ).get() );
+	}
+
+	@Test
+	public void testWriteIsVisibleToOtherAccessors()
+	{
+		final SparseCellImg< FloatType, ? > img = new SparseCellImgFactory<>( new FloatType(), 4 ).create( 8, 8 );
+
+		// cursor obtains the (unmaterialized) first cell before it is written to
+		final Cursor< FloatType > c = img.cursor();
+		c.fwd();
+		img.randomAccess().setPositionAndGet( 0, 0 ).set( 3 );
+		assertEquals( 3, c.get().get(), 0 );
+
+		// background is shared, not modified
+		assertEquals( 0, img.randomAccess().setPositionAndGet( 4, 4 ).get(), 0 );
+		assertEquals( 0, img.randomAccess().setPositionAndGet( 7, 7 ).get(), 0 );
+		assertEquals( 1, img.numMaterializedCells() );
+	}
+
+	@Test
+	public void testBackground()
+	{
+		final SparseCellImg< UnsignedShortType, ? > img = new SparseCellImgFactory<>( new UnsignedShortType(), new UnsignedShortType( 7 ), 5, 5 ).create( 12, 11 );
+		img.forEach( t -> assertEquals( 7, t.get() ) );
+		img.randomAccess().setPositionAndGet( 11, 10 ).set( 9 );
+		assertEquals( 1, img.numMaterializedCells() );
+
+		int sum = 0;
+		for ( final UnsignedShortType t : img )
+			sum += t.get();
+		assertEquals( 12 * 11 * 7 + 2, sum );
+
+		final SparseCellImg< UnsignedShortType, ? > copy = img.copy();
+		assertEquals( 1, copy.numMaterializedCells() );
+		assertEquals( 9, copy.randomAccess().setPositionAndGet( 11, 10 ).get() );
+		assertEquals( 7, copy.randomAccess().setPositionAndGet( 0, 0 ).get() );
+	}
+
+	@Test
+	public void testBitType()
+	{
+		final SparseCellImg< BitType, ? > img = new SparseCellImgFactory<>( new BitType(), 8 ).create( 40, 40 );
+		img.randomAccess().setPositionAndGet( 17, 23 ).set( true );
+		assertEquals( 1, img.numMaterializedCells() );
+		long count = 0;
+		for ( final BitType t : img )
+			if ( t.get() )
+				++count;
+		assertEquals( 1, count );
+	}
+
+	@Test
+	public void testPrimitiveBlocks()
+	{
+		final SparseCellImg< UnsignedShortType, ? > img = new SparseCellImgFactory<>( new UnsignedShortType(), 10, 10 ).create( 50, 40 );
+		final PrimitiveBlocks< UnsignedShortType > blocks = PrimitiveBlocks.of( img );
+
+		final short[] data = new short[ 5 * 5 ];
+		Arrays.fill( data, ( short ) 4 );
+		blocks.write( new long[] { 8, 8 }, data, new int[] { 5, 5 } );
+		assertEquals( 4, img.numMaterializedCells() );
+
+		final short[] dest = new short[ 20 * 20 ];
+		blocks.copy( new long[] { 0, 0 }, dest, new int[] { 20, 20 } );
+		int sum = 0;
+		for ( final short s : dest )
+			sum += s;
+		assertEquals( 25 * 4, sum );
+
+		// the shared background array is not modified
+		assertEquals( 0, img.randomAccess().setPositionAndGet( 49, 39 ).get() );
+	}
+
+	@Test
+	public void testConcurrentWrites()
+	{
+		final SparseCellImg< FloatType, ? > img = new SparseCellImgFactory<>( new FloatType(), 16 ).create( 64, 64, 64 );
+		Parallelization.runMultiThreaded( () -> LoopBuilder.setImages( img ).multiThreaded().forEachPixel( t -> t.set( 1 ) ) );
+		assertEquals( 64, img.numMaterializedCells() );
+		for ( final FloatType t : img )
+			assertEquals( 1, t.get(), 0 );
+	}
+}
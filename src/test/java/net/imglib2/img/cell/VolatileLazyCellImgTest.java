@@ -0,0 +1,188 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.basictypeaccess.volatiles.array.VolatileShortArray;
+import net.imglib2.type.volatiles.VolatileUnsignedShortType;
+
+import org.junit.Test;
+
+public class VolatileLazyCellImgTest
+{
+	private final CellGrid grid = new CellGrid( new long[] { 40, 30 }, new int[] { 10, 10 } );
+
+	private final List< Long > loaded = new CopyOnWriteArrayList<>();
+
+	private Cell< VolatileShortArray > load( final long index )
+	{
+		loaded.add( index );
+		final long[] cellMin = new long[ 2 ];
+		final int[] cellDims = new int[ 2 ];
+		grid.getCellDimensions( index, cellMin, cellDims );
+		final short[] data = new short[ cellDims[ 0 ] * cellDims[ 1 ] ];
+		final Cell< VolatileShortArray > cell = new Cell<>( cellDims, cellMin, new VolatileShortArray( data, true ) );
+		final long[] pos = new long[ 2 ];
+		for ( int i = 0; i < data.length; ++i )
+		{
+			cell.indexToGlobalPosition( i, pos );
+			data[ i ] = ( short ) ( pos[ 0 ] + 100 * pos[ 1 ] );
+		}
+		return cell;
+	}
+
+	private static VolatileUnsignedShortType get( final VolatileLazyCellImg< VolatileUnsignedShortType, ? > img, final long... pos )
+	{
+		final RandomAccess< VolatileUnsignedShortType > ra = img.randomAccess();
+		ra.setPosition( pos );
+		return ra.get();
+	}
+
+	@Test
+	public void testMissReturnsInvalidPlaceholder() throws InterruptedException
+	{
+		final CountDownLatch release = new CountDownLatch( 1 );
+		final VolatileLazyCellImg< VolatileUnsignedShortType, VolatileShortArray > img = new VolatileLazyCellImg<>( grid, new VolatileUnsignedShortType(), index -> {
+			try
+			{
+				release.await();
+			}
+			catch ( final InterruptedException e )
+			{
+				throw new RuntimeException( e );
+			}
+			return load( index );
+		}, Long.MAX_VALUE, 1 );
+		try
+		{
+			// the loader is blocked, the request must not be
+			assertFalse( get( img, 35, 25 ).isValid() );
+
+			release.countDown();
+			final long deadline = System.currentTimeMillis() + 5000;
+			while ( !get( img, 35, 25 ).isValid() && System.currentTimeMillis() < deadline )
+				Thread.sleep( 5 );
+			final VolatileUnsignedShortType t = get( img, 35, 25 );
+			assertTrue( t.isValid() );
+			assertEquals( 35 + 2500, t.get().get() );
+			assertEquals( 1, img.getCellLoader().loadCount() );
+		}
+		finally
+		{
+			img.close();
+		}
+	}
+
+	/**
+	 * Block the single loader thread on the first cell, queue more cells, and
+	 * check the order in which they are loaded.
+	 */
+	private List< Long > loadOrder( final double[] focus, final long... requests ) throws InterruptedException
+	{
+		final CountDownLatch entered = new CountDownLatch( 1 );
+		final CountDownLatch release = new CountDownLatch( 1 );
+		final int numDistinct = ( int ) Arrays.stream( requests ).distinct().count();
+		final CountDownLatch done = new CountDownLatch( numDistinct + 1 );
+		final VolatileCellLoader< VolatileShortArray > loader = new VolatileCellLoader<>(
+				grid,
+				new VolatileUnsignedShortType().getEntitiesPerPixel(),
+				new VolatileShortArray( 0, false ),
+				new BoundedCellCache<>( index -> {
+					entered.countDown();
+					try
+					{
+						release.await();
+					}
+					catch ( final InterruptedException e )
+					{
+						throw new RuntimeException( e );
+					}
+					final Cell< VolatileShortArray > cell = load( index );
+					done.countDown();
+					return cell;
+				}, Long.MAX_VALUE ),
+				1 );
+		try
+		{
+			assertFalse( loader.get( 11 ).getData().isValid() );
+			entered.await();
+			if ( focus != null )
+				loader.setFocus( focus );
+			for ( final long index : requests )
+				assertFalse( loader.get( index ).getData().isValid() );
+			assertEquals( numDistinct, loader.numQueued() );
+			release.countDown();
+			assertTrue( done.await( 5, TimeUnit.SECONDS ) );
+			assertEquals( 11L, ( long ) loaded.get( 0 ) );
+			return loaded.subList( 1, loaded.size() );
+		}
+		finally
+		{
+			loader.close();
+		}
+	}
+
+	@Test
+	public void testRecencyOrder() throws InterruptedException
+	{
+		final List< Long > order = loadOrder( null, 0, 1, 2, 3 );
+		assertEquals( Arrays.asList( 3L, 2L, 1L, 0L ), order );
+	}
+
+	@Test
+	public void testFocusOrder() throws InterruptedException
+	{
+		// cell 4 (grid position 0,1) is closest to the focus, then 0, 1, 3
+		final List< Long > order = loadOrder( new double[] { 4.5, 12 }, 3, 4, 1, 0 );
+		assertEquals( Arrays.asList( 4L, 0L, 1L, 3L ), order );
+	}
+
+	@Test
+	public void testRequeueUpdatesRecency() throws InterruptedException
+	{
+		final List< Long > order = loadOrder( null, 0, 1, 2, 0 );
+		// queue must not contain duplicates
+		assertEquals( Arrays.asList( 0L, 2L, 1L ), order );
+	}
+}
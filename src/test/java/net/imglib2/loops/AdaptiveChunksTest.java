@@ -0,0 +1,115 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.loops;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import net.imglib2.parallel.TaskMonitor;
+
+import org.junit.Test;
+
+public class AdaptiveChunksTest
+{
+	@Test
+	public void testEachUnitIsClaimedOnce() throws InterruptedException
+	{
+		final int numUnits = 1000;
+		final int numWorkers = 4;
+		final AdaptiveChunks scheduler = new AdaptiveChunks( numUnits, numWorkers, null );
+		final AtomicIntegerArray claimed = new AtomicIntegerArray( numUnits );
+		final List< Thread > threads = new ArrayList<>();
+		for ( int w = 0; w < numWorkers; w++ )
+		{
+			final int worker = w;
+			threads.add( new Thread( () -> {
+				for ( int unit = scheduler.next( worker ); unit >= 0; unit = scheduler.next( worker ) )
+					claimed.incrementAndGet( unit );
+			} ) );
+		}
+		threads.forEach( Thread::start );
+		for ( final Thread thread : threads )
+			thread.join();
+		for ( int i = 0; i < numUnits; i++ )
+			assertEquals( 1, claimed.get( i ) );
+	}
+
+	@Test
+	public void testIdleWorkerStealsUpperHalf()
+	{
+		final AdaptiveChunks scheduler = new AdaptiveChunks( 8, 2, null );
+		// worker 0 owns [0, 4), worker 1 owns [4, 8)
+		assertEquals( 4, scheduler.next( 1 ) );
+		assertEquals( 0, scheduler.next( 0 ) );
+		assertEquals( 1, scheduler.next( 0 ) );
+		assertEquals( 2, scheduler.next( 0 ) );
+		assertEquals( 3, scheduler.next( 0 ) );
+		// worker 0 steals [6, 8) from worker 1
+		assertEquals( 6, scheduler.next( 0 ) );
+		assertEquals( 5, scheduler.next( 1 ) );
+		assertEquals( 7, scheduler.next( 0 ) );
+		assertEquals( -1, scheduler.next( 0 ) );
+		assertFalse( scheduler.hasNext( 1 ) );
+	}
+
+	@Test
+	public void testIdleWorkerStealsLastPendingUnitOfBusyWorker()
+	{
+		final AdaptiveChunks scheduler = new AdaptiveChunks( 4, 2, null );
+		// worker 1 owns [2, 4), and is busy with the slow unit 2
+		assertEquals( 2, scheduler.next( 1 ) );
+		// worker 0 finishes its own units [0, 2) ...
+		assertEquals( 0, scheduler.next( 0 ) );
+		assertEquals( 1, scheduler.next( 0 ) );
+		// ... and takes over the unit pending behind the slow one
+		assertEquals( 3, scheduler.next( 0 ) );
+		assertEquals( -1, scheduler.next( 0 ) );
+		assertEquals( -1, scheduler.next( 1 ) );
+	}
+
+	@Test( expected = CancellationException.class )
+	public void testCancellation()
+	{
+		final TaskMonitor monitor = new TaskMonitor();
+		final AdaptiveChunks scheduler = new AdaptiveChunks( 8, 2, monitor );
+		scheduler.next( 0 );
+		monitor.cancel();
+		scheduler.next( 0 );
+	}
+}
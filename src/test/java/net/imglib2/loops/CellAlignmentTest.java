@@ -0,0 +1,183 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.loops;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.parallel.TaskExecutor;
+import net.imglib2.parallel.TaskExecutors;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link CellAlignment} and cell-aligned chunking in {@link LoopBuilder}.
+ */
+public class CellAlignmentTest
+{
+	private final CellImg< IntType, ? > img = createCellIndexImg( 100, 80, 6 );
+
+	/**
+	 * Creates a CellImg (10 x 8 x 3 cells) where every pixel has the value of
+	 * the flat index of its cell.
+	 */
+	private static CellImg< IntType, ? > createCellIndexImg( final long... dims )
+	{
+		final CellImg< IntType, ? > img = new CellImgFactory<>( new IntType(), 10, 10, 2 ).create( dims );
+		final Cursor< IntType > c = img.localizingCursor();
+		final long[] cellPos = new long[ 3 ];
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			img.getCellGrid().getCellPosition( c.positionAsLongArray(), cellPos );
+			c.get().set( ( int ) img.getCellGrid().getCellGridIndexFlat( cellPos ) );
+		}
+		return img;
+	}
+
+	@Test
+	public void testFindCellBoundaries()
+	{
+		final long[] spacing = new long[ 3 ];
+		final long[] offset = new long[ 3 ];
+
+		assertTrue( CellAlignment.findCellBoundaries( img, spacing, offset ) );
+		assertArrayEquals( new long[] { 10, 10, 2 }, spacing );
+		assertArrayEquals( new long[] { 0, 0, 0 }, offset );
+
+		assertTrue( CellAlignment.findCellBoundaries( Views.interval( img, new long[] { 3, 20, 1 }, new long[] { 50, 60, 5 } ), spacing, offset ) );
+		assertArrayEquals( new long[] { 10, 10, 2 }, spacing );
+		assertArrayEquals( new long[] { 7, 0, 1 }, offset );
+
+		assertTrue( CellAlignment.findCellBoundaries( Views.translate( img, 4, 0, 0 ), spacing, offset ) );
+		assertArrayEquals( new long[] { 10, 10, 2 }, spacing );
+		assertArrayEquals( new long[] { 0, 0, 0 }, offset );
+
+		assertTrue( CellAlignment.findCellBoundaries( Views.zeroMin( Views.interval( img, new long[] { 3, 0, 0 }, new long[] { 99, 79, 5 } ) ), spacing, offset ) );
+		assertArrayEquals( new long[] { 7, 0, 0 }, offset );
+
+		// permuted: dimension 0 of the view is dimension 2 of the img
+		assertTrue( CellAlignment.findCellBoundaries( Views.permute( img, 0, 2 ), spacing, offset ) );
+		assertArrayEquals( new long[] { 2, 10, 10 }, spacing );
+
+		// slice: dimensions of the view are dimensions 0 and 2 of the img
+		final long[] spacing2 = new long[ 2 ];
+		final long[] offset2 = new long[ 2 ];
+		assertTrue( CellAlignment.findCellBoundaries( Views.hyperSlice( img, 1, 15 ), spacing2, offset2 ) );
+		assertArrayEquals( new long[] { 10, 2 }, spacing2 );
+
+		// inverted: view x corresponds to img 99 - x, cells start at x = 0, 10, 20, ...
+		assertTrue( CellAlignment.findCellBoundaries( Views.zeroMin( Views.invertAxis( img, 0 ) ), spacing, offset ) );
+		assertEquals( 10, spacing[ 0 ] );
+		assertEquals( 0, offset[ 0 ] );
+		// view x corresponds to img 94 - x, cells start at x = 5, 15, 25, ...
+		assertTrue( CellAlignment.findCellBoundaries( Views.zeroMin( Views.invertAxis( Views.interval( img, new long[] { 0, 0, 0 }, new long[] { 94, 79, 5 } ), 0 ) ), spacing, offset ) );
+		assertEquals( 5, offset[ 0 ] );
+
+		assertFalse( CellAlignment.findCellBoundaries( ArrayImgs.ints( 100, 80, 6 ), spacing, offset ) );
+	}
+
+	@Test
+	public void testRandomAccessChunksDoNotStraddleCells()
+	{
+		final RandomAccessibleInterval< IntType > view = Views.interval( img, new long[] { 3, 5, 1 }, new long[] { 96, 77, 4 } );
+		final RandomAccessibleInterval< IntType > other = ArrayImgs.ints( 94, 73, 4 );
+		assertChunksDoNotStraddleCells( view, other );
+	}
+
+	@Test
+	public void testCursorChunksDoNotStraddleCells()
+	{
+		assertChunksDoNotStraddleCells( img, createCellIndexImg( 100, 80, 6 ) );
+	}
+
+	private static void assertChunksDoNotStraddleCells( final RandomAccessibleInterval< IntType > cellIndices, final RandomAccessibleInterval< IntType > other )
+	{
+		final List< Set< Integer > > cellsPerChunk;
+		try ( final TaskExecutor taskExecutor = TaskExecutors.fixedThreadPool( 4 ) )
+		{
+			cellsPerChunk = LoopBuilder.setImages( cellIndices, other ).multiThreaded( taskExecutor ).forEachChunk( chunk -> {
+				final Set< Integer > cells = new HashSet<>();
+				chunk.forEachPixel( ( c, o ) -> cells.add( c.get() ) );
+				return cells;
+			} );
+		}
+		assertTrue( cellsPerChunk.size() > 1 );
+		final Set< Integer > seen = new HashSet<>();
+		int total = 0;
+		for ( final Set< Integer > cells : cellsPerChunk )
+		{
+			total += cells.size();
+			seen.addAll( cells );
+		}
+		assertEquals( "a cell is touched by more than one chunk", seen.size(), total );
+	}
+
+	@Test
+	public void testIterableLoopBuilderChunksDoNotStraddleCells()
+	{
+		final List< Set< Integer > > cellsPerChunk = new ArrayList<>();
+		try ( final TaskExecutor taskExecutor = TaskExecutors.fixedThreadPool( 4 ) )
+		{
+			cellsPerChunk.addAll( IterableLoopBuilder.setImages( img ).multithreaded( taskExecutor ).forEachChunk( chunk -> {
+				final Set< Integer > cells = new HashSet<>();
+				chunk.forEachPixel( c -> cells.add( c.get() ) );
+				return cells;
+			} ) );
+		}
+		final Set< Integer > seen = new HashSet<>();
+		int total = 0;
+		for ( final Set< Integer > cells : cellsPerChunk )
+		{
+			total += cells.size();
+			seen.addAll( cells );
+		}
+		assertEquals( 10 * 8 * 3, seen.size() );
+		assertEquals( seen.size(), total );
+	}
+}
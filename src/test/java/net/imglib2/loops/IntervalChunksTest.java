@@ -35,6 +35,7 @@
 package net.imglib2.loops;
 
 import net.imglib2.Interval;
+import net.imglib2.img.cell.CellGrid;
 import net.imglib2.util.Intervals;
 import org.junit.Test;
 
@@ -88,6 +89,59 @@ public class IntervalChunksTest
 		assertIntervalEquals( Intervals.createMinSize( 25, 1 ), chunks.get( 2 ) );
 	}
 
+	@Test
+	public void testGenerateGridWithOffset() {
+		Interval total = Intervals.createMinSize( 2, 3, 10, 10 );
+		List<Interval> chunks = IntervalChunks.generateGrid( total, array( 4, 10 ), array( 3, 0 ) );
+		assertEquals( 3, chunks.size() );
+		assertIntervalEquals( Intervals.createMinSize( 2, 3, 3, 10 ), chunks.get( 0 ) );
+		assertIntervalEquals( Intervals.createMinSize( 5, 3, 4, 10 ), chunks.get( 1 ) );
+		assertIntervalEquals( Intervals.createMinSize( 9, 3, 3, 10 ), chunks.get( 2 ) );
+	}
+
+	@Test
+	public void testChunkIntervalAlignedToGrid() {
+		// chunk boundaries must fall on x = 5 + 8 * k (relative to min)
+		Interval complete = Intervals.createMinSize( 100, 60 );
+		List< Interval > chunks = IntervalChunks.chunkInterval( complete, 4, array( 8 ), array( 5 ) );
+		long expectedMin = 100;
+		for ( Interval chunk : chunks )
+		{
+			assertEquals( expectedMin, chunk.min( 0 ) );
+			if ( chunk.min( 0 ) != 100 )
+				assertEquals( 5, ( chunk.min( 0 ) - 100 ) % 8 );
+			expectedMin = chunk.max( 0 ) + 1;
+		}
+		assertEquals( 160, expectedMin );
+	}
+
+	@Test
+	public void testChunkIntervalAlignedToGridSingleChunk() {
+		Interval complete = Intervals.createMinSize( 100, 7, 60, 20 );
+		List< Interval > chunks = IntervalChunks.chunkInterval( complete, 1, array( 8, 8 ), array( 5, 3 ) );
+		assertEquals( 1, chunks.size() );
+		assertIntervalEquals( complete, chunks.get( 0 ) );
+	}
+
+	@Test
+	public void testChunkCellIndices() {
+		// 4 x 3 cells, 40 x 25 pixels
+		CellGrid grid = new CellGrid( array( 40, 25 ), new int[] { 10, 10 } );
+		List< Interval > chunks = IntervalChunks.chunkCellIndices( grid, 4 );
+		assertEquals( 4, chunks.size() );
+		assertIntervalEquals( Intervals.createMinSize( 0, 300 ), chunks.get( 0 ) );
+		assertIntervalEquals( Intervals.createMinSize( 300, 300 ), chunks.get( 1 ) );
+		assertIntervalEquals( Intervals.createMinSize( 600, 250 ), chunks.get( 2 ) );
+		assertIntervalEquals( Intervals.createMinSize( 850, 150 ), chunks.get( 3 ) );
+
+		// more chunks than cells: cells are split, but chunks don't straddle cells
+		chunks = IntervalChunks.chunkCellIndices( grid, 24 );
+		assertEquals( 24, chunks.size() );
+		assertIntervalEquals( Intervals.createMinSize( 0, 50 ), chunks.get( 0 ) );
+		assertIntervalEquals( Intervals.createMinSize( 50, 50 ), chunks.get( 1 ) );
+		assertIntervalEquals( Intervals.createMinSize( 975, 25 ), chunks.get( 23 ) );
+	}
+
 	private void assertArrayEquals( long[] expected, long[] actual ) {
 		if( !Arrays.equals(expected, actual))
 			fail( "Arrays are different:\n"
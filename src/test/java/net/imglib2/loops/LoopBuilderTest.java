@@ -42,9 +42,12 @@ import net.imglib2.img.array.ArrayImgFactory;
 import net.imglib2.img.array.ArrayImgs;
 import net.imglib2.img.cell.CellImgFactory;
 import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.parallel.Parallelization;
 import net.imglib2.test.ImgLib2Assert;
 import net.imglib2.test.RandomImgs;
 import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.real.DoubleType;
 import net.imglib2.util.Intervals;
 import net.imglib2.view.Views;
 import org.junit.Test;
@@ -53,12 +56,14 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests {@link LoopBuilder}.
@@ -221,6 +226,97 @@ public class LoopBuilderTest
 		ImgLib2Assert.assertImageEquals( expected, image );
 	}
 
+	@Test
+	public void testAdaptiveChunking()
+	{
+		final ImgFactory< IntType > array = new ArrayImgFactory<>( new IntType() );
+		final ImgFactory< IntType > cell = new CellImgFactory<>( new IntType(), 7, 5 );
+		for ( ImgFactory< IntType > factory : Arrays.asList( array, cell ) )
+		{
+			// fast cursors
+			Img< IntType > image = factory.create( 100, 60 );
+			testAdaptiveChunking( image );
+			image.forEach( pixel -> assertEquals( 1, pixel.get() ) );
+			// random accesses
+			image = factory.create( 100, 60 );
+			testAdaptiveChunking( Views.permute( image, 0, 1 ) );
+			image.forEach( pixel -> assertEquals( 1, pixel.get() ) );
+		}
+	}
+
+	private void testAdaptiveChunking( RandomAccessibleInterval< IntType > image )
+	{
+		final int numThreads = 3;
+		final List< Long > pixelsPerChunk = Parallelization.runWithNumThreads( numThreads, () ->
+				LoopBuilder.setImages( image ).multiThreaded().adaptiveChunking( 16 ).forEachChunk( chunk -> {
+					AtomicLong count = new AtomicLong();
+					chunk.forEachPixel( pixel -> {
+						pixel.inc();
+						count.incrementAndGet();
+					} );
+					return count.get();
+				} ) );
+		assertTrue( pixelsPerChunk.size() <= numThreads );
+		assertEquals( Intervals.numElements( image ), pixelsPerChunk.stream().mapToLong( Long::longValue ).sum() );
+	}
+
+	@Test
+	public void testReductions()
+	{
+		final Img< IntType > image = ArrayImgs.ints( 100, 70 );
+		RandomImgs.seed( 42 ).randomize( image );
+		long expectedSum = 0;
+		int expectedMax = Integer.MIN_VALUE;
+		for ( IntType pixel : image )
+		{
+			expectedSum += pixel.get();
+			expectedMax = Math.max( expectedMax, pixel.get() );
+		}
+		final long sum = expectedSum;
+		final int max = expectedMax;
+		Parallelization.runWithNumThreads( 4, () -> {
+			final LongType collected = LoopBuilder.setImages( image ).multiThreaded().collect(
+					LongType::new,
+					s -> pixel -> s.set( s.get() + pixel.get() ),
+					( a, b ) -> a.add( b ) );
+			assertEquals( sum, collected.get() );
+			assertEquals( sum, LoopBuilder.setImages( image ).multiThreaded().reduceLong( 0, Long::sum, acc -> pixel -> acc.accept( pixel.get() ) ) );
+			assertEquals( max, LoopBuilder.setImages( image ).multiThreaded().reduceDouble( Double.NEGATIVE_INFINITY, Math::max, acc -> pixel -> acc.accept( pixel.get() ) ), 0 );
+			assertEquals( sum, LoopBuilder.setImages( image ).multiThreaded().sum( acc -> pixel -> acc.accept( pixel.get() ) ), 0 );
+		} );
+	}
+
+	@Test
+	public void testReductionsOfTwoImages()
+	{
+		final Img< IntType > a = ArrayImgs.ints( new int[] { 1, 2, 3, 4 }, 2, 2 );
+		final Img< IntType > b = ArrayImgs.ints( new int[] { 4, 3, 2, 1 }, 2, 2 );
+		final long dot = LoopBuilder.setImages( a, b ).reduceLong( 0, Long::sum, acc -> ( x, y ) -> acc.accept( x.get() * y.get() ) );
+		assertEquals( 4 + 6 + 6 + 4, dot );
+	}
+
+	@Test
+	public void testReductionsOfEmptyImage()
+	{
+		final RandomAccessibleInterval< IntType > image = Views.interval( ArrayImgs.ints( 1, 5 ), Intervals.createMinSize( 0, 0, 0, 5 ) );
+		assertEquals( 7, LoopBuilder.setImages( image ).reduceLong( 7, Long::sum, acc -> pixel -> acc.accept( pixel.get() ) ) );
+		assertEquals( 0, LoopBuilder.setImages( image ).sum( acc -> pixel -> acc.accept( pixel.get() ) ), 0 );
+		assertEquals( 0, LoopBuilder.setImages( image ).collect( LongType::new, s -> pixel -> s.inc(), LongType::add ).get() );
+	}
+
+	@Test
+	public void testCompensatedSum()
+	{
+		// naive summation of 1e8 + 0.1 + 0.1 + ... accumulates rounding errors
+		final Img< DoubleType > image = ArrayImgs.doubles( 1000, 100 );
+		image.forEach( pixel -> pixel.set( 0.1 ) );
+		image.firstElement().set( 1e8 );
+		final double expected = 1e8 + ( image.size() - 1 ) * 0.1;
+		final double sum = Parallelization.runWithNumThreads( 3, () ->
+				LoopBuilder.setImages( image ).multiThreaded().sum( acc -> pixel -> acc.accept( pixel.get() ) ) );
+		assertEquals( expected, sum, 1e-6 );
+	}
+
 	@Test( expected = IllegalArgumentException.class )
 	public void testCheckDimensions() {
 		RandomAccessibleInterval<IntType> imageA = ArrayImgs.ints( 10, 10 );
@@ -0,0 +1,121 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.parallel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.imglib2.blocks.PrimitiveBlocks;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.loops.LoopBuilder;
+import net.imglib2.type.numeric.integer.IntType;
+
+import org.junit.Test;
+
+public class ExecutionMetricsTest
+{
+	@Test
+	public void testTaskTimes()
+	{
+		final List< ExecutionMetrics > recorded = new ArrayList<>();
+		try (TaskExecutor executor = TaskExecutors.instrumented( TaskExecutors.singleThreaded(), recorded::add ))
+		{
+			executor.forEach( Arrays.asList( 0, 20, 0, 0 ), millis -> {
+				if ( millis > 0 )
+					sleep( millis );
+			} );
+		}
+		assertEquals( 1, recorded.size() );
+		final ExecutionMetrics metrics = recorded.get( 0 );
+		assertNull( metrics.getTag() );
+		assertEquals( 4, metrics.getNumTasks() );
+		assertEquals( 1, metrics.getParallelism() );
+		assertEquals( 1, metrics.getNumThreads() );
+		assertTrue( metrics.getTaskNanos( 1 ) >= 20_000_000 );
+		assertEquals( metrics.getTaskNanos( 1 ), metrics.getMaxTaskNanos() );
+		assertTrue( metrics.getStragglerRatio() > 1 );
+		// tasks run one after the other
+		assertTrue( metrics.getQueueingNanos( 3 ) >= 20_000_000 );
+		assertTrue( metrics.getWallNanos() >= metrics.getTotalTaskNanos() );
+		assertTrue( metrics.getUtilization() > 0.5 && metrics.getUtilization() <= 1 );
+	}
+
+	@Test
+	public void testTags()
+	{
+		final List< ExecutionMetrics > recorded = new ArrayList<>();
+		final Img< IntType > img = ArrayImgs.ints( 1024, 512 );
+		try (TaskExecutor executor = TaskExecutors.instrumented( TaskExecutors.numThreads( 2 ), metrics -> {
+			synchronized ( recorded )
+			{
+				recorded.add( metrics );
+			}
+		} ))
+		{
+			Parallelization.runWithExecutor( executor, () -> {
+				LoopBuilder.setImages( img ).multiThreaded().forEachPixel( pixel -> pixel.set( 1 ) );
+				PrimitiveBlocks.of( img ).parallel().copy( new long[] { 0, 0 }, new int[ 1024 * 512 ], new int[] { 1024, 512 } );
+				ExecutionMetrics.withTag( "custom", () -> {
+					executor.runAll( Arrays.asList( () -> {}, () -> {} ) );
+					return null;
+				} );
+			} );
+		}
+		assertEquals( 3, recorded.size() );
+		assertEquals( "LoopBuilder", recorded.get( 0 ).getTag() );
+		assertEquals( 2, recorded.get( 0 ).getParallelism() );
+		assertEquals( "ParallelPrimitiveBlocks", recorded.get( 1 ).getTag() );
+		assertEquals( "custom", recorded.get( 2 ).getTag() );
+		assertEquals( 2, recorded.get( 2 ).getNumTasks() );
+		assertNull( ExecutionMetrics.currentTag() );
+	}
+
+	private static void sleep( final long millis )
+	{
+		try
+		{
+			Thread.sleep( millis );
+		}
+		catch ( final InterruptedException e )
+		{
+			throw new RuntimeException( e );
+		}
+	}
+}
@@ -0,0 +1,197 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.parallel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.loops.LoopBuilder;
+import net.imglib2.type.numeric.integer.IntType;
+
+import org.junit.Test;
+
+public class TaskMonitorTest
+{
+	@Test
+	public void testCancelStopsRemainingTasks()
+	{
+		final TaskMonitor monitor = new TaskMonitor();
+		final AtomicInteger executed = new AtomicInteger();
+		final List< Integer > parameters = new ArrayList<>( Collections.nCopies( 10, 0 ) );
+		try (TaskExecutor executor = TaskExecutors.monitored( TaskExecutors.singleThreaded(), monitor ))
+		{
+			executor.forEach( parameters, value -> {
+				if ( executed.incrementAndGet() == 3 )
+					monitor.cancel();
+			} );
+			fail( "CancellationException expected" );
+		}
+		catch ( final CancellationException e )
+		{
+			// expected
+		}
+		assertEquals( 3, executed.get() );
+		assertEquals( 3, monitor.getCompletedTasks() );
+		assertEquals( 10, monitor.getTotalTasks() );
+	}
+
+	@Test
+	public void testCancelLoopBuilder()
+	{
+		final TaskMonitor monitor = new TaskMonitor();
+		final Img< IntType > img = ArrayImgs.ints( 100, 100 );
+		final AtomicInteger chunks = new AtomicInteger();
+		try (TaskExecutor executor = TaskExecutors.monitored( TaskExecutors.numThreads( 2 ), monitor ))
+		{
+			// single threaded LoopBuilder inherits the monitor of the surrounding computation
+			Parallelization.runWithExecutor( executor, () -> {
+				monitor.cancel();
+				LoopBuilder.setImages( img ).forEachChunk( chunk -> {
+					chunks.incrementAndGet();
+					chunk.forEachPixel( pixel -> pixel.set( 1 ) );
+					return null;
+				} );
+			} );
+			fail( "CancellationException expected" );
+		}
+		catch ( final RuntimeException e )
+		{
+			assertTrue( isCancellation( e ) );
+		}
+		assertEquals( 0, chunks.get() );
+	}
+
+	@Test
+	public void testInheritedMonitorKeepsSingleThreadedChunking()
+	{
+		final TaskMonitor monitor = new TaskMonitor();
+		final Img< IntType > img = ArrayImgs.ints( 100, 100 );
+		try (TaskExecutor executor = TaskExecutors.monitored( TaskExecutors.numThreads( 2 ), monitor ))
+		{
+			final List< Object > results = Parallelization.runWithExecutor( executor, () -> LoopBuilder.setImages( img ).forEachChunk( chunk -> {
+				assertSame( monitor, TaskMonitor.current() );
+				chunk.forEachPixel( pixel -> pixel.set( 1 ) );
+				return null;
+			} ) );
+			assertEquals( 1, results.size() );
+		}
+		img.forEach( pixel -> assertEquals( 1, pixel.get() ) );
+	}
+
+	@Test
+	public void testMonitorOfInstrumentedExecutor()
+	{
+		final TaskMonitor monitor = new TaskMonitor();
+		monitor.cancel();
+		final Img< IntType > img = ArrayImgs.ints( 10, 10 );
+		try (TaskExecutor executor = TaskExecutors.instrumented( TaskExecutors.monitored( TaskExecutors.singleThreaded(), monitor ), metrics -> {} ))
+		{
+			assertSame( monitor, TaskMonitor.of( executor ) );
+			assertSame( executor, TaskMonitor.inheritCurrent( executor ) );
+			LoopBuilder.setImages( img ).multiThreaded( executor ).forEachPixel( pixel -> pixel.set( 1 ) );
+			fail( "CancellationException expected" );
+		}
+		catch ( final RuntimeException e )
+		{
+			assertTrue( isCancellation( e ) );
+		}
+		img.forEach( pixel -> assertEquals( 0, pixel.get() ) );
+	}
+
+	@Test
+	public void testTimeout() throws InterruptedException
+	{
+		final TaskMonitor monitor = new TaskMonitor();
+		monitor.setTimeout( 10, TimeUnit.MILLISECONDS );
+		Thread.sleep( 20 );
+		assertTrue( monitor.isCancelled() );
+		final Img< IntType > img = ArrayImgs.ints( 10, 10 );
+		try (TaskExecutor executor = TaskExecutors.monitored( TaskExecutors.singleThreaded(), monitor ))
+		{
+			LoopBuilder.setImages( img ).multiThreaded( executor ).forEachPixel( pixel -> pixel.set( 1 ) );
+			fail( "CancellationException expected" );
+		}
+		catch ( final CancellationException e )
+		{
+			// expected
+		}
+	}
+
+	@Test
+	public void testProgress()
+	{
+		final AtomicLong lastCompleted = new AtomicLong();
+		final AtomicLong lastTotal = new AtomicLong();
+		final TaskMonitor monitor = new TaskMonitor( ( completed, total ) -> {
+			lastCompleted.set( completed );
+			lastTotal.set( total );
+		} );
+		final Img< IntType > img = ArrayImgs.ints( 100, 100 );
+		try (TaskExecutor executor = TaskExecutors.monitored( TaskExecutors.numThreads( 3 ), monitor ))
+		{
+			assertSame( monitor, TaskMonitor.of( executor ) );
+			final List< Object > results = LoopBuilder.setImages( img ).multiThreaded( executor ).forEachChunk( chunk -> {
+				assertSame( monitor, TaskMonitor.current() );
+				chunk.forEachPixel( pixel -> pixel.set( 1 ) );
+				return null;
+			} );
+			assertEquals( results.size(), monitor.getTotalTasks() );
+			assertTrue( results.size() > 1 );
+		}
+		assertEquals( monitor.getTotalTasks(), monitor.getCompletedTasks() );
+		assertEquals( monitor.getTotalTasks(), lastCompleted.get() );
+		assertEquals( monitor.getTotalTasks(), lastTotal.get() );
+		img.forEach( pixel -> assertEquals( 1, pixel.get() ) );
+	}
+
+	private static boolean isCancellation( Throwable e )
+	{
+		for ( ; e != null; e = e.getCause() )
+			if ( e instanceof CancellationException )
+				return true;
+		return false;
+	}
+}
@@ -0,0 +1,153 @@
+/*-
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2024 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.parallel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link ThreadPerTaskExecutor}.
+ */
+public class ThreadPerTaskExecutorTest
+{
+	private static void sleep( final long millis )
+	{
+		try
+		{
+			Thread.sleep( millis );
+		}
+		catch ( final InterruptedException e )
+		{
+			throw new RuntimeException( e );
+		}
+	}
+
+	@Test
+	public void testConcurrencyIsBounded()
+	{
+		final TaskExecutor cpu = TaskExecutors.numThreads( 3 );
+		try (TaskExecutor executor = new ThreadPerTaskExecutor( 4, cpu ))
+		{
+			assertEquals( 3, executor.getParallelism() );
+			final AtomicInteger running = new AtomicInteger();
+			final AtomicInteger maxRunning = new AtomicInteger();
+			final List< Integer > parameters = IntStream.range( 0, 40 ).boxed().collect( Collectors.toList() );
+			final List< Integer > results = executor.forEachApply( parameters, i -> {
+				assertSame( cpu, Parallelization.getTaskExecutor() );
+				final int r = running.incrementAndGet();
+				maxRunning.accumulateAndGet( r, Math::max );
+				sleep( 5 );
+				running.decrementAndGet();
+				return 2 * i;
+			} );
+			assertEquals( parameters.stream().map( i -> 2 * i ).collect( Collectors.toList() ), results );
+			assertTrue( maxRunning.get() <= 4 );
+			assertTrue( maxRunning.get() > 1 );
+		}
+		finally
+		{
+			cpu.close();
+		}
+	}
+
+	@Test
+	public void testFirstFailureCancelsSiblings() throws InterruptedException
+	{
+		try (TaskExecutor executor = TaskExecutors.threadPerTask( 3 ))
+		{
+			final CountDownLatch siblingsRunning = new CountDownLatch( 2 );
+			final CountDownLatch siblingsInterrupted = new CountDownLatch( 2 );
+			final AtomicInteger numStarted = new AtomicInteger();
+			final List< Integer > parameters = IntStream.range( 0, 100 ).boxed().collect( Collectors.toList() );
+			try
+			{
+				executor.forEach( parameters, i -> {
+					numStarted.incrementAndGet();
+					if ( i == 2 )
+					{
+						try
+						{
+							siblingsRunning.await();
+						}
+						catch ( final InterruptedException e )
+						{
+							throw new RuntimeException( e );
+						}
+						throw new IllegalStateException( "task 2 failed" );
+					}
+					siblingsRunning.countDown();
+					try
+					{
+						Thread.sleep( 10000 );
+					}
+					catch ( final InterruptedException e )
+					{
+						siblingsInterrupted.countDown();
+					}
+				} );
+				fail( "expected exception" );
+			}
+			catch ( final IllegalStateException e )
+			{
+				assertEquals( "task 2 failed", e.getMessage() );
+			}
+			assertTrue( siblingsInterrupted.await( 5, TimeUnit.SECONDS ) );
+			assertTrue( numStarted.get() < parameters.size() );
+		}
+	}
+
+	@Test
+	public void testRunAll()
+	{
+		try (TaskExecutor executor = TaskExecutors.threadPerTask( 2 ))
+		{
+			final AtomicInteger count = new AtomicInteger();
+			executor.runAll( IntStream.range( 0, 10 ).mapToObj( i -> ( Runnable ) count::incrementAndGet ).collect( Collectors.toList() ) );
+			assertEquals( 10, count.get() );
+			assertFalse( executor.getExecutorService().isShutdown() );
+		}
+	}
+}